@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures booking: each invocation seats the same fixed stream of parties into a fresh plane at the given fill
+ * level, so that the plane never fills up in the middle of a measurement. The score is per party.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar BookingBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookingBenchmark {
+
+    private static final int PARTIES_PER_INVOCATION = 64;
+
+    private final int[] partySizes = new int[PARTIES_PER_INVOCATION];
+    private final Object[] locations = new Object[PARTIES_PER_INVOCATION];
+    private Object airplane;
+
+    @Setup(Level.Trial)
+    public void createParties() {
+        Random random = new Random(277);
+        Object[] choices = {Engine.WINDOW, Engine.AISLE, Engine.CENTER};
+
+        for (int i = 0; i < PARTIES_PER_INVOCATION; ++i) {
+            partySizes[i] = 1 + random.nextInt(2);
+            locations[i] = choices[random.nextInt(choices.length)];
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createAirplane(CabinParams cabin) throws Throwable {
+        airplane = cabin.newAirplane();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARTIES_PER_INVOCATION)
+    public long tryReserve() throws Throwable {
+        long reservations = 0;
+
+        for (int i = 0; i < PARTIES_PER_INVOCATION; ++i) {
+            reservations += (long) Engine.TRY_RESERVE.invokeExact(airplane, Engine.ECONOMY, partySizes[i],
+                                                                  locations[i]);
+        }
+        return reservations;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARTIES_PER_INVOCATION)
+    public Object addPassengers() throws Throwable {
+        for (int i = 0; i < PARTIES_PER_INVOCATION; ++i) {
+            Engine.ADD_PASSENGERS.invokeExact(airplane, Engine.ECONOMY, partySizes[i], locations[i]);
+        }
+        return airplane;
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cabin sizes and fill levels shared by the benchmarks: from the 15x6 economy section of the default plane
+ * up to 100 rows of 10 seats, and from an empty economy section to a full one.
+ */
+@State(Scope.Benchmark)
+public class CabinParams {
+
+    @Param({"15x6", "40x8", "100x10"})
+    public String economy;
+
+    @Param({"0", "50", "95", "100"})
+    public int fillPercent;
+
+    /**
+     * Returns the number of economy rows.
+     *
+     * @return the number of economy rows
+     */
+    int rows() {
+        return Integer.parseInt(economy.substring(0, economy.indexOf('x')));
+    }
+
+    /**
+     * Returns the number of economy columns.
+     *
+     * @return the number of economy columns
+     */
+    int columns() {
+        return Integer.parseInt(economy.substring(economy.indexOf('x') + 1));
+    }
+
+    /**
+     * Builds a plane with the economy section at this size and fill level.
+     *
+     * @return the plane
+     * @throws Throwable if the engine throws
+     */
+    Object newAirplane() throws Throwable {
+        return Engine.filledAirplane(rows(), columns(), fillPercent);
+    }
+}
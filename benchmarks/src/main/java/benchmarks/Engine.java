@@ -0,0 +1,178 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Entry points into the seat map engine for the benchmarks.
+ *
+ * The engine's classes live in the unnamed package, which classes in a named package (as JMH requires for
+ * benchmarks) cannot import. The entry points are looked up by name once and kept as constant method handles,
+ * which the JIT compiler inlines like direct calls. Engine objects are passed around as Object.
+ */
+final class Engine {
+
+    static final Object FIRST = enumConstant("CabinClass", "FIRST");
+    static final Object ECONOMY = enumConstant("CabinClass", "ECONOMY");
+    static final Object WINDOW = enumConstant("SeatLocation", "WINDOW");
+    static final Object AISLE = enumConstant("SeatLocation", "AISLE");
+    static final Object CENTER = enumConstant("SeatLocation", "CENTER");
+    static final Object ROW = enumConstant("SeatLocation", "ROW");
+
+    /** (int firstRows, int firstColumns, int economyRows, int economyColumns) Airplane */
+    static final MethodHandle NEW_AIRPLANE = constructor("Airplane", int.class, int.class, int.class, int.class);
+    /** (int firstRows, int firstColumns, int economyRows, int economyColumns, boolean concurrent) Airplane */
+    static final MethodHandle NEW_CONCURRENT_AIRPLANE = constructor("Airplane", int.class, int.class, int.class,
+            int.class, boolean.class);
+    /** (Airplane) boolean */
+    static final MethodHandle IS_FULL = method("Airplane", "isFull", boolean.class);
+    /** (Airplane, CabinClass) boolean */
+    static final MethodHandle IS_FULL_IN_SECTION = method("Airplane", "isFullInSection", boolean.class,
+            "CabinClass");
+    /** (Airplane, CabinClass, int) boolean */
+    static final MethodHandle HAS_AVAILABLE_SEATS = method("Airplane", "hasAvailableSeatsInSection",
+            boolean.class, "CabinClass", int.class);
+    /** (Airplane, CabinClass, int, SeatLocation) int[] */
+    static final MethodHandle AVAILABLE_SEATS = method("Airplane", "availableSeatsOfLocationType", int[].class,
+            "CabinClass", int.class, "SeatLocation");
+    /** (Airplane, CabinClass) SeatingSection */
+    static final MethodHandle GET_SECTION = method("Airplane", "getSection", "SeatingSection", "CabinClass");
+    /** (SeatingSection, int, SeatLocation) int[] */
+    static final MethodHandle SECTION_AVAILABLE_SEATS = method("SeatingSection", "availableSeatsOfLocationType",
+            int[].class, int.class, "SeatLocation");
+    /** (Airplane, CabinClass, int, SeatLocation) int */
+    static final MethodHandle COUNT_GROUPS = method("Airplane", "countAvailableGroups", int.class, "CabinClass",
+            int.class, "SeatLocation");
+    /** (SeatingSection, int, SeatLocation) int */
+    static final MethodHandle SECTION_COUNT_GROUPS = method("SeatingSection", "countAvailableGroups", int.class,
+            int.class, "SeatLocation");
+    /** (Airplane, CabinClass, int, SeatLocation) long */
+    static final MethodHandle TRY_RESERVE = method("Airplane", "tryReserve", long.class,
+            "CabinClass", int.class, "SeatLocation");
+    /** (Airplane, CabinClass, int, SeatLocation) void */
+    static final MethodHandle ADD_PASSENGERS = method("Airplane", "addPassengers", void.class,
+            "CabinClass", int.class, "SeatLocation");
+    /** (Airplane) String */
+    static final MethodHandle TO_STRING = method("Airplane", "toString", String.class);
+    /** (Airplane, StringBuilder as Object) void */
+    static final MethodHandle RENDER_TO = method("Airplane", "renderTo", void.class, StringBuilder.class);
+    /** (Airplane, ByteBuffer as Object) void */
+    static final MethodHandle RENDER_TO_BUFFER = method("Airplane", "renderTo", void.class, ByteBuffer.class);
+    /** () FlightInventory */
+    static final MethodHandle NEW_FLIGHT_INVENTORY = constructor("FlightInventory");
+    /** (String flightId, LocalDate date) FlightKey */
+    static final MethodHandle NEW_FLIGHT_KEY = constructor("FlightKey", String.class, LocalDate.class);
+    /** (FlightInventory, FlightKey, Airplane) void */
+    static final MethodHandle ADD_FLIGHT = method("FlightInventory", "addFlight", void.class, "FlightKey",
+            "Airplane");
+    /** (FlightInventory, CabinClass, int, SeatLocation, int) List */
+    static final MethodHandle FLIGHTS_WITH_AVAILABLE_GROUPS = method("FlightInventory", "flightsWithAvailableGroups",
+            List.class, "CabinClass", int.class, "SeatLocation", int.class);
+    /** (FlightInventory, ForkJoinPool as Object, CabinClass, int, SeatLocation) FlightKey */
+    static final MethodHandle FIND_FIRST_FLIGHT = method("FlightInventory", "findFirstFlightWithSeats",
+            "FlightKey", ForkJoinPool.class, "CabinClass", int.class, "SeatLocation");
+    /** (FlightInventory, ForkJoinPool as Object, CabinClass, int, SeatLocation, int) List */
+    static final MethodHandle TOP_FLIGHTS = method("FlightInventory", "topFlightsWithAvailableGroups", List.class,
+            ForkJoinPool.class, "CabinClass", int.class, "SeatLocation", int.class);
+
+    private Engine() {
+    }
+
+    /**
+     * Builds a plane with the default first class section and an economy section of the given size, then books
+     * whole sides of economy rows from the front until the given share of economy seats is taken.
+     *
+     * @param economyRows the number of economy rows
+     * @param economyColumns the number of economy columns
+     * @param fillPercent the share of economy seats to book, from 0 to 100
+     * @return the plane
+     * @throws Throwable if the engine throws
+     */
+    static Object filledAirplane(int economyRows, int economyColumns, int fillPercent) throws Throwable {
+        Object airplane = NEW_AIRPLANE.invokeExact(5, 4, economyRows, economyColumns);
+        int halvesToFill = economyRows * 2 * fillPercent / 100;
+
+        for (int i = 0; i < halvesToFill; ++i) {
+            // invokeExact needs the exact return type at the call site, even though it is not used
+            long reservation = (long) TRY_RESERVE.invokeExact(airplane, ECONOMY, economyColumns / 2, ROW);
+        }
+        return airplane;
+    }
+
+    /**
+     * Returns the engine class with the given name.
+     *
+     * @param name the name of the class in the unnamed package
+     * @return the class
+     */
+    private static Class<?> engineClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Returns a constant of an engine enum.
+     *
+     * @param enumName the name of the enum in the unnamed package
+     * @param constantName the name of the constant
+     * @return the constant
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumConstant(String enumName, String constantName) {
+        return Enum.valueOf((Class) engineClass(enumName), constantName);
+    }
+
+    /**
+     * Looks up a public constructor and erases the type it constructs to Object.
+     *
+     * @param className the engine class to construct
+     * @param parameterTypes the parameter types of the constructor
+     * @return the method handle of the constructor
+     */
+    private static MethodHandle constructor(String className, Class<?>... parameterTypes) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findConstructor(engineClass(className),
+                    MethodType.methodType(void.class, parameterTypes));
+            return handle.asType(handle.type().changeReturnType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Looks up a public method and erases its engine types to Object.
+     *
+     * @param className the engine class declaring the method
+     * @param methodName the name of the method
+     * @param returnType the return type of the method, either a class or the name of an engine class
+     * @param parameterTypes the parameter types, either classes or the names of engine classes
+     * @return the method handle taking the receiver as its first argument
+     */
+    private static MethodHandle method(String className, String methodName, Object returnType,
+                                       Object... parameterTypes) {
+        Class<?> resultType = returnType instanceof Class ? (Class<?>) returnType : engineClass((String) returnType);
+        Class<?>[] types = new Class<?>[parameterTypes.length];
+
+        for (int i = 0; i < types.length; ++i) {
+            types[i] = parameterTypes[i] instanceof Class ? (Class<?>) parameterTypes[i]
+                    : engineClass((String) parameterTypes[i]);
+        }
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findVirtual(engineClass(className), methodName,
+                    MethodType.methodType(resultType, types));
+            // erase() turns an engine return type into Object and leaves the others as they are
+            return handle.asType(handle.type().erase().changeReturnType(
+                    returnType instanceof Class ? resultType : Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of fleet-wide searches over a FlightInventory as the parallelism of the ForkJoinPool
+ * grows. Every flight is sold out except the last tenth, which is half full, so that a search for the first
+ * flight with a free row has to get through most of the fleet. With enough cores, the parallel searches should
+ * take about 1 / parallelism of the sequential one.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar FleetSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FleetSearchBenchmark {
+
+    @Param({"10000"})
+    public int flights;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private Object inventory;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void buildFleet() throws Throwable {
+        LocalDate date = LocalDate.of(2021, 3, 3);
+
+        inventory = Engine.NEW_FLIGHT_INVENTORY.invokeExact();
+        for (int i = 0; i < flights; ++i) {
+            Object airplane = Engine.filledAirplane(30, 6, i < flights * 9 / 10 ? 100 : 50);
+            Object key = Engine.NEW_FLIGHT_KEY.invokeExact("CL" + i, date);
+
+            Engine.ADD_FLIGHT.invokeExact(inventory, key, airplane);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<?> sequentialRows() throws Throwable {
+        return (List<?>) Engine.FLIGHTS_WITH_AVAILABLE_GROUPS.invokeExact(inventory, Engine.ECONOMY, 3, Engine.ROW,
+                                                                          1);
+    }
+
+    @Benchmark
+    public Object firstFlightWithRow() throws Throwable {
+        return Engine.FIND_FIRST_FLIGHT.invokeExact(inventory, (Object) pool, Engine.ECONOMY, 3, Engine.ROW);
+    }
+
+    @Benchmark
+    public List<?> topTenFlightsWithRows() throws Throwable {
+        return (List<?>) Engine.TOP_FLIGHTS.invokeExact(inventory, (Object) pool, Engine.ECONOMY, 3, Engine.ROW, 10);
+    }
+}
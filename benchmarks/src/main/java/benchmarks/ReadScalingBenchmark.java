@@ -0,0 +1,107 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the availability queries of a concurrent plane scale with the number of reader threads while
+ * background threads keep booking it. A plane that fills up is replaced by an empty one, so the readers always
+ * race with bookings. The score is the total of all reader threads; with linear scaling it grows in step with the
+ * threads, up to the number of cores left over by the booking threads.
+ *
+ * Run with: for t in 1 2 4 8; do java -jar benchmarks/target/benchmarks.jar ReadScalingBenchmark -t $t; done
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadScalingBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int bookingThreads;
+
+    private volatile Object airplane;
+    private volatile boolean booking;
+    private Thread[] bookers;
+
+    @Setup(Level.Trial)
+    public void startBooking() throws Throwable {
+        airplane = newAirplane();
+        booking = true;
+        bookers = new Thread[bookingThreads];
+        for (int i = 0; i < bookers.length; ++i) {
+            bookers[i] = new Thread(this::book, "background-booking-" + i);
+            bookers[i].setDaemon(true);
+            bookers[i].start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopBooking() throws InterruptedException {
+        booking = false;
+        for (Thread booker : bookers) {
+            booker.join();
+        }
+    }
+
+    @Benchmark
+    public int[] windowPair() throws Throwable {
+        return (int[]) Engine.AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 2, Engine.WINDOW);
+    }
+
+    @Benchmark
+    public int[] aisleSingle() throws Throwable {
+        return (int[]) Engine.AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 1, Engine.AISLE);
+    }
+
+    @Benchmark
+    public boolean hasAvailableSeats() throws Throwable {
+        return (boolean) Engine.HAS_AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 3);
+    }
+
+    /**
+     * Returns an empty concurrent plane with a 40x8 economy section.
+     *
+     * @return the plane
+     * @throws Throwable if the engine throws
+     */
+    private static Object newAirplane() throws Throwable {
+        return Engine.NEW_CONCURRENT_AIRPLANE.invokeExact(5, 4, 40, 8, true);
+    }
+
+    /**
+     * Books single passengers into the plane until the trial ends, replacing the plane whenever it is full.
+     */
+    private void book() {
+        Object[] locations = {Engine.WINDOW, Engine.AISLE, Engine.CENTER};
+
+        try {
+            for (int i = 0; booking; ++i) {
+                Object current = airplane;
+                long reservation = (long) Engine.TRY_RESERVE.invokeExact(current, Engine.ECONOMY, 1,
+                                                                         locations[i % locations.length]);
+
+                if (reservation < 0 && (boolean) Engine.IS_FULL_IN_SECTION.invokeExact(current, Engine.ECONOMY)) {
+                    airplane = newAirplane();
+                }
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
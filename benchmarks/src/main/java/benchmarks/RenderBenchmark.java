@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering the seat map of a whole plane, as the "show" command does.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar RenderBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    private Object airplane;
+    // reused across invocations, as a seat-map endpoint would reuse its output buffers
+    private final StringBuilder builder = new StringBuilder();
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp(CabinParams cabin) throws Throwable {
+        airplane = cabin.newAirplane();
+        buffer = ByteBuffer.allocate(((String) Engine.TO_STRING.invokeExact(airplane)).length());
+    }
+
+    @Benchmark
+    public String airplaneToString() throws Throwable {
+        return (String) Engine.TO_STRING.invokeExact(airplane);
+    }
+
+    @Benchmark
+    public StringBuilder airplaneRenderToBuilder() throws Throwable {
+        builder.setLength(0);
+        Engine.RENDER_TO.invokeExact(airplane, (Object) builder);
+        return builder;
+    }
+
+    @Benchmark
+    public ByteBuffer airplaneRenderToBuffer() throws Throwable {
+        buffer.clear();
+        Engine.RENDER_TO_BUFFER.invokeExact(airplane, (Object) buffer);
+        return buffer;
+    }
+}
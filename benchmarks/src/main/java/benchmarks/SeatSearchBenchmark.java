@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the read-only queries that run before every booking: the seat searches of each location, the
+ * full / available seat checks and the seat group counts. The counts through the plane are answered by its
+ * availability cache after the first one; windowPairGroupsUncached counts in the seating section itself for
+ * comparison, as windowPairSection searches it without going through the plane.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar SeatSearchBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatSearchBenchmark {
+
+    private Object airplane;
+    private Object economy;
+
+    @Setup(Level.Trial)
+    public void setUp(CabinParams cabin) throws Throwable {
+        airplane = cabin.newAirplane();
+        economy = Engine.GET_SECTION.invokeExact(airplane, Engine.ECONOMY);
+    }
+
+    @Benchmark
+    public int[] windowPair() throws Throwable {
+        return (int[]) Engine.AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 2, Engine.WINDOW);
+    }
+
+    @Benchmark
+    public int[] windowPairSection() throws Throwable {
+        return (int[]) Engine.SECTION_AVAILABLE_SEATS.invokeExact(economy, 2, Engine.WINDOW);
+    }
+
+    @Benchmark
+    public int windowPairGroups() throws Throwable {
+        return (int) Engine.COUNT_GROUPS.invokeExact(airplane, Engine.ECONOMY, 2, Engine.WINDOW);
+    }
+
+    @Benchmark
+    public int windowPairGroupsUncached() throws Throwable {
+        return (int) Engine.SECTION_COUNT_GROUPS.invokeExact(economy, 2, Engine.WINDOW);
+    }
+
+    @Benchmark
+    public int[] aisleSingle() throws Throwable {
+        return (int[]) Engine.AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 1, Engine.AISLE);
+    }
+
+    @Benchmark
+    public int[] centerPair() throws Throwable {
+        return (int[]) Engine.AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 2, Engine.CENTER);
+    }
+
+    @Benchmark
+    public boolean isFull() throws Throwable {
+        return (boolean) Engine.IS_FULL.invokeExact(airplane);
+    }
+
+    @Benchmark
+    public boolean isFullInSection() throws Throwable {
+        return (boolean) Engine.IS_FULL_IN_SECTION.invokeExact(airplane, Engine.ECONOMY);
+    }
+
+    @Benchmark
+    public boolean hasAvailableSeats() throws Throwable {
+        return (boolean) Engine.HAS_AVAILABLE_SEATS.invokeExact(airplane, Engine.ECONOMY, 3);
+    }
+}
@@ -0,0 +1,153 @@
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Constructs an ActorBookingServer object that serves the line protocol of LineCommand for one flight, with a
+ * thread of its own for each client connection and a FlightActor making every booking.
+ *
+ * For our purposes:
+ *      - Each connection blocks on its own socket in a thread of a cached pool, so a slow client never holds up
+ *          another; the threads are started as connections arrive and reused after they close.
+ *      - ADD goes through the flight's mailbox and runs on its single writer thread; SHOW and errors are answered
+ *          from the latest published snapshot without waiting for the writer.
+ */
+public class ActorBookingServer implements Runnable, Closeable {
+
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService connectionThreads = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "booking-connection");
+
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the open connections, to close them when the server stops
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final LineConnection.Responder responder;
+    private volatile boolean running = true;
+
+    /**
+     * Opens a server for a flight on the given address. The server starts serving when run() is called.
+     *
+     * @param actor the actor of the flight that the clients book
+     * @param address the address to listen on; port 0 picks a free port
+     * @throws IOException if the address cannot be listened on
+     */
+    public ActorBookingServer(FlightActor actor, InetSocketAddress address) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        responder = (command, out) -> command.getVerb() == LineCommand.Verb.ADD
+                ? actor.call(airplane -> command.respond(airplane, out))
+                : command.respond(actor.getSnapshot(), out);
+    }
+
+    /**
+     * Returns the port that the server listens on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Accepts connections until close() is called, serving each on a thread of its own.
+     *
+     * @throws UncheckedIOException if the server socket fails
+     */
+    public void run() {
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept();
+
+                connections.add(channel);
+                connectionThreads.execute(() -> serve(channel));
+            }
+        } catch (IOException e) {
+            // closing the server socket ends accept() with an exception as well
+            if (running) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. The actor is left running.
+     */
+    public void close() {
+        running = false;
+        closeQuietly(serverChannel);
+        for (SocketChannel channel : connections) {
+            closeQuietly(channel);
+        }
+        connectionThreads.shutdown();
+    }
+
+    /**
+     * Reads the commands of a connection and writes its responses until the client quits or goes away.
+     *
+     * @param channel the connection
+     */
+    private void serve(SocketChannel channel) {
+        LineConnection connection = new LineConnection();
+
+        try {
+            while (!connection.isQuitting() && channel.read(connection.getIn()) >= 0) {
+                connection.handleLines(responder);
+
+                ByteBuffer out = connection.getOut();
+
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                out.clear();
+            }
+        } catch (IOException e) {
+            // the client is gone
+        } finally {
+            connections.remove(channel);
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Closes a channel, ignoring any error since its client is gone either way.
+     *
+     * @param channel the channel
+     */
+    private static void closeQuietly(Closeable channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the connection is already broken
+        }
+    }
+
+    /**
+     * Serves the seats of a plane with 5 rows of 4 first class seats and 15 rows of 6 economy seats, as MainTest
+     * does, to the clients on this machine.
+     *
+     * @param args the port to listen on; BookingServer.DEFAULT_PORT if none is given
+     * @throws IOException if the port cannot be listened on
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : BookingServer.DEFAULT_PORT;
+        FlightActor actor = new FlightActor("main", new Airplane(5, 4, 15, 6));
+        ActorBookingServer server = new ActorBookingServer(actor,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+
+        System.out.println("Serving bookings on port " + server.getPort());
+        server.run();
+    }
+}
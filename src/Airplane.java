@@ -1,5 +1,12 @@
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Constructs an Airplane object that takes SeatingSection objects.
@@ -7,19 +14,52 @@ import java.util.ArrayList;
  * For our purposes:
  *      - The Airplane object must NOT be coupled with the Scanner or PrintStream classes.
  *      - Seats will be portrayed using various SeatingSection objects, each with their own
- *          member variables `seats` which are two-D arrays of type String[][].
+ *          member variables `seats` which hold one occupancy bitmask per row.
+ *      - The SeatingSection of each CabinClass is found by the cabin class's ordinal; a cabin class
+ *          that the Airplane does not have holds an empty SeatingSection.
+ *      - Seats can be held for a checkout with hold(), shown as "*", and are then either booked with confirm(),
+ *          emptied with release(), or emptied by themselves once the hold's time to live is up (see SeatHolds).
+ *          The holds of concurrent seating sections go on one wheel for the whole fleet, which a ticker thread
+ *          expires on time. A seating section that is not concurrent may only be touched by the plane's own
+ *          callers, so its holds go on a wheel of the plane's own, made by its first hold. They expire on time
+ *          through the executor given to setHoldOwner(), which the fleet's ticker hands the expiry to when a hold
+ *          is due; without one, they expire as the plane's holds are used or expireHolds() is called.
  */
 public class Airplane {
 
-    private final SeatingSection firstClass;
-    private final SeatingSection economyClass;
+    // a seating section without seats can never change, so every missing cabin class shares this one
+    private static final SeatingSection EMPTY_SECTION = new SeatingSection();
+    // the holds expire up to 10 ms late, on a wheel that turns once every 40.96 seconds; the wheel of a single
+    // plane turns every 2.56 seconds, as it has far fewer holds to spread out
+    private static final long HOLD_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int HOLD_WHEEL_BUCKETS = 4096;
+    private static final int PLANE_HOLD_WHEEL_BUCKETS = 256;
+    // two shards of the fleet's wheel per processor, rounded up to a power of 2, so that threads taking and ending
+    // holds seldom wait for each other's shard
+    private static final int HOLD_WHEEL_SHARDS =
+            Math.min(64, Integer.highestOneBit(2 * Runtime.getRuntime().availableProcessors() - 1) << 1);
+    // the holds of every concurrent seating section, which the wheel's ticker thread expires
+    private static final SeatHolds FLEET_HOLDS = new SeatHolds(HOLD_TICK_NANOS, HOLD_WHEEL_BUCKETS,
+                                                               HOLD_WHEEL_SHARDS, true);
+
+    private final SeatingSection[] sections = new SeatingSection[CabinClass.values().length];
+    // the answers of recent seat group counts, checked against the version of their section; null until the
+    // first count
+    private volatile AvailabilityCache availabilityCache;
+    // the holds of the seating sections that are not concurrent; null until the first of them
+    private SeatHolds holds;
+    // the executor that those holds expire on; null to expire them only when they are used
+    private Executor holdOwner;
+    // told about every booking made through the Airplane; null if nobody listens
+    private volatile BookingListener bookingListener;
 
     /**
      * Constructs a default empty plane.
      */
     public Airplane() {
-        firstClass = new SeatingSection();
-        economyClass = new SeatingSection();
+        for (int i = 0; i < sections.length; ++i) {
+            sections[i] = EMPTY_SECTION;
+        }
     }
 
     /**
@@ -31,8 +71,155 @@ public class Airplane {
      * @param economyColumns the number of columns of the economyClass seatingSection
      */
     public Airplane(int firstRows, int firstColumns, int economyRows, int economyColumns) {
-        firstClass = new SeatingSection(firstRows, firstColumns);
-        economyClass = new SeatingSection(economyRows, economyColumns);
+        this(firstRows, firstColumns, economyRows, economyColumns, false);
+    }
+
+    /**
+     * Constructs a plane with the given seating class rows and columns that can optionally be booked from many
+     * threads at once.
+     *
+     * @param firstRows the number of rows of the firstClass seatingSection
+     * @param firstColumns the number of columns of the firstClass seatingSection
+     * @param economyRows the number of rows of the economyClass seatingSection
+     * @param economyColumns the number of columns of the economyClass seatingSection
+     * @param concurrent true if the plane will be booked from many threads at once; false otherwise.
+     */
+    public Airplane(int firstRows, int firstColumns, int economyRows, int economyColumns, boolean concurrent) {
+        this();
+        sections[CabinClass.FIRST.ordinal()] = new SeatingSection(firstRows, firstColumns, concurrent);
+        sections[CabinClass.ECONOMY.ordinal()] = new SeatingSection(economyRows, economyColumns, concurrent);
+    }
+
+    /**
+     * Constructs a plane with the given seating class rows and seat layouts (ex: SeatLayout.parse("3-4-3") for
+     * a twin-aisle economy class) that can optionally be booked from many threads at once.
+     *
+     * @param firstRows the number of rows of the firstClass seatingSection
+     * @param firstLayout the seat layout of the firstClass seatingSection
+     * @param economyRows the number of rows of the economyClass seatingSection
+     * @param economyLayout the seat layout of the economyClass seatingSection
+     * @param concurrent true if the plane will be booked from many threads at once; false otherwise.
+     */
+    public Airplane(int firstRows, SeatLayout firstLayout, int economyRows, SeatLayout economyLayout,
+                    boolean concurrent) {
+        this();
+        sections[CabinClass.FIRST.ordinal()] = new SeatingSection(firstRows, firstLayout, concurrent);
+        sections[CabinClass.ECONOMY.ordinal()] = new SeatingSection(economyRows, economyLayout, concurrent);
+    }
+
+    /**
+     * Constructs a plane with the given seating sections; cabin classes that are not given are left empty.
+     *
+     * @param cabins the seating section of each cabin class of the plane
+     */
+    public Airplane(Map<CabinClass, SeatingSection> cabins) {
+        this();
+        for (Map.Entry<CabinClass, SeatingSection> cabin : cabins.entrySet()) {
+            sections[cabin.getKey().ordinal()] = cabin.getValue();
+        }
+    }
+
+    /**
+     * Returns the SeatingSection instance of the cabin class.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @return the SeatingSection instance of the cabin class
+     */
+    public SeatingSection getSection(CabinClass cabinClass) {
+        return sections[cabinClass.ordinal()];
+    }
+
+    /**
+     * Returns the cache of seat group counts, for its hit and miss counters.
+     *
+     * @return the availability cache of the plane
+     */
+    public AvailabilityCache getAvailabilityCache() {
+        AvailabilityCache cache = availabilityCache;
+
+        if (cache == null) {
+            // of two threads counting for the first time, both keep the cache that was made first
+            synchronized (sections) {
+                cache = availabilityCache;
+                if (cache == null) {
+                    cache = new AvailabilityCache(sections);
+                    availabilityCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the wheel that keeps the holds of a seating section, for its counters: the wheel of the whole
+     * fleet for a concurrent seating section, and the plane's own wheel for one that is not.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @return the holds of the seating section, along with the other holds of the same wheel
+     */
+    public SeatHolds getSeatHolds(CabinClass cabinClass) {
+        return holdsOf(sections[cabinClass.ordinal()], true);
+    }
+
+    /**
+     * Returns the wheel that keeps the holds of a seating section.
+     *
+     * @param section the seating section
+     * @param create true to make the plane's own wheel if the seating section needs it and it does not exist yet
+     * @return the wheel; null if the plane's own wheel does not exist and was not made
+     */
+    private SeatHolds holdsOf(SeatingSection section, boolean create) {
+        if (section.isConcurrent()) {
+            return FLEET_HOLDS;
+        }
+        if (holds == null && create) {
+            holds = new SeatHolds(HOLD_TICK_NANOS, PLANE_HOLD_WHEEL_BUCKETS, 1, false);
+            if (holdOwner != null) {
+                holds.setOwner(holdOwner, FLEET_HOLDS);
+            }
+        }
+        return holds;
+    }
+
+    /**
+     * Sets the executor that the holds of the seating sections that are not concurrent expire on, replacing the
+     * previous one. The fleet's ticker hands it the expiry of the plane's holds as soon as one is due, so they
+     * expire on time even if nobody touches the plane.
+     *
+     * @param holdOwner the executor, which must run the expiry on the only thread that touches the plane and may
+     *                  throw a RejectedExecutionException to have it handed over again a tick later; null to expire
+     *                  the holds only as they are used or expireHolds() is called
+     */
+    public void setHoldOwner(Executor holdOwner) {
+        this.holdOwner = holdOwner;
+        if (holds != null) {
+            holds.setOwner(holdOwner, FLEET_HOLDS);
+        }
+    }
+
+    /**
+     * Sets the listener that is told about every booking made through the Airplane, replacing the previous one.
+     * Seats booked directly on a SeatingSection are not reported.
+     *
+     * @param bookingListener the listener; null to stop reporting bookings
+     */
+    public void setBookingListener(BookingListener bookingListener) {
+        this.bookingListener = bookingListener;
+    }
+
+    /**
+     * Sets which of the matching seats the bookings and seat searches of every seating section take from now on.
+     *
+     * @param assignmentStrategy the assignment strategy
+     * @throws IllegalArgumentException if the strategy is null
+     */
+    public void setAssignmentStrategy(AssignmentStrategy assignmentStrategy) {
+        for (SeatingSection section : sections) {
+            // the shared empty section has no seats to assign
+            if (section != EMPTY_SECTION) {
+                section.setAssignmentStrategy(assignmentStrategy);
+            }
+        }
     }
 
     /**
@@ -41,7 +228,7 @@ public class Airplane {
      * @return the firstClass SeatingSection instance
      */
     public SeatingSection getFirstClass() {
-        return firstClass;
+        return getSection(CabinClass.FIRST);
     }
 
     /**
@@ -50,21 +237,23 @@ public class Airplane {
      * @return the economyClass SeatingSection instance
      */
     public SeatingSection getEconomyClass() {
-        return economyClass;
+        return getSection(CabinClass.ECONOMY);
     }
 
     /**
-     * Returns all seats from all seating sections of the Airplane.
+     * Returns all seats from all seating sections of the Airplane, skipping the cabin classes without seats.
      *
      * @return all seats from all seating sections of the Airplane
      */
     public ArrayList<String[][]> getAllSeats() {
         ArrayList<String[][]> allSeats = new ArrayList<String[][]>();
 
-        // copy firstClass seats into the ArrayList
-        allSeats.add(firstClass.getSeating());
-        // copy economyClass seats into the ArrayList
-        allSeats.add(economyClass.getSeating());
+        // copy the seats of each seating section into the ArrayList, from front to back
+        for (SeatingSection section : sections) {
+            if (section.getNumOfRows() > 0) {
+                allSeats.add(section.getSeating());
+            }
+        }
 
         return allSeats;
     }
@@ -75,34 +264,45 @@ public class Airplane {
      * @return true if the Airplane is full; false otherwise.
      */
     public boolean isFull() {
-        ArrayList<String[][]> allSeats = getAllSeats();
-
-        // scan the airplane; if even one seat is empty, immediately return false
-        for (String[][] section : allSeats) {
-            for (String[] row : section) {
-                for (String column : row) {
-                    if (column.equals(".")) {
-                        return false;
-                    }
-                }
+        // every seating section keeps its own count of empty seats
+        for (SeatingSection section : sections) {
+            if (!section.isFull()) {
+                return false;
             }
         }
         return true;
     }
 
+    /**
+     * Returns whether or not the seating section is completely full.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @return true if the seating section is full; false otherwise.
+     */
+    public boolean isFullInSection(CabinClass cabinClass) {
+        return sections[cabinClass.ordinal()].isFull();
+    }
+
     /**
      * Returns whether or not the seating section is completely full.
      *
      * @return true if the seating section is full; false otherwise.
      */
     public boolean isFullInSection(String seatingSection) {
-        // check the appropriate seating section to see if it is completely full
-        if (seatingSection.equals("first")) {
-            return firstClass.isFull();
-        } else if (seatingSection.equals("economy")) {
-            return economyClass.isFull();
-        }
-        return false;
+        CabinClass cabinClass = CabinClass.fromName(seatingSection);
+
+        return cabinClass != null && isFullInSection(cabinClass);
+    }
+
+    /**
+     * Returns whether or not the number of seats in a row on either side of the aisle matches the number of passengers.
+     *
+     * @param cabinClass the cabin class of the seating section to be scanned
+     * @param numOfPassengers the number of passengers to be seated
+     * @return true if rows can be filled with the number of passengers; false otherwise.
+     */
+    public boolean canFillRowInSection(CabinClass cabinClass, int numOfPassengers) {
+        return sections[cabinClass.ordinal()].canFillRow(numOfPassengers);
     }
 
     /**
@@ -113,14 +313,20 @@ public class Airplane {
      * @return true if rows can be filled with the number of passengers; false otherwise.
      */
     public boolean canFillRowInSection(String seatingSection, int numOfPassengers) {
-        // check the appropriate seating section to see if a row can be filled
-        if (seatingSection.equals("first")) {
-            return firstClass.canFillRow(numOfPassengers);
-        } else if (seatingSection.equals("economy")) {
-            return economyClass.canFillRow(numOfPassengers);
-        }
+        CabinClass cabinClass = CabinClass.fromName(seatingSection);
 
-        return false;
+        return cabinClass != null && canFillRowInSection(cabinClass, numOfPassengers);
+    }
+
+    /**
+     * Returns true if the seating section has enough available seats; false otherwise.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers to seat
+     * @return true if the seating section has enough available seats; false otherwise.
+     */
+    public boolean hasAvailableSeatsInSection(CabinClass cabinClass, int numOfPassengers) {
+        return sections[cabinClass.ordinal()].hasAvailableSeats(numOfPassengers);
     }
 
     /**
@@ -131,14 +337,25 @@ public class Airplane {
      * @return true if the seating section has enough available seats; false otherwise.
      */
     public boolean hasAvailableSeatsInSection(String seatingSection, int numOfPassengers) {
-        // check the appropriate seating section to see if there are enough available seats
-        if (seatingSection.equals("first")) {
-            return firstClass.hasAvailableSeats(numOfPassengers);
-        } else if (seatingSection.equals("economy")) {
-            return economyClass.hasAvailableSeats(numOfPassengers);
-        }
+        CabinClass cabinClass = CabinClass.fromName(seatingSection);
 
-        return false;
+        return cabinClass != null && hasAvailableSeatsInSection(cabinClass, numOfPassengers);
+    }
+
+    /**
+     * Returns the seating section's indexes of the available seats of the specified seating location.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the array containing:
+     *              - index of the row to add,
+     *              - the index of the column to begin adding,
+     *              - the index of the column to stop after adding
+     */
+    public int[] availableSeatsOfLocationType(CabinClass cabinClass, int numOfPassengers,
+                                              SeatLocation seatingLocation) {
+        return sections[cabinClass.ordinal()].availableSeatsOfLocationType(numOfPassengers, seatingLocation);
     }
 
     /**
@@ -151,14 +368,240 @@ public class Airplane {
      *              - the index of the column to stop after adding
      */
     public int[] availableSeatsOfLocationType(String seatingSection, int numOfPassengers, String seatingLocation) {
-        // check the appropriate seating section to see if there are enough available seats
-        if (seatingSection.equals("first")) {
-            return firstClass.availableSeatsOfLocationType(numOfPassengers, seatingLocation);
-        } else if (seatingSection.equals("economy")) {
-            return economyClass.availableSeatsOfLocationType(numOfPassengers, seatingLocation);
+        CabinClass cabinClass = CabinClass.fromName(seatingSection);
+
+        if (cabinClass == null) {
+            return new int[0];
         }
+        return availableSeatsOfLocationType(cabinClass, numOfPassengers, SeatLocation.fromName(seatingLocation));
+    }
 
-        return new int[0];
+    /**
+     * Returns how many more parties of the given size could still be seated at the specified seating location of
+     * a seating section. The answer comes from the availability cache while the seating section has not changed
+     * since it was last counted.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the number of parties that could still be seated
+     */
+    public int countAvailableGroups(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        return getAvailabilityCache().countAvailableGroups(cabinClass, numOfPassengers, seatingLocation);
+    }
+
+    /**
+     * Finds the first available seats of the specified seating location and occupies them in a single search.
+     *
+     * @param cabinClass the cabin class of the seating section that the passengers will sit in
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the reservation of the seats within the seating section; SeatingSection.NO_SEATS if there are
+     *              no matching seats
+     */
+    public long tryReserve(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        BookingCommitEvent event = new BookingCommitEvent();
+
+        event.begin();
+        SeatingSection section = sections[cabinClass.ordinal()];
+        long reservation = section.tryReserve(numOfPassengers, seatingLocation);
+        BookingListener listener = bookingListener;
+
+        if (reservation == SeatingSection.NO_SEATS) {
+            reportRejection(cabinClass, section, numOfPassengers);
+            return reservation;
+        }
+        if (listener != null) {
+            listener.seatsReserved(cabinClass, reservation);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.cabinClass = cabinClass.name();
+            event.seatingLocation = seatingLocation == null ? null : seatingLocation.getName();
+            event.partySize = numOfPassengers;
+            event.row = SeatingSection.reservedRow(reservation);
+            event.firstColumn = SeatingSection.reservedFirstColumn(reservation);
+            event.lastColumn = SeatingSection.reservedLastColumn(reservation);
+            event.commit();
+        }
+        return reservation;
+    }
+
+    /**
+     * Holds the available seats of the specified seating location for a checkout. The seats are taken for every
+     * other booking, and are shown as "*", until the hold is confirmed or released; if it is neither within the
+     * time to live, the seats are emptied again.
+     *
+     * @param cabinClass the cabin class of the seating section that the passengers will sit in
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @param ttlMillis the milliseconds to hold the seats for
+     * @return the ID of the hold, for confirm() and release(); SeatHolds.NO_HOLD if there are no matching seats
+     */
+    public long hold(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation, long ttlMillis) {
+        SeatingSection section = sections[cabinClass.ordinal()];
+
+        return holdsOf(section, true).hold(section, cabinClass, numOfPassengers, seatingLocation,
+                                           TimeUnit.MILLISECONDS.toNanos(ttlMillis), System.nanoTime());
+    }
+
+    /**
+     * Books the seats of a hold that has not expired yet. The booking listener is told about the seats now, as
+     * if they had just been booked.
+     *
+     * @param holdId the ID returned by hold()
+     * @return the reservation of the seats within the seating section of the hold's cabin class;
+     *              SeatingSection.NO_SEATS if the hold expired or was confirmed or released already
+     */
+    public long confirm(long holdId) {
+        long reservation = endHold(holdId, true);
+        BookingListener listener = bookingListener;
+
+        if (reservation != SeatingSection.NO_SEATS && listener != null) {
+            listener.seatsReserved(SeatHolds.cabinClassOf(holdId), reservation);
+        }
+        return reservation;
+    }
+
+    /**
+     * Empties the seats of a hold that has not expired yet, for a checkout that was given up.
+     *
+     * @param holdId the ID returned by hold()
+     * @return true if the seats were emptied; false if the hold expired or was confirmed or released already
+     */
+    public boolean release(long holdId) {
+        return endHold(holdId, false) != SeatingSection.NO_SEATS;
+    }
+
+    /**
+     * Ends a hold of the plane that has not expired yet.
+     *
+     * @param holdId the ID returned by hold()
+     * @param confirm true to book the seats; false to empty them
+     * @return the reservation of the seats; SeatingSection.NO_SEATS if the hold is not one of the plane's, expired
+     *              or ended already
+     */
+    private long endHold(long holdId, boolean confirm) {
+        CabinClass cabinClass = SeatHolds.cabinClassOf(holdId);
+
+        if (cabinClass == null) {
+            return SeatingSection.NO_SEATS;
+        }
+
+        SeatingSection section = sections[cabinClass.ordinal()];
+        SeatHolds wheel = holdsOf(section, false);
+
+        return wheel == null ? SeatingSection.NO_SEATS : wheel.end(holdId, section, confirm, System.nanoTime());
+    }
+
+    /**
+     * Empties the seats of every hold on a seating section that is not concurrent whose time to live is up. These
+     * holds also expire whenever one of them is taken, confirmed or released, so a server without a hold owner
+     * (see setHoldOwner()) only needs to call this now and then for a plane that is left alone; the holds of
+     * concurrent seating sections expire by themselves.
+     *
+     * @return the number of holds that expired
+     */
+    public int expireHolds() {
+        return holds == null ? 0 : holds.expire(System.nanoTime());
+    }
+
+    /**
+     * Emits a SectionFullEvent for a booking that found no seats, if its seating section is too full for the
+     * party.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param section the seating section
+     * @param numOfPassengers the number of passengers of the party
+     */
+    private static void reportRejection(CabinClass cabinClass, SeatingSection section, int numOfPassengers) {
+        SectionFullEvent event = new SectionFullEvent();
+        int freeSeats = section.getFreeSeats();
+
+        if (freeSeats < numOfPassengers && event.shouldCommit()) {
+            event.cabinClass = cabinClass.name();
+            event.partySize = numOfPassengers;
+            event.freeSeats = freeSeats;
+            event.commit();
+        }
+    }
+
+    /**
+     * Finds the first available seats of the specified seating location and occupies them in a single search.
+     *
+     * @param seatingSection the type of seating section that the passengers will sit in
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row (aisle, center, window, or row)
+     * @return the reservation of the seats within the seating section; SeatingSection.NO_SEATS if there are
+     *              no matching seats
+     */
+    public long tryReserve(String seatingSection, int numOfPassengers, String seatingLocation) {
+        CabinClass cabinClass = CabinClass.fromName(seatingSection);
+
+        if (cabinClass == null) {
+            return SeatingSection.NO_SEATS;
+        }
+        return tryReserve(cabinClass, numOfPassengers, SeatLocation.fromName(seatingLocation));
+    }
+
+    /**
+     * Seats many parties at once. The requests are bucketed by seating section, and each section seats its
+     * parties in a single sweep over its rows; the parties get the same seats as one tryReserve() call each,
+     * in the order given.
+     *
+     * @param requests the parties to seat
+     * @return the reservation of each request within its seating section, at the request's index;
+     *              SeatingSection.NO_SEATS for the requests without matching seats
+     */
+    public long[] addPassengersBatch(List<BookingRequest> requests) {
+        long[] reservations = new long[requests.size()];
+        // bucket the requests by seating section, keeping their order within each section
+        int[] firstOfSection = new int[sections.length + 1];
+        int[] positions = new int[requests.size()];
+
+        for (BookingRequest request : requests) {
+            ++firstOfSection[request.getCabinClass().ordinal() + 1];
+        }
+        for (int i = 0; i < sections.length; ++i) {
+            firstOfSection[i + 1] += firstOfSection[i];
+        }
+
+        int[] next = firstOfSection.clone();
+        for (int i = 0; i < positions.length; ++i) {
+            positions[next[requests.get(i).getCabinClass().ordinal()]++] = i;
+        }
+
+        for (int i = 0; i < sections.length; ++i) {
+            int numOfRequests = firstOfSection[i + 1] - firstOfSection[i];
+
+            sections[i].tryReserveBatch(requests, positions, firstOfSection[i], numOfRequests, reservations);
+        }
+
+        BookingListener listener = bookingListener;
+
+        for (int i = 0; i < reservations.length; ++i) {
+            CabinClass cabinClass = requests.get(i).getCabinClass();
+
+            if (reservations[i] == SeatingSection.NO_SEATS) {
+                // the section is as full as the whole batch left it
+                reportRejection(cabinClass, sections[cabinClass.ordinal()], requests.get(i).getNumOfPassengers());
+            } else if (listener != null) {
+                listener.seatsReserved(cabinClass, reservations[i]);
+            }
+        }
+        return reservations;
+    }
+
+    /**
+     * Adds a passenger to the plane.
+     *
+     * @param cabinClass the cabin class of the seating section that the passenger will sit in
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     */
+    public void addPassengers(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        tryReserve(cabinClass, numOfPassengers, seatingLocation);
     }
 
     /**
@@ -169,12 +612,53 @@ public class Airplane {
      * @param seatingLocation the location of the seat relative to the row (aisle, center, or window)
      */
     public void addPassengers(String seatingSection, int numOfPassengers, String seatingLocation) {
-        // separate the instances of adding passengers because they hold their own unique arrays
-        if (seatingSection.equals("first")) {
-            firstClass.addPassengers(numOfPassengers, seatingLocation);
-        } else if (seatingSection.equals("economy")) {
-            economyClass.addPassengers(numOfPassengers, seatingLocation);
+        tryReserve(seatingSection, numOfPassengers, seatingLocation);
+    }
+
+    /**
+     * Returns the version of each seating section, indexed by the cabin class's ordinal.
+     *
+     * @return the version of each seating section
+     */
+    public long[] getVersions() {
+        long[] versions = new long[sections.length];
+
+        for (int i = 0; i < sections.length; ++i) {
+            versions[i] = sections[i].getVersion();
         }
+        return versions;
+    }
+
+    /**
+     * Returns the rows of each seating section that changed since the given versions, for a display client that
+     * already has the seat map of those versions.
+     *
+     * @param sinceVersions the version of each seating section that the client last saw, indexed by the cabin
+     *                      class's ordinal; all zeros for a client that has nothing yet
+     * @return the changes of each seating section, indexed by the cabin class's ordinal
+     */
+    public SeatMapDelta[] changesSince(long[] sinceVersions) {
+        SeatMapDelta[] deltas = new SeatMapDelta[sections.length];
+
+        for (int i = 0; i < sections.length; ++i) {
+            deltas[i] = sections[i].changesSince(sinceVersions[i]);
+        }
+        return deltas;
+    }
+
+    /**
+     * Returns the booked seats of each seating section without the held ones, for a snapshot.
+     *
+     * @return the changes of each seating section since version 0 without its held seats, indexed by the cabin
+     *              class's ordinal
+     */
+    SeatMapDelta[] bookedSeats() {
+        SeatMapDelta[] deltas = new SeatMapDelta[sections.length];
+
+        for (int i = 0; i < sections.length; ++i) {
+            deltas[i] = sections[i].bookedSeats();
+        }
+        return deltas;
     }
 
     /**
@@ -183,15 +667,81 @@ public class Airplane {
      * @return a description of the Airplane as a string
      */
     public String toString() {
-        String description = "\n";
+        StringBuilder description = new StringBuilder(getRenderedLength());
+
+        renderTo(description);
+        return description.toString();
+    }
+
+    /**
+     * Returns the number of characters that rendering the Airplane produces.
+     *
+     * @return the number of characters of the description
+     */
+    public int getRenderedLength() {
+        int length = 1;
+        int rowNumber = 1;
+
+        for (SeatingSection section : sections) {
+            length += section.getRenderedLength(rowNumber);
+            rowNumber += section.getNumOfRows();
+        }
+        return length;
+    }
+
+    /**
+     * Appends the description of the Airplane to a StringBuilder, exactly as toString() returns it.
+     *
+     * @param out the StringBuilder to append to
+     */
+    public void renderTo(StringBuilder out) {
+        try {
+            renderTo((Appendable) out);
+        } catch (IOException e) {
+            // a StringBuilder never throws an IOException
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        // reset the rowCount so it will be the same during each display representation
-        firstClass.setRowCount(0);
+    /**
+     * Appends the description of the Airplane to an Appendable, exactly as toString() returns it, without
+     * building any intermediate strings.
+     *
+     * @param out the Appendable to append to
+     * @throws IOException if the Appendable throws
+     */
+    public void renderTo(Appendable out) throws IOException {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        // the rows are numbered continuously from the front of the plane to the back
+        int rowNumber = 1;
 
-        // add toString() of all seating sections here
-        description += firstClass;
-        description += economyClass;
+        out.append('\n');
+        // add all seating sections here, from front to back
+        for (SeatingSection section : sections) {
+            section.renderTo(out, rowNumber);
+            rowNumber += section.getNumOfRows();
+        }
+        if (SeatingMetrics.ENABLED) {
+            SeatingMetrics.recordRender(startNanos);
+        }
+    }
 
-        return description;
+    /**
+     * Writes the description of the Airplane into a ByteBuffer as ASCII, exactly as toString() returns it.
+     *
+     * @param out the ByteBuffer to write to; it needs getRenderedLength() bytes remaining
+     */
+    public void renderTo(ByteBuffer out) {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        int rowNumber = 1;
+
+        out.put((byte) '\n');
+        for (SeatingSection section : sections) {
+            section.renderTo(out, rowNumber);
+            rowNumber += section.getNumOfRows();
+        }
+        if (SeatingMetrics.ENABLED) {
+            SeatingMetrics.recordRender(startNanos);
+        }
     }
 }
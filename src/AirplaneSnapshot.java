@@ -0,0 +1,263 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constructs an AirplaneSnapshot object, an immutable copy of the seats of an Airplane at one moment, which any
+ * number of threads can read without locks while the Airplane itself goes on being booked.
+ *
+ * For our purposes:
+ *      - A snapshot keeps only what it shows: the occupied and held seats of each row, and the free seats and the
+ *          version of each seating section. It has none of the indexes, locks, caches or holds of the Airplane.
+ *      - The rows of a seating section are kept in chunks of CHUNK_ROWS rows. A snapshot taken after an earlier
+ *          one of the same plane copies only the chunks with a row that changed since, and shares the other
+ *          chunks and every seating section that did not change at all, so a snapshot costs the rows that
+ *          changed rather than the whole plane.
+ */
+public final class AirplaneSnapshot {
+
+    // the rows of a chunk, which is as many rows as a word of the row index covers
+    private static final int CHUNK_ROWS = Long.SIZE;
+    private static final CabinClass[] CABIN_CLASSES = CabinClass.values();
+
+    // the rows of each seating section, indexed by the cabin class's ordinal
+    private final SectionRows[] sections = new SectionRows[CABIN_CLASSES.length];
+
+    /**
+     * Takes a snapshot of a plane. The caller must make sure that nobody books the plane meanwhile.
+     *
+     * @param airplane the plane
+     */
+    AirplaneSnapshot(Airplane airplane) {
+        this(null, airplane);
+    }
+
+    /**
+     * Takes a snapshot of a plane, sharing the rows that did not change since an earlier snapshot of it. The
+     * caller must make sure that nobody books the plane meanwhile.
+     *
+     * @param previous an earlier snapshot of the same plane; null to copy every row
+     * @param airplane the plane
+     */
+    AirplaneSnapshot(AirplaneSnapshot previous, Airplane airplane) {
+        for (CabinClass cabinClass : CABIN_CLASSES) {
+            SeatingSection section = airplane.getSection(cabinClass);
+            SectionRows previousRows = previous == null ? null : previous.sections[cabinClass.ordinal()];
+
+            // a seating section at the same version has the same seats
+            sections[cabinClass.ordinal()] = previousRows != null && previousRows.isSnapshotOf(section)
+                    && previousRows.version == section.getVersion()
+                    ? previousRows : new SectionRows(section, previousRows);
+        }
+    }
+
+    /**
+     * Returns whether or not the Airplane was completely full.
+     *
+     * @return true if the Airplane was full; false otherwise.
+     */
+    public boolean isFull() {
+        for (SectionRows section : sections) {
+            if (section.freeSeats != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether or not the seating section was completely full.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @return true if the seating section was full; false otherwise.
+     */
+    public boolean isFullInSection(CabinClass cabinClass) {
+        return sections[cabinClass.ordinal()].freeSeats == 0;
+    }
+
+    /**
+     * Returns whether or not the seating section had enough available seats.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers to seat
+     * @return true if the seating section had enough available seats; false otherwise.
+     */
+    public boolean hasAvailableSeatsInSection(CabinClass cabinClass, int numOfPassengers) {
+        SectionRows section = sections[cabinClass.ordinal()];
+
+        // as SeatingSection.hasAvailableSeats() answers it
+        return numOfPassengers <= 0 ? section.numOfRows > 0 : section.freeSeats >= numOfPassengers;
+    }
+
+    /**
+     * Returns the number of empty seats that the seating section had.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @return the number of empty seats
+     */
+    public int getFreeSeats(CabinClass cabinClass) {
+        return sections[cabinClass.ordinal()].freeSeats;
+    }
+
+    /**
+     * Returns the version of each seating section when the snapshot was taken, indexed by the cabin class's
+     * ordinal.
+     *
+     * @return the version of each seating section
+     */
+    public long[] getVersions() {
+        long[] versions = new long[sections.length];
+
+        for (int i = 0; i < sections.length; ++i) {
+            versions[i] = sections[i].version;
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the number of characters that rendering the snapshot produces.
+     *
+     * @return the number of characters of the description
+     */
+    public int getRenderedLength() {
+        int length = 1;
+        int rowNumber = 1;
+
+        for (SectionRows section : sections) {
+            length += SeatingSection.renderedLength(section.layout, section.numOfRows, rowNumber);
+            rowNumber += section.numOfRows;
+        }
+        return length;
+    }
+
+    /**
+     * Appends the description of the snapshot to an Appendable, exactly as Airplane.toString() returned it.
+     *
+     * @param out the Appendable to append to
+     * @throws IOException if the Appendable throws
+     */
+    public void renderTo(Appendable out) throws IOException {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        // the rows are numbered continuously from the front of the plane to the back
+        int rowNumber = 1;
+
+        out.append('\n');
+        for (SectionRows section : sections) {
+            for (int c = 0; c < section.seats.length; ++c) {
+                long[] chunkSeats = section.seats[c];
+                long[] chunkHeld = section.held[c];
+
+                for (int i = 0; i < chunkSeats.length; ++i) {
+                    SeatingSection.renderRow(out, section.layout, rowNumber++, chunkSeats[i], chunkHeld[i]);
+                }
+            }
+        }
+        if (SeatingMetrics.ENABLED) {
+            SeatingMetrics.recordRender(startNanos);
+        }
+    }
+
+    /**
+     * Writes the description of the snapshot into a ByteBuffer as ASCII, exactly as Airplane.toString()
+     * returned it.
+     *
+     * @param out the ByteBuffer to write to; it needs getRenderedLength() bytes remaining
+     */
+    public void renderTo(ByteBuffer out) {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        int rowNumber = 1;
+
+        out.put((byte) '\n');
+        for (SectionRows section : sections) {
+            for (int c = 0; c < section.seats.length; ++c) {
+                long[] chunkSeats = section.seats[c];
+                long[] chunkHeld = section.held[c];
+
+                for (int i = 0; i < chunkSeats.length; ++i) {
+                    SeatingSection.renderRow(out, section.layout, rowNumber++, chunkSeats[i], chunkHeld[i]);
+                }
+            }
+        }
+        if (SeatingMetrics.ENABLED) {
+            SeatingMetrics.recordRender(startNanos);
+        }
+    }
+
+    /**
+     * Returns a description of the snapshot as a string.
+     *
+     * @return a description of the snapshot as a string, exactly as Airplane.toString() returned it
+     */
+    public String toString() {
+        StringBuilder description = new StringBuilder(getRenderedLength());
+
+        try {
+            renderTo(description);
+        } catch (IOException e) {
+            // a StringBuilder never throws an IOException
+            throw new UncheckedIOException(e);
+        }
+        return description.toString();
+    }
+
+    /**
+     * The seats of one seating section in a snapshot, which snapshots taken one after another share chunk by
+     * chunk.
+     */
+    private static final class SectionRows {
+
+        private final SeatLayout layout;
+        private final int numOfRows;
+        private final int freeSeats;
+        private final long version;
+        // the occupied and the held seats of each row, CHUNK_ROWS rows to a chunk; never changed once copied
+        private final long[][] seats;
+        private final long[][] held;
+
+        /**
+         * Copies the rows of a seating section, sharing the chunks of an earlier copy whose rows did not change
+         * since it was taken.
+         *
+         * @param section the seating section
+         * @param previous an earlier copy of the seating section; null or a copy of another one to copy every row
+         */
+        private SectionRows(SeatingSection section, SectionRows previous) {
+            layout = section.getLayout();
+            numOfRows = section.getNumOfRows();
+            freeSeats = section.getFreeSeats();
+            version = section.getVersion();
+
+            int numOfChunks = (numOfRows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+            boolean canShare = previous != null && previous.isSnapshotOf(section);
+
+            seats = new long[numOfChunks][];
+            held = new long[numOfChunks][];
+            for (int c = 0; c < numOfChunks; ++c) {
+                int firstRow = c * CHUNK_ROWS;
+                int length = Math.min(CHUNK_ROWS, numOfRows - firstRow);
+
+                if (canShare && section.lastChangeOfRows(firstRow, length) <= previous.version) {
+                    seats[c] = previous.seats[c];
+                    held[c] = previous.held[c];
+                } else {
+                    seats[c] = new long[length];
+                    held[c] = new long[length];
+                    section.copyRows(firstRow, seats[c], held[c]);
+                }
+            }
+        }
+
+        /**
+         * Returns whether or not these rows could be a copy of a seating section: the seating section has the
+         * same layout and number of rows, and a version at least as new.
+         *
+         * @param section the seating section
+         * @return true if the chunks of these rows line up with the seating section's; false otherwise.
+         */
+        private boolean isSnapshotOf(SeatingSection section) {
+            return layout == section.getLayout() && numOfRows == section.getNumOfRows()
+                    && version <= section.getVersion();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * The strategies that decide which of the matching empty seats a SeatingSection books.
+ *
+ * For our purposes:
+ *      - A run is a stretch of adjacent empty seats between two occupied seats, an aisle or the wall.
+ *      - FIRST_FIT books the first matching seats from the front row on, as MainTest always has.
+ *      - BEST_FIT books the matching seats in the shortest run that holds the party, so long runs are left
+ *          whole for the larger parties that come later.
+ *      - LEAST_FRAGMENTATION books the matching seats that leave the fewest orphan seats (runs of one seat, which
+ *          only a single passenger can take) and the fewest new runs, preferring shorter runs when that ties.
+ */
+public enum AssignmentStrategy {
+
+    FIRST_FIT("first-fit"),
+    BEST_FIT("best-fit"),
+    LEAST_FRAGMENTATION("least-fragmentation");
+
+    private final String name;
+
+    /**
+     * Constructs a strategy with the name used on the command line.
+     *
+     * @param name the name of the strategy
+     */
+    AssignmentStrategy(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the strategy (ex: "best-fit").
+     *
+     * @return the name of the strategy
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the strategy with the given name.
+     *
+     * @param name the name of the strategy (ex: "best-fit")
+     * @return the strategy with the given name; null if there is none
+     */
+    public static AssignmentStrategy fromName(String name) {
+        for (AssignmentStrategy strategy : values()) {
+            if (strategy.name.equals(name)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,212 @@
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that every assignment strategy only chooses among the seats that FIRST_FIT would accept:
+ *          it rejects a party exactly when FIRST_FIT does, books the seats its search found, never books a seat
+ *          twice from many threads, and is kept by a seat map snapshot.
+ *
+ * Target Output: A message that every strategy matched; otherwise an IllegalStateException describing the first
+ *                  booking that did not.
+ */
+public class AssignmentStrategyTest {
+
+    private static final String[] LAYOUTS = {"3-3", "2-2", "3-4-3", "2-4-2", "0-1"};
+    private static final int NUM_OF_BOOKINGS = 2000;
+    private static final int NUM_OF_THREADS = 8;
+
+    /**
+     * Tests the assignment strategies of SeatingSection.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the seat map snapshot cannot be written or read
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        for (AssignmentStrategy strategy : AssignmentStrategy.values()) {
+            for (String layout : LAYOUTS) {
+                testRejections(strategy, SeatLayout.parse(layout));
+            }
+            testConcurrent(strategy);
+        }
+        testBestFit();
+        testSnapshot();
+        check(AssignmentStrategy.fromName("best-fit") == AssignmentStrategy.BEST_FIT, "strategies are found by name");
+        check(AssignmentStrategy.fromName("worst-fit") == null, "an unknown strategy name is not found");
+        try {
+            new SeatingSection(1, 4).setAssignmentStrategy(null);
+            throw new IllegalStateException("A null assignment strategy was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        System.out.println("Every strategy rejected exactly what first-fit rejected in " + NUM_OF_BOOKINGS
+                           + " bookings of each layout.");
+    }
+
+    /**
+     * Books a seating section with random parties, asking FIRST_FIT before each booking whether the party fits.
+     *
+     * @param strategy the assignment strategy to test
+     * @param layout the layout of the seating section
+     * @throws IllegalStateException if the strategy rejects a party that fits, accepts one that does not, or
+     *                               books other seats than its search found
+     */
+    private static void testRejections(AssignmentStrategy strategy, SeatLayout layout) {
+        SeatingSection section = new SeatingSection(70, layout);
+        Random random = new Random(strategy.ordinal());
+        SeatLocation[] locations = SeatLocation.values();
+
+        for (int i = 0; i < NUM_OF_BOOKINGS; ++i) {
+            int numOfPassengers = 1 + random.nextInt(3);
+            SeatLocation seatingLocation = locations[random.nextInt(locations.length)];
+
+            section.setAssignmentStrategy(AssignmentStrategy.FIRST_FIT);
+
+            boolean fits = section.availableSeatsOfLocationType(numOfPassengers, seatingLocation).length > 0;
+
+            section.setAssignmentStrategy(strategy);
+
+            int[] found = section.availableSeatsOfLocationType(numOfPassengers, seatingLocation);
+            String request = strategy.getName() + " " + layout + ", " + numOfPassengers + " " + seatingLocation;
+
+            check(fits == (found.length > 0), request + " rejects exactly what first-fit rejects");
+            if (!fits) {
+                check(section.tryReserve(numOfPassengers, seatingLocation) == SeatingSection.NO_SEATS,
+                      request + " books nothing it did not find");
+                continue;
+            }
+            check(found[2] - found[1] + 1 == numOfPassengers, request + " finds a seat for every passenger");
+            for (int column = found[1]; column <= found[2]; ++column) {
+                check(!section.isOccupied(found[0], column), request + " finds empty seats");
+            }
+
+            long reservation = section.tryReserve(numOfPassengers, seatingLocation);
+
+            check(SeatingSection.reservedRow(reservation) == found[0]
+                  && SeatingSection.reservedFirstColumn(reservation) == found[1]
+                  && SeatingSection.reservedLastColumn(reservation) == found[2],
+                  request + " books the seats it found");
+        }
+        section.checkConsistency();
+    }
+
+    /**
+     * Books a concurrent seating section from many threads until nothing fits, then checks that every booked seat
+     * was booked once.
+     *
+     * @param strategy the assignment strategy to test
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     * @throws IllegalStateException if the seats taken do not add up to the seats booked
+     */
+    private static void testConcurrent(AssignmentStrategy strategy) throws InterruptedException {
+        SeatingSection section = new SeatingSection(300, SeatLayout.parse("3-4-3"), true);
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+        int[] seatsBooked = new int[NUM_OF_THREADS];
+
+        section.setAssignmentStrategy(strategy);
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            int thread = t;
+            Random random = new Random(t);
+
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < NUM_OF_BOOKINGS; ++i) {
+                    long reservation = section.tryReserve(1 + random.nextInt(3),
+                                                          SeatLocation.values()[random.nextInt(4)]);
+
+                    if (reservation != SeatingSection.NO_SEATS) {
+                        seatsBooked[thread] += SeatingSection.reservedLastColumn(reservation)
+                                               - SeatingSection.reservedFirstColumn(reservation) + 1;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        int totalBooked = 0;
+
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            threads[t].join();
+            totalBooked += seatsBooked[t];
+        }
+        section.checkConsistency();
+        check(totalBooked == 300 * 10 - section.getFreeSeats(), strategy.getName() + " never books a seat twice");
+    }
+
+    /**
+     * Checks that BEST_FIT takes the shortest run that holds a party, where FIRST_FIT takes the first one.
+     *
+     * @throws IllegalStateException if a strategy takes other seats
+     */
+    private static void testBestFit() {
+        SeatingSection section = new SeatingSection(2, SeatLayout.parse("3-3"));
+
+        // the window seat of the second row leaves a run of two seats at its left aisle
+        section.restoreSeats(new long[]{0L, 1L}, 1);
+        check(Arrays.equals(section.availableSeatsOfLocationType(2, SeatLocation.AISLE), new int[]{0, 1, 2}),
+              "first-fit takes the aisle seats of the first row");
+        section.setAssignmentStrategy(AssignmentStrategy.BEST_FIT);
+        check(Arrays.equals(section.availableSeatsOfLocationType(2, SeatLocation.AISLE), new int[]{1, 1, 2}),
+              "best-fit takes the aisle seats that fill the run of two");
+        section.setAssignmentStrategy(AssignmentStrategy.LEAST_FRAGMENTATION);
+        check(Arrays.equals(section.availableSeatsOfLocationType(2, SeatLocation.AISLE), new int[]{1, 1, 2}),
+              "least-fragmentation takes the aisle seats that leave no orphan seat");
+    }
+
+    /**
+     * Saves a plane whose cabins use different strategies, loads it back and books both the same way.
+     *
+     * @throws IOException if the seat map snapshot cannot be written or read
+     * @throws IllegalStateException if a strategy is lost or the loaded plane books other seats
+     */
+    private static void testSnapshot() throws IOException {
+        FlightKey key = new FlightKey("AS24", LocalDate.of(2026, 3, 1));
+        FlightInventory inventory = new FlightInventory();
+        Airplane airplane = new Airplane(4, SeatLayout.parse("2-2"), 30, SeatLayout.parse("3-4-3"), false);
+        Path file = Files.createTempFile("seatmap", ".bin");
+
+        for (int i = 0; i < 40; ++i) {
+            airplane.tryReserve(CabinClass.ECONOMY, 1 + i % 3, SeatLocation.values()[i % 3]);
+        }
+        airplane.getSection(CabinClass.FIRST).setAssignmentStrategy(AssignmentStrategy.BEST_FIT);
+        airplane.getSection(CabinClass.ECONOMY).setAssignmentStrategy(AssignmentStrategy.LEAST_FRAGMENTATION);
+        inventory.addFlight(key, airplane);
+
+        try {
+            SeatMapSnapshot.save(inventory, file);
+
+            Airplane loaded = SeatMapSnapshot.load(file, false).getFlight(key);
+
+            check(loaded.getSection(CabinClass.FIRST).getAssignmentStrategy() == AssignmentStrategy.BEST_FIT
+                  && loaded.getSection(CabinClass.ECONOMY).getAssignmentStrategy()
+                     == AssignmentStrategy.LEAST_FRAGMENTATION, "a snapshot keeps each cabin's strategy");
+            for (int i = 0; i < 60; ++i) {
+                CabinClass cabinClass = i % 4 == 0 ? CabinClass.FIRST : CabinClass.ECONOMY;
+                SeatLocation seatingLocation = SeatLocation.values()[i % 3];
+
+                check(airplane.tryReserve(cabinClass, 1 + i % 2, seatingLocation)
+                      == loaded.tryReserve(cabinClass, 1 + i % 2, seatingLocation),
+                      "a loaded plane books the seats the saved one books");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
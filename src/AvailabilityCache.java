@@ -0,0 +1,141 @@
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Constructs an AvailabilityCache object that remembers the answers of an Airplane's seat group counts, so that a
+ * shopper or a fleet-wide search asking the same question again gets the answer without counting the seats.
+ *
+ * For our purposes:
+ *      - There is one entry for each seating section, party size and seating location, holding the number of
+ *          available groups; a section with c columns has at most c * 4 entries, created the first time the
+ *          section is counted.
+ *      - Each entry keeps the section's version from when it was counted. Any change of the section bumps the
+ *          version, so a booking never has to clear the cache; a stale entry is simply counted again.
+ *      - A single seat search goes straight to the row index of the section, which is quicker than checking
+ *          an entry and copying its answer, so only the counts, which read every indexed row, are cached.
+ *      - Entries are immutable and replaced as a whole, so threads can share the cache without locks.
+ */
+public final class AvailabilityCache {
+
+    private static final int NUM_OF_LOCATIONS = SeatLocation.values().length;
+
+    // the seating sections of the Airplane, indexed by the cabin class's ordinal
+    private final SeatingSection[] sections;
+    // the entries of each seating section, indexed by (numOfPassengers - 1) * NUM_OF_LOCATIONS + location;
+    // null until the seating section is first searched
+    private final Entry[][] entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs an empty cache for the seating sections of an Airplane.
+     *
+     * @param sections the seating sections, indexed by the cabin class's ordinal; the array is read at each
+     *                 search, so sections set into it later are cached as well
+     */
+    AvailabilityCache(SeatingSection[] sections) {
+        this.sections = sections;
+        entries = new Entry[sections.length][];
+    }
+
+    /**
+     * Returns how many more parties of the given size could still be seated at the specified seating location,
+     * as SeatingSection.countAvailableGroups() does, from the cache if the section has not changed since they
+     * were counted.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the number of parties that could still be seated
+     */
+    int countAvailableGroups(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        SeatingSection section = sections[cabinClass.ordinal()];
+        Entry[] sectionEntries = sectionEntries(cabinClass, numOfPassengers, seatingLocation);
+
+        if (sectionEntries == null) {
+            return section.countAvailableGroups(numOfPassengers, seatingLocation);
+        }
+
+        int index = (numOfPassengers - 1) * NUM_OF_LOCATIONS + seatingLocation.ordinal();
+        Entry entry = sectionEntries[index];
+        long version = section.getVersion();
+
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            return entry.numOfGroups;
+        }
+
+        misses.increment();
+        int numOfGroups = section.countAvailableGroups(numOfPassengers, seatingLocation);
+
+        // a booking that began during the count may have taken some of the groups, and the count would be stale
+        if (section.getVersion() == version) {
+            sectionEntries[index] = new Entry(version, numOfGroups);
+        }
+        return numOfGroups;
+    }
+
+    /**
+     * Returns the entries of a seating section, creating them on its first count.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the entries; null if no seats of the section can ever match, so there is nothing worth keeping
+     */
+    private Entry[] sectionEntries(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        int columns = sections[cabinClass.ordinal()].getNumOfColumns();
+
+        if (seatingLocation == null || numOfPassengers < 1 || numOfPassengers > columns) {
+            return null;
+        }
+
+        Entry[] sectionEntries = entries[cabinClass.ordinal()];
+
+        if (sectionEntries == null) {
+            // two threads may both create the entries; the entries of the one that loses are just counted again
+            sectionEntries = new Entry[columns * NUM_OF_LOCATIONS];
+            entries[cabinClass.ordinal()] = sectionEntries;
+        }
+        return sectionEntries;
+    }
+
+    /**
+     * Returns the number of counts answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of counts that had to read the seats of the seating section.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The number of available groups for one party size and seating location, and the version of the seating
+     * section that it holds for.
+     */
+    private static final class Entry {
+
+        private final long version;
+        private final int numOfGroups;
+
+        /**
+         * Constructs an entry.
+         *
+         * @param version the version of the seating section when the groups were counted
+         * @param numOfGroups the number of available groups
+         */
+        private Entry(long version, int numOfGroups) {
+            this.version = version;
+            this.numOfGroups = numOfGroups;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that the seat group counts of an Airplane, answered from its AvailabilityCache, are the
+ *          counts of its seating sections after every booking, hold, confirmation and release, from one thread or
+ *          from many at once, and that asking again without a change is answered from the cache.
+ *
+ * Target Output: A message that every count matched; otherwise an IllegalStateException describing the first
+ *                  count that did not.
+ */
+public class AvailabilityCacheTest {
+
+    private static final int NUM_OF_STEPS = 20000;
+    private static final int NUM_OF_THREADS = 4;
+    private static final CabinClass[] CABIN_CLASSES = {CabinClass.FIRST, CabinClass.ECONOMY};
+
+    /**
+     * Tests the counts of AvailabilityCache.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        testCounts();
+        testCountsWhileBooking();
+        System.out.println("Every cached count matched its seating section in " + NUM_OF_STEPS + " steps.");
+    }
+
+    /**
+     * Changes the seats of a plane now and then between counts, and asks each count twice.
+     *
+     * @throws IllegalStateException if a count differs or a repeated count is not a hit
+     */
+    private static void testCounts() {
+        Random random = new Random(5);
+        Airplane airplane = new Airplane(5, 4, 30, 6);
+        AvailabilityCache cache = airplane.getAvailabilityCache();
+        long heldReservation = SeatingSection.NO_SEATS;
+        SeatingSection heldSection = null;
+
+        for (int step = 0; step < NUM_OF_STEPS; ++step) {
+            CabinClass cabinClass = CABIN_CLASSES[random.nextInt(2)];
+            SeatingSection section = airplane.getSection(cabinClass);
+            // party sizes the sections cannot seat are counted as well
+            int numOfPassengers = random.nextInt(8);
+            SeatLocation seatingLocation = SeatLocation.values()[random.nextInt(4)];
+
+            if (step % 100 == 0) {
+                airplane.tryReserve(cabinClass, 1 + random.nextInt(2), seatingLocation);
+            } else if (step % 100 == 50) {
+                // hold seats, and end the last hold by confirming or releasing it
+                if (heldReservation != SeatingSection.NO_SEATS) {
+                    if (random.nextBoolean()) {
+                        heldSection.confirmHold(heldReservation);
+                    } else {
+                        heldSection.releaseHold(heldReservation);
+                    }
+                }
+                heldSection = section;
+                heldReservation = section.tryHold(1 + random.nextInt(2), seatingLocation);
+            }
+
+            int expected = section.countAvailableGroups(numOfPassengers, seatingLocation);
+            String count = "the count of " + numOfPassengers + " " + seatingLocation + " " + cabinClass
+                           + " at step " + step;
+
+            check(airplane.countAvailableGroups(cabinClass, numOfPassengers, seatingLocation) == expected,
+                  count + " matches its seating section");
+
+            long hits = cache.getHits();
+
+            check(airplane.countAvailableGroups(cabinClass, numOfPassengers, seatingLocation) == expected,
+                  count + " matches its seating section when asked again");
+            check(numOfPassengers < 1 || numOfPassengers > section.getNumOfColumns() || cache.getHits() == hits + 1,
+                  count + " is answered from the cache when asked again");
+        }
+        check(cache.getHits() > cache.getMisses(), "most counts are answered from the cache");
+    }
+
+    /**
+     * Books a concurrent plane full from many threads at once while the main thread counts, then counts again.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     * @throws IllegalStateException if a count differs once the plane is full
+     */
+    private static void testCountsWhileBooking() throws InterruptedException {
+        Airplane airplane = new Airplane(5, 4, 200, 6, true);
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+        boolean booking = true;
+
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            Random random = new Random(t);
+
+            threads[t] = new Thread(() -> {
+                while (!airplane.isFull()) {
+                    airplane.tryReserve(CABIN_CLASSES[random.nextInt(2)], 1 + random.nextInt(3),
+                                        SeatLocation.values()[random.nextInt(4)]);
+                }
+            });
+            threads[t].start();
+        }
+        while (booking) {
+            booking = false;
+            for (Thread thread : threads) {
+                booking |= thread.isAlive();
+            }
+            for (SeatLocation seatingLocation : SeatLocation.values()) {
+                airplane.countAvailableGroups(CabinClass.ECONOMY, 1, seatingLocation);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (CabinClass cabinClass : CABIN_CLASSES) {
+            for (int numOfPassengers = 1; numOfPassengers <= 6; ++numOfPassengers) {
+                for (SeatLocation seatingLocation : SeatLocation.values()) {
+                    check(airplane.countAvailableGroups(cabinClass, numOfPassengers, seatingLocation) == 0,
+                          "the count of " + numOfPassengers + " " + seatingLocation + " " + cabinClass
+                          + " is none once the plane is full");
+                }
+            }
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Purpose: To demonstrate that Airplane.addPassengersBatch() gives every party the seats that one tryReserve()
+ *          call each, in the order given, would have given it, and records the same flight recorder events.
+ *
+ * Target Output: A message that every batch matched; otherwise an IllegalStateException describing the first
+ *                  party that got other seats.
+ */
+public class BatchBookingTest {
+
+    private static final int NUM_OF_REQUESTS = 20000;
+
+    /**
+     * Tests batch booking against booking one party at a time.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the flight recording cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        List<BookingRequest> requests = randomRequests(new Random(7));
+
+        for (AssignmentStrategy strategy : AssignmentStrategy.values()) {
+            testBatch(requests, strategy, false);
+            testBatch(requests, strategy, true);
+        }
+        testBatch(new ArrayList<>(), AssignmentStrategy.FIRST_FIT, false);
+        testEvents();
+        System.out.println("Every batch of " + NUM_OF_REQUESTS + " parties matched booking them one at a time.");
+    }
+
+    /**
+     * Returns random booking requests, most of them for economy.
+     *
+     * @param random the random numbers
+     * @return the requests
+     */
+    private static List<BookingRequest> randomRequests(Random random) {
+        List<BookingRequest> requests = new ArrayList<>();
+
+        for (int i = 0; i < NUM_OF_REQUESTS; ++i) {
+            requests.add(new BookingRequest(random.nextInt(5) == 0 ? CabinClass.FIRST : CabinClass.ECONOMY,
+                                            1 + random.nextInt(3), SeatLocation.values()[random.nextInt(4)]));
+        }
+        return requests;
+    }
+
+    /**
+     * Books the same requests on two planes, in one batch and one at a time.
+     *
+     * @param requests the parties to seat
+     * @param strategy the assignment strategy of both planes
+     * @param concurrent true to book concurrent planes; false otherwise.
+     * @throws IllegalStateException if a party gets other seats in the batch
+     */
+    private static void testBatch(List<BookingRequest> requests, AssignmentStrategy strategy, boolean concurrent) {
+        Airplane batched = new Airplane(50, 4, 2000, 6, concurrent);
+        Airplane oneByOne = new Airplane(50, 4, 2000, 6, concurrent);
+        String mode = strategy.getName() + (concurrent ? " concurrent" : "");
+
+        batched.setAssignmentStrategy(strategy);
+        oneByOne.setAssignmentStrategy(strategy);
+
+        long[] reservations = batched.addPassengersBatch(requests);
+
+        check(reservations.length == requests.size(), mode + " returns a reservation for each request");
+        for (int i = 0; i < requests.size(); ++i) {
+            BookingRequest request = requests.get(i);
+
+            check(oneByOne.tryReserve(request.getCabinClass(), request.getNumOfPassengers(),
+                                      request.getSeatingLocation()) == reservations[i],
+                  mode + " gives request " + i + " (" + request + ") the same seats");
+        }
+        check(batched.toString().equals(oneByOne.toString()), mode + " fills the same seats");
+        batched.getFirstClass().checkConsistency();
+        batched.getEconomyClass().checkConsistency();
+    }
+
+    /**
+     * Books a small plane full in one batch while a flight recording runs.
+     *
+     * @throws IOException if the flight recording cannot be written or read
+     * @throws IllegalStateException if a booked party has no BookingCommitEvent of its seats, or a party that did
+     *                               not fit has no SectionFullEvent
+     */
+    private static void testEvents() throws IOException {
+        Airplane airplane = new Airplane(1, 4, 1, 6);
+        List<BookingRequest> requests = List.of(new BookingRequest(CabinClass.ECONOMY, 3, SeatLocation.ROW),
+                                                new BookingRequest(CabinClass.FIRST, 1, SeatLocation.WINDOW),
+                                                new BookingRequest(CabinClass.ECONOMY, 3, SeatLocation.ROW),
+                                                new BookingRequest(CabinClass.ECONOMY, 2, SeatLocation.AISLE));
+        Path file = Files.createTempFile("batch", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("seating.BookingCommit").withThreshold(Duration.ZERO);
+            recording.enable("seating.SectionFull");
+            recording.start();
+
+            long[] reservations = airplane.addPassengersBatch(requests);
+
+            recording.stop();
+            recording.dump(file);
+
+            Set<String> booked = new HashSet<>();
+            Set<String> recorded = new HashSet<>();
+            int numOfFullEvents = 0;
+
+            for (int i = 0; i < reservations.length; ++i) {
+                if (reservations[i] != SeatingSection.NO_SEATS) {
+                    booked.add(requests.get(i).getCabinClass().name() + " "
+                               + SeatingSection.reservedRow(reservations[i]) + ":"
+                               + SeatingSection.reservedFirstColumn(reservations[i]) + "-"
+                               + SeatingSection.reservedLastColumn(reservations[i]));
+                }
+            }
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("seating.SectionFull")) {
+                    check(event.getString("cabinClass").equals("ECONOMY") && event.getInt("partySize") == 2,
+                          "the party that did not fit is recorded with its cabin class and size");
+                    ++numOfFullEvents;
+                } else {
+                    recorded.add(event.getString("cabinClass") + " " + event.getInt("row") + ":"
+                                 + event.getInt("firstColumn") + "-" + event.getInt("lastColumn"));
+                }
+            }
+            check(booked.size() == 3 && reservations[3] == SeatingSection.NO_SEATS,
+                  "the batch books every party but the last");
+            check(recorded.equals(booked), "each booked party of the batch has an event of its seats");
+            check(numOfFullEvents == 1, "the party that did not fit has an event");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for a booking through an Airplane that took longer than its threshold, from the
+ * start of its seat search until the seats were occupied and the booking listener was told. Each party of a batch
+ * (see Airplane.addPassengersBatch()) is timed until its seats were occupied, as the listener hears of the whole
+ * batch at its end.
+ */
+@Name("seating.BookingCommit")
+@Label("Booking Commit")
+@Category("Seating")
+@Description("Seats found and occupied for a party")
+@Threshold("20 us")
+final class BookingCommitEvent extends jdk.jfr.Event {
+
+    @Label("Cabin Class")
+    String cabinClass;
+
+    @Label("Seating Location")
+    String seatingLocation;
+
+    @Label("Party Size")
+    int partySize;
+
+    @Label("Row")
+    @Description("The index of the booked row within its seating section")
+    int row;
+
+    @Label("First Column")
+    int firstColumn;
+
+    @Label("Last Column")
+    int lastColumn;
+}
@@ -0,0 +1,529 @@
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Constructs a BookingJournal object, an append-only file that records every booking of the flights attached to
+ * it, so that the bookings made after the last SeatMapSnapshot survive a restart.
+ *
+ * For our purposes:
+ *      - Every record is RECORD_LENGTH bytes, little-endian, ending with a CRC32C checksum of the rest:
+ *          - a flight record gives a flight its number within the journal:
+ *              type, ID length, 2 unused bytes, flight number, epoch day, flight ID (up to 16 UTF-8 bytes),
+ *          - a booking record holds one reservation:
+ *              type, cabin class, first column, last column, flight number, row, party ID, timestamp.
+ *      - The bookings are appended by a single flusher thread in batches (group commit): every booking that
+ *          arrives while a batch is being written goes into the next batch, so one fsync covers many bookings.
+ *      - In STRICT mode, a booking returns once its batch is on disk. In THROUGHPUT mode, a booking returns as
+ *          soon as it is queued, and the flusher syncs the file at most every sync interval; a crash may lose
+ *          the bookings of the last interval.
+ *      - A caller that books in batches itself, such as a FlightActor, can have its bookings queued without
+ *          waiting and then wait once for the whole batch with awaitDurable().
+ *      - A crash can leave a torn record at the end of the file. Reading stops at the first record whose
+ *          checksum does not match, and opening the journal cuts the file there.
+ *      - The party ID of a booking is the journal's running count of bookings.
+ */
+public final class BookingJournal implements Closeable {
+
+    /**
+     * The length of every record in bytes.
+     */
+    public static final int RECORD_LENGTH = 32;
+
+    /**
+     * The longest flight ID in UTF-8 bytes that a flight record can hold.
+     */
+    public static final int MAX_FLIGHT_ID_LENGTH = 16;
+
+    /**
+     * When a booking counts as written.
+     */
+    public enum SyncMode {
+        /** every batch is synced to disk before its bookings return */
+        STRICT,
+        /** bookings return once queued; the file is synced periodically */
+        THROUGHPUT
+    }
+
+    private static final byte FLIGHT_RECORD = 1;
+    private static final byte BOOKING_RECORD = 2;
+    // the offset of the checksum within a record
+    private static final int CHECKSUM_OFFSET = RECORD_LENGTH - Integer.BYTES;
+    private static final CabinClass[] CABIN_CLASSES = CabinClass.values();
+
+    private final FileChannel channel;
+    private final SyncMode syncMode;
+    private final long syncIntervalMillis;
+    private final Thread flusher;
+    // the number of each flight, from the flight records of the journal
+    private final HashMap<FlightKey, Integer> flightNumbers = new HashMap<FlightKey, Integer>();
+
+    // guarded by this: the records waiting for the flusher, and the spare buffer that the flusher writes from
+    private ByteBuffer pending = newBuffer(64 * RECORD_LENGTH);
+    private ByteBuffer writing = newBuffer(64 * RECORD_LENGTH);
+    // guarded by this: the counts of records queued, written to the file, and synced to disk
+    private long numOfQueued;
+    private long numOfWritten;
+    private long numOfSynced;
+    private long nextPartyId;
+    // guarded by this: set by sync() to have the written records synced before the sync interval has passed
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens a journal for appending, creating the file if it does not exist and cutting off a torn record left
+     * at its end by a crash.
+     *
+     * @param file the journal file
+     * @param syncMode when a booking counts as written
+     * @param syncIntervalMillis the longest time between syncs in THROUGHPUT mode
+     * @throws IOException if the file cannot be opened
+     */
+    public BookingJournal(Path file, SyncMode syncMode, long syncIntervalMillis) throws IOException {
+        if (syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid sync interval: " + syncIntervalMillis + " ms");
+        }
+        this.syncMode = syncMode;
+        this.syncIntervalMillis = syncIntervalMillis;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+
+        long validLength = 0;
+        ByteBuffer record = newBuffer(RECORD_LENGTH);
+
+        // pick up the flight numbers and party IDs where the journal left off
+        while (channel.read(record, validLength) == RECORD_LENGTH && isIntact(record)) {
+            if (record.get(0) == FLIGHT_RECORD) {
+                flightNumbers.put(flightKey(record), record.getInt(4));
+            } else {
+                nextPartyId = Math.max(nextPartyId, record.getLong(12) + 1);
+            }
+            validLength += RECORD_LENGTH;
+            record.clear();
+        }
+        channel.truncate(validLength);
+        channel.position(validLength);
+        channel.force(true);
+
+        flusher = new Thread(this::flushBatches, "booking-journal-" + file.getFileName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Starts journaling the bookings made through an Airplane. The Airplane's booking listener is replaced.
+     *
+     * @param key the flight ID and date of the flight
+     * @param airplane the seat inventory of the flight
+     * @throws IllegalArgumentException if the flight ID is longer than MAX_FLIGHT_ID_LENGTH bytes
+     */
+    public void attach(FlightKey key, Airplane airplane) {
+        attach(key, airplane, syncMode == SyncMode.STRICT);
+    }
+
+    /**
+     * Starts journaling the bookings made through an Airplane, optionally without waiting for each booking to be
+     * synced. The Airplane's booking listener is replaced.
+     *
+     * @param key the flight ID and date of the flight
+     * @param airplane the seat inventory of the flight
+     * @param awaitEachSync true to have each booking wait until it is synced in STRICT mode; false to leave the
+     *                      waiting to awaitDurable()
+     * @throws IllegalArgumentException if the flight ID is longer than MAX_FLIGHT_ID_LENGTH bytes
+     */
+    void attach(FlightKey key, Airplane airplane, boolean awaitEachSync) {
+        byte[] flightId = key.getFlightId().getBytes(StandardCharsets.UTF_8);
+
+        if (flightId.length > MAX_FLIGHT_ID_LENGTH) {
+            throw new IllegalArgumentException("Flight ID of " + key + " is longer than " + MAX_FLIGHT_ID_LENGTH
+                                               + " bytes");
+        }
+
+        int flightNumber;
+
+        synchronized (this) {
+            Integer knownNumber = flightNumbers.get(key);
+
+            if (knownNumber != null) {
+                flightNumber = knownNumber;
+            } else {
+                flightNumber = flightNumbers.size();
+                flightNumbers.put(key, flightNumber);
+
+                ByteBuffer record = reserveRecord();
+                int start = record.position();
+
+                record.put(FLIGHT_RECORD).put((byte) flightId.length).putShort((short) 0);
+                record.putInt(flightNumber);
+                record.putInt((int) key.getDate().toEpochDay());
+                record.put(flightId).put(new byte[MAX_FLIGHT_ID_LENGTH - flightId.length]);
+                record.putInt(checksum(record, start));
+                queued();
+            }
+        }
+        airplane.setBookingListener((cabinClass, reservation) -> {
+            long recordNumber = append(flightNumber, cabinClass, reservation);
+
+            if (awaitEachSync) {
+                awaitSynced(recordNumber);
+            }
+        });
+    }
+
+    /**
+     * Queues a booking record for the flusher without waiting for it to be written.
+     *
+     * @param flightNumber the number of the flight within the journal
+     * @param cabinClass the cabin class of the seating section of the seats
+     * @param reservation the reservation of the seats
+     * @return the number of the record, counting from 1
+     * @throws UncheckedIOException if the journal is closed or has failed; the booking is not durable
+     */
+    private synchronized long append(int flightNumber, CabinClass cabinClass, long reservation) {
+        ByteBuffer record = reserveRecord();
+        int start = record.position();
+
+        record.put(BOOKING_RECORD).put((byte) cabinClass.ordinal());
+        record.put((byte) SeatingSection.reservedFirstColumn(reservation));
+        record.put((byte) SeatingSection.reservedLastColumn(reservation));
+        record.putInt(flightNumber);
+        record.putInt(SeatingSection.reservedRow(reservation));
+        record.putLong(nextPartyId++);
+        record.putLong(System.currentTimeMillis());
+        record.putInt(checksum(record, start));
+        return queued();
+    }
+
+    /**
+     * Waits until every record appended so far is as durable as the sync mode promises: on disk in STRICT mode,
+     * and just queued in THROUGHPUT mode, where this returns right away.
+     *
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    void awaitDurable() {
+        if (syncMode == SyncMode.STRICT) {
+            long recordNumber;
+
+            synchronized (this) {
+                recordNumber = numOfQueued;
+            }
+            awaitSynced(recordNumber);
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is on disk, whatever the sync mode.
+     *
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    public void sync() {
+        long recordNumber;
+
+        synchronized (this) {
+            recordNumber = numOfQueued;
+            syncRequested = true;
+            notifyAll();
+        }
+        awaitSynced(recordNumber);
+    }
+
+    /**
+     * Syncs the remaining records to disk and closes the journal. Bookings of the attached flights fail
+     * afterwards.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+
+        boolean interrupted = false;
+
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        channel.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Returns the pending buffer with room for one more record, growing it if needed. The caller must hold the
+     * lock of the journal.
+     *
+     * @return the pending buffer, positioned where the record goes
+     * @throws UncheckedIOException if the journal is closed or has failed
+     */
+    private ByteBuffer reserveRecord() {
+        if (failure != null) {
+            throw new UncheckedIOException("Booking journal has failed", failure);
+        }
+        if (closed) {
+            throw new UncheckedIOException(new IOException("Booking journal is closed"));
+        }
+        if (pending.remaining() < RECORD_LENGTH) {
+            ByteBuffer larger = newBuffer(pending.capacity() * 2);
+
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        return pending;
+    }
+
+    /**
+     * Counts a record that was put into the pending buffer and wakes the flusher. The caller must hold the lock
+     * of the journal.
+     *
+     * @return the number of the record, counting from 1
+     */
+    private long queued() {
+        // the flusher only needs waking for the first record of a batch; later ones join the same batch
+        if (numOfQueued == numOfWritten) {
+            notifyAll();
+        }
+        return ++numOfQueued;
+    }
+
+    /**
+     * Waits until a record is on disk.
+     *
+     * @param recordNumber the number of the record
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    private synchronized void awaitSynced(long recordNumber) {
+        boolean interrupted = false;
+
+        // a booking has already been made in memory, so it waits for its record even if it is interrupted
+        while (numOfSynced < recordNumber && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (numOfSynced < recordNumber) {
+            throw new UncheckedIOException("Booking journal has failed", failure);
+        }
+    }
+
+    /**
+     * Runs the flusher thread: writes each batch of pending records, then syncs it right away in STRICT mode or
+     * once the sync interval has passed in THROUGHPUT mode.
+     */
+    private void flushBatches() {
+        long lastSync = System.nanoTime();
+
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchEnd;
+                boolean syncNow;
+
+                synchronized (this) {
+                    while (numOfQueued == numOfWritten && !closed
+                            && (numOfSynced == numOfWritten || !(syncRequested || syncDue(lastSync)))) {
+                        waitQuietly(numOfSynced == numOfWritten ? 0 : syncIntervalMillis);
+                    }
+                    if (numOfQueued == numOfWritten && numOfSynced == numOfWritten && closed) {
+                        return;
+                    }
+
+                    // swap the buffers, so that new records go into the next batch while this one is written
+                    batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    batchEnd = numOfQueued;
+                    // sync() and close() wait for every record, so they do not wait for the sync interval
+                    syncNow = syncMode == SyncMode.STRICT || syncRequested || closed;
+                    syncRequested = false;
+                }
+
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                batch.clear();
+
+                boolean sync = syncNow || syncDue(lastSync);
+
+                if (sync) {
+                    channel.force(false);
+                    lastSync = System.nanoTime();
+                }
+                synchronized (this) {
+                    numOfWritten = batchEnd;
+                    if (sync) {
+                        numOfSynced = batchEnd;
+                    }
+                    notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns whether or not the sync interval has passed since the last sync.
+     *
+     * @param lastSync the System.nanoTime() of the last sync
+     * @return true if the written records should be synced now; false otherwise.
+     */
+    private boolean syncDue(long lastSync) {
+        return System.nanoTime() - lastSync >= syncIntervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Waits on the lock of the journal without propagating interrupts, since the flusher stops only on close.
+     *
+     * @param timeoutMillis the longest time to wait; 0 to wait until notified
+     */
+    private void waitQuietly(long timeoutMillis) {
+        try {
+            wait(timeoutMillis);
+        } catch (InterruptedException e) {
+            // the flusher checks its conditions again
+        }
+    }
+
+    /**
+     * Replays the bookings of a journal file on top of an inventory, typically one just loaded from a
+     * SeatMapSnapshot. Bookings that the inventory already holds are skipped, as are the flights that it does
+     * not have.
+     *
+     * @param file the journal file; a missing file holds no bookings
+     * @param inventory the flights to book
+     * @return the number of bookings that were replayed
+     * @throws IOException if the file cannot be read or its bookings do not fit the flights
+     */
+    public static int replay(Path file, FlightInventory inventory) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        HashMap<Integer, Airplane> flights = new HashMap<Integer, Airplane>();
+        int numOfReplayed = 0;
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer record = newBuffer(RECORD_LENGTH);
+            long position = 0;
+
+            // a torn record at the end was never acknowledged, so it is left out
+            while (in.read(record, position) == RECORD_LENGTH && isIntact(record)) {
+                if (record.get(0) == FLIGHT_RECORD) {
+                    Airplane airplane = inventory.getFlight(flightKey(record));
+
+                    if (airplane != null) {
+                        flights.put(record.getInt(4), airplane);
+                    }
+                } else {
+                    Airplane airplane = flights.get(record.getInt(4));
+                    int cabinClass = record.get(1);
+
+                    if (airplane != null) {
+                        if (cabinClass < 0 || cabinClass >= CABIN_CLASSES.length) {
+                            throw new IOException("Booking at byte " + position + " of " + file
+                                                  + " has an unknown cabin class");
+                        }
+                        try {
+                            if (airplane.getSection(CABIN_CLASSES[cabinClass])
+                                        .restoreReservation(record.getInt(8), record.get(2), record.get(3))) {
+                                ++numOfReplayed;
+                            }
+                        } catch (IllegalArgumentException e) {
+                            throw new IOException("Booking at byte " + position + " of " + file
+                                                  + " does not fit the flight", e);
+                        }
+                    }
+                }
+                position += RECORD_LENGTH;
+                record.clear();
+            }
+        }
+        return numOfReplayed;
+    }
+
+    /**
+     * Returns the flight key of a flight record.
+     *
+     * @param record the record
+     * @return the flight ID and date of the flight
+     */
+    private static FlightKey flightKey(ByteBuffer record) {
+        byte[] flightId = new byte[Math.min(record.get(1) & 0xFF, MAX_FLIGHT_ID_LENGTH)];
+
+        record.get(12, flightId);
+        return new FlightKey(new String(flightId, StandardCharsets.UTF_8), LocalDate.ofEpochDay(record.getInt(8)));
+    }
+
+    /**
+     * Returns whether or not a record read from the file is complete and unchanged.
+     *
+     * @param record the record
+     * @return true if the record's type and checksum are valid; false otherwise.
+     */
+    private static boolean isIntact(ByteBuffer record) {
+        byte type = record.get(0);
+
+        return (type == FLIGHT_RECORD || type == BOOKING_RECORD)
+                && record.getInt(CHECKSUM_OFFSET) == checksum(record, 0);
+    }
+
+    /**
+     * Returns the CRC32C checksum of a record without its checksum field.
+     *
+     * @param buffer the buffer holding the record
+     * @param start the index of the record within the buffer
+     * @return the checksum
+     */
+    private static int checksum(ByteBuffer buffer, int start) {
+        CRC32C crc = new CRC32C();
+
+        crc.update(buffer.duplicate().position(start).limit(start + CHECKSUM_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns a new little-endian buffer.
+     *
+     * @param capacity the capacity in bytes
+     * @return the buffer
+     */
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,215 @@
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that replaying a BookingJournal on top of the SeatMapSnapshot it was started from gives
+ *          back the flights as they were booked from many threads at once, in either sync mode, that replaying
+ *          it twice books nothing more, and that a record torn by a crash is cut off when the journal is reopened,
+ *          even where a batch of records outgrew the flusher's buffer.
+ *
+ * Target Output: A message that every replay matched; otherwise an IllegalStateException describing the first
+ *                  flight that did not.
+ */
+public class BookingJournalTest {
+
+    private static final int NUM_OF_FLIGHTS = 50;
+    private static final int NUM_OF_THREADS = 4;
+    private static final int NUM_OF_ATTEMPTS = 8000;
+    private static final long SYNC_INTERVAL_MILLIS = 20;
+    // more records than the flusher's first buffer holds, so that the batch of them grows the buffer
+    private static final int NUM_OF_BATCHED_RECORDS = 65;
+
+    /**
+     * Tests BookingJournal in each of its sync modes.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the snapshot or journal files cannot be written or read
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path snapshot = Files.createTempFile("inventory", ".snapshot");
+        Path journal = Files.createTempFile("bookings", ".journal");
+
+        try {
+            for (BookingJournal.SyncMode syncMode : BookingJournal.SyncMode.values()) {
+                Files.delete(journal);
+                testJournal(syncMode, snapshot, journal);
+            }
+            Files.delete(journal);
+            testTornBatch(journal);
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(journal);
+        }
+        System.out.println("Every replay matched the bookings of " + NUM_OF_THREADS + " threads in each sync mode.");
+    }
+
+    /**
+     * Snapshots partly booked flights, journals the bookings made after the snapshot, and replays them.
+     *
+     * @param syncMode when a booking counts as written
+     * @param snapshot the snapshot file
+     * @param journal the journal file, which does not exist yet
+     * @throws IOException if the snapshot or journal files cannot be written or read
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     * @throws IllegalStateException if a replayed flight differs
+     */
+    private static void testJournal(BookingJournal.SyncMode syncMode, Path snapshot, Path journal)
+            throws IOException, InterruptedException {
+        FlightInventory inventory = new FlightInventory();
+        Random random = new Random(1);
+
+        for (int i = 0; i < NUM_OF_FLIGHTS; ++i) {
+            Airplane airplane = new Airplane(5, 4, 60, 6, true);
+
+            for (int k = 0; k < 30; ++k) {
+                airplane.tryReserve(CabinClass.ECONOMY, 1 + random.nextInt(3),
+                                    SeatLocation.values()[random.nextInt(4)]);
+            }
+            inventory.addFlight(new FlightKey("CL" + i, LocalDate.of(2026, 5, 1)), airplane);
+        }
+        SeatMapSnapshot.save(inventory, snapshot);
+
+        List<FlightKey> keys = inventory.getFlightKeys();
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+
+        try (BookingJournal bookingJournal = new BookingJournal(journal, syncMode, SYNC_INTERVAL_MILLIS)) {
+            for (FlightKey key : keys) {
+                bookingJournal.attach(key, inventory.getFlight(key));
+            }
+            for (int t = 0; t < NUM_OF_THREADS; ++t) {
+                Random threadRandom = new Random(t);
+
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < NUM_OF_ATTEMPTS / NUM_OF_THREADS; ++i) {
+                        inventory.getFlight(keys.get(threadRandom.nextInt(keys.size())))
+                                 .tryReserve(CabinClass.values()[threadRandom.nextInt(4)], 1 + threadRandom.nextInt(3),
+                                             SeatLocation.values()[threadRandom.nextInt(4)]);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        FlightInventory replayed = SeatMapSnapshot.load(snapshot, false);
+
+        check(BookingJournal.replay(journal, replayed) > 0, syncMode + " replays the bookings after the snapshot");
+        check(BookingJournal.replay(journal, replayed) == 0, syncMode + " replays nothing the second time");
+        for (FlightKey key : keys) {
+            check(replayed.getFlight(key).toString().equals(inventory.getFlight(key).toString()),
+                  syncMode + " replays the bookings of " + key);
+        }
+        testTornRecord(syncMode, snapshot, journal);
+    }
+
+    /**
+     * Cuts the journal off in the middle of its last record, reopens it, books a new flight and replays it all.
+     *
+     * @param syncMode when a booking counts as written
+     * @param snapshot the snapshot file
+     * @param journal the journal file
+     * @throws IOException if the snapshot or journal files cannot be written or read
+     * @throws IllegalStateException if the torn record is kept or the new booking is not replayed
+     */
+    private static void testTornRecord(BookingJournal.SyncMode syncMode, Path snapshot, Path journal)
+            throws IOException {
+        byte[] records = Files.readAllBytes(journal);
+        FlightKey key = new FlightKey("NEW1", LocalDate.of(2026, 6, 1));
+        Airplane airplane = new Airplane(2, 4, 2, 4);
+
+        check(records.length % BookingJournal.RECORD_LENGTH == 0, syncMode + " writes whole records");
+        Files.write(journal, Arrays.copyOf(records, records.length - 13));
+        try (BookingJournal bookingJournal = new BookingJournal(journal, syncMode, SYNC_INTERVAL_MILLIS)) {
+            check(Files.size(journal) == records.length - BookingJournal.RECORD_LENGTH,
+                  syncMode + " cuts off the torn record when reopened");
+            bookingJournal.attach(key, airplane);
+            airplane.tryReserve(CabinClass.FIRST, 1, SeatLocation.WINDOW);
+            bookingJournal.sync();
+        }
+
+        FlightInventory replayed = SeatMapSnapshot.load(snapshot, false);
+
+        replayed.addFlight(key, new Airplane(2, 4, 2, 4));
+        BookingJournal.replay(journal, replayed);
+        check(replayed.getFlight(key).toString().equals(airplane.toString()),
+              syncMode + " replays a booking written after the torn record was cut off");
+    }
+
+    /**
+     * Writes one batch of more records than the flusher's first buffer holds, then tears the journal one byte past
+     * the records of that buffer and, separately, flips a byte of a record in the middle.
+     *
+     * @param journal the journal file, which does not exist yet
+     * @throws IOException if the journal file cannot be written or read
+     * @throws IllegalStateException if a torn or corrupt record is kept, or a record before it is lost
+     */
+    private static void testTornBatch(Path journal) throws IOException {
+        FlightKey key = new FlightKey("NEW2", LocalDate.of(2026, 6, 2));
+        Airplane airplane = new Airplane(0, 4, 100, 6);
+
+        try (BookingJournal bookingJournal = new BookingJournal(journal, BookingJournal.SyncMode.THROUGHPUT,
+                                                                SYNC_INTERVAL_MILLIS)) {
+            // the flusher needs the journal's lock to take a batch, so every record queued meanwhile joins one
+            // batch; THROUGHPUT bookings do not wait for the flusher
+            synchronized (bookingJournal) {
+                bookingJournal.attach(key, airplane);
+                for (int i = 1; i < NUM_OF_BATCHED_RECORDS; ++i) {
+                    airplane.tryReserve(CabinClass.ECONOMY, 1, SeatLocation.values()[i % 3]);
+                }
+            }
+        }
+
+        byte[] records = Files.readAllBytes(journal);
+        int bufferLength = (NUM_OF_BATCHED_RECORDS - 1) * BookingJournal.RECORD_LENGTH;
+
+        check(records.length == NUM_OF_BATCHED_RECORDS * BookingJournal.RECORD_LENGTH,
+              "a batch that outgrew the buffer writes every record");
+        Files.write(journal, Arrays.copyOf(records, bufferLength + 1));
+        new BookingJournal(journal, BookingJournal.SyncMode.STRICT, SYNC_INTERVAL_MILLIS).close();
+        check(Files.size(journal) == bufferLength, "the torn record past the buffer is cut off when reopened");
+        check(replayBookings(key, journal) == NUM_OF_BATCHED_RECORDS - 2,
+              "every booking before the torn record is replayed");
+
+        // a corrupt record stops the replay, even with intact records after it
+        records[10 * BookingJournal.RECORD_LENGTH + 9] ^= 1;
+        Files.write(journal, records);
+        check(replayBookings(key, journal) == 9, "the bookings after a corrupt record are left out");
+    }
+
+    /**
+     * Returns the number of bookings that a journal replays onto an empty plane of a flight.
+     *
+     * @param key the flight
+     * @param journal the journal file
+     * @return the number of bookings replayed
+     * @throws IOException if the journal file cannot be read
+     */
+    private static int replayBookings(FlightKey key, Path journal) throws IOException {
+        FlightInventory inventory = new FlightInventory();
+
+        inventory.addFlight(key, new Airplane(0, 4, 100, 6));
+        return BookingJournal.replay(journal, inventory);
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
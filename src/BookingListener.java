@@ -0,0 +1,15 @@
+
+/**
+ * Listens to the seats booked through an Airplane (see Airplane.setBookingListener()).
+ */
+public interface BookingListener {
+
+    /**
+     * Called after seats were booked, on the thread that booked them and outside of any row lock.
+     *
+     * @param cabinClass the cabin class of the seating section of the seats
+     * @param reservation the reservation of the seats, to be read with SeatingSection.reservedRow(),
+     *                    reservedFirstColumn() and reservedLastColumn()
+     */
+    void seatsReserved(CabinClass cabinClass, long reservation);
+}
@@ -0,0 +1,159 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Purpose: To measure how booking latency and throughput of an ActorBookingServer change as the number of client
+ *          connections grows. For each number of connections, a new server is started for a plane large enough
+ *          that it never fills up, and every connection sends its ADD commands one after another, waiting for
+ *          each response.
+ *
+ * Target Output: For each number of connections, the p50/p99/p999 latency of a booking as seen by the client, and
+ *                  the bookings per second of all connections together.
+ *
+ * Usage: java BookingLoadGenerator [max connections] [bookings per connection]
+ */
+public class BookingLoadGenerator {
+
+    private static final String[] LOCATIONS = {"aisle", "center", "window"};
+
+    /**
+     * Runs the load for 1, 2, 4, ... connections up to the maximum.
+     *
+     * @param args the maximum number of connections (default 256) and the bookings per connection (default 2000)
+     * @throws Exception if the server cannot be started or a client fails
+     */
+    public static void main(String[] args) throws Exception {
+        int maxConnections = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int bookingsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        System.out.println("connections     p50 us     p99 us    p999 us   bookings/s");
+        for (int connections = 1; connections <= maxConnections; connections *= 2) {
+            runStep(connections, bookingsPerConnection);
+        }
+    }
+
+    /**
+     * Books a new plane from the given number of connections and prints the results.
+     *
+     * @param connections the number of client connections
+     * @param bookingsPerConnection the number of bookings that each connection makes
+     * @throws Exception if the server cannot be started or a client fails
+     */
+    private static void runStep(int connections, int bookingsPerConnection) throws Exception {
+        // single passengers, with room to spare, so that every booking finds a seat
+        int economyRows = connections * bookingsPerConnection / 6 + 1;
+        FlightActor actor = new FlightActor("load", new Airplane(5, 4, economyRows, 6));
+        ActorBookingServer server = new ActorBookingServer(actor,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread serverThread = new Thread(server, "load-server");
+        long[][] latencies = new long[connections][];
+        Thread[] clients = new Thread[connections];
+        CountDownLatch start = new CountDownLatch(1);
+
+        serverThread.start();
+        for (int c = 0; c < connections; ++c) {
+            int client = c;
+
+            latencies[client] = new long[bookingsPerConnection];
+            clients[client] = new Thread(() -> book(server.getPort(), start, client, latencies[client]));
+            clients[client].start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        server.close();
+        actor.close();
+
+        long[] all = new long[connections * bookingsPerConnection];
+        for (int c = 0; c < connections; ++c) {
+            System.arraycopy(latencies[c], 0, all, c * bookingsPerConnection, bookingsPerConnection);
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%11d %10.1f %10.1f %10.1f %12.0f%n", connections, percentile(all, 0.50) / 1e3,
+                          percentile(all, 0.99) / 1e3, percentile(all, 0.999) / 1e3, all.length / (elapsed / 1e9));
+    }
+
+    /**
+     * Connects to the server and makes the bookings of one client, recording the latency of each.
+     *
+     * @param port the port of the server
+     * @param start released once every client has been started
+     * @param client the number of the client, which picks its seating locations
+     * @param latencies receives the latency of each booking in nanoseconds
+     */
+    private static void book(int port, CountDownLatch start, int client, long[] latencies) {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                                                              port))) {
+            ByteBuffer response = ByteBuffer.allocate(256);
+            ByteBuffer[] commands = new ByteBuffer[LOCATIONS.length];
+
+            for (int i = 0; i < commands.length; ++i) {
+                commands[i] = ByteBuffer.wrap(("ADD economy 1 " + LOCATIONS[i] + "\n")
+                                                      .getBytes(StandardCharsets.US_ASCII));
+            }
+            start.await();
+
+            for (int i = 0; i < latencies.length; ++i) {
+                ByteBuffer command = commands[(client + i) % commands.length];
+                long sent = System.nanoTime();
+
+                command.rewind();
+                while (command.hasRemaining()) {
+                    channel.write(command);
+                }
+                readLine(channel, response);
+                latencies[i] = System.nanoTime() - sent;
+
+                if (response.get(0) != 'O') {
+                    throw new IllegalStateException("Booking failed: "
+                            + new String(response.array(), 0, response.position(), StandardCharsets.US_ASCII));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads one response line, which is all that an ADD returns.
+     *
+     * @param channel the connection
+     * @param response receives the line
+     * @throws IOException if the connection fails or closes
+     */
+    private static void readLine(SocketChannel channel, ByteBuffer response) throws IOException {
+        response.clear();
+        while (response.position() == 0 || response.get(response.position() - 1) != '\n') {
+            if (channel.read(response) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     *
+     * @param sorted the values in increasing order
+     * @param fraction the percentile as a fraction (ex: 0.99)
+     * @return the smallest value that at least the fraction of values are not above
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
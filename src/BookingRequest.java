@@ -0,0 +1,59 @@
+
+/**
+ * Constructs a BookingRequest object describing one party to be seated by Airplane.addPassengersBatch().
+ */
+public final class BookingRequest {
+
+    private final CabinClass cabinClass;
+    private final int numOfPassengers;
+    private final SeatLocation seatingLocation;
+
+    /**
+     * Constructs a request to seat a party together.
+     *
+     * @param cabinClass the cabin class of the seating section that the party will sit in
+     * @param numOfPassengers the number of passengers in the party
+     * @param seatingLocation the location of the seats relative to the row
+     */
+    public BookingRequest(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        this.cabinClass = cabinClass;
+        this.numOfPassengers = numOfPassengers;
+        this.seatingLocation = seatingLocation;
+    }
+
+    /**
+     * Returns the cabin class of the seating section that the party will sit in.
+     *
+     * @return the cabin class of the seating section
+     */
+    public CabinClass getCabinClass() {
+        return cabinClass;
+    }
+
+    /**
+     * Returns the number of passengers in the party.
+     *
+     * @return the number of passengers in the party
+     */
+    public int getNumOfPassengers() {
+        return numOfPassengers;
+    }
+
+    /**
+     * Returns the location of the seats relative to the row.
+     *
+     * @return the location of the seats relative to the row
+     */
+    public SeatLocation getSeatingLocation() {
+        return seatingLocation;
+    }
+
+    /**
+     * Returns a description of the BookingRequest as a string (ex: "economy 3 window").
+     *
+     * @return a description of the BookingRequest as a string
+     */
+    public String toString() {
+        return cabinClass.getName() + " " + numOfPassengers + " " + seatingLocation.getName();
+    }
+}
@@ -0,0 +1,204 @@
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Constructs a BookingServer object that lets many socket clients book a shared Airplane at once, speaking the
+ * line protocol of LineCommand.
+ *
+ * For our purposes:
+ *      - A single thread serves every connection through one NIO Selector, so the bookings run one after
+ *          another and the Airplane does not need to be concurrent unless other threads book it as well.
+ *      - Each connection has a fixed input buffer of LineConnection.MAX_LINE_LENGTH bytes; a longer line is
+ *          answered with an error and skipped.
+ *      - While a connection's responses have not all been sent, its input is not read, so a client that does
+ *          not read its responses only holds up itself.
+ */
+public class BookingServer implements Runnable, Closeable {
+
+    /**
+     * The port that main() listens on when none is given.
+     */
+    public static final int DEFAULT_PORT = 9277;
+
+    private final LineConnection.Responder responder;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+
+    /**
+     * Opens a server for the Airplane on the given address. The server starts serving when run() is called.
+     *
+     * @param airplane the plane that the clients book
+     * @param address the address to listen on; port 0 picks a free port
+     * @throws IOException if the address cannot be listened on
+     */
+    public BookingServer(Airplane airplane, InetSocketAddress address) throws IOException {
+        responder = (command, out) -> command.respond(airplane, out);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Returns the port that the server listens on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serves the clients until close() is called.
+     *
+     * @throws UncheckedIOException if the server socket fails
+     */
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        serve(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Stops the server; run() returns and every connection is closed.
+     */
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts the waiting connections.
+     *
+     * @throws IOException if the server socket fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new LineConnection());
+        }
+    }
+
+    /**
+     * Reads the commands of a connection and writes its responses; closes the connection if it fails.
+     *
+     * @param key the selection key of the connection
+     */
+    private void serve(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        LineConnection connection = (LineConnection) key.attachment();
+
+        try {
+            if (key.isReadable()) {
+                if (channel.read(connection.getIn()) < 0) {
+                    closeQuietly(channel);
+                    return;
+                }
+                connection.handleLines(responder);
+            }
+
+            ByteBuffer out = connection.getOut();
+
+            out.flip();
+            channel.write(out);
+            out.compact();
+
+            if (out.position() > 0) {
+                // wait until the client takes the rest before reading more
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (connection.isQuitting()) {
+                closeQuietly(channel);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+                // commands that arrived while the responses were waiting may already be complete
+                if (connection.getIn().position() > 0) {
+                    connection.handleLines(responder);
+                    if (connection.getOut().position() > 0) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Closes the server socket, every connection and the selector.
+     */
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key.channel());
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing is left to release
+        }
+    }
+
+    /**
+     * Closes a channel, ignoring any error since its client is gone either way.
+     *
+     * @param channel the channel
+     */
+    private static void closeQuietly(Closeable channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the connection is already broken
+        }
+    }
+
+    /**
+     * Serves the seats of a plane with 5 rows of 4 first class seats and 15 rows of 6 economy seats, as MainTest
+     * does, to the clients on this machine.
+     *
+     * @param args the port to listen on; DEFAULT_PORT if none is given
+     * @throws IOException if the port cannot be listened on
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        BookingServer server = new BookingServer(new Airplane(5, 4, 15, 6),
+                                                 new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+
+        System.out.println("Serving bookings on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,171 @@
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Purpose: To demonstrate that BookingServer answers a scripted session over a loopback socket the way the line
+ *          protocol of LineCommand says it should, and that many clients connected at once never get the same
+ *          seats.
+ *
+ * Target Output: A message that every response matched; otherwise an IllegalStateException describing the first
+ *                  response that did not.
+ */
+public class BookingServerTest {
+
+    private static final int NUM_OF_CLIENTS = 300;
+
+    /**
+     * Tests BookingServer.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if a socket fails
+     */
+    public static void main(String[] args) throws IOException {
+        testScriptedSession();
+        testManyClients();
+        System.out.println("Every response matched the line protocol for " + NUM_OF_CLIENTS + " clients.");
+    }
+
+    /**
+     * Sends a session of good and bad commands in one write, stopping at QUIT.
+     *
+     * @throws IOException if a socket fails
+     * @throws IllegalStateException if a response does not match
+     */
+    private static void testScriptedSession() throws IOException {
+        Airplane airplane = new Airplane(2, 4, 3, 6);
+        String session = "add economy 3 window\r\n"
+                         + "ADD first 2\n"
+                         + "ADD f 1 center\n"
+                         + "bogus\n"
+                         + "ADD economy x window\n"
+                         + "x".repeat(600) + "\n"
+                         + "SHOW\n"
+                         + "QUIT\n"
+                         + "ADD e 1 w\n";
+        String expected = "OK 0 0 2\n"
+                          + "OK 0 0 1\n"
+                          // first class has no center seats
+                          + "ERROR Invalid input; please try again.\n"
+                          + "ERROR Invalid input; please try again.\n"
+                          + "ERROR Invalid input; please try again.\n"
+                          + "ERROR Line is too long.\n";
+        String response;
+
+        try (BookingServer server = startServer(airplane)) {
+            try (Socket client = connect(server)) {
+                client.getOutputStream().write(session.getBytes(StandardCharsets.US_ASCII));
+                response = readAll(client.getInputStream());
+            }
+        }
+
+        // the line after QUIT is never run, so the map is the plane as it is now
+        String seatMap = airplane.toString();
+
+        expected += "MAP " + seatMap.length() + "\n" + seatMap + "BYE\n";
+        check(response.equals(expected), "the session is answered as scripted:\n" + response);
+    }
+
+    /**
+     * Connects many clients at once, each booking one window seat, with fewer window seats than clients.
+     *
+     * @throws IOException if a socket fails
+     * @throws IllegalStateException if two clients get the same seat or the window seats are not all booked
+     */
+    private static void testManyClients() throws IOException {
+        Airplane airplane = new Airplane(2, 4, 100, 6);
+        // a window seat at either end of each economy row
+        int numOfWindowSeats = 2 * airplane.getEconomyClass().getNumOfRows();
+        List<Socket> clients = new ArrayList<>();
+        Set<String> seats = new HashSet<>();
+
+        try (BookingServer server = startServer(airplane)) {
+            try {
+                for (int i = 0; i < NUM_OF_CLIENTS; ++i) {
+                    clients.add(connect(server));
+                }
+                for (Socket client : clients) {
+                    OutputStream out = client.getOutputStream();
+
+                    out.write("ADD economy 1 window\nQUIT\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+                for (Socket client : clients) {
+                    String response = readAll(client.getInputStream());
+
+                    check(response.endsWith("BYE\n"), "every client is answered before it quits");
+                    if (response.startsWith("OK ")) {
+                        check(seats.add(response), "no two clients get the same seat: " + response);
+                    }
+                }
+            } finally {
+                for (Socket client : clients) {
+                    client.close();
+                }
+            }
+        }
+        check(seats.size() == numOfWindowSeats, "every window seat is booked once");
+        check(airplane.getEconomyClass().countAvailableGroups(1, SeatLocation.WINDOW) == 0,
+              "no window seat is left");
+    }
+
+    /**
+     * Opens a server for a plane on a free loopback port and starts serving on a new thread.
+     *
+     * @param airplane the plane to book
+     * @return the server; closing it stops the thread
+     * @throws IOException if the port cannot be listened on
+     */
+    private static BookingServer startServer(Airplane airplane) throws IOException {
+        BookingServer server = new BookingServer(airplane, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread thread = new Thread(server);
+
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    /**
+     * Connects a client to a server.
+     *
+     * @param server the server
+     * @return the client's socket
+     * @throws IOException if the connection fails
+     */
+    private static Socket connect(BookingServer server) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    /**
+     * Reads a socket's input until the server closes the connection.
+     *
+     * @param in the input of the socket
+     * @return everything that was read, as ASCII
+     * @throws IOException if the socket fails
+     */
+    private static String readAll(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
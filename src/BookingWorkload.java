@@ -0,0 +1,255 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Constructs a BookingWorkload object, a recorded booking session: the commands that a MainTest user or a
+ * BookingServer client would send, one line each in the LineCommand protocol (ex: "ADD economy 2 window").
+ *
+ * For our purposes:
+ *      - A workload is generated from a seed and a Mix of cabin classes, party sizes and seating locations, with
+ *          java.util.Random, whose sequence is fixed by its specification; the same seed and mix give the same
+ *          commands on every JVM.
+ *      - A party that prefers a whole row is sent without a seating location, as MainTest books a whole side
+ *          of a row without asking for one.
+ *      - The file of a workload is exactly its command lines, so a recorded session is replayed byte for byte,
+ *          and can also be sent to a running BookingServer as it is.
+ */
+public final class BookingWorkload {
+
+    private static final SeatLocation[] LOCATIONS = SeatLocation.values();
+
+    // the command lines as ASCII, each ending with a newline
+    private final byte[] session;
+    // the index of the first byte of each command, followed by the length of the session
+    private final int[] lineStarts;
+
+    /**
+     * Constructs a workload from its command lines.
+     *
+     * @param session the command lines as ASCII, each ending with a newline
+     */
+    private BookingWorkload(byte[] session) {
+        int numOfLines = 0;
+        int[] starts = new int[16];
+
+        for (int i = 0; i < session.length; ++i) {
+            if (i == 0 || session[i - 1] == '\n') {
+                if (numOfLines == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * numOfLines);
+                }
+                starts[numOfLines++] = i;
+            }
+        }
+
+        this.session = session;
+        lineStarts = Arrays.copyOf(starts, numOfLines + 1);
+        lineStarts[numOfLines] = session.length;
+    }
+
+    /**
+     * Returns a new workload of commands drawn from a mix.
+     *
+     * @param seed the seed of the random numbers
+     * @param numOfCommands the number of commands
+     * @param mix the shares of the commands, cabin classes, party sizes and seating locations
+     * @return the workload
+     */
+    public static BookingWorkload generate(long seed, int numOfCommands, Mix mix) {
+        Random random = new Random(seed);
+        StringBuilder session = new StringBuilder(24 * numOfCommands);
+
+        for (int i = 0; i < numOfCommands; ++i) {
+            if (random.nextDouble() < mix.showShare) {
+                session.append("SHOW\n");
+                continue;
+            }
+
+            boolean first = random.nextDouble() < mix.firstClassShare;
+            int numOfPassengers = 1 + pick(random, first ? mix.firstPartySizes : mix.economyPartySizes);
+            SeatLocation seatingLocation = LOCATIONS[pick(random, first ? mix.firstLocations : mix.economyLocations)];
+
+            session.append("ADD ").append(first ? CabinClass.FIRST.getName() : CabinClass.ECONOMY.getName())
+                   .append(' ').append(numOfPassengers);
+            if (seatingLocation != SeatLocation.ROW) {
+                session.append(' ').append(seatingLocation.getName());
+            }
+            session.append('\n');
+        }
+        return new BookingWorkload(session.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns the index of a weight, picked with the probability of its share of the total weight.
+     *
+     * @param random the random numbers
+     * @param weights the weights, at least one of them positive
+     * @return the index of the picked weight
+     */
+    private static int pick(Random random, double[] weights) {
+        double total = 0;
+
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        double target = random.nextDouble() * total;
+        int last = 0;
+
+        for (int i = 0; i < weights.length; ++i) {
+            if (weights[i] > 0) {
+                last = i;
+                target -= weights[i];
+                if (target < 0) {
+                    return i;
+                }
+            }
+        }
+        // rounding can leave a sliver past the last weight
+        return last;
+    }
+
+    /**
+     * Reads a workload recorded by write().
+     *
+     * @param file the file holding the command lines
+     * @return the workload
+     * @throws IOException if the file cannot be read
+     */
+    public static BookingWorkload read(Path file) throws IOException {
+        byte[] session = Files.readAllBytes(file);
+
+        // the last command of a file written by hand may lack its newline
+        if (session.length > 0 && session[session.length - 1] != '\n') {
+            session = Arrays.copyOf(session, session.length + 1);
+            session[session.length - 1] = '\n';
+        }
+        return new BookingWorkload(session);
+    }
+
+    /**
+     * Writes the workload to a file, replacing the file if it exists.
+     *
+     * @param file the file to hold the command lines
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Files.write(file, session);
+    }
+
+    /**
+     * Returns the number of commands.
+     *
+     * @return the number of commands
+     */
+    public int getNumOfCommands() {
+        return lineStarts.length - 1;
+    }
+
+    /**
+     * Returns the command lines as a read-only buffer, for LineCommand.parse().
+     *
+     * @return the command lines as ASCII, each ending with a newline
+     */
+    public ByteBuffer getSession() {
+        return ByteBuffer.wrap(session).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the index of the first byte of a command within the session.
+     *
+     * @param command the index of the command
+     * @return the index of its first byte
+     */
+    public int getCommandStart(int command) {
+        return lineStarts[command];
+    }
+
+    /**
+     * Returns the index after the last byte of a command within the session, without the newline.
+     *
+     * @param command the index of the command
+     * @return the index of its newline
+     */
+    public int getCommandEnd(int command) {
+        int end = lineStarts[command + 1] - 1;
+
+        // a line ending of "\r\n" ends before the carriage return
+        return end > lineStarts[command] && session[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Constructs a Mix object, the shares of the commands of a generated workload. Every share is a weight
+     * relative to the others of its array, so the weights need not add up to 1.
+     */
+    public static final class Mix {
+
+        /**
+         * The mix of a MainTest user: mostly economy, mostly single passengers and couples, any seating location
+         * that the cabin class offers, and now and then a look at the seat map.
+         */
+        public static final Mix DEFAULT = new Mix(0.2, 0.01, new double[] {0.6, 0.4}, new double[] {0.5, 0.3, 0.2},
+                                                  new double[] {0.5, 0.4, 0.0, 0.1},
+                                                  new double[] {0.4, 0.3, 0.2, 0.1});
+
+        private final double firstClassShare;
+        private final double showShare;
+        private final double[] firstPartySizes;
+        private final double[] economyPartySizes;
+        private final double[] firstLocations;
+        private final double[] economyLocations;
+
+        /**
+         * Constructs a mix.
+         *
+         * @param firstClassShare the share of the bookings that are for first class, between 0 and 1
+         * @param showShare the share of the commands that show the seat map instead of booking, between 0 and 1
+         * @param firstPartySizes the weight of each party size in first class, from 1 passenger on
+         * @param economyPartySizes the weight of each party size in economy class, from 1 passenger on
+         * @param firstLocations the weight of each seating location in first class, by the location's ordinal
+         * @param economyLocations the weight of each seating location in economy class, by the location's ordinal
+         * @throws IllegalArgumentException if a share is not between 0 and 1, or a weight array is empty, has a
+         *                                  negative weight or has no positive one
+         */
+        public Mix(double firstClassShare, double showShare, double[] firstPartySizes, double[] economyPartySizes,
+                   double[] firstLocations, double[] economyLocations) {
+            if (!(firstClassShare >= 0 && firstClassShare <= 1) || !(showShare >= 0 && showShare <= 1)) {
+                throw new IllegalArgumentException("Invalid share: " + firstClassShare + ", " + showShare);
+            }
+            this.firstClassShare = firstClassShare;
+            this.showShare = showShare;
+            this.firstPartySizes = checkWeights(firstPartySizes, Integer.MAX_VALUE);
+            this.economyPartySizes = checkWeights(economyPartySizes, Integer.MAX_VALUE);
+            this.firstLocations = checkWeights(firstLocations, LOCATIONS.length);
+            this.economyLocations = checkWeights(economyLocations, LOCATIONS.length);
+        }
+
+        /**
+         * Returns a copy of weights after checking them.
+         *
+         * @param weights the weights
+         * @param maxLength the most weights allowed
+         * @return the copy
+         * @throws IllegalArgumentException if the weights are empty, too many, negative or all 0
+         */
+        private static double[] checkWeights(double[] weights, int maxLength) {
+            double total = 0;
+
+            for (double weight : weights) {
+                if (!(weight >= 0)) {
+                    throw new IllegalArgumentException("Invalid weights: " + Arrays.toString(weights));
+                }
+                total += weight;
+            }
+            if (weights.length > maxLength || !(total > 0) || Double.isInfinite(total)) {
+                throw new IllegalArgumentException("Invalid weights: " + Arrays.toString(weights));
+            }
+            return weights.clone();
+        }
+    }
+}
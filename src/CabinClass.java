@@ -0,0 +1,47 @@
+
+/**
+ * The seating sections (cabins) that an Airplane can have, in the order they are displayed from front to back.
+ */
+public enum CabinClass {
+
+    FIRST("first"),
+    BUSINESS("business"),
+    PREMIUM_ECONOMY("premium-economy"),
+    ECONOMY("economy");
+
+    private final String name;
+
+    /**
+     * Constructs a cabin class with the name used by the text commands.
+     *
+     * @param name the name of the cabin class
+     */
+    CabinClass(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the cabin class (ex: "first"). The names are single words, so that the line commands
+     * can split on whitespace.
+     *
+     * @return the name of the cabin class
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the cabin class with the given name.
+     *
+     * @param name the name of the cabin class (ex: "economy")
+     * @return the cabin class with the given name; null if there is none
+     */
+    public static CabinClass fromName(String name) {
+        for (CabinClass cabinClass : values()) {
+            if (cabinClass.name.equals(name)) {
+                return cabinClass;
+            }
+        }
+        return null;
+    }
+}
@@ -6,6 +6,9 @@ import java.util.Scanner;
  */
 public class CheckInput {
 
+    // every method reads from the same Scanner, so that input buffered by one call is not lost to the next
+    private static final Scanner IN = new Scanner(System.in);
+
     /**
      * Checks if the inputted value is an integer and
      * within the specified range (ex: 1-10)
@@ -16,20 +19,21 @@ public class CheckInput {
      * @return the valid input.
      */
     public static int checkIntRange(int low, int high) {
-        Scanner in = new Scanner(System.in);
         int input = 0;
         boolean valid = false;
 
         while (!valid) {
-            if (in.hasNextInt()) {
-                input = in.nextInt();
+            if (IN.hasNextInt()) {
+                input = IN.nextInt();
                 if (input <= high && input >= low) {
                     valid = true;
+                    // the other methods read whole lines, so drop the rest of this one
+                    IN.nextLine();
                 } else {
                     System.out.print("Invalid range; please try again: ");
                 }
             } else {
-                in.next(); //clear invalid string
+                IN.next(); //clear invalid string
                 System.out.print("Invalid input; please try again: ");
             }
         }
@@ -42,11 +46,10 @@ public class CheckInput {
      * @return a string as add, show, or quit.
      */
     public static String checkAddShowQuit() {
-        Scanner in = new Scanner(System.in);
         String input;
 
         do {
-            input = in.nextLine();
+            input = IN.nextLine();
             if (input.equalsIgnoreCase("a")) {
                 return "add";
             } else if (input.equalsIgnoreCase("s")) {
@@ -65,15 +68,23 @@ public class CheckInput {
      * @return a string as first or economy.
      */
     public static String checkFirstEconomy() {
-        Scanner in = new Scanner(System.in);
+        return checkFirstEconomyClass().getName();
+    }
+
+    /**
+     * Takes an option as a string and returns the first or economy cabin class.
+     *
+     * @return CabinClass.FIRST or CabinClass.ECONOMY.
+     */
+    public static CabinClass checkFirstEconomyClass() {
         String input;
 
         do {
-            input = in.nextLine();
+            input = IN.nextLine();
             if (input.equalsIgnoreCase("f")) {
-                return "first";
+                return CabinClass.FIRST;
             } else if (input.equalsIgnoreCase("e")) {
-                return "economy";
+                return CabinClass.ECONOMY;
             } else {
                 System.out.print("Invalid input; please try again: ");
             }
@@ -86,15 +97,23 @@ public class CheckInput {
      * @return a string as aisle or window.
      */
     public static String checkAisleWindow() {
-        Scanner in = new Scanner(System.in);
+        return checkAisleWindowLocation().getName();
+    }
+
+    /**
+     * Takes an option as a string and returns the aisle or window seat location.
+     *
+     * @return SeatLocation.AISLE or SeatLocation.WINDOW.
+     */
+    public static SeatLocation checkAisleWindowLocation() {
         String input;
 
         do {
-            input = in.nextLine();
+            input = IN.nextLine();
             if (input.equalsIgnoreCase("a")) {
-                return "aisle";
+                return SeatLocation.AISLE;
             } else if (input.equalsIgnoreCase("w")) {
-                return "window";
+                return SeatLocation.WINDOW;
             } else {
                 System.out.print("Invalid input; please try again: ");
             }
@@ -107,17 +126,25 @@ public class CheckInput {
      * @return a string as aisle, center, or window.
      */
     public static String checkAisleCenterWindow() {
-        Scanner in = new Scanner(System.in);
+        return checkAisleCenterWindowLocation().getName();
+    }
+
+    /**
+     * Takes an option as a string and returns the aisle, center, or window seat location.
+     *
+     * @return SeatLocation.AISLE, SeatLocation.CENTER, or SeatLocation.WINDOW.
+     */
+    public static SeatLocation checkAisleCenterWindowLocation() {
         String input;
 
         do {
-            input = in.nextLine();
+            input = IN.nextLine();
             if (input.equalsIgnoreCase("a")) {
-                return "aisle";
+                return SeatLocation.AISLE;
             } else if (input.equalsIgnoreCase("c")) {
-                return "center";
+                return SeatLocation.CENTER;
             } else if (input.equalsIgnoreCase("w")) {
-                return "window";
+                return SeatLocation.WINDOW;
             } else {
                 System.out.print("Invalid input; please try again: ");
             }
@@ -0,0 +1,156 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Purpose: To demonstrate that a concurrent Airplane never assigns a seat twice, by booking it from many
+ *          threads at once until it is full and then checking every reservation against the seats.
+ *
+ * Target Output: A message that no seat was assigned twice; otherwise an
+ *                  IllegalStateException describing the double booking.
+ */
+public class ConcurrentBookingTest {
+
+    private static final int NUM_OF_THREADS = 16;
+    private static final int NUM_OF_ROUNDS = 200;
+
+    /**
+     * Tests concurrent bookings of Airplane.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < NUM_OF_ROUNDS; ++round) {
+            testRound(round);
+        }
+        System.out.println("No seat was assigned twice in " + NUM_OF_ROUNDS + " rounds of "
+                           + NUM_OF_THREADS + " threads.");
+    }
+
+    /**
+     * Books a new concurrent Airplane from many threads until it is full, then verifies the reservations.
+     *
+     * @param seed the seed of the random booking requests
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    private static void testRound(long seed) throws InterruptedException {
+        Airplane airplane = new Airplane(20, 4, 400, 6, true);
+        List<List<long[]>> bookingsPerThread = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            List<long[]> bookings = new ArrayList<>();
+            Random random = new Random(seed * NUM_OF_THREADS + t);
+
+            bookingsPerThread.add(bookings);
+            threads[t] = new Thread(() -> {
+                awaitQuietly(start);
+                while (!airplane.isFull()) {
+                    CabinClass cabinClass = random.nextInt(4) == 0 ? CabinClass.FIRST : CabinClass.ECONOMY;
+                    int numOfPassengers = 1 + random.nextInt(3);
+                    SeatLocation seatingLocation = SeatLocation.values()[random.nextInt(4)];
+                    long reservation = airplane.tryReserve(cabinClass, numOfPassengers, seatingLocation);
+
+                    if (reservation != SeatingSection.NO_SEATS) {
+                        bookings.add(new long[]{cabinClass.ordinal(), reservation});
+                    } else {
+                        // the seats left may not match the request; take any of them until the plane is full
+                        fillAnySeat(airplane, bookings);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        verify(airplane, bookingsPerThread);
+    }
+
+    /**
+     * Books a single seat of any location, so that the plane can always be filled up completely.
+     *
+     * @param airplane the plane to book
+     * @param bookings the bookings of the current thread
+     */
+    private static void fillAnySeat(Airplane airplane, List<long[]> bookings) {
+        for (CabinClass cabinClass : new CabinClass[]{CabinClass.FIRST, CabinClass.ECONOMY}) {
+            for (SeatLocation seatingLocation : SeatLocation.values()) {
+                for (int numOfPassengers = 1; numOfPassengers <= 3; ++numOfPassengers) {
+                    long reservation = airplane.tryReserve(cabinClass, numOfPassengers, seatingLocation);
+
+                    if (reservation != SeatingSection.NO_SEATS) {
+                        bookings.add(new long[]{cabinClass.ordinal(), reservation});
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that no seat was reserved twice and that every occupied seat belongs to exactly one reservation.
+     *
+     * @param airplane the plane that was booked
+     * @param bookingsPerThread the bookings made by each thread
+     * @throws IllegalStateException if a seat was assigned twice or the seats do not match the reservations
+     */
+    private static void verify(Airplane airplane, List<List<long[]>> bookingsPerThread) {
+        CabinClass[] cabinClasses = CabinClass.values();
+        boolean[][][] assigned = new boolean[cabinClasses.length][][];
+
+        for (CabinClass cabinClass : cabinClasses) {
+            SeatingSection section = airplane.getSection(cabinClass);
+            assigned[cabinClass.ordinal()] = new boolean[section.getNumOfRows()][section.getNumOfColumns()];
+        }
+
+        for (List<long[]> bookings : bookingsPerThread) {
+            for (long[] booking : bookings) {
+                boolean[][] seats = assigned[(int) booking[0]];
+                int row = SeatingSection.reservedRow(booking[1]);
+
+                for (int i = SeatingSection.reservedFirstColumn(booking[1]);
+                     i <= SeatingSection.reservedLastColumn(booking[1]); ++i) {
+                    if (seats[row][i]) {
+                        throw new IllegalStateException("Seat " + row + ":" + i + " of "
+                                                        + cabinClasses[(int) booking[0]] + " was assigned twice");
+                    }
+                    seats[row][i] = true;
+                }
+            }
+        }
+
+        for (CabinClass cabinClass : cabinClasses) {
+            SeatingSection section = airplane.getSection(cabinClass);
+
+            section.checkConsistency();
+            for (int row = 0; row < section.getNumOfRows(); ++row) {
+                for (int i = 0; i < section.getNumOfColumns(); ++i) {
+                    if (section.isOccupied(row, i) != assigned[cabinClass.ordinal()][row][i]) {
+                        throw new IllegalStateException("Seat " + row + ":" + i + " of " + cabinClass
+                                                        + " does not match the reservations");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the latch without propagating interrupts.
+     *
+     * @param latch the latch to wait for
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
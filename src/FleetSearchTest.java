@@ -0,0 +1,134 @@
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Purpose: To demonstrate that the parallel fleet searches of FlightInventory find the same flights as searching
+ *          the flights one after another in the order of the inventory.
+ *
+ * Target Output: A message that every search matched; otherwise an IllegalStateException describing the first
+ *                  search that did not.
+ */
+public class FleetSearchTest {
+
+    private static final int NUM_OF_FLIGHTS = 5000;
+    private static final int[] MAX_FLIGHTS = {1, 10, 1000, NUM_OF_FLIGHTS * 2};
+
+    /**
+     * Tests the parallel searches of FlightInventory against sequential ones.
+     *
+     * @param args command-line arguments for the application of type String array
+     */
+    public static void main(String[] args) {
+        FlightInventory inventory = randomInventory(new Random(3));
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        try {
+            for (int numOfPassengers = 1; numOfPassengers <= 3; ++numOfPassengers) {
+                for (SeatLocation seatingLocation : SeatLocation.values()) {
+                    testSearches(inventory, pool, numOfPassengers, seatingLocation);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        FlightInventory empty = new FlightInventory();
+
+        check(empty.findFirstFlightWithSeats(CabinClass.ECONOMY, 1, SeatLocation.WINDOW) == null,
+              "an empty inventory has no first flight");
+        check(empty.topFlightsWithAvailableGroups(CabinClass.ECONOMY, 1, SeatLocation.WINDOW, 5).isEmpty(),
+              "an empty inventory has no top flights");
+        check(inventory.topFlightsWithAvailableGroups(CabinClass.ECONOMY, 1, SeatLocation.WINDOW, 0).isEmpty(),
+              "no top flights are asked for");
+        System.out.println("Every parallel search of " + NUM_OF_FLIGHTS + " flights matched the sequential one.");
+    }
+
+    /**
+     * Returns an inventory of planes booked to random loads.
+     *
+     * @param random the random numbers
+     * @return the inventory
+     */
+    private static FlightInventory randomInventory(Random random) {
+        FlightInventory inventory = new FlightInventory();
+
+        for (int i = 0; i < NUM_OF_FLIGHTS; ++i) {
+            Airplane airplane = new Airplane(2, 4, 20, 6);
+            int numOfBookings = random.nextInt(120);
+
+            for (int k = 0; k < numOfBookings; ++k) {
+                airplane.tryReserve(CabinClass.ECONOMY, 1 + random.nextInt(3),
+                                    SeatLocation.values()[random.nextInt(3)]);
+            }
+            inventory.addFlight(new FlightKey("F" + i, LocalDate.of(2026, 1, 1)), airplane);
+        }
+        return inventory;
+    }
+
+    /**
+     * Checks the first flight and the top flights of one search against a sequential search.
+     *
+     * @param inventory the flights
+     * @param pool the pool to search on
+     * @param numOfPassengers the number of passengers of each party
+     * @param seatingLocation the location of the seats relative to the row
+     * @throws IllegalStateException if a parallel search finds other flights
+     */
+    private static void testSearches(FlightInventory inventory, ForkJoinPool pool, int numOfPassengers,
+                                     SeatLocation seatingLocation) {
+        List<FlightKey> keys = inventory.getFlightKeys();
+        String search = numOfPassengers + " " + seatingLocation;
+        FlightKey first = null;
+        int[] numOfGroups = new int[keys.size()];
+        Integer[] byGroups = new Integer[keys.size()];
+
+        for (int i = 0; i < keys.size(); ++i) {
+            Airplane airplane = inventory.getFlight(keys.get(i));
+
+            if (first == null
+                    && airplane.availableSeatsOfLocationType(CabinClass.ECONOMY, numOfPassengers, seatingLocation)
+                       .length > 0) {
+                first = keys.get(i);
+            }
+            numOfGroups[i] = airplane.countAvailableGroups(CabinClass.ECONOMY, numOfPassengers, seatingLocation);
+            byGroups[i] = i;
+        }
+        check(Objects.equals(first, inventory.findFirstFlightWithSeats(pool, CabinClass.ECONOMY, numOfPassengers,
+                                                                       seatingLocation)),
+              search + ": the first flight is the first in the order of the inventory");
+
+        // the most parties first, and the order of the inventory among flights with as many
+        Arrays.sort(byGroups, (a, b) -> numOfGroups[a] != numOfGroups[b] ? numOfGroups[b] - numOfGroups[a] : a - b);
+        for (int maxFlights : MAX_FLIGHTS) {
+            List<FlightKey> expected = new ArrayList<>();
+
+            for (int i = 0; i < byGroups.length && expected.size() < maxFlights; ++i) {
+                if (numOfGroups[byGroups[i]] > 0) {
+                    expected.add(keys.get(byGroups[i]));
+                }
+            }
+            check(expected.equals(inventory.topFlightsWithAvailableGroups(pool, CabinClass.ECONOMY, numOfPassengers,
+                                                                          seatingLocation, maxFlights)),
+                  search + ": the top " + maxFlights + " flights seat the most parties");
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
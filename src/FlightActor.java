@@ -0,0 +1,343 @@
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Constructs a FlightActor object that owns an Airplane and makes every change to it on a single writer thread,
+ * taking the changes from a mailbox in the order they arrive.
+ *
+ * For our purposes:
+ *      - Only the writer thread touches the Airplane, so the Airplane does not need to be concurrent and its
+ *          bookings take no locks.
+ *      - Reads are served from an AirplaneSnapshot that the writer publishes after each batch of changes, before
+ *          it reports the changes as done; a caller therefore always reads its own bookings. Each snapshot shares
+ *          the rows that did not change with the one before it, so it costs the rows the batch changed.
+ *      - With a BookingJournal in STRICT mode, the bookings of a batch do not wait for their own sync; the writer
+ *          waits once for the whole batch to be on disk before it reports any of the changes as done.
+ *      - The mailbox is bounded; when it is full, callers wait for room, which slows down the clients instead of
+ *          queueing without limit.
+ *      - The actor owns the plane's holds: their expiry arrives as a change in the mailbox, so a hold that is not
+ *          confirmed in time is released on the writer thread even if nobody else sends the plane a change.
+ */
+public final class FlightActor implements Closeable {
+
+    /**
+     * The number of changes that the mailbox holds.
+     */
+    public static final int MAILBOX_CAPACITY = 1024;
+
+    // the most changes that go into one snapshot
+    private static final int MAX_BATCH = 256;
+
+    private final Airplane airplane;
+    // the journal of the plane's bookings; null if they are not journaled
+    private final BookingJournal journal;
+    private final BlockingQueue<Mail<?>> mailbox = new ArrayBlockingQueue<Mail<?>>(MAILBOX_CAPACITY);
+    private final Thread writer;
+    private volatile AirplaneSnapshot snapshot;
+    // the sum of the section versions in the published snapshot; only the writer thread uses it
+    private long publishedVersion;
+    private volatile boolean closed;
+
+    /**
+     * Starts an actor for a plane. Nobody else may book the plane from now on.
+     *
+     * @param name the name of the flight, for the writer thread's name
+     * @param airplane the plane
+     */
+    public FlightActor(String name, Airplane airplane) {
+        this(name, airplane, null, null);
+    }
+
+    /**
+     * Starts an actor for a plane whose bookings are journaled, replacing the plane's booking listener. Nobody
+     * else may book the plane from now on.
+     *
+     * @param name the name of the flight, for the writer thread's name
+     * @param airplane the plane
+     * @param key the flight ID and date of the flight, for the journal; null if journal is null
+     * @param journal the journal of the bookings; null to journal nothing
+     * @throws IllegalArgumentException if the flight ID is too long for the journal
+     */
+    public FlightActor(String name, Airplane airplane, FlightKey key, BookingJournal journal) {
+        this.airplane = airplane;
+        this.journal = journal;
+        if (journal != null) {
+            journal.attach(key, airplane, false);
+        }
+        airplane.setHoldOwner(this::expireHolds);
+        snapshot = new AirplaneSnapshot(airplane);
+        publishedVersion = sumOfVersions();
+        writer = new Thread(this::processMail, "flight-actor-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the latest published snapshot of the plane.
+     *
+     * @return the snapshot, which holds every change that has been reported as done
+     */
+    public AirplaneSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Queues a change of the plane. The change runs on the writer thread and may read the plane as well.
+     *
+     * @param change the change, which gets the plane and returns the result
+     * @param <T> the type of the result
+     * @return the result, completed once a snapshot holding the change is published
+     * @throws IllegalStateException if the actor is closed
+     */
+    public <T> CompletableFuture<T> submit(Function<Airplane, T> change) {
+        if (closed) {
+            throw new IllegalStateException("Flight actor is closed");
+        }
+
+        Mail<T> mail = new Mail<T>(change);
+        boolean interrupted = false;
+
+        while (true) {
+            try {
+                mailbox.put(mail);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        // close() may have run between the check above and the put, after the writer stopped and the mailbox was
+        // drained; the mail that nobody takes any more fails here instead
+        if (closed && mailbox.remove(mail)) {
+            mail.result.completeExceptionally(new IllegalStateException("Flight actor is closed"));
+        }
+        return mail.result;
+    }
+
+    /**
+     * Runs a change of the plane and waits for its result.
+     *
+     * @param change the change, which gets the plane and returns the result
+     * @param <T> the type of the result
+     * @return the result of the change
+     * @throws RuntimeException the exception that the change threw
+     * @throws Error the error that the change threw
+     */
+    public <T> T call(Function<Airplane, T> change) {
+        try {
+            return submit(change).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Books seats, as Airplane.tryReserve() does.
+     *
+     * @param cabinClass the cabin class of the seating section that the passengers will sit in
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the reservation of the seats; SeatingSection.NO_SEATS if there are no matching seats
+     */
+    public long tryReserve(CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation) {
+        return call(seats -> seats.tryReserve(cabinClass, numOfPassengers, seatingLocation));
+    }
+
+    /**
+     * Queues the expiry of the plane's holds, without waiting for room in the mailbox.
+     *
+     * @param expiry the expiry, which runs on the writer thread
+     * @throws RejectedExecutionException if the mailbox is full or the actor is closed, so that the expiry is
+     *                                    handed over again later
+     */
+    private void expireHolds(Runnable expiry) {
+        if (closed || !mailbox.offer(new Mail<Object>(seats -> {
+            expiry.run();
+            return null;
+        }))) {
+            throw new RejectedExecutionException("Flight actor is busy or closed");
+        }
+    }
+
+    /**
+     * Stops the writer thread once the changes already queued are done. Changes submitted after the actor is
+     * closed fail.
+     */
+    public void close() {
+        closed = true;
+        // an empty change wakes the writer, which then sees that the actor is closed
+        mailbox.offer(new Mail<Object>(seats -> null));
+        boolean interrupted = false;
+
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // a change that raced with close() is left over after the writer stopped
+        for (Mail<?> mail; (mail = mailbox.poll()) != null; ) {
+            mail.result.completeExceptionally(new IllegalStateException("Flight actor is closed"));
+        }
+        // the plane is the caller's again, and so are its holds
+        airplane.setHoldOwner(null);
+    }
+
+    /**
+     * Runs the writer thread: takes the waiting changes in batches, runs them, waits for the journal, publishes a
+     * snapshot, and then reports the changes as done. A change that throws only fails itself; if the writer
+     * itself fails, the actor closes and fails every change that is waiting.
+     */
+    private void processMail() {
+        ArrayList<Mail<?>> batch = new ArrayList<Mail<?>>(MAX_BATCH);
+
+        try {
+            processMail(batch);
+        } catch (Throwable e) {
+            // nothing would ever take the mail again, so submit() turns new changes away and the waiting ones fail
+            closed = true;
+
+            IllegalStateException failure = new IllegalStateException("Flight actor failed", e);
+
+            for (Mail<?> mail : batch) {
+                mail.result.completeExceptionally(failure);
+            }
+            for (Mail<?> mail; (mail = mailbox.poll()) != null; ) {
+                mail.result.completeExceptionally(failure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the loop of the writer thread.
+     *
+     * @param batch the list to gather each batch of changes in, which holds the batch being run if this throws
+     */
+    private void processMail(ArrayList<Mail<?>> batch) {
+        while (!closed || !mailbox.isEmpty()) {
+            try {
+                batch.add(mailbox.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            mailbox.drainTo(batch, MAX_BATCH - 1);
+
+            for (Mail<?> mail : batch) {
+                mail.run(airplane);
+            }
+            if (journal != null) {
+                try {
+                    journal.awaitDurable();
+                } catch (UncheckedIOException e) {
+                    // the bookings are made in memory but may not be on disk, so none of the batch is confirmed
+                    for (Mail<?> mail : batch) {
+                        mail.fail(e);
+                    }
+                }
+            }
+            // a batch of reads or failed bookings changes nothing, and the snapshot can stay
+            if (sumOfVersions() != publishedVersion) {
+                snapshot = new AirplaneSnapshot(snapshot, airplane);
+                publishedVersion = sumOfVersions();
+            }
+            for (Mail<?> mail : batch) {
+                mail.complete();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Returns the sum of the versions of every seating section, which grows with every change of the seats.
+     *
+     * @return the sum of the versions
+     */
+    private long sumOfVersions() {
+        long sum = 0;
+
+        for (CabinClass cabinClass : CabinClass.values()) {
+            sum += airplane.getSection(cabinClass).getVersion();
+        }
+        return sum;
+    }
+
+    /**
+     * A change of the plane and its result.
+     *
+     * @param <T> the type of the result
+     */
+    private static final class Mail<T> {
+
+        private final Function<Airplane, T> change;
+        private final CompletableFuture<T> result = new CompletableFuture<T>();
+        private T value;
+        private Throwable failure;
+
+        /**
+         * Constructs the mail of a change.
+         *
+         * @param change the change
+         */
+        private Mail(Function<Airplane, T> change) {
+            this.change = change;
+        }
+
+        /**
+         * Runs the change on the writer thread, keeping its result until the snapshot is published. Anything the
+         * change throws, even an Error such as a failed self-check, fails the change and leaves the writer running.
+         *
+         * @param airplane the plane
+         */
+        private void run(Airplane airplane) {
+            try {
+                value = change.apply(airplane);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Makes the change fail, unless it failed already.
+         *
+         * @param e the exception to fail with
+         */
+        private void fail(RuntimeException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Reports the result of the change.
+         */
+        private void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
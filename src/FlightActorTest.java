@@ -0,0 +1,257 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Purpose: To demonstrate that a snapshot that shares rows with an earlier one shows exactly the plane it was
+ *          taken of; that a FlightActor journaling in STRICT mode publishes every booking it reports as done
+ *          and can be replayed from its journal; that a change that throws an Error fails alone; and that every
+ *          change submitted while the actor closes is either done or failed.
+ *
+ * Target Output: A message that every snapshot and the replayed plane matched; otherwise an
+ *                  IllegalStateException describing the first one that did not.
+ */
+public class FlightActorTest {
+
+    private static final int NUM_OF_CHANGES = 2000;
+    private static final int NUM_OF_THREADS = 4;
+
+    /**
+     * Tests AirplaneSnapshot and FlightActor.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the journal cannot be written or read
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        testSnapshots();
+        testJournaledActor();
+        testFailingChange();
+        testSubmitWhileClosing();
+        System.out.println("Every snapshot of " + NUM_OF_CHANGES + " changes and the replayed plane matched.");
+    }
+
+    /**
+     * Books, holds, confirms and releases seats at random, taking a snapshot after each change from the one
+     * before it, then checks that a plane and its snapshot fit a party of no passengers into a full section.
+     *
+     * @throws IllegalStateException if a snapshot does not show the plane as it was
+     */
+    private static void testSnapshots() {
+        Airplane airplane = new Airplane(5, SeatLayout.parse("2-2"), 150, SeatLayout.parse("3-4-3"), false);
+        AirplaneSnapshot snapshot = new AirplaneSnapshot(airplane);
+        List<Long> holds = new ArrayList<>();
+        Random random = new Random(5);
+
+        for (int i = 0; i < NUM_OF_CHANGES; ++i) {
+            int op = random.nextInt(10);
+
+            if (op < 6) {
+                airplane.tryReserve(random.nextBoolean() ? CabinClass.FIRST : CabinClass.ECONOMY,
+                                    1 + random.nextInt(3), SeatLocation.values()[random.nextInt(4)]);
+            } else if (op < 8) {
+                holds.add(airplane.hold(CabinClass.ECONOMY, 1 + random.nextInt(2),
+                                        SeatLocation.values()[random.nextInt(3)], 60000));
+            } else if (!holds.isEmpty()) {
+                long holdId = holds.remove(random.nextInt(holds.size()));
+
+                if (random.nextBoolean()) {
+                    airplane.confirm(holdId);
+                } else {
+                    airplane.release(holdId);
+                }
+            }
+
+            AirplaneSnapshot next = new AirplaneSnapshot(snapshot, airplane);
+            String seatMap = airplane.toString();
+            ByteBuffer rendered = ByteBuffer.allocate(next.getRenderedLength());
+
+            next.renderTo(rendered);
+            check(next.toString().equals(seatMap), "a shared snapshot shows the plane after change " + i);
+            check(new AirplaneSnapshot(airplane).toString().equals(seatMap),
+                  "a full snapshot shows the plane after change " + i);
+            check(new String(rendered.array(), StandardCharsets.US_ASCII).equals(seatMap),
+                  "a snapshot renders the plane into a buffer after change " + i);
+            check(Arrays.equals(next.getVersions(), airplane.getVersions()) && next.isFull() == airplane.isFull(),
+                  "a snapshot has the versions of the plane after change " + i);
+            snapshot = next;
+        }
+
+        // a party of no passengers fits a full section, as it did when the rows were scanned, but not a section
+        // without rows
+        Airplane full = new Airplane(1, 4, 0, 6);
+
+        full.tryReserve(CabinClass.FIRST, 2, SeatLocation.ROW);
+        full.tryReserve(CabinClass.FIRST, 2, SeatLocation.ROW);
+
+        AirplaneSnapshot fullSnapshot = new AirplaneSnapshot(full);
+
+        check(full.hasAvailableSeatsInSection(CabinClass.FIRST, 0)
+              && fullSnapshot.hasAvailableSeatsInSection(CabinClass.FIRST, 0), "no passengers fit a full section");
+        check(!full.hasAvailableSeatsInSection(CabinClass.FIRST, 1)
+              && !fullSnapshot.hasAvailableSeatsInSection(CabinClass.FIRST, 1), "no passenger fits a full section");
+        check(!full.hasAvailableSeatsInSection(CabinClass.ECONOMY, 0)
+              && !fullSnapshot.hasAvailableSeatsInSection(CabinClass.ECONOMY, 0),
+              "nobody fits a section without rows");
+    }
+
+    /**
+     * Books a plane through an actor from many threads with a STRICT journal, checking that each booking is in
+     * the snapshot once it is done, then replays the journal onto an empty plane.
+     *
+     * @throws IOException if the journal cannot be written or read
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     * @throws IllegalStateException if a booking is missing from the snapshot or the replayed plane differs
+     */
+    private static void testJournaledActor() throws IOException, InterruptedException {
+        FlightKey key = new FlightKey("FA16", LocalDate.of(2026, 1, 1));
+        Airplane airplane = new Airplane(5, 4, 300, 6);
+        Path file = Files.createTempFile("journal", ".bin");
+        int[] numOfBookings = new int[NUM_OF_THREADS];
+        // the bookings of each thread that were done before a snapshot held them
+        int[] numOfUnpublished = new int[NUM_OF_THREADS];
+
+        try {
+            try (BookingJournal journal = new BookingJournal(file, BookingJournal.SyncMode.STRICT, 5)) {
+                FlightActor actor = new FlightActor("FA16", airplane, key, journal);
+                Thread[] threads = new Thread[NUM_OF_THREADS];
+
+                for (int t = 0; t < NUM_OF_THREADS; ++t) {
+                    int thread = t;
+                    Random random = new Random(t);
+
+                    threads[t] = new Thread(() -> {
+                        List<CompletableFuture<long[]>> bookings = new ArrayList<>();
+
+                        for (int i = 0; i < NUM_OF_CHANGES / NUM_OF_THREADS; ++i) {
+                            int numOfPassengers = 1 + random.nextInt(3);
+                            SeatLocation seatingLocation = SeatLocation.values()[random.nextInt(4)];
+
+                            // the reservation and the version of economy right after it
+                            bookings.add(actor.submit(seats -> new long[]{
+                                    seats.tryReserve(CabinClass.ECONOMY, numOfPassengers, seatingLocation),
+                                    seats.getSection(CabinClass.ECONOMY).getVersion()}));
+                        }
+                        for (CompletableFuture<long[]> booking : bookings) {
+                            long[] done = booking.join();
+
+                            if (done[0] != SeatingSection.NO_SEATS) {
+                                ++numOfBookings[thread];
+                            }
+                            if (actor.getSnapshot().getVersions()[CabinClass.ECONOMY.ordinal()] < done[1]) {
+                                ++numOfUnpublished[thread];
+                            }
+                        }
+                    });
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                actor.close();
+                check(Arrays.stream(numOfUnpublished).sum() == 0, "the snapshot holds a booking once it is done");
+                check(actor.getSnapshot().toString().equals(airplane.toString()),
+                      "the last snapshot shows every booking");
+            }
+
+            FlightInventory inventory = new FlightInventory();
+            Airplane replayed = new Airplane(5, 4, 300, 6);
+
+            inventory.addFlight(key, replayed);
+            check(BookingJournal.replay(file, inventory) == Arrays.stream(numOfBookings).sum(),
+                  "the journal holds every booking");
+            check(replayed.toString().equals(airplane.toString()), "the replayed plane has the same seats");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Runs a change that throws an AssertionError, as a failed self-check does, between two bookings.
+     *
+     * @throws IllegalStateException if the error does not reach the caller or the actor stops booking
+     */
+    private static void testFailingChange() {
+        FlightActor actor = new FlightActor("ERR", new Airplane(2, 4, 20, 6));
+
+        try {
+            check(actor.tryReserve(CabinClass.ECONOMY, 2, SeatLocation.WINDOW) != SeatingSection.NO_SEATS,
+                  "the actor books before the error");
+            try {
+                actor.call(seats -> {
+                    throw new AssertionError("self-check");
+                });
+                check(false, "the error of a change reaches its caller");
+            } catch (AssertionError e) {
+                check(e.getMessage().equals("self-check"), "the caller gets the change's own error");
+            }
+            check(actor.tryReserve(CabinClass.ECONOMY, 2, SeatLocation.WINDOW) != SeatingSection.NO_SEATS,
+                  "the actor still books after the error");
+            check(actor.getSnapshot().getFreeSeats(CabinClass.ECONOMY) == 116, "the snapshot shows both bookings");
+        } finally {
+            actor.close();
+        }
+    }
+
+    /**
+     * Submits changes from another thread while the actor closes, until submit() turns them away.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the submitting thread
+     * @throws IllegalStateException if a change is never done or failed, or fails other than by the close
+     */
+    private static void testSubmitWhileClosing() throws InterruptedException {
+        for (int round = 0; round < 200; ++round) {
+            FlightActor actor = new FlightActor("CL" + round, new Airplane(2, 4, 20, 6));
+            List<CompletableFuture<Long>> results = new ArrayList<>();
+            Thread submitter = new Thread(() -> {
+                try {
+                    while (true) {
+                        results.add(actor.submit(seats -> seats.tryReserve(CabinClass.ECONOMY, 1, SeatLocation.AISLE)));
+                    }
+                } catch (IllegalStateException e) {
+                    // the actor is closed
+                }
+            });
+
+            submitter.start();
+            // let some changes in before the close, more in later rounds
+            Thread.sleep(round % 3);
+            actor.close();
+            submitter.join();
+            for (CompletableFuture<Long> result : results) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    check(e.getCause() instanceof IllegalStateException, "a change is failed only by the close");
+                } catch (TimeoutException e) {
+                    check(false, "a change submitted while the actor closes is done or failed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Constructs a FlightInventory object that holds the seat inventory of many flights, each an Airplane.
+ *
+ * For our purposes:
+ *      - Each flight is found by its FlightKey (flight ID and date).
+ *      - The flights are kept in plain arrays so that queries over the whole inventory run through them in order;
+ *          removing a flight moves the last flight into its place.
+ *      - Adding and removing flights is not thread-safe; booking the Airplane instances follows their own rules.
+ *      - The fleet-wide searches split the flights into ranges of FLIGHTS_PER_TASK and search the ranges on a
+ *          ForkJoinPool. Each range keeps its own hits, which are merged as the ranges join, so the threads share
+ *          nothing but the position of the best hit so far in a search that stops at its first hit. Flights must
+ *          not be added or removed while a search runs.
+ */
+public class FlightInventory {
+
+    // the flights that one fork/join task searches without splitting further; a flight takes 20 to 100 ns to
+    // search, so a task runs long enough to be worth forking
+    private static final int FLIGHTS_PER_TASK = 512;
+
+    private final ArrayList<FlightKey> keys = new ArrayList<FlightKey>();
+    private final ArrayList<Airplane> flights = new ArrayList<Airplane>();
+    // the position of each flight in the arrays above
+    private final HashMap<FlightKey, Integer> positions = new HashMap<FlightKey, Integer>();
+
+    /**
+     * Adds a flight to the inventory, replacing the flight with the same key if there is one.
+     *
+     * @param key the flight ID and date of the flight
+     * @param airplane the seat inventory of the flight
+     */
+    public void addFlight(FlightKey key, Airplane airplane) {
+        Integer position = positions.get(key);
+
+        if (position != null) {
+            flights.set(position, airplane);
+        } else {
+            positions.put(key, flights.size());
+            keys.add(key);
+            flights.add(airplane);
+        }
+    }
+
+    /**
+     * Returns the seat inventory of a flight.
+     *
+     * @param key the flight ID and date of the flight
+     * @return the seat inventory of the flight; null if the inventory does not have the flight
+     */
+    public Airplane getFlight(FlightKey key) {
+        Integer position = positions.get(key);
+
+        return position != null ? flights.get(position) : null;
+    }
+
+    /**
+     * Removes a flight from the inventory.
+     *
+     * @param key the flight ID and date of the flight
+     * @return the seat inventory of the removed flight; null if the inventory did not have the flight
+     */
+    public Airplane removeFlight(FlightKey key) {
+        Integer position = positions.remove(key);
+
+        if (position == null) {
+            return null;
+        }
+
+        Airplane removed = flights.get(position);
+        int last = flights.size() - 1;
+
+        // move the last flight into the removed flight's place
+        if (position != last) {
+            FlightKey lastKey = keys.get(last);
+
+            keys.set(position, lastKey);
+            flights.set(position, flights.get(last));
+            positions.put(lastKey, position);
+        }
+        keys.remove(last);
+        flights.remove(last);
+
+        return removed;
+    }
+
+    /**
+     * Returns the number of flights in the inventory.
+     *
+     * @return the number of flights in the inventory
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * Returns the keys of all flights in the inventory.
+     *
+     * @return a read-only list of the keys of all flights
+     */
+    public List<FlightKey> getFlightKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Returns the flights that could still seat at least the given number of parties at the specified seating
+     * location (ex: flights with at least 10 free economy window pairs).
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @param numOfParties the number of parties that must fit
+     * @return the keys of the matching flights
+     */
+    public List<FlightKey> flightsWithAvailableGroups(CabinClass cabinClass, int numOfPassengers,
+                                                      SeatLocation seatingLocation, int numOfParties) {
+        List<FlightKey> matchingFlights = new ArrayList<FlightKey>();
+
+        for (int i = 0, numOfFlights = flights.size(); i < numOfFlights; ++i) {
+            Airplane airplane = flights.get(i);
+
+            // skip counting seat groups when there aren't even enough empty seats; the counts of the flights
+            // that did not change since the last search come from their availability caches
+            if (airplane.getSection(cabinClass).getFreeSeats() >= numOfParties * numOfPassengers
+                    && airplane.countAvailableGroups(cabinClass, numOfPassengers, seatingLocation) >= numOfParties) {
+                matchingFlights.add(keys.get(i));
+            }
+        }
+        return matchingFlights;
+    }
+
+    /**
+     * Returns the first flight, in the order of the inventory, that has available seats of the specified seating
+     * location, searching the flights in parallel on the common ForkJoinPool.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers to seat together
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the key of the first matching flight; null if no flight has the seats
+     */
+    public FlightKey findFirstFlightWithSeats(CabinClass cabinClass, int numOfPassengers,
+                                              SeatLocation seatingLocation) {
+        return findFirstFlightWithSeats(ForkJoinPool.commonPool(), cabinClass, numOfPassengers, seatingLocation);
+    }
+
+    /**
+     * Returns the first flight, in the order of the inventory, that has available seats of the specified seating
+     * location, searching the flights in parallel on the given pool. A range of flights stops at its first hit,
+     * and ranges that begin after the best hit so far are skipped.
+     *
+     * @param pool the pool to search on
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers to seat together
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the key of the first matching flight; null if no flight has the seats
+     */
+    public FlightKey findFirstFlightWithSeats(ForkJoinPool pool, CabinClass cabinClass, int numOfPassengers,
+                                              SeatLocation seatingLocation) {
+        AtomicInteger firstHit = new AtomicInteger(Integer.MAX_VALUE);
+
+        pool.invoke(new FirstHitTask(this, 0, flights.size(), cabinClass, numOfPassengers, seatingLocation,
+                                     firstHit));
+        return firstHit.get() == Integer.MAX_VALUE ? null : keys.get(firstHit.get());
+    }
+
+    /**
+     * Returns the flights that could seat the most parties of the given size at the specified seating location,
+     * searching the flights in parallel on the common ForkJoinPool.
+     *
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @param maxFlights the most flights to return
+     * @return the keys of up to maxFlights flights that could seat at least one party, the flight that could seat
+     *              the most parties first; flights that could seat as many are in the order of the inventory
+     */
+    public List<FlightKey> topFlightsWithAvailableGroups(CabinClass cabinClass, int numOfPassengers,
+                                                         SeatLocation seatingLocation, int maxFlights) {
+        return topFlightsWithAvailableGroups(ForkJoinPool.commonPool(), cabinClass, numOfPassengers,
+                                             seatingLocation, maxFlights);
+    }
+
+    /**
+     * Returns the flights that could seat the most parties of the given size at the specified seating location,
+     * searching the flights in parallel on the given pool. Each range of flights keeps its own best flights,
+     * and two ranges merge theirs as they join.
+     *
+     * @param pool the pool to search on
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @param maxFlights the most flights to return
+     * @return the keys of up to maxFlights flights that could seat at least one party, the flight that could seat
+     *              the most parties first; flights that could seat as many are in the order of the inventory
+     */
+    public List<FlightKey> topFlightsWithAvailableGroups(ForkJoinPool pool, CabinClass cabinClass,
+                                                         int numOfPassengers, SeatLocation seatingLocation,
+                                                         int maxFlights) {
+        List<FlightKey> matchingFlights = new ArrayList<FlightKey>();
+
+        if (maxFlights < 1) {
+            return matchingFlights;
+        }
+
+        long[] hits = pool.invoke(new TopFlightsTask(this, 0, flights.size(), cabinClass, numOfPassengers,
+                                                     seatingLocation, maxFlights));
+
+        for (long hit : hits) {
+            matchingFlights.add(keys.get(TopFlightsTask.positionOf(hit)));
+        }
+        return matchingFlights;
+    }
+
+    /**
+     * Searches a range of flights for the first flight with available seats. The position of the first hit of
+     * any range is shared, so a range gives up as soon as it can no longer find an earlier one.
+     */
+    private static final class FirstHitTask extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FlightInventory inventory;
+        private final int from;
+        private final int to;
+        private final CabinClass cabinClass;
+        private final int numOfPassengers;
+        private final SeatLocation seatingLocation;
+        // the position of the first hit found so far; Integer.MAX_VALUE until there is one
+        private final AtomicInteger firstHit;
+
+        /**
+         * Constructs a task for a range of flights.
+         *
+         * @param inventory the flights
+         * @param from the position of the first flight of the range
+         * @param to the position after the last flight of the range
+         * @param cabinClass the cabin class of the seating section
+         * @param numOfPassengers the number of passengers to seat together
+         * @param seatingLocation the location of the seat relative to the row
+         * @param firstHit the position of the first hit so far, shared by every task of the search
+         */
+        private FirstHitTask(FlightInventory inventory, int from, int to, CabinClass cabinClass, int numOfPassengers,
+                             SeatLocation seatingLocation, AtomicInteger firstHit) {
+            this.inventory = inventory;
+            this.from = from;
+            this.to = to;
+            this.cabinClass = cabinClass;
+            this.numOfPassengers = numOfPassengers;
+            this.seatingLocation = seatingLocation;
+            this.firstHit = firstHit;
+        }
+
+        @Override
+        protected Void compute() {
+            if (to - from > FLIGHTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                FirstHitTask right = new FirstHitTask(inventory, middle, to, cabinClass, numOfPassengers,
+                                                      seatingLocation, firstHit);
+
+                // the left half runs here, so that the earlier flights are searched first
+                right.fork();
+                new FirstHitTask(inventory, from, middle, cabinClass, numOfPassengers, seatingLocation, firstHit)
+                        .compute();
+                right.join();
+                return null;
+            }
+
+            // the shared position is only read until a hit is found, so the threads do not contend on it
+            for (int i = from; i < to && i < firstHit.get(); ++i) {
+                Airplane airplane = inventory.flights.get(i);
+
+                if (airplane.hasAvailableSeatsInSection(cabinClass, numOfPassengers)
+                        && airplane.availableSeatsOfLocationType(cabinClass, numOfPassengers,
+                                                                 seatingLocation).length > 0) {
+                    firstHit.accumulateAndGet(i, Math::min);
+                    break;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Searches a range of flights for the flights that could seat the most parties. A hit is packed into a long
+     * as the number of parties in the high 32 bits and the complement of the flight's position in the low 32
+     * bits, so that the best hit is the largest long.
+     */
+    private static final class TopFlightsTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FlightInventory inventory;
+        private final int from;
+        private final int to;
+        private final CabinClass cabinClass;
+        private final int numOfPassengers;
+        private final SeatLocation seatingLocation;
+        private final int maxFlights;
+
+        /**
+         * Constructs a task for a range of flights.
+         *
+         * @param inventory the flights
+         * @param from the position of the first flight of the range
+         * @param to the position after the last flight of the range
+         * @param cabinClass the cabin class of the seating section
+         * @param numOfPassengers the number of passengers in each party
+         * @param seatingLocation the location of the seat relative to the row
+         * @param maxFlights the most flights to keep
+         */
+        private TopFlightsTask(FlightInventory inventory, int from, int to, CabinClass cabinClass,
+                               int numOfPassengers, SeatLocation seatingLocation, int maxFlights) {
+            this.inventory = inventory;
+            this.from = from;
+            this.to = to;
+            this.cabinClass = cabinClass;
+            this.numOfPassengers = numOfPassengers;
+            this.seatingLocation = seatingLocation;
+            this.maxFlights = maxFlights;
+        }
+
+        /**
+         * Returns the position of the flight of a hit.
+         *
+         * @param hit the packed hit
+         * @return the position of the flight
+         */
+        private static int positionOf(long hit) {
+            return ~(int) hit;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > FLIGHTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                TopFlightsTask right = new TopFlightsTask(inventory, middle, to, cabinClass, numOfPassengers,
+                                                          seatingLocation, maxFlights);
+
+                right.fork();
+                long[] left = new TopFlightsTask(inventory, from, middle, cabinClass, numOfPassengers,
+                                                 seatingLocation, maxFlights).compute();
+                return merge(left, right.join());
+            }
+
+            // the best hits of the range so far, best first
+            long[] best = new long[Math.min(maxFlights, to - from)];
+            int numOfHits = 0;
+
+            for (int i = from; i < to; ++i) {
+                Airplane airplane = inventory.flights.get(i);
+
+                if (!airplane.hasAvailableSeatsInSection(cabinClass, numOfPassengers)) {
+                    continue;
+                }
+
+                int numOfParties = airplane.countAvailableGroups(cabinClass, numOfPassengers, seatingLocation);
+                long hit = (long) numOfParties << 32 | (~i & 0xFFFFFFFFL);
+
+                if (numOfParties == 0 || (numOfHits == best.length && hit <= best[numOfHits - 1])) {
+                    continue;
+                }
+
+                // insert the hit in order, dropping the worst hit if the range already has enough
+                int k = numOfHits < best.length ? numOfHits++ : numOfHits - 1;
+
+                for (; k > 0 && best[k - 1] < hit; --k) {
+                    best[k] = best[k - 1];
+                }
+                best[k] = hit;
+            }
+            return numOfHits == best.length ? best : Arrays.copyOf(best, numOfHits);
+        }
+
+        /**
+         * Returns the best hits of two ranges.
+         *
+         * @param left the best hits of one range, best first
+         * @param right the best hits of the other range, best first
+         * @return up to maxFlights of the best hits of both, best first
+         */
+        private long[] merge(long[] left, long[] right) {
+            long[] merged = new long[Math.min(maxFlights, left.length + right.length)];
+            int l = 0;
+            int r = 0;
+
+            for (int k = 0; k < merged.length; ++k) {
+                merged[k] = r == right.length || (l < left.length && left[l] > right[r]) ? left[l++] : right[r++];
+            }
+            return merged;
+        }
+    }
+}
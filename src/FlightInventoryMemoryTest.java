@@ -0,0 +1,99 @@
+
+import java.time.LocalDate;
+
+/**
+ * Purpose: To demonstrate that a FlightInventory of many small planes stays within a heap budget per flight, for
+ *          planes that are booked from one thread and for concurrent ones, as the held seats, the row locks, the
+ *          free-run-length index and the availability cache are only made once a plane needs them.
+ *
+ * Target Output: The bytes that each flight takes on the heap; otherwise an IllegalStateException naming the
+ *                  budget that was exceeded.
+ */
+public class FlightInventoryMemoryTest {
+
+    private static final int NUM_OF_FLIGHTS = 100000;
+    // the flights of each day, so that the flight numbers repeat from day to day
+    private static final int FLIGHTS_PER_DAY = 5000;
+    // the budgets of a plane of 5 x 4 first class and 30 x 6 economy seats and its inventory entry
+    private static final long MAX_BYTES_PER_FLIGHT = 1600;
+    private static final long MAX_BYTES_PER_CONCURRENT_FLIGHT = 1800;
+
+    /**
+     * Tests the heap taken by the flights of a FlightInventory.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for the garbage collector
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long bytesPerFlight = measureFlights(false);
+        long bytesPerConcurrentFlight = measureFlights(true);
+
+        check(bytesPerFlight <= MAX_BYTES_PER_FLIGHT,
+              "a flight takes " + bytesPerFlight + " bytes, within " + MAX_BYTES_PER_FLIGHT);
+        check(bytesPerConcurrentFlight <= MAX_BYTES_PER_CONCURRENT_FLIGHT,
+              "a concurrent flight takes " + bytesPerConcurrentFlight + " bytes, within "
+              + MAX_BYTES_PER_CONCURRENT_FLIGHT);
+        System.out.println(NUM_OF_FLIGHTS + " flights took " + bytesPerFlight + " bytes each, or "
+                           + bytesPerConcurrentFlight + " bytes each if concurrent.");
+    }
+
+    /**
+     * Loads NUM_OF_FLIGHTS planes into a FlightInventory, counts a seat group on each of them, and measures the
+     * heap that they take.
+     *
+     * @param concurrent true to load planes that can be booked from many threads at once; false otherwise
+     * @return the bytes of heap taken by each flight
+     * @throws InterruptedException if the main thread is interrupted while waiting for the garbage collector
+     */
+    private static long measureFlights(boolean concurrent) throws InterruptedException {
+        LocalDate firstDay = LocalDate.of(2026, 1, 1);
+        long before = usedHeap();
+        FlightInventory inventory = new FlightInventory();
+
+        for (int i = 0; i < NUM_OF_FLIGHTS; ++i) {
+            FlightKey key = new FlightKey("FM" + i % FLIGHTS_PER_DAY, firstDay.plusDays(i / FLIGHTS_PER_DAY));
+
+            inventory.addFlight(key, new Airplane(5, 4, 30, 6, concurrent));
+        }
+
+        // a booking that is first-fit and never held needs none of the state that is made on demand
+        Airplane airplane = inventory.getFlight(new FlightKey("FM0", firstDay));
+
+        check(airplane.tryReserve(CabinClass.ECONOMY, 2, SeatLocation.WINDOW) != SeatingSection.NO_SEATS,
+              "a loaded flight can be booked");
+
+        long bytesPerFlight = (usedHeap() - before) / NUM_OF_FLIGHTS;
+
+        check(inventory.getFlight(new FlightKey("FM0", firstDay)) == airplane, "the flights are still loaded");
+        return bytesPerFlight;
+    }
+
+    /**
+     * Returns the heap in use once the garbage collector has run a few times.
+     *
+     * @return the bytes of heap in use
+     * @throws InterruptedException if the main thread is interrupted while waiting for the garbage collector
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 5; ++i) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+
+import java.time.LocalDate;
+
+/**
+ * Constructs a FlightKey object that identifies one flight of a FlightInventory by its flight ID and date.
+ */
+public final class FlightKey implements Comparable<FlightKey> {
+
+    private final String flightId;
+    private final LocalDate date;
+
+    /**
+     * Constructs the key of the flight with the given flight ID on the given date.
+     *
+     * @param flightId the flight ID (ex: "CL9 277")
+     * @param date the date of the flight
+     */
+    public FlightKey(String flightId, LocalDate date) {
+        if (flightId == null || date == null) {
+            throw new IllegalArgumentException("A flight needs both a flight ID and a date");
+        }
+        this.flightId = flightId;
+        this.date = date;
+    }
+
+    /**
+     * Returns the flight ID.
+     *
+     * @return the flight ID
+     */
+    public String getFlightId() {
+        return flightId;
+    }
+
+    /**
+     * Returns the date of the flight.
+     *
+     * @return the date of the flight
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Orders the flights by date, then by flight ID.
+     *
+     * @param other the key of the other flight
+     * @return a negative number, zero, or a positive number if this flight is before, the same as, or after the other
+     */
+    @Override
+    public int compareTo(FlightKey other) {
+        int byDate = date.compareTo(other.date);
+
+        return byDate != 0 ? byDate : flightId.compareTo(other.flightId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FlightKey)) {
+            return false;
+        }
+        FlightKey other = (FlightKey) obj;
+        return flightId.equals(other.flightId) && date.equals(other.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * flightId.hashCode() + date.hashCode();
+    }
+
+    /**
+     * Returns a description of the FlightKey as a string (ex: "CL9 277 2021-03-03").
+     *
+     * @return a description of the FlightKey as a string
+     */
+    public String toString() {
+        return flightId + " " + date;
+    }
+}
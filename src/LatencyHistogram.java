@@ -0,0 +1,157 @@
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Constructs a LatencyHistogram object that counts durations in fixed logarithmic buckets, so that recording a
+ * duration allocates nothing and takes no lock.
+ *
+ * For our purposes:
+ *      - Durations below 8 nanoseconds have a bucket each; above that, each power of two is split into 4 buckets,
+ *          so a percentile is off by at most a quarter of its value.
+ *      - A percentile is reported as the upper end of its bucket, so it never understates a latency.
+ */
+public final class LatencyHistogram {
+
+    // durations below this have a bucket of their own
+    private static final int EXACT_BUCKETS = 8;
+    // the buckets of each power of two from EXACT_BUCKETS on, as a power of two
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int NUM_OF_BUCKETS = EXACT_BUCKETS
+            + (Long.SIZE - 1 - Integer.numberOfTrailingZeros(EXACT_BUCKETS)) * (1 << SUB_BUCKET_BITS);
+
+    private final LongAdder[] buckets = new LongAdder[NUM_OF_BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counts a duration.
+     *
+     * @param nanos the duration in nanoseconds; negative durations count as 0
+     */
+    public void record(long nanos) {
+        long duration = Math.max(0L, nanos);
+
+        buckets[bucket(duration)].increment();
+        totalNanos.add(duration);
+        maxNanos.accumulate(duration);
+    }
+
+    /**
+     * Returns the number of durations counted.
+     *
+     * @return the number of durations
+     */
+    public long getCount() {
+        long count = 0;
+
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean of the durations counted.
+     *
+     * @return the mean in nanoseconds; 0 if nothing was counted
+     */
+    public double getMeanNanos() {
+        long count = getCount();
+
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the longest duration counted.
+     *
+     * @return the longest duration in nanoseconds; 0 if nothing was counted
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns a percentile of the durations counted.
+     *
+     * @param fraction the percentile as a fraction (ex: 0.99)
+     * @return the upper end of the bucket holding the percentile in nanoseconds; 0 if nothing was counted
+     */
+    public long getPercentileNanos(double fraction) {
+        long[] counts = new long[buckets.length];
+        long count = 0;
+
+        // read the buckets once, so that the percentile matches the total it was taken of
+        for (int i = 0; i < buckets.length; ++i) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(fraction * count));
+
+        for (int i = 0; i < counts.length; ++i) {
+            rank -= counts[i];
+            if (rank <= 0) {
+                return Math.min(upperBound(i), getMaxNanos());
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Clears the histogram. Durations recorded while it is cleared may be kept or dropped.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    /**
+     * Returns the bucket of a duration.
+     *
+     * @param nanos the duration in nanoseconds, at least 0
+     * @return the index of the bucket
+     */
+    private static int bucket(long nanos) {
+        if (nanos < EXACT_BUCKETS) {
+            return (int) nanos;
+        }
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+
+        return EXACT_BUCKETS + (exponent - Integer.numberOfTrailingZeros(EXACT_BUCKETS)) * (1 << SUB_BUCKET_BITS)
+                + subBucket;
+    }
+
+    /**
+     * Returns the longest duration that falls into a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the upper end of the bucket in nanoseconds
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < EXACT_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = (bucket - EXACT_BUCKETS) / (1 << SUB_BUCKET_BITS) + Integer.numberOfTrailingZeros(EXACT_BUCKETS);
+        int subBucket = (bucket - EXACT_BUCKETS) % (1 << SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        // the lowest bucket of a power of two begins at the power of two itself
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
@@ -0,0 +1,407 @@
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constructs a LineCommand object, one command of the line protocol that BookingServer speaks, parsed from an
+ * ASCII line and run against an Airplane. A connection keeps one LineCommand and parses every line into it.
+ *
+ * For our purposes:
+ *      - The commands are (case-insensitive; every word may be shortened to its first letter, as in MainTest):
+ *          - ADD first|business|premium-economy|economy <number of passengers> [aisle|center|window]
+ *          - SHOW
+ *          - QUIT
+ *      - Every response ends with a newline:
+ *          - "OK <row> <first column> <last column>" with the seats booked, counting from 0 within the section,
+ *          - "MAP <length>" followed by the seat map of that many bytes,
+ *          - "BYE",
+ *          - "ERROR <message>" with the same messages as MainTest.
+ *      - ADD validates its input the same way that MainTest does with CheckInput: 1 to 2 passengers in first
+ *          class and 1 to 3 in economy; when the party fills one side of a row, the whole side is booked and the
+ *          seating location is not needed; otherwise the location must be aisle or window in first class and
+ *          aisle, center or window in economy. Business and premium economy are checked as economy is.
+ *      - Parsing and responding do not allocate, except to grow a response buffer that is too small.
+ */
+public final class LineCommand {
+
+    /**
+     * The kinds of commands.
+     */
+    public enum Verb {
+        ADD, SHOW, QUIT
+    }
+
+    private static final CabinClass[] CABIN_CLASSES = CabinClass.values();
+
+    private static final String INVALID_INPUT = "Invalid input; please try again.";
+    private static final String INVALID_RANGE = "Invalid range; please try again.";
+    private static final String MISSING_LOCATION = "Select a seating location; please try again.";
+    private static final String AIRPLANE_IS_FULL = "All seats are full. Please try again another time.";
+    private static final String SECTION_IS_FULL = "This seating section is completely full; please try another "
+                                                  + "section.";
+    private static final String NOT_ENOUGH_SEATS = "There aren't enough available seats; please try again.";
+    private static final String NO_FULL_ROWS = "There are no fully available rows; please try again.";
+
+    private Verb verb;
+    private CabinClass cabinClass;
+    private int numOfPassengers;
+    // null if the command does not name a seating location
+    private SeatLocation seatingLocation;
+    // the reason the line could not be parsed; null if it was parsed
+    private String error;
+
+    // the bounds of the current word while parsing
+    private int wordStart;
+    private int wordEnd;
+
+    /**
+     * Parses a line, replacing the previous command.
+     *
+     * @param line the buffer holding the line, as ASCII
+     * @param start the index of the first byte of the line
+     * @param end the index after the last byte of the line, without the line break
+     * @return true if the line is a valid command; false otherwise.
+     */
+    public boolean parse(ByteBuffer line, int start, int end) {
+        verb = null;
+        cabinClass = null;
+        numOfPassengers = 0;
+        seatingLocation = null;
+        error = null;
+        wordEnd = start;
+
+        if (!nextWord(line, end)) {
+            return fail(INVALID_INPUT);
+        }
+        if (isWord(line, "add")) {
+            verb = Verb.ADD;
+        } else if (isWord(line, "show")) {
+            verb = Verb.SHOW;
+        } else if (isWord(line, "quit")) {
+            verb = Verb.QUIT;
+        } else {
+            return fail(INVALID_INPUT);
+        }
+
+        if (verb == Verb.ADD) {
+            if (!nextWord(line, end)) {
+                return fail(INVALID_INPUT);
+            }
+            cabinClass = null;
+            // the cabin classes begin with different letters, so their first letters are enough as well
+            for (CabinClass candidate : CABIN_CLASSES) {
+                if (isWord(line, candidate.getName())) {
+                    cabinClass = candidate;
+                }
+            }
+            if (cabinClass == null) {
+                return fail(INVALID_INPUT);
+            }
+
+            if (!nextWord(line, end) || !parseNumOfPassengers(line)) {
+                return fail(INVALID_INPUT);
+            }
+
+            if (nextWord(line, end)) {
+                if (isWord(line, "aisle")) {
+                    seatingLocation = SeatLocation.AISLE;
+                } else if (isWord(line, "center")) {
+                    seatingLocation = SeatLocation.CENTER;
+                } else if (isWord(line, "window")) {
+                    seatingLocation = SeatLocation.WINDOW;
+                } else {
+                    return fail(INVALID_INPUT);
+                }
+            }
+        }
+
+        // nothing may follow the command
+        return !nextWord(line, end) || fail(INVALID_INPUT);
+    }
+
+    /**
+     * Returns the kind of the parsed command.
+     *
+     * @return the verb of the command; null if the line was not a valid command
+     */
+    public Verb getVerb() {
+        return verb;
+    }
+
+    /**
+     * Runs the parsed command against an Airplane and writes the response. SHOW and ADD may run from many
+     * threads at once if the Airplane is concurrent.
+     *
+     * @param airplane the plane to book or show
+     * @param out the buffer to write the response to, at its position
+     * @return the buffer holding the response; a larger copy of out if out had too little room
+     */
+    public ByteBuffer respond(Airplane airplane, ByteBuffer out) {
+        if (error != null) {
+            return respondError(out, error);
+        }
+
+        switch (verb) {
+            case QUIT:
+                out = ensureRemaining(out, 4);
+                putAscii(out, "BYE\n");
+                return out;
+            case SHOW:
+                out = putMapHeader(out, airplane.getRenderedLength());
+                airplane.renderTo(out);
+                return out;
+            default:
+                return respondAdd(airplane, out);
+        }
+    }
+
+    /**
+     * Runs the parsed command against a snapshot of an Airplane and writes the response. The snapshot can answer
+     * every command but ADD, which has to book the Airplane itself.
+     *
+     * @param snapshot the snapshot of the plane to show
+     * @param out the buffer to write the response to, at its position
+     * @return the buffer holding the response; a larger copy of out if out had too little room
+     * @throws IllegalStateException if the command is ADD
+     */
+    public ByteBuffer respond(AirplaneSnapshot snapshot, ByteBuffer out) {
+        if (error != null) {
+            return respondError(out, error);
+        }
+
+        switch (verb) {
+            case QUIT:
+                out = ensureRemaining(out, 4);
+                putAscii(out, "BYE\n");
+                return out;
+            case SHOW:
+                out = putMapHeader(out, snapshot.getRenderedLength());
+                snapshot.renderTo(out);
+                return out;
+            default:
+                throw new IllegalStateException("ADD books seats, so it cannot run against a snapshot");
+        }
+    }
+
+    /**
+     * Writes the first line of a SHOW response and makes room for the seat map.
+     *
+     * @param out the buffer to write to
+     * @param length the length of the seat map
+     * @return the buffer holding the line, with room for the seat map
+     */
+    private static ByteBuffer putMapHeader(ByteBuffer out, int length) {
+        out = ensureRemaining(out, 16 + length);
+        putAscii(out, "MAP ");
+        putNumber(out, length);
+        out.put((byte) '\n');
+        return out;
+    }
+
+    /**
+     * Validates an ADD command in the order that MainTest asks for its input, then books the seats.
+     *
+     * @param airplane the plane to book
+     * @param out the buffer to write the response to
+     * @return the buffer holding the response
+     */
+    private ByteBuffer respondAdd(Airplane airplane, ByteBuffer out) {
+        int maxPassengers = cabinClass == CabinClass.FIRST ? 2 : 3;
+
+        if (airplane.isFull()) {
+            return respondError(out, AIRPLANE_IS_FULL);
+        }
+        if (airplane.isFullInSection(cabinClass)) {
+            return respondError(out, SECTION_IS_FULL);
+        }
+        if (numOfPassengers < 1 || numOfPassengers > maxPassengers) {
+            return respondError(out, INVALID_RANGE);
+        }
+
+        long reservation;
+
+        if (airplane.canFillRowInSection(cabinClass, numOfPassengers)) {
+            // the party fills one side of a row, so MainTest books a whole side without asking for a location
+            reservation = airplane.tryReserve(cabinClass, numOfPassengers, SeatLocation.ROW);
+            if (reservation == SeatingSection.NO_SEATS) {
+                return respondError(out, NO_FULL_ROWS);
+            }
+        } else if (!airplane.hasAvailableSeatsInSection(cabinClass, numOfPassengers)) {
+            return respondError(out, NOT_ENOUGH_SEATS);
+        } else if (seatingLocation == null) {
+            return respondError(out, MISSING_LOCATION);
+        } else if (cabinClass == CabinClass.FIRST && seatingLocation == SeatLocation.CENTER) {
+            // first class only offers aisle and window seats
+            return respondError(out, INVALID_INPUT);
+        } else {
+            reservation = airplane.tryReserve(cabinClass, numOfPassengers, seatingLocation);
+            if (reservation == SeatingSection.NO_SEATS) {
+                out = ensureRemaining(out, 64);
+                putAscii(out, "ERROR There aren't enough ");
+                putAscii(out, seatingLocation.getName());
+                putAscii(out, " seats; please try again.\n");
+                return out;
+            }
+        }
+
+        out = ensureRemaining(out, 40);
+        putAscii(out, "OK ");
+        putNumber(out, SeatingSection.reservedRow(reservation));
+        out.put((byte) ' ');
+        putNumber(out, SeatingSection.reservedFirstColumn(reservation));
+        out.put((byte) ' ');
+        putNumber(out, SeatingSection.reservedLastColumn(reservation));
+        out.put((byte) '\n');
+        return out;
+    }
+
+    /**
+     * Writes an error response.
+     *
+     * @param out the buffer to write to
+     * @param message the error message
+     * @return the buffer holding the response
+     */
+    static ByteBuffer respondError(ByteBuffer out, String message) {
+        out = ensureRemaining(out, message.length() + 8);
+        putAscii(out, "ERROR ");
+        putAscii(out, message);
+        out.put((byte) '\n');
+        return out;
+    }
+
+    /**
+     * Records why the line could not be parsed.
+     *
+     * @param message the error message
+     * @return false, for returning from parse()
+     */
+    private boolean fail(String message) {
+        verb = null;
+        error = message;
+        return false;
+    }
+
+    /**
+     * Moves to the next word of the line, skipping spaces and tabs.
+     *
+     * @param line the buffer holding the line
+     * @param end the index after the last byte of the line
+     * @return true if there is another word; false otherwise.
+     */
+    private boolean nextWord(ByteBuffer line, int end) {
+        wordStart = wordEnd;
+        while (wordStart < end && isBlank(line.get(wordStart))) {
+            ++wordStart;
+        }
+        wordEnd = wordStart;
+        while (wordEnd < end && !isBlank(line.get(wordEnd))) {
+            ++wordEnd;
+        }
+        return wordStart < wordEnd;
+    }
+
+    /**
+     * Returns whether or not the current word is the given lowercase word or its first letter, ignoring case.
+     *
+     * @param line the buffer holding the line
+     * @param word the lowercase word
+     * @return true if the current word matches; false otherwise.
+     */
+    private boolean isWord(ByteBuffer line, String word) {
+        int length = wordEnd - wordStart;
+
+        if (length != 1 && length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            // setting bit 0x20 turns ASCII capital letters into small ones
+            if ((line.get(wordStart + i) | 0x20) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the current word as the number of passengers.
+     *
+     * @param line the buffer holding the line
+     * @return true if the word is a number; false otherwise.
+     */
+    private boolean parseNumOfPassengers(ByteBuffer line) {
+        // a longer number cannot be in range anyway, and must not overflow
+        if (wordEnd - wordStart > 4) {
+            numOfPassengers = Integer.MAX_VALUE;
+        }
+        for (int i = wordStart; i < wordEnd; ++i) {
+            int digit = line.get(i) - '0';
+
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            if (numOfPassengers != Integer.MAX_VALUE) {
+                numOfPassengers = numOfPassengers * 10 + digit;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether or not a byte separates words.
+     *
+     * @param b the byte
+     * @return true for a space or a tab; false otherwise.
+     */
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * Returns a buffer with at least the given room left, copying the contents of the buffer into a larger one
+     * if needed.
+     *
+     * @param out the buffer
+     * @param remaining the number of bytes needed
+     * @return out, or a larger buffer holding the same contents
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer out, int remaining) {
+        if (out.remaining() >= remaining) {
+            return out;
+        }
+
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * out.capacity(), out.position() + remaining));
+
+        out.flip();
+        larger.put(out);
+        return larger;
+    }
+
+    /**
+     * Writes a string as ASCII.
+     *
+     * @param out the buffer to write to
+     * @param text the string
+     */
+    static void putAscii(ByteBuffer out, String text) {
+        for (int i = 0; i < text.length(); ++i) {
+            out.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a non-negative number in decimal.
+     *
+     * @param out the buffer to write to
+     * @param number the number
+     */
+    static void putNumber(ByteBuffer out, int number) {
+        int divisor = 1;
+
+        while (number / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + number / divisor % 10));
+        }
+    }
+}
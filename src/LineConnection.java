@@ -0,0 +1,112 @@
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constructs a LineConnection object holding the buffers and the parsed command of one client connection of the
+ * LineCommand protocol, and splitting its input into lines.
+ *
+ * For our purposes:
+ *      - The input buffer holds MAX_LINE_LENGTH bytes; a longer line is answered with an error and skipped.
+ *      - The responses collect in the output buffer, which grows when a response does not fit; the server sends
+ *          them and compacts the buffer.
+ */
+final class LineConnection {
+
+    /**
+     * The longest line, including the line break, that a client may send.
+     */
+    static final int MAX_LINE_LENGTH = 256;
+
+    /**
+     * Runs a parsed command and writes its response.
+     */
+    interface Responder {
+
+        /**
+         * Runs a parsed command and writes its response.
+         *
+         * @param command the parsed command, or the reason the line could not be parsed
+         * @param out the buffer to write the response to, at its position
+         * @return the buffer holding the response; a larger copy of out if out had too little room
+         */
+        ByteBuffer respond(LineCommand command, ByteBuffer out);
+    }
+
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE_LENGTH);
+    private ByteBuffer out = ByteBuffer.allocate(MAX_LINE_LENGTH);
+    private final LineCommand command = new LineCommand();
+    // true while skipping the rest of a line that was too long
+    private boolean skippingLine;
+    // true once the client quit; the connection closes after the last response is sent
+    private boolean quitting;
+
+    /**
+     * Returns the input buffer, to read from the client into.
+     *
+     * @return the input buffer
+     */
+    ByteBuffer getIn() {
+        return in;
+    }
+
+    /**
+     * Returns the output buffer holding the responses that were not sent yet.
+     *
+     * @return the output buffer
+     */
+    ByteBuffer getOut() {
+        return out;
+    }
+
+    /**
+     * Returns whether or not the client quit.
+     *
+     * @return true if the client sent QUIT; false otherwise.
+     */
+    boolean isQuitting() {
+        return quitting;
+    }
+
+    /**
+     * Runs every complete line in the input buffer and keeps the incomplete rest for the next read.
+     *
+     * @param responder runs each command
+     */
+    void handleLines(Responder responder) {
+        int lineStart = 0;
+
+        for (int i = 0; i < in.position() && !quitting; ++i) {
+            if (in.get(i) != '\n') {
+                continue;
+            }
+            if (skippingLine) {
+                skippingLine = false;
+            } else {
+                int lineEnd = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+
+                command.parse(in, lineStart, lineEnd);
+                out = responder.respond(command, out);
+                quitting = command.getVerb() == LineCommand.Verb.QUIT;
+            }
+            lineStart = i + 1;
+        }
+
+        if (quitting) {
+            in.clear();
+            return;
+        }
+
+        in.flip();
+        in.position(lineStart);
+        in.compact();
+
+        if (!in.hasRemaining()) {
+            // the buffer is full without a line break
+            if (!skippingLine) {
+                out = LineCommand.respondError(out, "Line is too long.");
+            }
+            skippingLine = true;
+            in.clear();
+        }
+    }
+}
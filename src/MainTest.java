@@ -38,7 +38,8 @@ public class MainTest {
 
         // testing CheckInput methods - below are the variables which store input
         String option;
-        String seatingLocation;
+        CabinClass cabinClass;
+        SeatLocation seatingLocation;
         int numOfPassengers;
 
         // begin testing all methods
@@ -50,77 +51,65 @@ public class MainTest {
             if (option.equals("add") && !testAirplane.isFull()) {
 
                 PrintMessage.firstEconomyOptions();
-                option = CheckInput.checkFirstEconomy();
+                cabinClass = CheckInput.checkFirstEconomyClass();
 
-                if (option.equals("first")) {
+                if (cabinClass == CabinClass.FIRST) {
                     // check to see if the section is full first
-                    if (testAirplane.isFullInSection("first")) {
+                    if (testAirplane.isFullInSection(CabinClass.FIRST)) {
                         PrintMessage.sectionIsFullError();
                     } else {
                         PrintMessage.firstClassPassengerOptions();
                         numOfPassengers = CheckInput.checkIntRange(1, 2);
 
                         // check if number of seats in a row matches the number of passengers
-                        if (testAirplane.canFillRowInSection("first", numOfPassengers)) {
-                            // check to see if there exists a row that can actually be filled
-                            if (testAirplane.availableSeatsOfLocationType
-                                    ("first", numOfPassengers, "row").length > 0) {
-                                // test addPassengers()
-                                testAirplane.addPassengers("first", numOfPassengers, "row");
-                            } else {
+                        if (testAirplane.canFillRowInSection(CabinClass.FIRST, numOfPassengers)) {
+                            // try to fill a row in a single search; NO_SEATS means there is no row that can be filled
+                            if (testAirplane.tryReserve(CabinClass.FIRST, numOfPassengers, SeatLocation.ROW)
+                                    == SeatingSection.NO_SEATS) {
                                 PrintMessage.noFullyAvailableRowsError();
                             }
                         } else {
                             // check if there are enough available seats to seat the passenger(s)
-                            if (testAirplane.hasAvailableSeatsInSection("first", numOfPassengers)) {
+                            if (testAirplane.hasAvailableSeatsInSection(CabinClass.FIRST, numOfPassengers)) {
                                 // validate the input for aisle / window seating options
                                 PrintMessage.aisleWindowOptions();
-                                seatingLocation = CheckInput.checkAisleWindow();
+                                seatingLocation = CheckInput.checkAisleWindowLocation();
 
-                                // check to see if there are enough matching seats of the specified location type
-                                if (testAirplane.availableSeatsOfLocationType
-                                        ("first", numOfPassengers, seatingLocation).length > 0) {
-                                    // test addPassengers()
-                                    testAirplane.addPassengers("first", numOfPassengers, seatingLocation);
-                                } else {
-                                    PrintMessage.notEnoughAvailableSeatsOfLocationError(seatingLocation);
+                                // seat them in a single search; NO_SEATS means there aren't enough matching seats
+                                if (testAirplane.tryReserve(CabinClass.FIRST, numOfPassengers, seatingLocation)
+                                        == SeatingSection.NO_SEATS) {
+                                    PrintMessage.notEnoughAvailableSeatsOfLocationError(seatingLocation.getName());
                                 }
                             } else {
                                 PrintMessage.notEnoughAvailableSeatsError();
                             }
                         }
                     }
-                } else if (option.equals("economy")) {
+                } else if (cabinClass == CabinClass.ECONOMY) {
                     // check to see if the section is full first
-                    if (testAirplane.isFullInSection("economy")) {
+                    if (testAirplane.isFullInSection(CabinClass.ECONOMY)) {
                         PrintMessage.sectionIsFullError();
                     } else {
                         PrintMessage.economyClassPassengerOptions();
                         numOfPassengers = CheckInput.checkIntRange(1, 3);
 
                         // check if number of seats in a row matches the number of passengers
-                        if (testAirplane.canFillRowInSection("economy", numOfPassengers)) {
-                            // check to see if there exists a row that can actually be filled
-                            if (testAirplane.availableSeatsOfLocationType
-                                    ("economy", numOfPassengers, "row").length > 0) {
-                                // test addPassengers()
-                                testAirplane.addPassengers("economy", numOfPassengers, "row");
-                            } else {
+                        if (testAirplane.canFillRowInSection(CabinClass.ECONOMY, numOfPassengers)) {
+                            // try to fill a row in a single search; NO_SEATS means there is no row that can be filled
+                            if (testAirplane.tryReserve(CabinClass.ECONOMY, numOfPassengers, SeatLocation.ROW)
+                                    == SeatingSection.NO_SEATS) {
                                 PrintMessage.noFullyAvailableRowsError();
                             }
                         } else {
                             // check if there are enough available seats to seat the passenger(s)
-                            if (testAirplane.hasAvailableSeatsInSection("economy", numOfPassengers)) {
+                            if (testAirplane.hasAvailableSeatsInSection(CabinClass.ECONOMY, numOfPassengers)) {
                                 PrintMessage.aisleCenterWindowOptions();
-                                seatingLocation = CheckInput.checkAisleCenterWindow();
+                                seatingLocation = CheckInput.checkAisleCenterWindowLocation();
 
-                                // check to see if there are enough matching seats of the specified location type
-                                if (testAirplane.availableSeatsOfLocationType
-                                        ("economy", numOfPassengers, seatingLocation).length > 0) {
-                                    // test addPassengers()
-                                    testAirplane.addPassengers("economy", numOfPassengers, seatingLocation);
-                                } else {
-                                    PrintMessage.notEnoughAvailableSeatsOfLocationError(seatingLocation);
+                                // seat them in a single search; NO_SEATS means there aren't enough matching seats
+                                if (testAirplane.tryReserve(CabinClass.ECONOMY, numOfPassengers, seatingLocation)
+                                        == SeatingSection.NO_SEATS) {
+                                    PrintMessage.notEnoughAvailableSeatsOfLocationError(seatingLocation.getName());
                                 }
 
                             } else {
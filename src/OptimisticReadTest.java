@@ -0,0 +1,253 @@
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Purpose: To demonstrate that the optimistic reads of a concurrent SeatingSection never see a booking half made,
+ *          keep finishing while writers change the seats without a pause, render no seat as booked that is only
+ *          ever held, and give a display client the changed rows that bring its copy of the seats up to date.
+ *
+ * Target Output: A message that every read was consistent; otherwise an IllegalStateException describing the
+ *                  first read that was not.
+ */
+public class OptimisticReadTest {
+
+    private static final int NUM_OF_WRITERS = 4;
+    private static final int NUM_OF_READERS = 2;
+    private static final int NUM_OF_ROUNDS = 20;
+    // the longest a single read may take while writers keep the seats changing
+    private static final long MAX_READ_NANOS = 1_000_000_000L;
+    private static final long CHURN_NANOS = 1_000_000_000L;
+
+    /**
+     * Tests the optimistic reads of SeatingSection.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for the writer threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < NUM_OF_ROUNDS; ++round) {
+            testReadsWhileBooking();
+        }
+        testReadsWhileChurning();
+        testRenderWhileHolding();
+        System.out.println("Every read was consistent in " + NUM_OF_ROUNDS + " rounds of " + NUM_OF_WRITERS
+                           + " writers and " + NUM_OF_READERS + " readers.");
+    }
+
+    /**
+     * Books a concurrent plane full from many threads while other threads read it. As the seats only fill up, a
+     * reader must never see fewer occupied seats or more free seat groups than it saw before.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the threads
+     * @throws IllegalStateException if a read was inconsistent
+     */
+    private static void testReadsWhileBooking() throws InterruptedException {
+        Airplane airplane = new Airplane(5, 4, 200, 6, true);
+        SeatingSection economy = airplane.getEconomyClass();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger numOfBadReads = new AtomicInteger();
+        Thread[] writers = new Thread[NUM_OF_WRITERS];
+        Thread[] readers = new Thread[NUM_OF_READERS];
+
+        for (int t = 0; t < NUM_OF_WRITERS; ++t) {
+            int first = t;
+
+            writers[t] = new Thread(() -> {
+                for (int i = first; i < 4000 && !economy.isFull(); i += NUM_OF_WRITERS) {
+                    airplane.tryReserve(CabinClass.ECONOMY, 1 + i % 3, SeatLocation.values()[i % 3]);
+                }
+            });
+        }
+        for (int t = 0; t < NUM_OF_READERS; ++t) {
+            readers[t] = new Thread(() -> {
+                int lastNumOfGroups = Integer.MAX_VALUE;
+                int lastOccupied = 0;
+
+                while (!done.get()) {
+                    int[] seats = economy.availableSeatsOfLocationType(2, SeatLocation.WINDOW);
+                    int numOfGroups = economy.countAvailableGroups(1, SeatLocation.AISLE);
+                    int occupied = countOccupied(economy.getSeating());
+
+                    // a window pair of a 3-3 row is the two seats at either window
+                    if (seats.length == 3 && (seats[1] != 0 && seats[1] != 4 || seats[2] != seats[1] + 1)) {
+                        numOfBadReads.incrementAndGet();
+                    }
+                    if (numOfGroups > lastNumOfGroups || occupied < lastOccupied) {
+                        numOfBadReads.incrementAndGet();
+                    }
+                    lastNumOfGroups = numOfGroups;
+                    lastOccupied = occupied;
+                }
+            });
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        economy.checkConsistency();
+        check(numOfBadReads.get() == 0, numOfBadReads.get() + " reads saw a booking half made");
+    }
+
+    /**
+     * Holds and releases seats from many threads without a pause while the main thread reads the seats and keeps
+     * a display client's copy of them up to date with the changed rows.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the writer threads
+     * @throws IllegalStateException if a read takes too long, a version goes back, or the client's copy differs
+     */
+    private static void testReadsWhileChurning() throws InterruptedException {
+        SeatingSection section = new SeatingSection(200, 10, true);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] writers = new Thread[NUM_OF_WRITERS];
+        long[] clientSeats = new long[section.getNumOfRows()];
+        long clientVersion = 0;
+        long worstReadNanos = 0;
+        int numOfReads = 0;
+
+        for (int t = 0; t < NUM_OF_WRITERS; ++t) {
+            int writer = t;
+
+            writers[t] = new Thread(() -> {
+                for (int i = 0; !stop.get(); ++i) {
+                    long reservation = section.tryHold(1 + (i + writer) % 2, SeatLocation.AISLE);
+
+                    if (reservation == SeatingSection.NO_SEATS) {
+                        continue;
+                    }
+                    // keep a few of the seats, so that the rows of the client's copy change for good as well
+                    if (i % 64 == 0 && i < 4096) {
+                        section.confirmHold(reservation);
+                    } else {
+                        section.releaseHold(reservation);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+
+        long end = System.nanoTime() + CHURN_NANOS;
+
+        while (System.nanoTime() < end) {
+            long startNanos = System.nanoTime();
+
+            section.getSeating();
+            section.countAvailableGroups(2, SeatLocation.WINDOW);
+
+            SeatMapDelta delta = section.changesSince(clientVersion);
+
+            check(delta.getToVersion() >= clientVersion, "a delta does not go back to an older version");
+            clientVersion = delta.applyTo(clientSeats);
+            worstReadNanos = Math.max(worstReadNanos, System.nanoTime() - startNanos);
+            ++numOfReads;
+        }
+        stop.set(true);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        check(worstReadNanos < MAX_READ_NANOS, "the reads finish while writers keep changing the seats; the worst "
+                                               + "took " + worstReadNanos / 1000 + " us");
+        section.changesSince(clientVersion).applyTo(clientSeats);
+        for (int row = 0; row < section.getNumOfRows(); ++row) {
+            for (int column = 0; column < section.getNumOfColumns(); ++column) {
+                check(((clientSeats[row] >>> column & 1) != 0) == section.isOccupied(row, column),
+                      "the client's copy of seat " + row + ":" + column + " is up to date after " + numOfReads
+                      + " reads");
+            }
+        }
+        section.checkConsistency();
+    }
+
+    /**
+     * Holds and releases seats of a few rows from many threads without a pause while the main thread renders the
+     * rows. The seats are never booked, so a rendered row that shows a booked seat was read between the change
+     * of its occupied seats and the change of its held ones.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the writer threads
+     * @throws IllegalStateException if a rendered row shows a booked seat
+     */
+    private static void testRenderWhileHolding() throws InterruptedException {
+        SeatingSection section = new SeatingSection(2, 10, true);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] writers = new Thread[NUM_OF_WRITERS];
+        StringBuilder description = new StringBuilder(section.getRenderedLength(1));
+        ByteBuffer buffer = ByteBuffer.allocate(section.getRenderedLength(1));
+        int numOfBadRenders = 0;
+
+        for (int t = 0; t < NUM_OF_WRITERS; ++t) {
+            writers[t] = new Thread(() -> {
+                while (!stop.get()) {
+                    long reservation = section.tryHold(1, SeatLocation.AISLE);
+
+                    if (reservation != SeatingSection.NO_SEATS) {
+                        section.releaseHold(reservation);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+
+        long end = System.nanoTime() + CHURN_NANOS / 2;
+
+        while (System.nanoTime() < end) {
+            description.setLength(0);
+            section.renderTo(description, 1);
+            buffer.clear();
+            section.renderTo(buffer, 1);
+            for (int i = 0; i < description.length(); ++i) {
+                if (description.charAt(i) == 'X' || buffer.get(i) == 'X') {
+                    ++numOfBadRenders;
+                    break;
+                }
+            }
+        }
+        stop.set(true);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        check(numOfBadRenders == 0, numOfBadRenders + " renders showed a held seat as booked");
+        section.checkConsistency();
+    }
+
+    /**
+     * Returns the number of occupied or held seats of a seat map.
+     *
+     * @param seating the seat map returned by getSeating()
+     * @return the number of seats that are not empty
+     */
+    private static int countOccupied(String[][] seating) {
+        int occupied = 0;
+
+        for (String[] row : seating) {
+            for (String seat : row) {
+                if (!seat.equals(".")) {
+                    ++occupied;
+                }
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
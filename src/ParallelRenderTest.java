@@ -0,0 +1,83 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that seat maps rendered from many threads at once, or the same plane rendered twice in
+ *          a row, are numbered and drawn exactly as a plane rendered alone.
+ *
+ * Target Output: A message that every seat map matched; otherwise an IllegalStateException describing the first
+ *                  plane that did not.
+ */
+public class ParallelRenderTest {
+
+    private static final int NUM_OF_PLANES = 500;
+    private static final int NUM_OF_THREADS = 8;
+    private static final int NUM_OF_RENDERS = 20;
+
+    /**
+     * Tests that rendering an Airplane is reentrant.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for the rendering threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Random random = new Random(11);
+        List<Airplane> airplanes = new ArrayList<>();
+        List<String> seatMaps = new ArrayList<>();
+        int[] numOfBadMaps = new int[NUM_OF_THREADS];
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+
+        for (int i = 0; i < NUM_OF_PLANES; ++i) {
+            Airplane airplane = new Airplane(1 + random.nextInt(5), 4, 1 + random.nextInt(40), 6);
+
+            for (int k = random.nextInt(100); k > 0; --k) {
+                airplane.tryReserve(random.nextBoolean() ? CabinClass.FIRST : CabinClass.ECONOMY,
+                                    1 + random.nextInt(3), SeatLocation.values()[random.nextInt(4)]);
+            }
+            airplanes.add(airplane);
+            seatMaps.add(airplane.toString());
+        }
+        for (int i = 0; i < NUM_OF_PLANES; ++i) {
+            check(airplanes.get(i).toString().equals(seatMaps.get(i)), "plane " + i + " renders the same twice");
+        }
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            int thread = t;
+
+            threads[t] = new Thread(() -> {
+                for (int render = 0; render < NUM_OF_RENDERS; ++render) {
+                    // each thread walks the planes in its own order, so that threads render different planes
+                    for (int i = 0; i < NUM_OF_PLANES; ++i) {
+                        int plane = (i * (2 * thread + 1) + render) % NUM_OF_PLANES;
+
+                        if (!airplanes.get(plane).toString().equals(seatMaps.get(plane))) {
+                            ++numOfBadMaps[thread];
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            check(numOfBadMaps[t] == 0, "thread " + t + " rendered " + numOfBadMaps[t] + " seat maps differently");
+        }
+        System.out.println("Every seat map matched when rendered by " + NUM_OF_THREADS + " threads at once.");
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
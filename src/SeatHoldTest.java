@@ -0,0 +1,347 @@
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Purpose: To demonstrate that held seats are taken for every other booking until they are confirmed, released or
+ *          expired; that a hold expires within a tick of its time to live, on a plane that nobody touches too,
+ *          whether it is concurrent or owned by a FlightActor; and that the ID of an ended hold never ends the
+ *          hold that reuses its slot.
+ *
+ * Target Output: A message that every hold ended as expected; otherwise an IllegalStateException describing the
+ *                  first one that did not.
+ */
+public class SeatHoldTest {
+
+    private static final int NUM_OF_THREADS = 8;
+    // the tick of the wheel that the expiry check turns by hand
+    private static final long TICK_NANOS = 1000;
+
+    /**
+     * Tests the holds of Airplane and the timing wheel of SeatHolds.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for holds to expire
+     */
+    public static void main(String[] args) throws InterruptedException {
+        testHoldLifecycle();
+        testGenerationReuse();
+        testWheel();
+        testPlaneExpiry();
+        testIdleFleetExpiry();
+        testOwnerExpiry();
+        testIdleActorExpiry();
+        testConcurrentHolds();
+        System.out.println("Every hold was confirmed, released or expired as expected.");
+    }
+
+    /**
+     * Holds seats on a plane, books around them, and confirms and releases the holds.
+     *
+     * @throws IllegalStateException if a hold does not take, book or empty its seats
+     */
+    private static void testHoldLifecycle() {
+        Airplane airplane = new Airplane(5, 4, 15, 6);
+        AtomicInteger numOfBookings = new AtomicInteger();
+
+        airplane.setBookingListener((cabinClass, reservation) -> numOfBookings.incrementAndGet());
+
+        long economyHold = airplane.hold(CabinClass.ECONOMY, 2, SeatLocation.WINDOW, 60000);
+        long firstHold = airplane.hold(CabinClass.FIRST, 1, SeatLocation.AISLE, 60000);
+        long reservation = airplane.tryReserve(CabinClass.ECONOMY, 2, SeatLocation.WINDOW);
+
+        check(SeatingSection.reservedRow(reservation) == 0 && SeatingSection.reservedFirstColumn(reservation) == 4,
+              "a booking skips the held window seats");
+        check(airplane.getEconomyClass().getSeating()[0][0].equals("*"), "held seats are shown as \"*\"");
+        check(airplane.confirm(economyHold) != SeatingSection.NO_SEATS, "a hold is confirmed");
+        check(airplane.confirm(economyHold) == SeatingSection.NO_SEATS, "a hold is confirmed only once");
+        check(!airplane.release(economyHold), "a confirmed hold is not released");
+        check(numOfBookings.get() == 2, "the listener hears of the booking and the confirmed hold");
+
+        long version = airplane.getFirstClass().getVersion();
+
+        check(airplane.release(firstHold), "a hold is released");
+        check(airplane.getFirstClass().getVersion() > version, "a release changes the seating section");
+        check(airplane.getFirstClass().getFreeSeats() == 20, "a release empties the seats");
+        check(numOfBookings.get() == 2, "the listener does not hear of a released hold");
+        check(!airplane.release(SeatHolds.NO_HOLD) && airplane.confirm(12345) == SeatingSection.NO_SEATS,
+              "unknown holds are not ended");
+        airplane.getFirstClass().checkConsistency();
+        airplane.getEconomyClass().checkConsistency();
+    }
+
+    /**
+     * Ends a hold and takes another one in its slot.
+     *
+     * @throws IllegalStateException if the ID of the ended hold ends the new one
+     */
+    private static void testGenerationReuse() {
+        Airplane airplane = new Airplane(5, 4, 15, 6);
+        long ended = airplane.hold(CabinClass.FIRST, 1, SeatLocation.AISLE, 60000);
+
+        check(airplane.release(ended), "the first hold is released");
+
+        long reused = airplane.hold(CabinClass.FIRST, 1, SeatLocation.AISLE, 60000);
+
+        check((int) reused == (int) ended && reused != ended, "the slot is reused with a new generation");
+        check(!airplane.release(ended) && airplane.confirm(ended) == SeatingSection.NO_SEATS,
+              "the ID of the ended hold does not end the new one");
+        check(airplane.release(reused), "the new hold is released with its own ID");
+    }
+
+    /**
+     * Takes, ends and expires random holds on a sharded wheel turned by a clock of its own, checking each hold
+     * against the time it is due.
+     *
+     * @throws IllegalStateException if a hold expires before its time to live or more than a tick after it, or
+     *                               the wheel accepts a number of shards that is not a power of 2
+     */
+    private static void testWheel() {
+        SeatingSection section = new SeatingSection(300, SeatLayout.parse("3-4-3"));
+        SeatHolds holds = new SeatHolds(TICK_NANOS, 8, 4, false);
+        Map<Long, Long> dueNanos = new HashMap<>();
+        Random random = new Random(2);
+        long now = System.nanoTime();
+
+        for (int step = 0; step < 200000; ++step) {
+            int op = random.nextInt(10);
+
+            now += random.nextInt(300);
+            if (op < 5) {
+                // up to 40 ticks, so that holds stay for many turns of the 8 buckets
+                long ttl = random.nextInt(40 * (int) TICK_NANOS);
+                long holdId = holds.hold(section, CabinClass.ECONOMY, 1 + random.nextInt(3),
+                                         SeatLocation.values()[random.nextInt(4)], ttl, now);
+
+                if (holdId != SeatHolds.NO_HOLD) {
+                    dueNanos.put(holdId, now + ttl);
+                }
+            } else if (op < 8 && !dueNanos.isEmpty()) {
+                long holdId = dueNanos.keySet().iterator().next();
+                long due = dueNanos.remove(holdId);
+                boolean ended = holds.end(holdId, section, op == 5, now) != SeatingSection.NO_SEATS;
+
+                check(ended || due <= now, "a hold is not expired before it is due");
+                check(!ended || due + TICK_NANOS >= now, "a hold is not ended after it is due");
+            } else {
+                holds.expire(now);
+            }
+
+            if (step % 1000 == 0) {
+                holds.expire(now);
+                for (Iterator<Map.Entry<Long, Long>> it = dueNanos.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Long, Long> hold = it.next();
+                    boolean expired = holds.end(hold.getKey(), section, false, now) == SeatingSection.NO_SEATS;
+
+                    check(expired || hold.getValue() + TICK_NANOS >= now, "a hold expires within a tick");
+                    check(!expired || hold.getValue() <= now, "a hold does not expire early");
+                    it.remove();
+                }
+                check(holds.getNumOfHolds() == 0, "every hold was ended or expired");
+                section.checkConsistency();
+            }
+        }
+        try {
+            new SeatHolds(TICK_NANOS, 8, 3, false);
+            throw new IllegalStateException("Failed: a wheel of 3 shards was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Lets a hold on a plane that is not concurrent run out, then expires it.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the hold to expire
+     * @throws IllegalStateException if the hold expires early, does not expire, or is still confirmed
+     */
+    private static void testPlaneExpiry() throws InterruptedException {
+        Airplane airplane = new Airplane(5, 4, 15, 6);
+
+        check(airplane.expireHolds() == 0, "a plane without holds expires none");
+
+        long holdId = airplane.hold(CabinClass.ECONOMY, 3, SeatLocation.ROW, 30);
+
+        check(airplane.getSeatHolds(CabinClass.ECONOMY).getNumOfHolds() == 1, "the plane has one hold");
+        check(airplane.expireHolds() == 0, "a hold does not expire before its time to live");
+        Thread.sleep(60);
+        check(airplane.expireHolds() == 1, "a hold expires after its time to live");
+        check(airplane.confirm(holdId) == SeatingSection.NO_SEATS, "an expired hold is not confirmed");
+        check(airplane.getEconomyClass().getFreeSeats() == 90, "an expired hold empties its seats");
+        airplane.getEconomyClass().checkConsistency();
+    }
+
+    /**
+     * Holds seats on many concurrent planes and leaves them alone until the ticker expires the holds.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the holds to expire
+     * @throws IllegalStateException if a hold does not expire on its own, or one plane ends another's hold
+     */
+    private static void testIdleFleetExpiry() throws InterruptedException {
+        Airplane[] fleet = new Airplane[500];
+
+        for (int i = 0; i < fleet.length; ++i) {
+            fleet[i] = new Airplane(2, 4, 20, 6, true);
+            fleet[i].hold(CabinClass.ECONOMY, 2, SeatLocation.WINDOW, 20);
+        }
+
+        // the ticker expires the holds within a tick; give a busy machine a while longer
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        int heldSeats;
+
+        do {
+            Thread.sleep(20);
+            heldSeats = 0;
+            for (Airplane airplane : fleet) {
+                heldSeats += 120 - airplane.getEconomyClass().getFreeSeats();
+            }
+        } while (heldSeats > 0 && System.nanoTime() < deadline);
+        check(heldSeats == 0, "the holds of planes that nobody touches expire on their own");
+        for (Airplane airplane : fleet) {
+            airplane.getEconomyClass().checkConsistency();
+        }
+
+        long holdId = fleet[0].hold(CabinClass.ECONOMY, 1, SeatLocation.AISLE, 60000);
+
+        check(fleet[1].confirm(holdId) == SeatingSection.NO_SEATS, "a plane does not confirm another's hold");
+        check(fleet[0].confirm(holdId) != SeatingSection.NO_SEATS, "a plane confirms its own hold");
+    }
+
+    /**
+     * Holds seats on a plane that is not concurrent and leaves it alone, running the expiries that the ticker
+     * hands to the plane's owner on the main thread, after turning the first ones away.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the expiry
+     * @throws IllegalStateException if the short hold does not expire, the long one does, or an expiry that was
+     *                               turned away is not handed over again
+     */
+    private static void testOwnerExpiry() throws InterruptedException {
+        Airplane airplane = new Airplane(5, 4, 15, 6);
+        ConcurrentLinkedQueue<Runnable> expiries = new ConcurrentLinkedQueue<>();
+        AtomicInteger numOfRejections = new AtomicInteger();
+
+        airplane.setHoldOwner(expiry -> {
+            if (numOfRejections.incrementAndGet() <= 3) {
+                throw new RejectedExecutionException("busy");
+            }
+            expiries.add(expiry);
+        });
+        check(airplane.hold(CabinClass.FIRST, 1, SeatLocation.AISLE, 60000) != SeatHolds.NO_HOLD
+              && airplane.hold(CabinClass.ECONOMY, 3, SeatLocation.ROW, 20) != SeatHolds.NO_HOLD, "the seats are held");
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        while (airplane.getEconomyClass().getFreeSeats() < 90 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            for (Runnable expiry; (expiry = expiries.poll()) != null; ) {
+                expiry.run();
+            }
+        }
+        check(airplane.getEconomyClass().getFreeSeats() == 90, "the owner expires the hold of an idle plane");
+        check(numOfRejections.get() > 3, "an expiry that the owner turned away is handed over again");
+        check(airplane.getFirstClass().getFreeSeats() == 19, "a hold that is not due yet is kept");
+        airplane.getEconomyClass().checkConsistency();
+        airplane.setHoldOwner(null);
+    }
+
+    /**
+     * Holds seats through a FlightActor and sends it nothing else until the snapshot shows them empty again.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the expiry
+     * @throws IllegalStateException if the hold does not expire on its own or can still be confirmed
+     */
+    private static void testIdleActorExpiry() throws InterruptedException {
+        FlightActor actor = new FlightActor("HOLD", new Airplane(2, 4, 20, 6));
+
+        try {
+            long holdId = actor.call(seats -> seats.hold(CabinClass.ECONOMY, 2, SeatLocation.WINDOW, 20));
+
+            check(actor.getSnapshot().getFreeSeats(CabinClass.ECONOMY) == 118, "the snapshot shows the hold");
+
+            long deadline = System.nanoTime() + 5_000_000_000L;
+
+            while (actor.getSnapshot().getFreeSeats(CabinClass.ECONOMY) < 120 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            check(actor.getSnapshot().getFreeSeats(CabinClass.ECONOMY) == 120,
+                  "the hold of an actor that is sent nothing expires on the writer thread");
+            check(actor.call(seats -> seats.confirm(holdId)) == SeatingSection.NO_SEATS,
+                  "an expired hold of an actor is not confirmed");
+        } finally {
+            actor.close();
+        }
+    }
+
+    /**
+     * Books, holds, confirms and releases seats of a concurrent plane from many threads, then lets the holds left
+     * expire.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the threads or the holds
+     * @throws IllegalStateException if the seats taken do not add up to the seats booked and confirmed
+     */
+    private static void testConcurrentHolds() throws InterruptedException {
+        Airplane airplane = new Airplane(0, SeatLayout.parse("2-2"), 200, SeatLayout.parse("3-4-3"), true);
+        AtomicInteger bookedSeats = new AtomicInteger();
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            Random random = new Random(t);
+
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; ++i) {
+                    int numOfPassengers = 1 + random.nextInt(3);
+                    SeatLocation seatingLocation = SeatLocation.values()[random.nextInt(4)];
+                    long reservation = SeatingSection.NO_SEATS;
+
+                    if (random.nextBoolean()) {
+                        reservation = airplane.tryReserve(CabinClass.ECONOMY, numOfPassengers, seatingLocation);
+                    } else {
+                        long holdId = airplane.hold(CabinClass.ECONOMY, numOfPassengers, seatingLocation, 50);
+
+                        if (holdId != SeatHolds.NO_HOLD && random.nextInt(10) == 0) {
+                            reservation = airplane.confirm(holdId);
+                        } else if (holdId != SeatHolds.NO_HOLD && random.nextBoolean()) {
+                            airplane.release(holdId);
+                        }
+                    }
+                    if (reservation != SeatingSection.NO_SEATS) {
+                        bookedSeats.addAndGet(SeatingSection.reservedLastColumn(reservation)
+                                              - SeatingSection.reservedFirstColumn(reservation) + 1);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        SeatingSection economy = airplane.getEconomyClass();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        while (economy.getFreeSeats() != 2000 - bookedSeats.get() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        economy.checkConsistency();
+        check(economy.getFreeSeats() == 2000 - bookedSeats.get(),
+              "the seats taken are the ones booked and confirmed once the holds left expire");
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
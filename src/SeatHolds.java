@@ -0,0 +1,708 @@
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Constructs a SeatHolds object, the seats held for checkouts that have not been paid for yet, each of which is
+ * released on its own once its time to live is up. One SeatHolds serves any number of Airplanes.
+ *
+ * For our purposes:
+ *      - The holds expire on a hashed timing wheel: a ring of buckets, one per tick of time, where a hold waits
+ *          in the bucket of the tick that it expires at, wrapped around the ring. Each tick that goes by empties
+ *          its own bucket of the holds that are due, so expiring a hold costs O(1) however many holds are
+ *          waiting, and a hold that lives longer than a turn of the ring just stays for another turn.
+ *      - The wheel is split into shards, each a ring and a pool of holds with a lock of its own, and each hold
+ *          goes on a shard picked at random. A shard is only locked to link a hold into its bucket or unlink it:
+ *          the seats are searched for before the hold is linked, and booked or emptied after it is unlinked, so
+ *          holds of the whole fleet are taken and ended in parallel, as their seating sections allow.
+ *      - A ticking wheel has a daemon thread that turns it once per tick while it has any holds, so that the
+ *          holds of a flight that nobody touches expire on time, at a cost that does not grow with the number of
+ *          flights. It starts with the first hold and parks while there are none. Since it releases seats from
+ *          its own thread, it only serves concurrent seating sections.
+ *      - A wheel that does not tick may be given an owner, the only thread allowed to touch its seating sections,
+ *          and a ticking wheel to time it. The ticker then wakes the wheel when its next hold is due, and the
+ *          wheel expires its holds on the owner, so the holds of a flight that nobody touches expire on time
+ *          there as well. A wheel is only woken for its earliest hold, so the ticker keeps one wake-up per wheel.
+ *      - Every shard also turns whenever one of its holds is taken, confirmed or released, and every wheel turns
+ *          when expire() is called, catching up on every tick since it last turned.
+ *      - A hold is a slot in a pool of arrays, linked into its bucket by slot index, so taking and ending holds
+ *          allocates nothing once the pool has grown to the most holds at once.
+ *      - A hold ID packs the slot and its shard with the cabin class of the seats and a generation that is bumped
+ *          each time the slot is freed, so the ID of an expired hold never matches the hold that reuses its slot.
+ */
+public final class SeatHolds {
+
+    /**
+     * The hold ID returned by hold() when there are no matching seats.
+     */
+    public static final long NO_HOLD = -1L;
+
+    // the end of a bucket's list and of the free list
+    private static final int NIL = -1;
+    // a hold ID holds the slot in its low 28 bits, below it the shard, then the cabin class ordinal in the next 4
+    // bits and the generation above
+    private static final int SLOT_BITS = 28;
+    private static final int MAX_SLOTS = 1 << SLOT_BITS;
+    private static final int MAX_SHARDS = 256;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long tickNanos;
+    // the System.nanoTime() that tick 0 begins at
+    private final long startNanos;
+    private final Shard[] shards;
+    // the number of low bits of a hold's slot that pick its shard
+    private final int shardBits;
+    private final LongAdder numOfExpiredHolds = new LongAdder();
+    // the thread that turns the wheel each tick; null for a wheel that does not tick, or until the first hold
+    private final boolean ticking;
+    private volatile Thread ticker;
+    // set by the ticker before it parks until the next hold or wake-up, which unparks it
+    private volatile boolean idle;
+    // the wake-ups of the wheels that this wheel's ticker times, by the time they are due
+    private final PriorityQueue<WakeUp> wakeUps =
+            new PriorityQueue<WakeUp>((a, b) -> Long.signum(a.dueNanos - b.dueNanos));
+    private volatile int numOfWakeUps;
+    // the executor that a wheel that does not tick expires its holds on, and the ticking wheel that wakes it;
+    // null to expire the holds only when the wheel is used
+    private Executor owner;
+    private SeatHolds timer;
+    // the tick of the wheel's pending wake-up; Long.MAX_VALUE if none is pending
+    private long wakeUpTick = Long.MAX_VALUE;
+
+    /**
+     * Constructs an empty set of holds.
+     *
+     * @param tickNanos the nanoseconds between two ticks of the wheel, which is how late a hold may expire
+     * @param numOfBuckets the number of buckets of each shard of the wheel, a power of 2
+     * @param numOfShards the number of shards of the wheel, a power of 2 of at most 256
+     * @param ticking true to have a thread of its own turn the wheel, for holds on concurrent seating sections
+     *                only; false to turn it only when it is used
+     * @throws IllegalArgumentException if the tick is not positive, or the number of buckets or shards is not a
+     *                                  power of 2 in range
+     */
+    SeatHolds(long tickNanos, int numOfBuckets, int numOfShards, boolean ticking) {
+        if (tickNanos <= 0 || numOfBuckets <= 0 || Integer.bitCount(numOfBuckets) != 1 || numOfShards <= 0
+                || numOfShards > MAX_SHARDS || Integer.bitCount(numOfShards) != 1) {
+            throw new IllegalArgumentException("Invalid timing wheel: " + numOfShards + " shards of " + numOfBuckets
+                                               + " buckets of " + tickNanos + " ns");
+        }
+        this.tickNanos = tickNanos;
+        this.ticking = ticking;
+        shards = new Shard[numOfShards];
+        for (int i = 0; i < numOfShards; ++i) {
+            shards[i] = new Shard(numOfBuckets, MAX_SLOTS / numOfShards);
+        }
+        shardBits = Integer.numberOfTrailingZeros(numOfShards);
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Holds the available seats of the specified seating location that the section's assignment strategy picks
+     * until they are confirmed or released, or until the time to live is up.
+     *
+     * @param section the seating section that the passengers will sit in; a concurrent one if the wheel ticks
+     * @param cabinClass the cabin class of the seating section
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @param ttlNanos the nanoseconds to hold the seats for
+     * @param nowNanos the System.nanoTime() of the hold
+     * @return the ID of the hold; NO_HOLD if there are no matching seats
+     */
+    long hold(SeatingSection section, CabinClass cabinClass, int numOfPassengers, SeatLocation seatingLocation,
+              long ttlNanos, long nowNanos) {
+        int shardIndex = shards.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(shards.length);
+        Shard shard = shards[shardIndex];
+
+        expire(shard, nowNanos);
+
+        long reservation = section.tryHold(numOfPassengers, seatingLocation);
+
+        if (reservation == SeatingSection.NO_SEATS) {
+            return NO_HOLD;
+        }
+
+        long sinceStart = nowNanos - startNanos;
+        // a hold that outlives the JVM never expires
+        long expiryNanos = ttlNanos > Long.MAX_VALUE - sinceStart ? Long.MAX_VALUE : sinceStart + ttlNanos;
+        long linked = shard.link(reservation, section, cabinClass.ordinal(), ticksOf(expiryNanos, true));
+
+        if (linked == NO_HOLD) {
+            section.releaseHold(reservation);
+            throw new IllegalStateException("Too many holds: " + getNumOfHolds());
+        }
+        if (ticking) {
+            wakeTicker();
+        } else {
+            wakeUpAt(ticksOf(expiryNanos, true));
+        }
+
+        int slot = (int) linked << shardBits | shardIndex;
+
+        return linked & 0xFFFFFFFF00000000L | cabinClass.ordinal() << SLOT_BITS | slot;
+    }
+
+    /**
+     * Ends a hold that has not expired yet, booking or emptying its seats.
+     *
+     * @param holdId the ID returned by hold()
+     * @param section the seating section that the hold must be on, so that a plane cannot end the holds of
+     *                another plane
+     * @param confirm true to book the seats; false to empty them
+     * @param nowNanos the System.nanoTime() of the call
+     * @return the reservation of the seats within the seating section of the hold's cabin class (see
+     *              cabinClassOf()); SeatingSection.NO_SEATS if the hold is unknown, expired or ended already
+     */
+    long end(long holdId, SeatingSection section, boolean confirm, long nowNanos) {
+        if (holdId < 0) {
+            return SeatingSection.NO_SEATS;
+        }
+
+        int slot = (int) holdId & (MAX_SLOTS - 1);
+        Shard shard = shards[slot & (shards.length - 1)];
+
+        expire(shard, nowNanos);
+
+        // only one caller unlinks the hold, so only one books or empties its seats
+        long reservation = shard.unlink(slot >>> shardBits, (int) (holdId >>> 32), cabinOrdinalOf(holdId), section);
+
+        if (reservation == SeatingSection.NO_SEATS) {
+            return SeatingSection.NO_SEATS;
+        }
+        if (confirm) {
+            section.confirmHold(reservation);
+        } else {
+            section.releaseHold(reservation);
+        }
+        return reservation;
+    }
+
+    /**
+     * Returns the cabin class of the seats of a hold.
+     *
+     * @param holdId the ID returned by hold()
+     * @return the cabin class; null if the ID is not a hold ID
+     */
+    static CabinClass cabinClassOf(long holdId) {
+        int ordinal = cabinOrdinalOf(holdId);
+
+        return holdId < 0 || ordinal >= CabinClass.values().length ? null : CabinClass.values()[ordinal];
+    }
+
+    /**
+     * Returns the cabin class ordinal packed into a hold ID.
+     *
+     * @param holdId the hold ID
+     * @return the cabin class ordinal
+     */
+    private static int cabinOrdinalOf(long holdId) {
+        return (int) (holdId >>> SLOT_BITS) & 0xF;
+    }
+
+    /**
+     * Releases the seats of every hold whose time to live is up, emptying the bucket of each tick since the last
+     * call in every shard.
+     *
+     * @param nowNanos the System.nanoTime() to expire the holds at
+     * @return the number of holds that expired
+     */
+    int expire(long nowNanos) {
+        int expired = 0;
+
+        for (Shard shard : shards) {
+            expired += expire(shard, nowNanos);
+        }
+        return expired;
+    }
+
+    /**
+     * Releases the seats of every hold of a shard whose time to live is up. The holds are unlinked under the
+     * shard's lock and their seats released after it.
+     *
+     * @param shard the shard
+     * @param nowNanos the System.nanoTime() to expire the holds at
+     * @return the number of holds that expired
+     */
+    private int expire(Shard shard, long nowNanos) {
+        Expired expired = shard.expire(ticksOf(nowNanos - startNanos, false));
+
+        if (expired == null) {
+            return 0;
+        }
+        for (int i = 0; i < expired.size; ++i) {
+            expired.sections[i].releaseHold(expired.reservations[i], true);
+        }
+        numOfExpiredHolds.add(expired.size);
+        return expired.size;
+    }
+
+    /**
+     * Sets the owner that a wheel that does not tick expires its holds on once they are due, replacing the
+     * previous one.
+     *
+     * @param owner the executor that runs the expiry, on the only thread allowed to touch the wheel's seating
+     *              sections, and that throws a RejectedExecutionException if it cannot take it now; null to expire
+     *              the holds only when the wheel is used
+     * @param timer the ticking wheel whose ticker wakes this wheel when a hold is due
+     * @throws IllegalArgumentException if this wheel ticks or the timer does not
+     */
+    void setOwner(Executor owner, SeatHolds timer) {
+        if (ticking || !timer.ticking) {
+            throw new IllegalArgumentException("Only a wheel that does not tick has an owner");
+        }
+        synchronized (this) {
+            this.owner = owner;
+            this.timer = timer;
+            // the holds taken so far are woken up for as well
+            wakeUpTick = Long.MAX_VALUE;
+        }
+        wakeUpAt(nextExpiryTick());
+    }
+
+    /**
+     * Has the timer wake the wheel at a tick, unless the wheel has no owner or is woken up by then already.
+     *
+     * @param tick the tick of this wheel to wake up at; Long.MAX_VALUE for none
+     */
+    private void wakeUpAt(long tick) {
+        SeatHolds wakingTimer;
+        long dueTick;
+
+        if (tick == Long.MAX_VALUE) {
+            return;
+        }
+        synchronized (this) {
+            // a hold of a later turn of the ring is looked at again after a turn
+            dueTick = Math.min(tick, ticksOf(System.nanoTime() - startNanos, false) + shards[0].buckets.length);
+            if (owner == null || dueTick >= wakeUpTick) {
+                return;
+            }
+            wakeUpTick = dueTick;
+            wakingTimer = timer;
+        }
+        wakingTimer.schedule(new WakeUp(this, dueTick, startNanos + dueTick * tickNanos));
+    }
+
+    /**
+     * Queues the wake-up of a wheel, on the ticker of this wheel.
+     *
+     * @param wakeUp the wake-up
+     */
+    private void schedule(WakeUp wakeUp) {
+        synchronized (wakeUps) {
+            wakeUps.add(wakeUp);
+            numOfWakeUps = wakeUps.size();
+        }
+        wakeTicker();
+    }
+
+    /**
+     * Runs the wake-ups that are due, on the ticker thread.
+     *
+     * @param nowNanos the System.nanoTime() of the tick
+     */
+    private void runWakeUps(long nowNanos) {
+        while (true) {
+            WakeUp wakeUp;
+
+            synchronized (wakeUps) {
+                wakeUp = wakeUps.peek();
+                if (wakeUp == null || wakeUp.dueNanos - nowNanos > 0) {
+                    return;
+                }
+                wakeUps.poll();
+                numOfWakeUps = wakeUps.size();
+            }
+            wakeUp.wheel.wakeUp(wakeUp.tick);
+        }
+    }
+
+    /**
+     * Hands the expiry of the wheel to its owner, or tries again next tick if the owner cannot take it now.
+     *
+     * @param tick the tick that the wake-up was for
+     */
+    private void wakeUp(long tick) {
+        Executor wakingOwner;
+
+        synchronized (this) {
+            // a wake-up that was replaced by an earlier one, or that the owner was replaced since, is stale
+            if (tick != wakeUpTick) {
+                return;
+            }
+            wakeUpTick = Long.MAX_VALUE;
+            wakingOwner = owner;
+        }
+        try {
+            wakingOwner.execute(this::expireOnOwner);
+        } catch (RejectedExecutionException e) {
+            wakeUpAt(tick + 1);
+        }
+    }
+
+    /**
+     * Expires the holds that are due, on the owner, and has the timer wake the wheel for the next one.
+     */
+    private void expireOnOwner() {
+        expire(System.nanoTime());
+        wakeUpAt(nextExpiryTick());
+    }
+
+    /**
+     * Returns the earliest tick that a hold of the wheel expires at, looking one turn of the ring ahead.
+     *
+     * @return the tick; a turn after the current tick if every hold is due in a later turn; Long.MAX_VALUE if
+     *              there are no holds
+     */
+    private long nextExpiryTick() {
+        long nextTick = Long.MAX_VALUE;
+
+        for (Shard shard : shards) {
+            nextTick = Math.min(nextTick, shard.nextExpiryTick());
+        }
+        return nextTick;
+    }
+
+    /**
+     * Returns the number of holds that have not ended yet. The shards are counted one after another, so holds
+     * taken or ended meanwhile may or may not be counted.
+     *
+     * @return the number of holds
+     */
+    public int getNumOfHolds() {
+        int numOfHolds = 0;
+
+        for (Shard shard : shards) {
+            numOfHolds += shard.numOfHolds;
+        }
+        return numOfHolds;
+    }
+
+    /**
+     * Returns the number of holds that expired before they were confirmed or released.
+     *
+     * @return the number of expired holds
+     */
+    public long getNumOfExpiredHolds() {
+        return numOfExpiredHolds.sum();
+    }
+
+    /**
+     * Starts the ticker thread, or unparks it if it is parked until the next hold. A hold is linked before this
+     * is called and the ticker sets idle before it counts the holds, so one of them always sees the other.
+     */
+    private void wakeTicker() {
+        if (ticker == null) {
+            synchronized (this) {
+                if (ticker == null) {
+                    Thread thread = new Thread(this::tick, "seat-holds-ticker");
+
+                    thread.setDaemon(true);
+                    thread.start();
+                    ticker = thread;
+                }
+            }
+        } else if (idle) {
+            LockSupport.unpark(ticker);
+        }
+    }
+
+    /**
+     * Runs the ticker thread: turns the wheel and runs the due wake-ups once per tick while there are holds or
+     * wake-ups, and parks until the next of either while there are none.
+     */
+    private void tick() {
+        while (true) {
+            idle = true;
+            if (getNumOfHolds() == 0 && numOfWakeUps == 0) {
+                LockSupport.park(this);
+            } else {
+                idle = false;
+                LockSupport.parkNanos(this, tickNanos);
+
+                long nowNanos = System.nanoTime();
+
+                expire(nowNanos);
+                runWakeUps(nowNanos);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of whole ticks in a span of time.
+     *
+     * @param nanos the nanoseconds since tick 0 began
+     * @param roundUp true to count a partial tick as a whole one; false to leave it out
+     * @return the number of ticks
+     */
+    private long ticksOf(long nanos, boolean roundUp) {
+        long ticks = nanos / tickNanos;
+
+        return roundUp && ticks * tickNanos < nanos ? ticks + 1 : ticks;
+    }
+
+    /**
+     * A wheel to wake up when its next hold is due.
+     */
+    private static final class WakeUp {
+
+        private final SeatHolds wheel;
+        // the tick of the wheel that the wake-up is for, and the System.nanoTime() it is due at
+        private final long tick;
+        private final long dueNanos;
+
+        /**
+         * Constructs the wake-up of a wheel.
+         *
+         * @param wheel the wheel
+         * @param tick the tick of the wheel that the wake-up is for
+         * @param dueNanos the System.nanoTime() that the tick begins at
+         */
+        private WakeUp(SeatHolds wheel, long tick, long dueNanos) {
+            this.wheel = wheel;
+            this.tick = tick;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    /**
+     * The holds that a shard unlinked because their time to live was up, whose seats are still to be released.
+     */
+    private static final class Expired {
+
+        private long[] reservations = new long[INITIAL_CAPACITY];
+        private SeatingSection[] sections = new SeatingSection[INITIAL_CAPACITY];
+        private int size;
+
+        /**
+         * Adds an expired hold.
+         *
+         * @param reservation the reservation of the hold's seats
+         * @param section the seating section of the seats
+         */
+        private void add(long reservation, SeatingSection section) {
+            if (size == reservations.length) {
+                reservations = Arrays.copyOf(reservations, 2 * size);
+                sections = Arrays.copyOf(sections, 2 * size);
+            }
+            reservations[size] = reservation;
+            sections[size] = section;
+            ++size;
+        }
+    }
+
+    /**
+     * A shard of the wheel: a ring of buckets and a pool of holds, guarded by the shard's own lock.
+     */
+    private static final class Shard {
+
+        private final int maxSlots;
+        // the first hold of each bucket; the bucket of tick t is t & (buckets.length - 1)
+        private final int[] buckets;
+        // the last tick whose bucket was emptied
+        private long currentTick;
+
+        // the pool of holds, by slot: the reservation, the seating section and its cabin class ordinal, the tick
+        // it expires at, the links of its bucket's list, and the generation of its ID
+        private long[] reservations = new long[INITIAL_CAPACITY];
+        private SeatingSection[] sections = new SeatingSection[INITIAL_CAPACITY];
+        private byte[] cabinClasses = new byte[INITIAL_CAPACITY];
+        private long[] expiryTicks = new long[INITIAL_CAPACITY];
+        private int[] next = new int[INITIAL_CAPACITY];
+        private int[] previous = new int[INITIAL_CAPACITY];
+        private int[] generations = new int[INITIAL_CAPACITY];
+        // the slots in use or freed so far; the slots from here on were never used
+        private int numOfUsedSlots;
+        // the first freed slot, linked through next
+        private int firstFreeSlot = NIL;
+        // written under the lock, read without it by the ticker and the counters
+        private volatile int numOfHolds;
+
+        /**
+         * Constructs an empty shard.
+         *
+         * @param numOfBuckets the number of buckets of the shard's ring, a power of 2
+         * @param maxSlots the most holds the shard may have at once
+         */
+        private Shard(int numOfBuckets, int maxSlots) {
+            this.maxSlots = maxSlots;
+            buckets = new int[numOfBuckets];
+            Arrays.fill(buckets, NIL);
+        }
+
+        /**
+         * Links a hold into the bucket of the tick it expires at.
+         *
+         * @param reservation the reservation of the held seats
+         * @param section the seating section of the seats
+         * @param cabinOrdinal the cabin class ordinal of the seating section
+         * @param expiryTick the tick that the hold expires at
+         * @return the generation of the hold's slot in the high 32 bits and the slot in the low ones; NO_HOLD if
+         *              the pool cannot grow any further
+         */
+        private synchronized long link(long reservation, SeatingSection section, int cabinOrdinal,
+                                       long expiryTick) {
+            int slot = allocateSlot();
+
+            if (slot == NIL) {
+                return NO_HOLD;
+            }
+
+            // a hold is never due before the next tick, whose bucket is the next one emptied
+            long tick = Math.max(currentTick + 1, expiryTick);
+            int bucket = (int) tick & (buckets.length - 1);
+
+            reservations[slot] = reservation;
+            sections[slot] = section;
+            cabinClasses[slot] = (byte) cabinOrdinal;
+            expiryTicks[slot] = tick;
+            previous[slot] = NIL;
+            next[slot] = buckets[bucket];
+            if (buckets[bucket] != NIL) {
+                previous[buckets[bucket]] = slot;
+            }
+            buckets[bucket] = slot;
+            ++numOfHolds;
+            return (long) generations[slot] << 32 | slot;
+        }
+
+        /**
+         * Unlinks a hold that has not ended yet and frees its slot.
+         *
+         * @param slot the slot of the hold within the shard
+         * @param generation the generation of the hold's ID
+         * @param cabinOrdinal the cabin class ordinal of the hold's ID
+         * @param section the seating section that the hold must be on
+         * @return the reservation of the hold's seats; SeatingSection.NO_SEATS if the hold has ended or is not on
+         *              the seating section
+         */
+        private synchronized long unlink(int slot, int generation, int cabinOrdinal, SeatingSection section) {
+            // the hold has ended if its slot was freed, which bumped the generation, or was never used at all
+            if (slot >= numOfUsedSlots || generations[slot] != generation
+                    || reservations[slot] == SeatingSection.NO_SEATS || cabinClasses[slot] != cabinOrdinal
+                    || sections[slot] != section) {
+                return SeatingSection.NO_SEATS;
+            }
+
+            long reservation = reservations[slot];
+
+            unlink(slot);
+            return reservation;
+        }
+
+        /**
+         * Unlinks every hold whose time to live is up, emptying the bucket of each tick since the last call.
+         *
+         * @param nowTick the tick to expire the holds at
+         * @return the holds that expired, whose seats the caller releases; null if none did
+         */
+        private synchronized Expired expire(long nowTick) {
+            if (nowTick <= currentTick) {
+                return null;
+            }
+
+            // after a whole turn of the ring, every bucket has been looked at once
+            long numOfTicks = Math.min(nowTick - currentTick, buckets.length);
+            Expired expired = null;
+
+            for (long tick = currentTick + 1; tick <= currentTick + numOfTicks; ++tick) {
+                int slot = buckets[(int) tick & (buckets.length - 1)];
+
+                while (slot != NIL) {
+                    int nextSlot = next[slot];
+
+                    // the holds of later turns of the ring share the bucket
+                    if (expiryTicks[slot] <= nowTick) {
+                        if (expired == null) {
+                            expired = new Expired();
+                        }
+                        expired.add(reservations[slot], sections[slot]);
+                        unlink(slot);
+                    }
+                    slot = nextSlot;
+                }
+            }
+            currentTick = nowTick;
+            return expired;
+        }
+
+        /**
+         * Returns the earliest tick that a hold of the shard expires at, looking one turn of the ring ahead.
+         *
+         * @return the tick; a turn after the current tick if every hold is due in a later turn; Long.MAX_VALUE
+         *              if there are no holds
+         */
+        private synchronized long nextExpiryTick() {
+            if (numOfHolds == 0) {
+                return Long.MAX_VALUE;
+            }
+            for (long tick = currentTick + 1; tick <= currentTick + buckets.length; ++tick) {
+                // the first bucket with a hold due in this turn has the earliest hold
+                for (int slot = buckets[(int) tick & (buckets.length - 1)]; slot != NIL; slot = next[slot]) {
+                    if (expiryTicks[slot] == tick) {
+                        return tick;
+                    }
+                }
+            }
+            return currentTick + buckets.length;
+        }
+
+        /**
+         * Returns a free slot of the pool, growing the pool if every slot is in use.
+         *
+         * @return the index of the slot; NIL if the pool cannot grow any further
+         */
+        private int allocateSlot() {
+            if (firstFreeSlot != NIL) {
+                int slot = firstFreeSlot;
+
+                firstFreeSlot = next[slot];
+                return slot;
+            }
+            if (numOfUsedSlots == maxSlots) {
+                return NIL;
+            }
+            if (numOfUsedSlots == reservations.length) {
+                int capacity = Math.min(2 * reservations.length, maxSlots);
+
+                reservations = Arrays.copyOf(reservations, capacity);
+                sections = Arrays.copyOf(sections, capacity);
+                cabinClasses = Arrays.copyOf(cabinClasses, capacity);
+                expiryTicks = Arrays.copyOf(expiryTicks, capacity);
+                next = Arrays.copyOf(next, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+                generations = Arrays.copyOf(generations, capacity);
+            }
+            return numOfUsedSlots++;
+        }
+
+        /**
+         * Takes a hold out of its bucket and frees its slot.
+         *
+         * @param slot the index of the hold's slot
+         */
+        private void unlink(int slot) {
+            if (previous[slot] != NIL) {
+                next[previous[slot]] = next[slot];
+            } else {
+                buckets[(int) expiryTicks[slot] & (buckets.length - 1)] = next[slot];
+            }
+            if (next[slot] != NIL) {
+                previous[next[slot]] = previous[slot];
+            }
+
+            reservations[slot] = SeatingSection.NO_SEATS;
+            // a freed slot does not keep its seating section, or the plane, from being collected
+            sections[slot] = null;
+            // the IDs of the ended hold no longer match the slot; the generation stays non-negative, as do the IDs
+            generations[slot] = (generations[slot] + 1) & Integer.MAX_VALUE;
+            next[slot] = firstFreeSlot;
+            firstFreeSlot = slot;
+            --numOfHolds;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Constructs a SeatLayout object describing the seats of one row of an aircraft type: groups of adjacent columns
+ * separated by aisles (ex: "3-4-3" for a twin-aisle cabin of 10 seats per row).
+ *
+ * For our purposes:
+ *      - The seat types follow from where the seats are: the outer seats of the first and last groups are window
+ *          seats, the seats at the end of a group next to an aisle are aisle seats, and the seats right next to an
+ *          aisle seat within its group are center seats.
+ *      - Each layout is compiled once into bitmasks: the columns of each group and each seat type, and for each
+ *          seating location and number of passengers, the seat groups that match it in the order they are tried.
+ *          A location search is then a test of these masks against a row, however many aisles there are.
+ *      - Layouts are cached by their descriptor, so every seating section of the same aircraft type shares one
+ *          layout instead of a copy of its own.
+ *      - A group may be empty, as the left side of a single-aisle section with one column is.
+ */
+public final class SeatLayout {
+
+    // the seating locations, in the order of their ordinals in the seat group tables
+    private static final SeatLocation[] LOCATIONS = SeatLocation.values();
+
+    // the compiled layouts by descriptor, shared by every seating section
+    private static final ConcurrentHashMap<String, SeatLayout> BY_DESCRIPTOR = new ConcurrentHashMap<>();
+    // the single-aisle layout of each number of columns, to skip building the descriptor for the common case
+    private static final SeatLayout[] SINGLE_AISLE = new SeatLayout[SeatingSection.MAX_COLUMNS + 1];
+
+    private final String descriptor;
+    private final int columns;
+    // the index of the first column of each group
+    private final int[] groupFirstColumns;
+    // the bitmask of the columns of each group
+    private final long[] groupSeats;
+    // the bitmask of the column group of each column
+    private final long[] columnGroupSeats;
+    // the number of columns of the widest column group
+    private final int maxColumnGroupSize;
+    // the bitmask of the seats of each seat type, indexed by the seating location's ordinal; every seat for ROW
+    private final long[] locationSeats;
+    // the slot of each seating location and number of passengers, at index location * (columns + 1) + passengers
+    private final int[] slots;
+    // the bitmasks of the seat groups of each slot
+    private final long[][] groupsBySlot;
+    // a displayed row after its row number, with every seat empty
+    private final char[] rowTemplate;
+    // the column of the seat at each character of the row template; -1 if the character is not a seat
+    private final byte[] seatColumns;
+
+    /**
+     * Compiles a layout.
+     *
+     * @param descriptor the descriptor of the layout
+     * @param groupSizes the number of columns of each group, from left to right
+     */
+    private SeatLayout(String descriptor, int[] groupSizes) {
+        int numOfGroups = groupSizes.length;
+
+        this.descriptor = descriptor;
+        groupFirstColumns = new int[numOfGroups];
+        groupSeats = new long[numOfGroups];
+
+        int column = 0;
+
+        for (int g = 0; g < numOfGroups; ++g) {
+            groupFirstColumns[g] = column;
+            groupSeats[g] = SeatingSection.seatRun(column, groupSizes[g]);
+            column += groupSizes[g];
+        }
+        columns = column;
+
+        int widest = 0;
+
+        columnGroupSeats = new long[columns];
+        for (int g = 0; g < numOfGroups; ++g) {
+            for (int i = groupFirstColumns[g]; i < groupFirstColumns[g] + groupSizes[g]; ++i) {
+                columnGroupSeats[i] = groupSeats[g];
+            }
+            widest = Math.max(widest, groupSizes[g]);
+        }
+        maxColumnGroupSize = widest;
+
+        locationSeats = new long[LOCATIONS.length];
+        for (int g = 0; g < numOfGroups; ++g) {
+            int first = groupFirstColumns[g];
+            int last = first + groupSizes[g] - 1;
+
+            if (groupSizes[g] == 0) {
+                continue;
+            }
+            // the outer ends of the first and last groups are at the wall; every other end is at an aisle
+            locationSeats[SeatLocation.WINDOW.ordinal()] |= (g == 0 ? 1L << first : 0L)
+                    | (g == numOfGroups - 1 ? 1L << last : 0L);
+            if (g > 0) {
+                locationSeats[SeatLocation.AISLE.ordinal()] |= 1L << first;
+                locationSeats[SeatLocation.CENTER.ordinal()] |= first + 1 <= last ? 1L << (first + 1) : 0L;
+            }
+            if (g < numOfGroups - 1) {
+                locationSeats[SeatLocation.AISLE.ordinal()] |= 1L << last;
+                locationSeats[SeatLocation.CENTER.ordinal()] |= last - 1 >= first ? 1L << (last - 1) : 0L;
+            }
+        }
+        locationSeats[SeatLocation.ROW.ordinal()] = SeatingSection.seatRun(0, columns);
+
+        long[][] groups = new long[LOCATIONS.length * (columns + 1)][];
+        int numOfSlots = 0;
+
+        slots = new int[groups.length];
+        for (SeatLocation location : LOCATIONS) {
+            for (int numOfPassengers = 0; numOfPassengers <= columns; ++numOfPassengers) {
+                int index = location.ordinal() * (columns + 1) + numOfPassengers;
+                long[] matchingGroups = compileSeatGroups(groupSizes, numOfPassengers, location);
+
+                if (matchingGroups.length > 0) {
+                    groups[numOfSlots] = matchingGroups;
+                    slots[index] = numOfSlots++;
+                } else {
+                    slots[index] = -1;
+                }
+            }
+        }
+        groupsBySlot = Arrays.copyOf(groups, numOfSlots);
+
+        StringBuilder template = new StringBuilder(": ");
+        byte[] columnAt = new byte[4 * columns + 4 * numOfGroups + 8];
+
+        Arrays.fill(columnAt, (byte) -1);
+        // for each column of the row...
+        for (int i = 0; i < columns; ++i) {
+            if (i > 0) {
+                // formatting to make sure the seats are evenly displayed in text format
+                template.append(columns <= 4 ? "   " : " ");
+            }
+            columnAt[template.length()] = (byte) i;
+            template.append('.');
+            if (i > 0 && isBeforeAisle(i)) {
+                template.append(columns <= 4 ? " " : "   ");
+            }
+        }
+        template.append('\n');
+
+        rowTemplate = template.toString().toCharArray();
+        seatColumns = Arrays.copyOf(columnAt, rowTemplate.length);
+    }
+
+    /**
+     * Returns the layout of the given column groups, compiling it the first time it is asked for.
+     *
+     * @param groupSizes the number of columns of each group, from left to right, with an aisle between each two
+     * @return the shared layout
+     * @throws IllegalArgumentException if there are no groups, a group has a negative size, or the groups have
+     *                                  more than SeatingSection.MAX_COLUMNS columns in total
+     */
+    public static SeatLayout of(int... groupSizes) {
+        long columns = 0;
+        StringBuilder descriptor = new StringBuilder();
+
+        if (groupSizes.length == 0) {
+            throw new IllegalArgumentException("A seat layout needs at least one column group");
+        }
+        for (int size : groupSizes) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Invalid column group size: " + size);
+            }
+            columns += size;
+            descriptor.append(descriptor.length() > 0 ? "-" : "").append(size);
+        }
+        if (columns > SeatingSection.MAX_COLUMNS) {
+            throw new IllegalArgumentException("Seat layout " + descriptor + " has more than "
+                                               + SeatingSection.MAX_COLUMNS + " columns");
+        }
+
+        int[] sizes = groupSizes.clone();
+
+        return BY_DESCRIPTOR.computeIfAbsent(descriptor.toString(), key -> new SeatLayout(key, sizes));
+    }
+
+    /**
+     * Returns the layout described by a descriptor such as "3-4-3": the number of columns of each group from left
+     * to right, separated by the aisles.
+     *
+     * @param descriptor the descriptor of the layout
+     * @return the shared layout
+     * @throws IllegalArgumentException if the descriptor is not a valid layout
+     */
+    public static SeatLayout parse(String descriptor) {
+        SeatLayout layout = BY_DESCRIPTOR.get(descriptor);
+
+        if (layout != null) {
+            return layout;
+        }
+
+        String[] groups = descriptor.split("-", -1);
+        int[] groupSizes = new int[groups.length];
+
+        for (int i = 0; i < groups.length; ++i) {
+            try {
+                groupSizes[i] = Integer.parseInt(groups[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid seat layout: " + descriptor, e);
+            }
+        }
+        return of(groupSizes);
+    }
+
+    /**
+     * Returns the layout with one aisle in the middle of the row; with an odd number of columns, the right side
+     * has the extra seat. This is the layout of a seating section built from its number of columns.
+     *
+     * @param columns the number of columns
+     * @return the shared layout
+     * @throws IllegalArgumentException if the number of columns is negative or above SeatingSection.MAX_COLUMNS
+     */
+    public static SeatLayout singleAisle(int columns) {
+        if (columns < 0 || columns > SeatingSection.MAX_COLUMNS) {
+            throw new IllegalArgumentException("Invalid number of columns: " + columns);
+        }
+
+        SeatLayout layout = SINGLE_AISLE[columns];
+
+        // two threads may look up the same layout at once; both find the same one
+        if (layout == null) {
+            layout = of(columns / 2, columns - columns / 2);
+            SINGLE_AISLE[columns] = layout;
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the bitmasks of every group of seats that matches the seating location, in the order they are tried
+     * within a row: from the leftmost column group to the rightmost, and within a group its left end first.
+     *
+     * @param groupSizes the number of columns of each group
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the bitmasks of the matching seat groups, each listed once
+     */
+    private long[] compileSeatGroups(int[] groupSizes, int numOfPassengers, SeatLocation seatingLocation) {
+        long[] groups = new long[4 * groupSizes.length];
+        int numOfGroups = 0;
+
+        if (numOfPassengers < 1) {
+            return new long[0];
+        }
+
+        for (int g = 0; g < groupSizes.length; ++g) {
+            int size = groupSizes[g];
+            int first = groupFirstColumns[g];
+            int last = first + size - 1;
+            // whether each end of the group is at the wall rather than at an aisle
+            boolean leftWall = g == 0;
+            boolean rightWall = g == groupSizes.length - 1;
+            // the seats beginning at the left end of the group and the ones ending at its right end
+            long leftEnd = SeatingSection.seatRun(first, numOfPassengers);
+            long rightEnd = SeatingSection.seatRun(last - numOfPassengers + 1, numOfPassengers);
+
+            switch (seatingLocation) {
+                case WINDOW:
+                    // a party that fills the whole group books the row instead
+                    if (numOfPassengers < size) {
+                        if (leftWall) {
+                            numOfGroups = add(groups, numOfGroups, leftEnd);
+                        }
+                        if (rightWall) {
+                            numOfGroups = add(groups, numOfGroups, rightEnd);
+                        }
+                    }
+                    break;
+
+                case AISLE:
+                    if (numOfPassengers < size) {
+                        if (!leftWall) {
+                            numOfGroups = add(groups, numOfGroups, leftEnd);
+                        }
+                        if (!rightWall) {
+                            numOfGroups = add(groups, numOfGroups, rightEnd);
+                        }
+                    }
+                    break;
+
+                case CENTER:
+                    // the center seats are the ones right next to the aisle seats
+                    if (!leftWall) {
+                        numOfGroups = addCenterGroups(groups, numOfGroups, first + 1, first, last, numOfPassengers);
+                    }
+                    if (!rightWall) {
+                        numOfGroups = addCenterGroups(groups, numOfGroups, last - 1, first, last, numOfPassengers);
+                    }
+                    break;
+
+                case ROW:
+                    if (numOfPassengers == size) {
+                        numOfGroups = add(groups, numOfGroups, groupSeats[g]);
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        return Arrays.copyOf(groups, numOfGroups);
+    }
+
+    /**
+     * Adds the seat groups that end at a center seat and then the ones that begin at it, if they fit within the
+     * column group.
+     *
+     * @param groups the seat groups found so far
+     * @param numOfGroups the number of seat groups found so far
+     * @param center the column of the center seat
+     * @param first the first column of the column group
+     * @param last the last column of the column group
+     * @param numOfPassengers the number of passengers to seat
+     * @return the number of seat groups found
+     */
+    private static int addCenterGroups(long[] groups, int numOfGroups, int center, int first, int last,
+                                       int numOfPassengers) {
+        if (center < first || center > last) {
+            return numOfGroups;
+        }
+        // end at the center seat, then begin at it
+        if (center - numOfPassengers + 1 >= first) {
+            numOfGroups = add(groups, numOfGroups,
+                              SeatingSection.seatRun(center - numOfPassengers + 1, numOfPassengers));
+        }
+        if (center + numOfPassengers - 1 <= last && numOfPassengers > 1) {
+            numOfGroups = add(groups, numOfGroups, SeatingSection.seatRun(center, numOfPassengers));
+        }
+        return numOfGroups;
+    }
+
+    /**
+     * Adds a seat group unless it was already found, as the center groups of a group between two aisles can be.
+     *
+     * @param groups the seat groups found so far
+     * @param numOfGroups the number of seat groups found so far
+     * @param group the bitmask of the seat group
+     * @return the number of seat groups found
+     */
+    private static int add(long[] groups, int numOfGroups, long group) {
+        for (int i = 0; i < numOfGroups; ++i) {
+            if (groups[i] == group) {
+                return numOfGroups;
+            }
+        }
+        groups[numOfGroups] = group;
+        return numOfGroups + 1;
+    }
+
+    /**
+     * Returns whether an aisle follows a column.
+     *
+     * @param column the index of the column
+     * @return true if the column is the last of a group other than the last group; false otherwise.
+     */
+    private boolean isBeforeAisle(int column) {
+        for (int g = 0; g < groupSeats.length - 1; ++g) {
+            if (groupSeats[g] != 0 && column == Long.SIZE - 1 - Long.numberOfLeadingZeros(groupSeats[g])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the descriptor of the layout (ex: "3-4-3").
+     *
+     * @return the descriptor
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Returns the number of columns of a row.
+     *
+     * @return the number of columns
+     */
+    public int getNumOfColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of column groups, which is one more than the number of aisles.
+     *
+     * @return the number of column groups
+     */
+    public int getNumOfColumnGroups() {
+        return groupSeats.length;
+    }
+
+    /**
+     * Returns the bitmask of the columns of a column group.
+     *
+     * @param group the index of the group, from the left
+     * @return the bitmask of its columns
+     */
+    public long getColumnGroupSeats(int group) {
+        return groupSeats[group];
+    }
+
+    /**
+     * Returns the number of columns of the widest column group, which is the longest run of seats that a row can
+     * have without crossing an aisle.
+     *
+     * @return the number of columns of the widest column group
+     */
+    public int getMaxColumnGroupSize() {
+        return maxColumnGroupSize;
+    }
+
+    /**
+     * Returns the bitmask of the seats of a seat type: the window, aisle or center seats, or every seat for ROW.
+     *
+     * @param seatingLocation the seat type
+     * @return the bitmask of its seats
+     */
+    public long getSeatsOfLocation(SeatLocation seatingLocation) {
+        return locationSeats[seatingLocation.ordinal()];
+    }
+
+    /**
+     * Returns the descriptor of the layout.
+     *
+     * @return the descriptor (ex: "3-4-3")
+     */
+    public String toString() {
+        return descriptor;
+    }
+
+    /**
+     * Returns the bitmask of the columns of the column group holding a column.
+     *
+     * @param column the index of the column
+     * @return the bitmask of the columns of its group
+     */
+    long columnGroupSeatsOf(int column) {
+        return columnGroupSeats[column];
+    }
+
+    /**
+     * Returns the number of seat group slots.
+     *
+     * @return the number of slots
+     */
+    int numOfSlots() {
+        return groupsBySlot.length;
+    }
+
+    /**
+     * Returns the slot of the seating location and number of passengers.
+     *
+     * @param numOfPassengers the number of passengers to seat, between 1 and the number of columns
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the slot; -1 if there are no matching seat groups
+     */
+    int slot(int numOfPassengers, SeatLocation seatingLocation) {
+        return slots[seatingLocation.ordinal() * (columns + 1) + numOfPassengers];
+    }
+
+    /**
+     * Returns the bitmasks of the seat groups of a slot, in the order they are tried within a row.
+     *
+     * @param slot the slot
+     * @return the bitmasks of the seat groups
+     */
+    long[] groups(int slot) {
+        return groupsBySlot[slot];
+    }
+
+    /**
+     * Returns the row template, as displayed after the row number with every seat empty.
+     *
+     * @return the row template
+     */
+    char[] rowTemplate() {
+        return rowTemplate;
+    }
+
+    /**
+     * Returns the column of the seat at each character of the row template.
+     *
+     * @return the column of each character; -1 for the characters that are not seats
+     */
+    byte[] seatColumns() {
+        return seatColumns;
+    }
+}
@@ -0,0 +1,237 @@
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that a seating section built from its number of columns books exactly the seats it
+ *          booked before seat layouts existed, and that a layout with more aisles finds the seat types its
+ *          descriptor gives.
+ *
+ * Target Output: A message that every layout matched; otherwise an IllegalStateException describing the first
+ *                  search that did not.
+ */
+public class SeatLayoutTest {
+
+    private static final int NUM_OF_ROWS = 12;
+    private static final int NUM_OF_ROUNDS = 20;
+
+    /**
+     * Tests SeatLayout against the single-aisle seat groups and a twin-aisle cabin.
+     *
+     * @param args command-line arguments for the application of type String array
+     */
+    public static void main(String[] args) {
+        for (int columns = 1; columns <= SeatingSection.MAX_COLUMNS; ++columns) {
+            for (int round = 0; round < NUM_OF_ROUNDS; ++round) {
+                testSingleAisle(columns, round, false);
+                testSingleAisle(columns, round, true);
+            }
+        }
+        testTwinAisle();
+        testDescriptors();
+        System.out.println("Every layout from 1 to " + SeatingSection.MAX_COLUMNS + " columns matched the single-aisle "
+                           + "seat groups in " + NUM_OF_ROUNDS + " rounds each.");
+    }
+
+    /**
+     * Books a seating section of one aisle with random parties until nothing fits, checking every search against
+     * the seat groups that a single aisle in the middle of the row has always had.
+     *
+     * @param columns the number of columns
+     * @param seed the seed of the random booking requests
+     * @param concurrent true to book a concurrent seating section; false otherwise.
+     * @throws IllegalStateException if the seating section does not find the seats that the seat groups give
+     */
+    private static void testSingleAisle(int columns, long seed, boolean concurrent) {
+        SeatingSection section = new SeatingSection(NUM_OF_ROWS, columns, concurrent);
+        long[] rows = new long[NUM_OF_ROWS];
+        Random random = new Random(seed * SeatingSection.MAX_COLUMNS + columns);
+        SeatLocation[] locations = SeatLocation.values();
+
+        if (section.getLayout() != SeatLayout.of(columns / 2, columns - columns / 2)) {
+            throw new IllegalStateException("A section of " + columns + " columns has layout " + section.getLayout());
+        }
+        for (int misses = 0; misses < 4 * columns; ) {
+            int numOfPassengers = 1 + random.nextInt(Math.max(1, columns / 2 + 1));
+            SeatLocation seatingLocation = locations[random.nextInt(locations.length)];
+            int[] expected = firstFit(rows, columns, numOfPassengers, seatingLocation);
+            int[] found = section.availableSeatsOfLocationType(numOfPassengers, seatingLocation);
+
+            if (!Arrays.equals(expected, found)) {
+                throw new IllegalStateException(columns + " columns, " + numOfPassengers + " " + seatingLocation
+                                                + ": expected " + Arrays.toString(expected) + " but found "
+                                                + Arrays.toString(found));
+            }
+            if (expected.length == 0) {
+                ++misses;
+                continue;
+            }
+
+            long reservation = section.tryReserve(numOfPassengers, seatingLocation);
+
+            if (SeatingSection.reservedRow(reservation) != expected[0]
+                    || SeatingSection.reservedFirstColumn(reservation) != expected[1]
+                    || SeatingSection.reservedLastColumn(reservation) != expected[2]) {
+                throw new IllegalStateException(columns + " columns, " + numOfPassengers + " " + seatingLocation
+                                                + ": booked other seats than it found");
+            }
+            rows[expected[0]] |= seatRun(expected[1], expected[2] - expected[1] + 1);
+        }
+        section.checkConsistency();
+    }
+
+    /**
+     * Checks the seat types of a "3-4-3" cabin, and that a party of four takes the middle group of its row.
+     *
+     * @throws IllegalStateException if a seat type or a booking is not the one the layout gives
+     */
+    private static void testTwinAisle() {
+        SeatLayout layout = SeatLayout.parse("3-4-3");
+        SeatingSection section = new SeatingSection(2, layout);
+
+        check(layout.getNumOfColumns() == 10 && layout.getNumOfColumnGroups() == 3, "3-4-3 has 10 seats in 3 groups");
+        check(layout.getSeatsOfLocation(SeatLocation.WINDOW) == 0b1000000001L, "3-4-3 window seats");
+        check(layout.getSeatsOfLocation(SeatLocation.AISLE) == 0b0011001100L, "3-4-3 aisle seats");
+        check(layout.getSeatsOfLocation(SeatLocation.CENTER) == 0b0100110010L, "3-4-3 center seats");
+        check(Arrays.equals(section.availableSeatsOfLocationType(4, SeatLocation.ROW), new int[]{0, 3, 6}),
+              "3-4-3 seats a party of four in the middle group");
+        check(section.canFillRow(3) && section.canFillRow(4) && !section.canFillRow(2),
+              "3-4-3 fills a group of three or four");
+    }
+
+    /**
+     * Checks that layouts are shared by descriptor and that invalid descriptors are rejected.
+     *
+     * @throws IllegalStateException if a layout is not shared or an invalid descriptor is accepted
+     */
+    private static void testDescriptors() {
+        check(SeatLayout.parse("3-4-3") == SeatLayout.of(3, 4, 3), "layouts are shared by descriptor");
+        check(SeatLayout.singleAisle(6) == SeatLayout.parse("3-3"), "a single aisle splits the row in the middle");
+        for (String descriptor : new String[]{"", "3-x", "3--3", "-1-2", "40-40"}) {
+            try {
+                SeatLayout.parse(descriptor);
+                throw new IllegalStateException("Seat layout \"" + descriptor + "\" was accepted");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Returns the first empty seat group of a row with one aisle in the middle, searching the rows from the
+     * front and the groups of each row in the order they have always been tried.
+     *
+     * @param rows the occupied seats of each row
+     * @param columns the number of columns
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seats relative to the row
+     * @return the row, first column and last column of the seats; empty if there are none
+     */
+    private static int[] firstFit(long[] rows, int columns, int numOfPassengers, SeatLocation seatingLocation) {
+        long[] groups = singleAisleGroups(columns, numOfPassengers, seatingLocation);
+
+        for (int row = 0; row < rows.length; ++row) {
+            for (long group : groups) {
+                if ((rows[row] & group) == 0) {
+                    int first = Long.numberOfTrailingZeros(group);
+
+                    return new int[]{row, first, first + Long.bitCount(group) - 1};
+                }
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Returns the seat groups that match a seating location in a row of one aisle, in the order they are tried.
+     *
+     *      - window: the seats beginning at the window, without reaching the aisle seat
+     *      - aisle: the seats beginning at the aisle, without reaching the window seat
+     *      - center: the seats ending or beginning at the seat next to the aisle seat
+     *      - row: an entire half of the row, if its size matches the number of passengers
+     *
+     * @param columns the number of columns
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seats relative to the row
+     * @return the bitmasks of the matching seat groups
+     */
+    private static long[] singleAisleGroups(int columns, int numOfPassengers, SeatLocation seatingLocation) {
+        int half = columns / 2;
+        int leftCenter = half - 2;
+        int rightCenter = half + 1;
+        long[] groups = new long[4];
+        int numOfGroups = 0;
+
+        switch (seatingLocation) {
+            case WINDOW:
+                if (numOfPassengers < half) {
+                    groups[numOfGroups++] = seatRun(0, numOfPassengers);
+                }
+                if (numOfPassengers < columns - half) {
+                    groups[numOfGroups++] = seatRun(columns - numOfPassengers, numOfPassengers);
+                }
+                break;
+
+            case AISLE:
+                if (numOfPassengers < half) {
+                    groups[numOfGroups++] = seatRun(half - numOfPassengers, numOfPassengers);
+                }
+                if (numOfPassengers < columns - half) {
+                    groups[numOfGroups++] = seatRun(half, numOfPassengers);
+                }
+                break;
+
+            case CENTER:
+                if (leftCenter >= 0 && leftCenter - numOfPassengers + 1 >= 0) {
+                    groups[numOfGroups++] = seatRun(leftCenter - numOfPassengers + 1, numOfPassengers);
+                }
+                if (leftCenter >= 0 && leftCenter + numOfPassengers <= half && numOfPassengers > 1) {
+                    groups[numOfGroups++] = seatRun(leftCenter, numOfPassengers);
+                }
+                if (rightCenter < columns && rightCenter - numOfPassengers + 1 >= half) {
+                    groups[numOfGroups++] = seatRun(rightCenter - numOfPassengers + 1, numOfPassengers);
+                }
+                if (rightCenter < columns && rightCenter + numOfPassengers <= columns && numOfPassengers > 1) {
+                    groups[numOfGroups++] = seatRun(rightCenter, numOfPassengers);
+                }
+                break;
+
+            case ROW:
+                if (numOfPassengers == half) {
+                    groups[numOfGroups++] = seatRun(0, half);
+                }
+                if (numOfPassengers == columns - half) {
+                    groups[numOfGroups++] = seatRun(half, columns - half);
+                }
+                break;
+
+            default:
+                break;
+        }
+        return Arrays.copyOf(groups, numOfGroups);
+    }
+
+    /**
+     * Returns the bitmask of `length` consecutive seats beginning at column `first`.
+     *
+     * @param first the first column
+     * @param length the number of seats
+     * @return the bitmask of the run of seats
+     */
+    private static long seatRun(int first, int length) {
+        return length == Long.SIZE ? -1L : ((1L << length) - 1) << first;
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+
+/**
+ * The locations of a group of seats relative to a row.
+ */
+public enum SeatLocation {
+
+    WINDOW("window"),
+    AISLE("aisle"),
+    CENTER("center"),
+    // an entire side of the row
+    ROW("row");
+
+    private final String name;
+
+    /**
+     * Constructs a seat location with the name used by the text commands.
+     *
+     * @param name the name of the seat location
+     */
+    SeatLocation(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the seat location (ex: "window").
+     *
+     * @return the name of the seat location
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the seat location with the given name.
+     *
+     * @param name the name of the seat location (ex: "aisle")
+     * @return the seat location with the given name; null if there is none
+     */
+    public static SeatLocation fromName(String name) {
+        for (SeatLocation seatLocation : values()) {
+            if (seatLocation.name.equals(name)) {
+                return seatLocation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,264 @@
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constructs a SeatMapDelta object holding the rows of a SeatingSection that changed between two versions.
+ *
+ * For our purposes:
+ *      - Each changed row is sent whole, as its occupancy bitmask, so applying a delta twice or applying a delta
+ *          that overlaps an earlier one does no harm.
+ *      - A display client keeps one bitmask per row, starting out empty at version 0, and applies each delta it
+ *          receives; the delta's toVersion is the version to ask for changes since next time.
+ *      - The binary encoding sends the row numbers as gaps from the previous changed row and only as many seat
+ *          bytes as the columns need, so a delta of a few seats takes a few dozen bytes.
+ */
+public final class SeatMapDelta {
+
+    private final long fromVersion;
+    private final long toVersion;
+    private final int columns;
+    // the indexes of the changed rows, in increasing order
+    private final int[] rows;
+    // the occupancy bitmask of each changed row, at the same index as the row
+    private final long[] seats;
+
+    /**
+     * Constructs a delta of a seating section.
+     *
+     * @param fromVersion the version that the changes were taken since
+     * @param toVersion the version of the seating section that the delta brings a client up to
+     * @param columns the number of columns of the seating section
+     * @param rows the indexes of the changed rows, in increasing order
+     * @param seats the occupancy bitmask of each changed row
+     */
+    public SeatMapDelta(long fromVersion, long toVersion, int columns, int[] rows, long[] seats) {
+        if (rows.length != seats.length) {
+            throw new IllegalArgumentException("Expected a bitmask for each of the " + rows.length + " rows");
+        }
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.columns = columns;
+        this.rows = rows;
+        this.seats = seats;
+    }
+
+    /**
+     * Returns the version that the changes were taken since.
+     *
+     * @return the version that the changes were taken since
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * Returns the version of the seating section that the delta brings a client up to.
+     *
+     * @return the version after applying the delta
+     */
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    /**
+     * Returns the number of columns of the seating section.
+     *
+     * @return the number of columns
+     */
+    public int getNumOfColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of rows that changed.
+     *
+     * @return the number of changed rows
+     */
+    public int getNumOfChangedRows() {
+        return rows.length;
+    }
+
+    /**
+     * Returns the index of a changed row.
+     *
+     * @param i the position of the changed row within the delta
+     * @return the index of the row within the seating section
+     */
+    public int getRow(int i) {
+        return rows[i];
+    }
+
+    /**
+     * Returns the occupancy bitmask of a changed row.
+     *
+     * @param i the position of the changed row within the delta
+     * @return the bitmask of the row, with bit j set if the seat in column j is occupied
+     */
+    public long getSeats(int i) {
+        return seats[i];
+    }
+
+    /**
+     * Returns whether or not nothing changed since the version the delta was taken from.
+     *
+     * @return true if no row changed; false otherwise.
+     */
+    public boolean isEmpty() {
+        return rows.length == 0;
+    }
+
+    /**
+     * Brings a client's copy of the seating section up to date.
+     *
+     * @param rowSeats the client's occupancy bitmask of each row
+     * @return the version of the seating section that the copy is now at
+     */
+    public long applyTo(long[] rowSeats) {
+        for (int i = 0; i < rows.length; ++i) {
+            rowSeats[rows[i]] = seats[i];
+        }
+        return toVersion;
+    }
+
+    /**
+     * Returns the number of bytes that writeTo() writes.
+     *
+     * @return the length of the binary encoding
+     */
+    public int getEncodedLength() {
+        // versions, columns, number of rows
+        int length = 2 * Long.BYTES + 1 + Integer.BYTES;
+        int previousRow = -1;
+
+        for (int row : rows) {
+            length += varIntLength(row - previousRow - 1) + seatBytes(columns);
+            previousRow = row;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the binary encoding of the delta.
+     *
+     * @param out the ByteBuffer to write to; it needs getEncodedLength() bytes remaining
+     */
+    public void writeTo(ByteBuffer out) {
+        out.putLong(fromVersion);
+        out.putLong(toVersion);
+        out.put((byte) columns);
+        out.putInt(rows.length);
+
+        int previousRow = -1;
+        for (int i = 0; i < rows.length; ++i) {
+            putVarInt(out, rows[i] - previousRow - 1);
+            // only the bytes that hold seats, lowest columns first
+            for (int b = 0; b < seatBytes(columns); ++b) {
+                out.put((byte) (seats[i] >>> (8 * b)));
+            }
+            previousRow = rows[i];
+        }
+    }
+
+    /**
+     * Reads a delta written by writeTo().
+     *
+     * @param in the ByteBuffer to read from
+     * @return the delta
+     * @throws IllegalArgumentException if the encoding is not a valid delta
+     */
+    public static SeatMapDelta readFrom(ByteBuffer in) {
+        long fromVersion = in.getLong();
+        long toVersion = in.getLong();
+        int columns = in.get() & 0xFF;
+        int numOfRows = in.getInt();
+
+        if (columns > SeatingSection.MAX_COLUMNS || numOfRows < 0
+                || numOfRows > in.remaining() / (1 + seatBytes(columns))) {
+            throw new IllegalArgumentException("Invalid seat map delta of " + numOfRows + " rows x "
+                                               + columns + " columns");
+        }
+
+        int[] rows = new int[numOfRows];
+        long[] seats = new long[numOfRows];
+        int previousRow = -1;
+
+        for (int i = 0; i < numOfRows; ++i) {
+            rows[i] = previousRow + 1 + getVarInt(in);
+            for (int b = 0; b < seatBytes(columns); ++b) {
+                seats[i] |= (in.get() & 0xFFL) << (8 * b);
+            }
+            previousRow = rows[i];
+        }
+        return new SeatMapDelta(fromVersion, toVersion, columns, rows, seats);
+    }
+
+    /**
+     * Returns the number of bytes needed for one bit per column.
+     *
+     * @param columns the number of columns
+     * @return the number of bytes of a row's bitmask
+     */
+    private static int seatBytes(int columns) {
+        return (columns + 7) / 8;
+    }
+
+    /**
+     * Returns the number of bytes of a non-negative number written 7 bits at a time.
+     *
+     * @param value the number
+     * @return the number of bytes
+     */
+    private static int varIntLength(int value) {
+        int length = 1;
+
+        while ((value >>>= 7) != 0) {
+            ++length;
+        }
+        return length;
+    }
+
+    /**
+     * Writes a non-negative number 7 bits at a time, lowest bits first; the high bit of each byte is set if
+     * another byte follows.
+     *
+     * @param out the ByteBuffer to write to
+     * @param value the number
+     */
+    private static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a number written by putVarInt().
+     *
+     * @param in the ByteBuffer to read from
+     * @return the number
+     * @throws IllegalArgumentException if the number does not fit into an int
+     */
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = in.get();
+
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Row number of a seat map delta is too long");
+    }
+
+    /**
+     * Returns a description of the SeatMapDelta as a string.
+     *
+     * @return a description of the SeatMapDelta as a string
+     */
+    public String toString() {
+        return "versions " + fromVersion + " to " + toVersion + ", " + rows.length + " changed rows";
+    }
+}
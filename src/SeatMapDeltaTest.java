@@ -0,0 +1,162 @@
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that a display client that only ever receives the encoded changes of a plane since the
+ *          version it last saw keeps an exact copy of the seats, whether the plane is booked from one thread or
+ *          from many at once while the client polls.
+ *
+ * Target Output: A message that every copy stayed up to date; otherwise an IllegalStateException describing the
+ *                  first seat that differed.
+ */
+public class SeatMapDeltaTest {
+
+    private static final int NUM_OF_STEPS = 3000;
+    private static final int NUM_OF_THREADS = 8;
+
+    /**
+     * Tests SeatMapDelta and the changesSince() methods of Airplane and SeatingSection.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        testEncodedDeltas();
+        testPollingWhileBooking();
+        testInvalidDelta();
+        System.out.println("Every client copy stayed up to date with " + NUM_OF_STEPS + " steps of bookings.");
+    }
+
+    /**
+     * Books a plane a little at a time, sending the client each section's changes through their binary encoding.
+     *
+     * @throws IllegalStateException if an encoding or the client's copy differs
+     */
+    private static void testEncodedDeltas() {
+        Random random = new Random(5);
+        Airplane airplane = new Airplane(20, 4, 400, 10);
+        int numOfCabins = CabinClass.values().length;
+        long[] clientVersions = new long[numOfCabins];
+        long[][] clientSeats = new long[numOfCabins][];
+
+        for (CabinClass cabinClass : CabinClass.values()) {
+            clientSeats[cabinClass.ordinal()] = new long[airplane.getSection(cabinClass).getNumOfRows()];
+        }
+        for (int step = 0; step < NUM_OF_STEPS && !airplane.isFull(); ++step) {
+            for (int i = random.nextInt(3); i >= 0; --i) {
+                airplane.tryReserve(random.nextInt(4) == 0 ? CabinClass.FIRST : CabinClass.ECONOMY,
+                                    1 + random.nextInt(3), SeatLocation.values()[random.nextInt(4)]);
+            }
+
+            SeatMapDelta[] deltas = airplane.changesSince(clientVersions);
+
+            for (CabinClass cabinClass : CabinClass.values()) {
+                int i = cabinClass.ordinal();
+                ByteBuffer buffer = ByteBuffer.allocate(deltas[i].getEncodedLength());
+
+                deltas[i].writeTo(buffer);
+                check(!buffer.hasRemaining(), "the " + cabinClass + " delta is as long as its encoded length");
+                buffer.flip();
+
+                SeatMapDelta received = SeatMapDelta.readFrom(buffer);
+
+                check(received.getFromVersion() == clientVersions[i], "the " + cabinClass + " delta starts at the "
+                                                                      + "client's version");
+                clientVersions[i] = received.applyTo(clientSeats[i]);
+                check(clientVersions[i] == deltas[i].getToVersion(), "the " + cabinClass + " delta keeps its version");
+                checkCopy(airplane.getSection(cabinClass), clientSeats[i], "step " + step);
+            }
+
+            // a client that is up to date gets nothing
+            check(airplane.getEconomyClass().changesSince(clientVersions[CabinClass.ECONOMY.ordinal()]).isEmpty(),
+                  "no row changed since the client's version at step " + step);
+        }
+        airplane.getEconomyClass().checkConsistency();
+    }
+
+    /**
+     * Books a concurrent plane from many threads at once while a client polls for its changes.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the booking threads
+     * @throws IllegalStateException if the client's copy differs after the last poll
+     */
+    private static void testPollingWhileBooking() throws InterruptedException {
+        SeatingSection economy = new Airplane(20, 4, 400, 10, true).getEconomyClass();
+        Thread[] threads = new Thread[NUM_OF_THREADS];
+        long[] clientSeats = new long[economy.getNumOfRows()];
+        long clientVersion = 0;
+        boolean booking = true;
+
+        for (int t = 0; t < NUM_OF_THREADS; ++t) {
+            Random random = new Random(t);
+
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < NUM_OF_STEPS; ++i) {
+                    economy.tryReserve(1 + random.nextInt(3), SeatLocation.values()[random.nextInt(4)]);
+                }
+            });
+            threads[t].start();
+        }
+        while (booking) {
+            booking = false;
+            for (Thread thread : threads) {
+                booking |= thread.isAlive();
+            }
+            clientVersion = economy.changesSince(clientVersion).applyTo(clientSeats);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        clientVersion = economy.changesSince(clientVersion).applyTo(clientSeats);
+        checkCopy(economy, clientSeats, "version " + clientVersion);
+        economy.checkConsistency();
+    }
+
+    /**
+     * Reads an encoding that claims more rows than it holds.
+     *
+     * @throws IllegalStateException if the encoding is read anyway
+     */
+    private static void testInvalidDelta() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        buffer.putLong(0).putLong(1).put((byte) 10).putInt(1000).flip();
+        try {
+            SeatMapDelta.readFrom(buffer);
+            check(false, "a delta of more rows than it holds is rejected");
+        } catch (IllegalArgumentException expected) {
+            // the encoding was rejected
+        }
+    }
+
+    /**
+     * Checks a client's copy of a seating section seat by seat.
+     *
+     * @param section the seating section
+     * @param clientSeats the client's occupancy bitmask of each row
+     * @param when when the copy was taken, for the failure message
+     * @throws IllegalStateException if a seat differs
+     */
+    private static void checkCopy(SeatingSection section, long[] clientSeats, String when) {
+        for (int row = 0; row < section.getNumOfRows(); ++row) {
+            for (int column = 0; column < section.getNumOfColumns(); ++column) {
+                check(((clientSeats[row] >>> column & 1) != 0) == section.isOccupied(row, column),
+                      "the client's copy of seat " + row + ":" + column + " is up to date at " + when);
+            }
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that rendering a seat map into a reusable StringBuilder, Appendable or ByteBuffer gives
+ *          exactly what toString() gives, in exactly the length that getRenderedLength() promises.
+ *
+ * Target Output: A message that every rendering matched; otherwise an IllegalStateException describing the first
+ *                  plane that did not.
+ */
+public class SeatMapRenderTest {
+
+    private static final int[] NUM_OF_ROWS = {0, 1, 7, 120};
+
+    /**
+     * Tests the render methods of Airplane and SeatingSection.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if an Appendable throws, which a StringBuilder never does
+     */
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(3);
+        StringBuilder reused = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        for (int columns = 0; columns <= 12; ++columns) {
+            for (int rows : NUM_OF_ROWS) {
+                Airplane airplane = new Airplane(rows, columns, rows, columns);
+
+                for (int i = 0; i < rows * columns; ++i) {
+                    airplane.tryReserve(random.nextBoolean() ? CabinClass.FIRST : CabinClass.ECONOMY,
+                                        1 + random.nextInt(3), SeatLocation.values()[random.nextInt(4)]);
+                }
+
+                String seatMap = airplane.toString();
+                String plane = rows + " rows of " + columns + " columns";
+                Appendable appendable = new StringBuilder();
+
+                check(seatMap.length() == airplane.getRenderedLength(), plane + " has the promised length");
+
+                reused.setLength(0);
+                airplane.renderTo(reused);
+                check(reused.toString().equals(seatMap), plane + " renders into a StringBuilder");
+
+                airplane.renderTo(appendable);
+                check(appendable.toString().equals(seatMap), plane + " renders into an Appendable");
+
+                if (buffer.capacity() < airplane.getRenderedLength()) {
+                    buffer = ByteBuffer.allocate(airplane.getRenderedLength());
+                }
+                buffer.clear();
+                airplane.renderTo(buffer);
+                check(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).equals(seatMap),
+                      plane + " renders into a ByteBuffer");
+
+                // the rows of a section are numbered on from the rows of the sections before it
+                SeatingSection economy = airplane.getEconomyClass();
+
+                check(economy.toString(1000).length() == economy.getRenderedLength(1000),
+                      plane + " has the promised length from row 1000 on");
+            }
+        }
+        System.out.println("Every rendering matched toString() and its promised length.");
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
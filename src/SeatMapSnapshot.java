@@ -0,0 +1,324 @@
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves the seats of every flight of a FlightInventory to a binary snapshot file and loads them back.
+ *
+ * For our purposes:
+ *      - The file is written and read through a memory-mapped FileChannel, in little-endian byte order:
+ *          - a header: the magic number "SEAT", the format version, the number of cabin classes and the
+ *              number of flights,
+ *          - for each flight: its flight ID (length and UTF-8 bytes) and date (epoch day), then for each cabin
+ *              class its number of rows, number of columns, seat layout (the number of column groups and the
+ *              columns of each), version and assignment strategy (its ordinal), followed by its seats bit-packed
+ *              row after row, one bit per seat.
+ *      - Snapshots of format 1 have no seat layout; their seating sections are read with one aisle in the
+ *          middle, which is the only layout that format 1 knew. Snapshots of formats 1 and 2 have no assignment
+ *          strategy; their seating sections are read with FIRST_FIT, the only strategy that they knew.
+ *      - A new snapshot is written next to the old one and then moved over it, so a crash while saving leaves
+ *          the previous snapshot intact. The directory is forced to the device after the move, so a crash right
+ *          after saving does not bring the previous snapshot back either.
+ *      - The flights should not be booked while they are saved; a booking that runs at the same time may or
+ *          may not make it into the snapshot.
+ */
+public final class SeatMapSnapshot {
+
+    // "SEAT" in ASCII
+    private static final int MAGIC = 0x53454154;
+    private static final short FORMAT_VERSION = 3;
+    // the format before the assignment strategies, which can still be read
+    private static final short FIRST_FIT_FORMAT_VERSION = 2;
+    // the format before the seat layouts, which can still be read
+    private static final short SINGLE_AISLE_FORMAT_VERSION = 1;
+    // flight ID length, epoch day
+    private static final int FLIGHT_HEADER_LENGTH = Short.BYTES + Long.BYTES;
+    // rows, columns, number of column groups, version, assignment strategy; the size of each column group follows
+    // the number of groups
+    private static final int CABIN_HEADER_LENGTH = Integer.BYTES + 1 + 1 + Long.BYTES + 1;
+
+    private static final AssignmentStrategy[] STRATEGIES = AssignmentStrategy.values();
+
+    private static final CabinClass[] CABIN_CLASSES = CabinClass.values();
+
+    // Windows cannot open a directory as a channel, so the directory of a moved snapshot is not forced there
+    private static final boolean IS_WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private SeatMapSnapshot() {
+    }
+
+    /**
+     * Writes the seats of every flight of the inventory to a snapshot file, replacing the file if it exists.
+     *
+     * @param inventory the flights to save
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(FlightInventory inventory, Path file) throws IOException {
+        List<FlightKey> keys = inventory.getFlightKeys();
+        // the seats are taken once, so the length and the contents of the file agree
+        SeatMapDelta[][] cabins = new SeatMapDelta[keys.size()][];
+        byte[][] flightIds = new byte[keys.size()][];
+        long length = Integer.BYTES + 2 * Short.BYTES + Integer.BYTES;
+
+        for (int i = 0; i < keys.size(); ++i) {
+            Airplane airplane = inventory.getFlight(keys.get(i));
+
+            flightIds[i] = keys.get(i).getFlightId().getBytes(StandardCharsets.UTF_8);
+            if (flightIds[i].length > 0xFFFF) {
+                throw new IllegalArgumentException("Flight ID of " + keys.get(i) + " is too long to save");
+            }
+            cabins[i] = airplane.bookedSeats();
+            length += FLIGHT_HEADER_LENGTH + flightIds[i].length;
+            for (CabinClass cabinClass : CABIN_CLASSES) {
+                SeatingSection section = airplane.getSection(cabinClass);
+
+                length += CABIN_HEADER_LENGTH + section.getLayout().getNumOfColumnGroups()
+                        + seatBytes(section.getNumOfRows(), section.getNumOfColumns());
+            }
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC);
+            out.putShort(FORMAT_VERSION);
+            out.putShort((short) CABIN_CLASSES.length);
+            out.putInt(keys.size());
+
+            for (int i = 0; i < keys.size(); ++i) {
+                Airplane airplane = inventory.getFlight(keys.get(i));
+
+                out.putShort((short) flightIds[i].length);
+                out.put(flightIds[i]);
+                out.putLong(keys.get(i).getDate().toEpochDay());
+                for (CabinClass cabinClass : CABIN_CLASSES) {
+                    SeatingSection section = airplane.getSection(cabinClass);
+
+                    writeSection(out, section.getNumOfRows(), section.getLayout(),
+                                 section.getAssignmentStrategy(), cabins[i][cabinClass.ordinal()]);
+                }
+            }
+            out.force();
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Writes the entries of a directory to the storage device, so that a file moved into it is still there after
+     * a crash. Windows cannot open a directory as a channel, and its file systems keep a finished move anyway.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be written
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        if (directory == null || IS_WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the flights of a snapshot file into a new inventory. Booking the loaded flights gives the same seats
+     * as booking the flights that were saved.
+     *
+     * @param file the snapshot file
+     * @param concurrent true if the loaded planes will be booked from many threads at once; false otherwise.
+     * @return the inventory holding the loaded flights
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static FlightInventory load(Path file, boolean concurrent) throws IOException {
+        FlightInventory inventory = new FlightInventory();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < Integer.BYTES + 2 * Short.BYTES + Integer.BYTES || in.getInt() != MAGIC) {
+                throw new IOException(file + " is not a seat map snapshot");
+            }
+
+            short formatVersion = in.getShort();
+            int numOfCabinClasses = in.getShort();
+            int numOfFlights = in.getInt();
+
+            if (formatVersion < SINGLE_AISLE_FORMAT_VERSION || formatVersion > FORMAT_VERSION
+                    || numOfCabinClasses != CABIN_CLASSES.length) {
+                throw new IOException(file + " has snapshot format " + formatVersion + " with "
+                                      + numOfCabinClasses + " cabin classes, which this version cannot read");
+            }
+
+            try {
+                for (int i = 0; i < numOfFlights; ++i) {
+                    byte[] flightId = new byte[in.getShort() & 0xFFFF];
+
+                    in.get(flightId);
+
+                    LocalDate date = LocalDate.ofEpochDay(in.getLong());
+                    Map<CabinClass, SeatingSection> cabins = new EnumMap<CabinClass, SeatingSection>(CabinClass.class);
+
+                    for (CabinClass cabinClass : CABIN_CLASSES) {
+                        SeatingSection section = readSection(in, formatVersion, concurrent);
+
+                        // cabin classes without seats stay on the shared empty section
+                        if (section != null) {
+                            cabins.put(cabinClass, section);
+                        }
+                    }
+                    inventory.addFlight(new FlightKey(new String(flightId, StandardCharsets.UTF_8), date),
+                                        new Airplane(cabins));
+                }
+            } catch (RuntimeException e) {
+                // a truncated file runs out of bytes, a damaged one has sizes or seats that do not fit
+                throw new IOException(file + " is damaged", e);
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * Writes one seating section: its dimensions, seat layout, version and assignment strategy, then its seats
+     * bit-packed row after row.
+     *
+     * @param out the buffer to write to
+     * @param rows the number of rows of the seating section
+     * @param layout the seat layout of the seating section
+     * @param strategy the assignment strategy of the seating section
+     * @param seats the changes of the seating section since version 0 without its held seats, which hold all of
+     *              its booked rows
+     */
+    private static void writeSection(MappedByteBuffer out, int rows, SeatLayout layout, AssignmentStrategy strategy,
+                                     SeatMapDelta seats) {
+        int columns = seats.getNumOfColumns();
+        long[] words = new long[(int) ((rows * (long) columns + Long.SIZE - 1) / Long.SIZE)];
+
+        out.putInt(rows);
+        out.put((byte) columns);
+        out.put((byte) layout.getNumOfColumnGroups());
+        for (int g = 0; g < layout.getNumOfColumnGroups(); ++g) {
+            out.put((byte) Long.bitCount(layout.getColumnGroupSeats(g)));
+        }
+        out.putLong(seats.getToVersion());
+        out.put((byte) strategy.ordinal());
+
+        // seat j of row i is bit i * columns + j
+        for (int k = 0; k < seats.getNumOfChangedRows(); ++k) {
+            long bit = seats.getRow(k) * (long) columns;
+            int word = (int) (bit / Long.SIZE);
+            int offset = (int) (bit % Long.SIZE);
+
+            words[word] |= seats.getSeats(k) << offset;
+            if (offset + columns > Long.SIZE) {
+                words[word + 1] |= seats.getSeats(k) >>> (Long.SIZE - offset);
+            }
+        }
+
+        int length = seatBytes(rows, columns);
+
+        for (int b = 0; b < length; ++b) {
+            out.put((byte) (words[b / Long.BYTES] >>> (8 * (b % Long.BYTES))));
+        }
+    }
+
+    /**
+     * Reads one seating section written by writeSection().
+     *
+     * @param in the buffer to read from
+     * @param formatVersion the format version of the snapshot
+     * @param concurrent true if the seating section will be booked from many threads at once; false otherwise.
+     * @return the seating section; null if it has no rows and no columns
+     */
+    private static SeatingSection readSection(MappedByteBuffer in, short formatVersion, boolean concurrent) {
+        int rows = in.getInt();
+        int columns = in.get() & 0xFF;
+        int[] groupSizes = null;
+
+        if (formatVersion != SINGLE_AISLE_FORMAT_VERSION) {
+            groupSizes = new int[in.get() & 0xFF];
+            for (int g = 0; g < groupSizes.length; ++g) {
+                groupSizes[g] = in.get() & 0xFF;
+            }
+        }
+
+        long version = in.getLong();
+        int strategy = formatVersion > FIRST_FIT_FORMAT_VERSION ? in.get() & 0xFF
+                : AssignmentStrategy.FIRST_FIT.ordinal();
+
+        if (strategy >= STRATEGIES.length) {
+            throw new IllegalArgumentException("Unknown assignment strategy: " + strategy);
+        }
+
+        // reject sizes that the rest of the file cannot hold before allocating anything for them
+        if (rows < 0 || rows * (long) Math.max(columns, 1) > 8L * in.remaining()) {
+            throw new IllegalArgumentException("Invalid seating section size: " + rows + " x " + columns);
+        }
+        if (rows == 0 && columns == 0) {
+            return null;
+        }
+
+        SeatingSection section = groupSizes == null ? new SeatingSection(rows, columns, concurrent)
+                : new SeatingSection(rows, SeatLayout.of(groupSizes), concurrent);
+
+        if (section.getNumOfColumns() != columns) {
+            throw new IllegalArgumentException("Seat layout " + section.getLayout() + " does not have " + columns
+                                               + " columns");
+        }
+
+        int length = seatBytes(rows, columns);
+        long[] words = new long[(length + Long.BYTES - 1) / Long.BYTES];
+
+        for (int b = 0; b < length; ++b) {
+            words[b / Long.BYTES] |= (in.get() & 0xFFL) << (8 * (b % Long.BYTES));
+        }
+
+        long fullRow = columns == Long.SIZE ? -1L : (1L << columns) - 1;
+        long[] rowSeats = new long[rows];
+
+        for (int i = 0; i < rows; ++i) {
+            long bit = i * (long) columns;
+            int word = (int) (bit / Long.SIZE);
+            int offset = (int) (bit % Long.SIZE);
+
+            if (columns > 0) {
+                rowSeats[i] = words[word] >>> offset;
+                if (offset + columns > Long.SIZE) {
+                    rowSeats[i] |= words[word + 1] << (Long.SIZE - offset);
+                }
+                rowSeats[i] &= fullRow;
+            }
+        }
+
+        section.restoreSeats(rowSeats, version);
+        section.setAssignmentStrategy(STRATEGIES[strategy]);
+        return section;
+    }
+
+    /**
+     * Returns the number of bytes of the bit-packed seats of a seating section.
+     *
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @return the number of bytes for one bit per seat
+     */
+    private static int seatBytes(int rows, int columns) {
+        return (int) ((rows * (long) columns + 7) / 8);
+    }
+}
@@ -0,0 +1,146 @@
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that a flight inventory loaded from a SeatMapSnapshot file has the seats, versions and
+ *          future bookings of the inventory that was saved, without the seats that were only held, and that a
+ *          truncated file is refused.
+ *
+ * Target Output: A message that every flight came back unchanged; otherwise an IllegalStateException describing
+ *                  the first flight that did not.
+ */
+public class SeatMapSnapshotTest {
+
+    private static final int NUM_OF_FLIGHTS = 2000;
+
+    /**
+     * Tests saving and loading a SeatMapSnapshot.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the snapshot file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("inventory", ".snapshot");
+
+        try {
+            FlightInventory inventory = randomInventory(new Random(9));
+            FlightKey heldFlight = null;
+            SeatingSection held = null;
+            long holdReservation = SeatingSection.NO_SEATS;
+
+            // hold a seat of the first flight with an empty economy seat
+            for (FlightKey key : inventory.getFlightKeys()) {
+                held = inventory.getFlight(key).getEconomyClass();
+                holdReservation = held.tryHold(1, SeatLocation.ROW);
+                if (holdReservation != SeatingSection.NO_SEATS) {
+                    heldFlight = key;
+                    break;
+                }
+            }
+            check(heldFlight != null, "a flight holds a seat");
+            SeatMapSnapshot.save(inventory, file);
+            check(!Files.exists(file.resolveSibling(file.getFileName() + ".tmp")),
+                  "the new snapshot was moved over the old one");
+            // a hold that is not confirmed by the time of the snapshot is not a booking
+            held.releaseHold(holdReservation);
+            testLoadedInventory(inventory, SeatMapSnapshot.load(file, false), heldFlight);
+            check(SeatMapSnapshot.load(file, true).size() == NUM_OF_FLIGHTS, "a concurrent load has every flight");
+
+            Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 1000));
+            try {
+                SeatMapSnapshot.load(file, false);
+                check(false, "a truncated snapshot is refused");
+            } catch (IOException expected) {
+                // the truncated snapshot was refused
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("Every one of " + NUM_OF_FLIGHTS + " flights came back unchanged from its snapshot.");
+    }
+
+    /**
+     * Returns an inventory of partly booked flights of many shapes, some of them with only a business class.
+     *
+     * @param random the random numbers
+     * @return the inventory
+     */
+    private static FlightInventory randomInventory(Random random) {
+        FlightInventory inventory = new FlightInventory();
+
+        for (int i = 0; i < NUM_OF_FLIGHTS; ++i) {
+            // a few wide rows that take more than one byte of seats
+            int columns = random.nextInt(12) + (i % 50 == 0 ? 53 : 0);
+            Airplane airplane;
+
+            if (i % 7 == 0) {
+                EnumMap<CabinClass, SeatingSection> cabins = new EnumMap<>(CabinClass.class);
+
+                cabins.put(CabinClass.BUSINESS, new SeatingSection(3 + random.nextInt(5), columns));
+                airplane = new Airplane(cabins);
+            } else {
+                airplane = new Airplane(random.nextInt(6), random.nextInt(6), random.nextInt(60), columns);
+            }
+            for (int k = random.nextInt(300); k > 0; --k) {
+                airplane.tryReserve(CabinClass.values()[random.nextInt(4)], 1 + random.nextInt(4),
+                                    SeatLocation.values()[random.nextInt(4)]);
+            }
+            inventory.addFlight(new FlightKey("CL" + i, LocalDate.of(2026, 1, 1).plusDays(i % 300)), airplane);
+        }
+        return inventory;
+    }
+
+    /**
+     * Compares a loaded inventory with the saved one, then books both the same way.
+     *
+     * @param saved the inventory that was saved
+     * @param loaded the inventory that was loaded
+     * @param heldFlight the flight whose seats were held and released since the snapshot, changing its version
+     * @throws IllegalStateException if a flight differs
+     */
+    private static void testLoadedInventory(FlightInventory saved, FlightInventory loaded,
+                                            FlightKey heldFlight) {
+        check(loaded.size() == saved.size(), "the snapshot has every flight");
+        for (FlightKey key : saved.getFlightKeys()) {
+            Airplane original = saved.getFlight(key);
+            Airplane restored = loaded.getFlight(key);
+            Random random = new Random(key.hashCode());
+
+            check(restored != null, key + " is in the snapshot");
+            check(restored.toString().equals(original.toString()), key + " has the same seats");
+            check(key.equals(heldFlight) || Arrays.equals(restored.getVersions(), original.getVersions()),
+                  key + " has the same versions");
+            for (CabinClass cabinClass : CabinClass.values()) {
+                restored.getSection(cabinClass).checkConsistency();
+            }
+            for (int i = 0; i < 200; ++i) {
+                CabinClass cabinClass = CabinClass.values()[random.nextInt(4)];
+                int numOfPassengers = 1 + random.nextInt(4);
+                SeatLocation seatingLocation = SeatLocation.values()[random.nextInt(4)];
+
+                check(original.tryReserve(cabinClass, numOfPassengers, seatingLocation)
+                      == restored.tryReserve(cabinClass, numOfPassengers, seatingLocation),
+                      key + " books the same seats after the snapshot");
+            }
+        }
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
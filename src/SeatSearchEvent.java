@@ -0,0 +1,45 @@
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for a seat search of a SeatingSection that took longer than its threshold.
+ *
+ * For our purposes:
+ *      - Searches faster than the threshold (10 us unless a recording's settings say otherwise) are dropped, so a
+ *          recording holds only the slow ones; while the event is disabled, emitting it costs next to nothing.
+ *      - A seating section does not know its cabin class, so the section is described by its size; the stack
+ *          trace of the event shows which Airplane method searched it.
+ */
+@Name("seating.SeatSearch")
+@Label("Seat Search")
+@Category("Seating")
+@Description("A search for the available group of seats of a seating location that the assignment strategy picks")
+@Threshold("10 us")
+final class SeatSearchEvent extends jdk.jfr.Event {
+
+    @Label("Section Size")
+    @Description("The rows and columns of the seating section (ex: 15x6)")
+    String sectionSize;
+
+    @Label("Seating Location")
+    String seatingLocation;
+
+    @Label("Party Size")
+    int partySize;
+
+    @Label("Assignment Strategy")
+    String assignmentStrategy;
+
+    @Label("Rows Scanned")
+    @Description("The rows whose seats were read, including the tries repeated because of a concurrent booking; "
+                 + "1 for a hit under FIRST_FIT, and every candidate row of the runs tried under the best fits")
+    int rowsScanned;
+
+    @Label("Found")
+    @Description("Whether matching seats were found")
+    boolean found;
+}
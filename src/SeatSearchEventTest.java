@@ -0,0 +1,98 @@
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Purpose: To demonstrate that a flight recording of seat searches holds one SeatSearchEvent per search, with the
+ *          assignment strategy that picked the seats and the rows that the search really read.
+ *
+ * Target Output: A message that every event matched its search; otherwise an IllegalStateException describing
+ *                  the first event that did not.
+ */
+public class SeatSearchEventTest {
+
+    /**
+     * Tests the SeatSearchEvent of SeatingSection.availableSeatsOfLocationType().
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the recording cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        SeatingSection section = new SeatingSection(20, 6);
+        long[] rows = new long[20];
+        Path file = Files.createTempFile("searches", ".jfr");
+
+        // only the left window pair of row 3 and the right window pair of row 7 are empty
+        Arrays.fill(rows, 0b111111L);
+        rows[3] = 0b111100L;
+        rows[7] = 0b001111L;
+        section.restoreSeats(rows, 1);
+
+        try (Recording recording = new Recording()) {
+            recording.enable("seating.SeatSearch").withThreshold(Duration.ZERO);
+            recording.start();
+            section.availableSeatsOfLocationType(2, SeatLocation.WINDOW);
+            section.availableSeatsOfLocationType(3, SeatLocation.ROW);
+            section.setAssignmentStrategy(AssignmentStrategy.BEST_FIT);
+            section.availableSeatsOfLocationType(2, SeatLocation.WINDOW);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            check(events.size() == 3, "there is an event for each search");
+            checkEvent(events.get(0), "FIRST_FIT", SeatLocation.WINDOW, 2, true, 1);
+            checkEvent(events.get(1), "FIRST_FIT", SeatLocation.ROW, 3, false, 0);
+            checkEvent(events.get(2), "BEST_FIT", SeatLocation.WINDOW, 2, true, -1);
+            check(events.get(2).getInt("rowsScanned") >= 1 && events.get(2).getInt("rowsScanned") <= 2,
+                  "a best-fit search reads at most the two rows with a window pair");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("Every seat search event matched its search.");
+    }
+
+    /**
+     * Checks the fields of a recorded seat search.
+     *
+     * @param event the recorded event
+     * @param assignmentStrategy the name of the strategy of the search
+     * @param seatingLocation the location of the search
+     * @param partySize the number of passengers of the search
+     * @param found whether the search found seats
+     * @param rowsScanned the rows that the search read; -1 to leave them to the caller
+     * @throws IllegalStateException if a field does not match
+     */
+    private static void checkEvent(RecordedEvent event, String assignmentStrategy, SeatLocation seatingLocation,
+                                   int partySize, boolean found, int rowsScanned) {
+        String search = assignmentStrategy + " " + partySize + " " + seatingLocation;
+
+        check(event.getString("sectionSize").equals("20x6"), search + " records the size of the section");
+        check(event.getString("assignmentStrategy").equals(assignmentStrategy), search + " records its strategy");
+        check(event.getString("seatingLocation").equals(seatingLocation.getName()),
+              search + " records its seating location");
+        check(event.getInt("partySize") == partySize, search + " records its party size");
+        check(event.getBoolean("found") == found, search + " records whether it found seats");
+        check(rowsScanned < 0 || event.getInt("rowsScanned") == rowsScanned, search + " records the rows it read");
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bookings, seat holds, seat searches and renders of every SeatingSection and Airplane in the process,
+ * for a text snapshot that monitoring can scrape.
+ *
+ * For our purposes:
+ *      - The metrics are off unless the JVM is started with -Dseating.metrics=true. The flag is a constant, so
+ *          while it is off the JIT compiler removes the hooks along with their clock reads.
+ *      - Counters are LongAdders and latencies go into LatencyHistograms, so recording allocates nothing and
+ *          threads booking at the same time do not contend on one counter.
+ *      - A search is counted by the seating location it asked for; rows examined are the rows whose seats the
+ *          search read, including each try repeated because of a concurrent booking. Under FIRST_FIT the row
+ *          index keeps that at 1 for a hit and 0 for a miss however full the section is; the best-fit strategies
+ *          read every row with a matching group in a run that they try.
+ *      - A hold counts as a search but not as a booking. Its seats are booked when the hold is confirmed, which
+ *          counts the booking, so holds that are released or expire leave the booking counts alone.
+ */
+public final class SeatingMetrics {
+
+    /**
+     * Whether the metrics are recorded; set with -Dseating.metrics=true.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("seating.metrics");
+
+    private static final SeatLocation[] LOCATIONS = SeatLocation.values();
+
+    private static final LongAdder BOOKINGS = new LongAdder();
+    private static final LongAdder FAILED_BOOKINGS = new LongAdder();
+    private static final LongAdder SEATS_BOOKED = new LongAdder();
+    // the searches and the searches without matching seats of each seating location, by ordinal
+    private static final LongAdder[] SEARCHES = newAdders(LOCATIONS.length);
+    private static final LongAdder[] SEARCH_MISSES = newAdders(LOCATIONS.length);
+    private static final LongAdder ROWS_EXAMINED = new LongAdder();
+    // the rows that a concurrent booking picked but found taken by another booking once it held the row's lock
+    private static final LongAdder LOST_ROWS = new LongAdder();
+    // the holds taken, and how many of them were confirmed, released and expired
+    private static final LongAdder HOLDS = new LongAdder();
+    private static final LongAdder CONFIRMED_HOLDS = new LongAdder();
+    private static final LongAdder RELEASED_HOLDS = new LongAdder();
+    private static final LongAdder EXPIRED_HOLDS = new LongAdder();
+    private static final LatencyHistogram BOOKING_LATENCY = new LatencyHistogram();
+    private static final LatencyHistogram SEARCH_LATENCY = new LatencyHistogram();
+    private static final LatencyHistogram RENDER_LATENCY = new LatencyHistogram();
+
+    private SeatingMetrics() {
+    }
+
+    /**
+     * Returns an array of new counters.
+     *
+     * @param length the number of counters
+     * @return the counters
+     */
+    private static LongAdder[] newAdders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+
+        for (int i = 0; i < length; ++i) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Records a seat search that did not book the seats.
+     *
+     * @param seatingLocation the location that was searched; null if it was invalid
+     * @param found true if matching seats were found; false otherwise.
+     * @param rowsExamined the number of rows whose seats were read
+     * @param startNanos the System.nanoTime() when the search began
+     */
+    static void recordSearch(SeatLocation seatingLocation, boolean found, int rowsExamined, long startNanos) {
+        SEARCH_LATENCY.record(System.nanoTime() - startNanos);
+        countSearch(seatingLocation, found, rowsExamined);
+    }
+
+    /**
+     * Records a booking, which counts as a search as well.
+     *
+     * @param seatingLocation the location that was searched; null if it was invalid
+     * @param numOfSeats the number of seats booked; 0 if there were no matching seats
+     * @param rowsExamined the number of rows whose seats were read
+     * @param startNanos the System.nanoTime() when the booking began
+     */
+    static void recordBooking(SeatLocation seatingLocation, int numOfSeats, int rowsExamined, long startNanos) {
+        BOOKING_LATENCY.record(System.nanoTime() - startNanos);
+        countSearch(seatingLocation, numOfSeats > 0, rowsExamined);
+        if (numOfSeats > 0) {
+            BOOKINGS.increment();
+            SEATS_BOOKED.add(numOfSeats);
+        } else {
+            FAILED_BOOKINGS.increment();
+        }
+    }
+
+    /**
+     * Records a hold, which counts as a search but not as a booking.
+     *
+     * @param seatingLocation the location that was searched; null if it was invalid
+     * @param held true if matching seats were found and held; false otherwise.
+     * @param rowsExamined the number of rows whose seats were read
+     * @param startNanos the System.nanoTime() when the hold began
+     */
+    static void recordHold(SeatLocation seatingLocation, boolean held, int rowsExamined, long startNanos) {
+        SEARCH_LATENCY.record(System.nanoTime() - startNanos);
+        countSearch(seatingLocation, held, rowsExamined);
+        if (held) {
+            HOLDS.increment();
+        }
+    }
+
+    /**
+     * Records the end of a hold. A confirmed hold counts as a booking of its seats.
+     *
+     * @param numOfSeats the number of seats of the hold
+     * @param confirmed true if the seats were booked; false if they were emptied
+     * @param expired true if they were emptied because the hold's time to live was up
+     */
+    static void recordHoldEnd(int numOfSeats, boolean confirmed, boolean expired) {
+        if (confirmed) {
+            CONFIRMED_HOLDS.increment();
+            BOOKINGS.increment();
+            SEATS_BOOKED.add(numOfSeats);
+        } else if (expired) {
+            EXPIRED_HOLDS.increment();
+        } else {
+            RELEASED_HOLDS.increment();
+        }
+    }
+
+    /**
+     * Records a row that a concurrent booking picked and then lost to another booking; the booking moves on to
+     * the next row.
+     */
+    static void recordLostRow() {
+        LOST_ROWS.increment();
+    }
+
+    /**
+     * Records the rendering of a seat map.
+     *
+     * @param startNanos the System.nanoTime() when the rendering began
+     */
+    static void recordRender(long startNanos) {
+        RENDER_LATENCY.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts a search by its seating location.
+     *
+     * @param seatingLocation the location that was searched; null if it was invalid
+     * @param found true if matching seats were found; false otherwise.
+     * @param rowsExamined the number of rows whose seats were read
+     */
+    private static void countSearch(SeatLocation seatingLocation, boolean found, int rowsExamined) {
+        if (seatingLocation != null) {
+            SEARCHES[seatingLocation.ordinal()].increment();
+            if (!found) {
+                SEARCH_MISSES[seatingLocation.ordinal()].increment();
+            }
+        }
+        ROWS_EXAMINED.add(rowsExamined);
+    }
+
+    /**
+     * Returns the metrics as text, one metric per line (ex: "bookings 1024").
+     *
+     * @return the text snapshot
+     */
+    public static String snapshot() {
+        StringBuilder out = new StringBuilder(1024);
+
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            // a StringBuilder never throws an IOException
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the metrics as text, one metric per line; see snapshot().
+     *
+     * @param out the Appendable to write to
+     * @throws IOException if the Appendable throws
+     */
+    public static void writeTo(Appendable out) throws IOException {
+        long numOfSearches = 0;
+
+        out.append("metrics.enabled ").append(String.valueOf(ENABLED)).append('\n');
+        out.append("bookings ").append(String.valueOf(BOOKINGS.sum())).append('\n');
+        out.append("bookings.failed ").append(String.valueOf(FAILED_BOOKINGS.sum())).append('\n');
+        out.append("seats.booked ").append(String.valueOf(SEATS_BOOKED.sum())).append('\n');
+        out.append("bookings.lost_rows ").append(String.valueOf(LOST_ROWS.sum())).append('\n');
+        out.append("holds ").append(String.valueOf(HOLDS.sum())).append('\n');
+        out.append("holds.confirmed ").append(String.valueOf(CONFIRMED_HOLDS.sum())).append('\n');
+        out.append("holds.released ").append(String.valueOf(RELEASED_HOLDS.sum())).append('\n');
+        out.append("holds.expired ").append(String.valueOf(EXPIRED_HOLDS.sum())).append('\n');
+        for (SeatLocation seatingLocation : LOCATIONS) {
+            long searches = SEARCHES[seatingLocation.ordinal()].sum();
+            long misses = SEARCH_MISSES[seatingLocation.ordinal()].sum();
+
+            numOfSearches += searches;
+            out.append("searches.").append(seatingLocation.getName()).append(' ')
+               .append(String.valueOf(searches)).append('\n');
+            out.append("searches.").append(seatingLocation.getName()).append(".misses ")
+               .append(String.valueOf(misses)).append('\n');
+        }
+        out.append("searches.rows_examined.mean ")
+           .append(String.format("%.2f", numOfSearches == 0 ? 0.0 : (double) ROWS_EXAMINED.sum() / numOfSearches))
+           .append('\n');
+        writeHistogram(out, "booking.latency", BOOKING_LATENCY);
+        writeHistogram(out, "search.latency", SEARCH_LATENCY);
+        writeHistogram(out, "render.latency", RENDER_LATENCY);
+    }
+
+    /**
+     * Clears every metric, as after a scrape that wants only the changes since the last one.
+     */
+    public static void reset() {
+        BOOKINGS.reset();
+        FAILED_BOOKINGS.reset();
+        SEATS_BOOKED.reset();
+        for (int i = 0; i < LOCATIONS.length; ++i) {
+            SEARCHES[i].reset();
+            SEARCH_MISSES[i].reset();
+        }
+        ROWS_EXAMINED.reset();
+        LOST_ROWS.reset();
+        HOLDS.reset();
+        CONFIRMED_HOLDS.reset();
+        RELEASED_HOLDS.reset();
+        EXPIRED_HOLDS.reset();
+        BOOKING_LATENCY.reset();
+        SEARCH_LATENCY.reset();
+        RENDER_LATENCY.reset();
+    }
+
+    /**
+     * Writes the count, mean, percentiles and maximum of a histogram, one per line.
+     *
+     * @param out the Appendable to write to
+     * @param name the name of the histogram
+     * @param histogram the histogram
+     * @throws IOException if the Appendable throws
+     */
+    private static void writeHistogram(Appendable out, String name, LatencyHistogram histogram) throws IOException {
+        out.append(name).append(".count ").append(String.valueOf(histogram.getCount())).append('\n');
+        out.append(name).append(".mean_ns ").append(String.format("%.1f", histogram.getMeanNanos())).append('\n');
+        out.append(name).append(".p50_ns ").append(String.valueOf(histogram.getPercentileNanos(0.50))).append('\n');
+        out.append(name).append(".p99_ns ").append(String.valueOf(histogram.getPercentileNanos(0.99))).append('\n');
+        out.append(name).append(".p999_ns ").append(String.valueOf(histogram.getPercentileNanos(0.999)))
+           .append('\n');
+        out.append(name).append(".max_ns ").append(String.valueOf(histogram.getMaxNanos())).append('\n');
+    }
+}
@@ -0,0 +1,174 @@
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Purpose: To demonstrate that SeatingMetrics counts the bookings and searches that were made, and the rows that
+ *          the searches really read: one row for a FIRST_FIT hit, none for a miss, and no more than the rows of
+ *          the section for the best-fit strategies; and that a hold is only counted as a booking once it is
+ *          confirmed.
+ *
+ * Target Output: A message that every metric matched; otherwise an IllegalStateException describing the first
+ *                  metric that did not.
+ *
+ * Usage: java -Dseating.metrics=true SeatingMetricsTest
+ */
+public class SeatingMetricsTest {
+
+    private static final int NUM_OF_ROWS = 20;
+
+    /**
+     * Tests the counters of SeatingMetrics.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws InterruptedException if the main thread is interrupted while waiting for a hold to expire
+     * @throws IllegalStateException if the metrics are off or a metric does not match
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (!SeatingMetrics.ENABLED) {
+            throw new IllegalStateException("The metrics are off; run with -Dseating.metrics=true");
+        }
+        testFirstFit(false);
+        testFirstFit(true);
+        testBestFit(AssignmentStrategy.BEST_FIT);
+        testBestFit(AssignmentStrategy.LEAST_FRAGMENTATION);
+        testHolds();
+        System.out.println("Every metric matched the bookings and searches that were made.");
+    }
+
+    /**
+     * Books window pairs until there are none left, then searches for more.
+     *
+     * @param concurrent true to book a concurrent seating section; false otherwise.
+     * @throws IllegalStateException if a metric does not match
+     */
+    private static void testFirstFit(boolean concurrent) {
+        SeatingSection section = new SeatingSection(NUM_OF_ROWS, 6, concurrent);
+        // a window pair at either window of each row
+        int numOfPairs = 2 * NUM_OF_ROWS;
+        String mode = concurrent ? "concurrent first-fit" : "first-fit";
+
+        SeatingMetrics.reset();
+        for (int i = 0; i < numOfPairs; ++i) {
+            check(section.tryReserve(2, SeatLocation.WINDOW) != SeatingSection.NO_SEATS, mode + " books a pair");
+        }
+
+        Map<String, String> metrics = metrics();
+
+        check(metrics.get("bookings").equals(String.valueOf(numOfPairs)), mode + " counts the bookings");
+        check(metrics.get("seats.booked").equals(String.valueOf(2 * numOfPairs)), mode + " counts the seats");
+        check(metrics.get("searches.window").equals(String.valueOf(numOfPairs)), mode + " counts the searches");
+        check(metrics.get("bookings.lost_rows").equals("0"), mode + " loses no row without other bookings");
+        check(metrics.get("searches.rows_examined.mean").equals("1.00"), mode + " reads one row for each hit");
+
+        SeatingMetrics.reset();
+        for (int i = 0; i < 10; ++i) {
+            check(section.availableSeatsOfLocationType(2, SeatLocation.WINDOW).length == 0, mode + " finds no pair");
+            check(section.tryReserve(2, SeatLocation.WINDOW) == SeatingSection.NO_SEATS, mode + " books no pair");
+        }
+        metrics = metrics();
+        check(metrics.get("searches.window").equals("20") && metrics.get("searches.window.misses").equals("20"),
+              mode + " counts the misses");
+        check(metrics.get("bookings.failed").equals("10"), mode + " counts the failed bookings");
+        check(metrics.get("searches.rows_examined.mean").equals("0.00"), mode + " reads no row for a miss");
+    }
+
+    /**
+     * Books a best-fit seating section at random until it is full, checking the rows that each booking read.
+     *
+     * @param strategy the best-fit strategy to test
+     * @throws IllegalStateException if a metric does not match
+     */
+    private static void testBestFit(AssignmentStrategy strategy) {
+        SeatingSection section = new SeatingSection(NUM_OF_ROWS, 6);
+        Random random = new Random(strategy.ordinal());
+
+        section.setAssignmentStrategy(strategy);
+        while (!section.isFull()) {
+            SeatLocation seatingLocation = SeatLocation.values()[random.nextInt(4)];
+
+            SeatingMetrics.reset();
+
+            boolean booked = section.tryReserve(1 + random.nextInt(3), seatingLocation) != SeatingSection.NO_SEATS;
+            Map<String, String> metrics = metrics();
+            // the mean of a single search is the rows it read
+            double rowsRead = Double.parseDouble(metrics.get("searches.rows_examined.mean"));
+
+            check(metrics.get("searches." + seatingLocation.getName()).equals("1"),
+                  strategy.getName() + " counts the search of a booking once");
+            check(booked ? rowsRead >= 1 && rowsRead <= NUM_OF_ROWS : rowsRead <= NUM_OF_ROWS,
+                  strategy.getName() + " reads at least the row it books and no more rows than the section has");
+        }
+        SeatingMetrics.reset();
+        section.availableSeatsOfLocationType(1, SeatLocation.AISLE);
+        check(metrics().get("searches.rows_examined.mean").equals("0.00"),
+              strategy.getName() + " reads no row of a full section");
+    }
+
+    /**
+     * Holds three window pairs and confirms one, releases one and lets one expire.
+     *
+     * @throws InterruptedException if the main thread is interrupted while waiting for the hold to expire
+     * @throws IllegalStateException if a hold is counted as a booking before it is confirmed, or an end of a hold
+     *                               is not counted
+     */
+    private static void testHolds() throws InterruptedException {
+        Airplane airplane = new Airplane(2, 4, NUM_OF_ROWS, 6);
+
+        SeatingMetrics.reset();
+
+        long confirmed = airplane.hold(CabinClass.ECONOMY, 2, SeatLocation.WINDOW, 60000);
+        long released = airplane.hold(CabinClass.ECONOMY, 2, SeatLocation.WINDOW, 60000);
+
+        airplane.hold(CabinClass.ECONOMY, 2, SeatLocation.WINDOW, 1);
+
+        Map<String, String> metrics = metrics();
+
+        check(metrics.get("holds").equals("3") && metrics.get("searches.window").equals("3"),
+              "a hold counts as a hold and a search");
+        check(metrics.get("bookings").equals("0") && metrics.get("seats.booked").equals("0")
+              && metrics.get("booking.latency.count").equals("0"), "a hold is not counted as a booking");
+
+        airplane.confirm(confirmed);
+        airplane.release(released);
+        Thread.sleep(30);
+        airplane.expireHolds();
+        metrics = metrics();
+        check(metrics.get("holds.confirmed").equals("1") && metrics.get("holds.released").equals("1")
+              && metrics.get("holds.expired").equals("1"), "each end of a hold is counted");
+        check(metrics.get("bookings").equals("1") && metrics.get("seats.booked").equals("2"),
+              "only the confirmed hold is counted as a booking");
+        check(!airplane.release(released) && metrics().get("holds.released").equals("1"),
+              "a hold that ended already is not counted again");
+    }
+
+    /**
+     * Returns the metrics by name.
+     *
+     * @return the value of each metric in the text snapshot
+     */
+    private static Map<String, String> metrics() {
+        Map<String, String> metrics = new HashMap<>();
+
+        for (String line : SeatingMetrics.snapshot().split("\n")) {
+            int space = line.indexOf(' ');
+
+            metrics.put(line.substring(0, space), line.substring(space + 1));
+        }
+        return metrics;
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}
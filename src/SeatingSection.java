@@ -1,23 +1,139 @@
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Constructs a SeatingSection object representing an airplane's seat section.
  *
  * For our purposes:
  *      - An empty seat will be marked as "."
- *      - An occupied seat will be marked as "X" or "*"
+ *      - An occupied seat will be marked as "X", or "*" while it is held
+ *      - Each row is stored as a bitmask of type long, where bit j is set if the seat in column j is occupied;
+ *          a seating section can therefore hold at most 64 columns.
+ *      - The columns are split into groups by the aisles of the section's SeatLayout, which decides which seats
+ *          are window, aisle and center seats. A section built from its number of columns has one aisle in the
+ *          middle.
+ *      - A concurrent seating section can be booked from many threads at once. Each row has its own lock, so
+ *          bookings in different rows never wait for each other; searches run without locks and are checked
+ *          again under the lock of the row they picked.
+ *      - Queries that read more than one word of the seats (the seat searches, the group counts, the seating
+ *          array and the changed rows) run as optimistic reads, as with a StampedLock: they read without locks
+ *          and are retried if a booking was in progress or finished meanwhile. A booking never waits for a reader
+ *          that is reading, but a reader that bookings spoiled MAX_OPTIMISTIC_READS times in a row holds up new
+ *          bookings until its next try is done, so that a steady stream of bookings cannot starve it.
+ *      - Which of the matching seats a booking takes is up to the section's AssignmentStrategy. Besides the row
+ *          index of each seat group, the section keeps a free-run-length index: the rows that have a run of
+ *          exactly L empty seats between two aisles or taken seats, for each L. The best-fit strategies look up
+ *          the rows with the shortest runs that fit instead of scanning the section. The index is only built
+ *          once such a strategy is set, and so are the held seats and the row locks on the first hold or lock,
+ *          so that a large fleet of first-fit planes does not pay for what it never uses.
+ *      - A held seat is taken for a checkout that has not been paid for yet (see Airplane.hold()). It counts as
+ *          occupied for every search and count until the hold is confirmed, which books it, or released, which
+ *          empties it again.
+ *      - Every change bumps the section's version and stamps the changed row with it, so that display clients
+ *          can fetch only the rows that changed since the version they last saw (see changesSince()).
  */
 public class SeatingSection {
 
-    private final String[][] seats;
-    // make the count static for appending to Airplane
-    private static int rowCount;
+    /**
+     * The maximum number of columns that fit into a row's bitmask.
+     */
+    public static final int MAX_COLUMNS = Long.SIZE;
+
+    /**
+     * The reservation returned by tryReserve() when there are no matching seats.
+     */
+    public static final long NO_SEATS = -1L;
+
+    // set -Dseating.selfCheck=true to verify the free-seat counters and the seat group index against a full scan
+    // after every change
+    private static final boolean SELF_CHECK = Boolean.getBoolean("seating.selfCheck");
+
+    // a search result packs the number of rows whose seats the search read (up to MAX_ROWS_READ) above the
+    // reservation's 48 bits; a search that found no seats has the sign bit set in place of a reservation
+    private static final int ROWS_READ_SHIFT = 48;
+    private static final int MAX_ROWS_READ = 0x7FFF;
+    private static final long NOT_FOUND = Long.MIN_VALUE;
+
+    // the optimistic reads that a reader tries before it holds up new bookings
+    private static final int MAX_OPTIMISTIC_READS = 8;
+
+    // atomic access to the row index words, which are shared by 64 rows, to the row locks, which are made on
+    // first use, and to the held seats, the free-seat counter, the version and the count of finished changes
+    private static final VarHandle INDEX_WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ROW_LOCKS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle HELD;
+    private static final VarHandle FREE_SEATS;
+    private static final VarHandle VERSION;
+    private static final VarHandle WRITES_FINISHED;
+    private static final VarHandle STARVED_READERS;
+
+    static {
+        try {
+            HELD = MethodHandles.lookup().findVarHandle(SeatingSection.class, "held", long[].class);
+            FREE_SEATS = MethodHandles.lookup().findVarHandle(SeatingSection.class, "freeSeats", int.class);
+            VERSION = MethodHandles.lookup().findVarHandle(SeatingSection.class, "version", long.class);
+            WRITES_FINISHED = MethodHandles.lookup().findVarHandle(SeatingSection.class, "writesFinished",
+                                                                   long.class);
+            STARVED_READERS = MethodHandles.lookup().findVarHandle(SeatingSection.class, "numOfStarvedReaders",
+                                                                   int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long[] seats;
+    // the held seats of each row, which are also set in seats; null until the first hold
+    private volatile long[] held;
+    private final int columns;
+    // the bitmask with every seat of a row set
+    private final long fullRow;
+    // the number of groups of columns between the aisles
+    private final int numOfColumnGroups;
+    // running counts of the empty seats, kept up to date by addPassengers()
+    private volatile int freeSeats;
+    // the empty seats of each column group of each row, at index row * numOfColumnGroups + group
+    private final byte[] freeSeatsInGroup;
+    // the layout of the seats of a row, shared with every other seating section of the same aircraft type
+    private final SeatLayout layout;
+    // the number of bitset words needed for one bit per row
+    private final int indexWords;
+    // for each seat group slot, a bitset of the rows that still have an empty matching group; the words of slot s
+    // begin at index s * indexWords
+    private final long[] rowsWithGroup;
+    // the length of the longest run of empty seats that a row can have, which is the widest column group
+    private final int maxRunLength;
+    // the run lengths of each row: bit L - 1 is set if the row has a run of exactly L empty seats that is bounded
+    // by taken seats, aisles or walls; null until a strategy other than FIRST_FIT is first set
+    private long[] rowRuns;
+    // for each run length L, a bitset of the rows that have a run of exactly L empty seats; the words of run
+    // length L begin at index (L - 1) * indexWords. It is set after rowRuns, and read before it by changes that
+    // may not hold the lock that it was set under; null until a strategy other than FIRST_FIT is first set
+    private volatile long[] rowsWithRun;
+    // which of the matching seats a booking takes
+    private volatile AssignmentStrategy assignmentStrategy = AssignmentStrategy.FIRST_FIT;
+    // the lock of each row in a concurrent seating section, made the first time the row is locked; null if the
+    // seating section is not concurrent
+    private final Object[] rowLocks;
+    // the number of changes made to the seats so far, counted as each change begins
+    private volatile long version;
+    // the number of changes that are done; while it is behind the version, a change is in progress
+    private volatile long writesFinished;
+    // the readers that failed MAX_OPTIMISTIC_READS optimistic reads in a row; new changes wait while there are any
+    private volatile int numOfStarvedReaders;
+    // the version of the last change to each row; 0 if the row never changed
+    private final long[] rowVersions;
 
     /**
      * Constructs a default empty seating section.
      */
     public SeatingSection() {
-        seats = new String[][]{};
-        rowCount = 0;
+        this(0, 0);
     }
 
     /**
@@ -27,441 +143,1907 @@ public class SeatingSection {
      * @param columns the number of columns
      */
     public SeatingSection(int rows, int columns) {
-        seats = new String[rows][columns];
-        rowCount = 0;
+        this(rows, columns, false);
+    }
+
+    /**
+     * Constructs an empty seating section with the given rows and columns that can optionally be booked from
+     * many threads at once. The columns are split by one aisle in the middle; see SeatLayout.singleAisle().
+     *
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param concurrent true if the seating section will be booked from many threads at once; false otherwise.
+     */
+    public SeatingSection(int rows, int columns, boolean concurrent) {
+        this(rows, singleAisleLayout(rows, columns), concurrent);
+    }
+
+    /**
+     * Constructs an empty seating section with the given rows and seat layout.
+     *
+     * @param rows the number of rows
+     * @param layout the layout of the seats of each row
+     */
+    public SeatingSection(int rows, SeatLayout layout) {
+        this(rows, layout, false);
+    }
+
+    /**
+     * Constructs an empty seating section with the given rows and seat layout that can optionally be booked from
+     * many threads at once.
+     *
+     * @param rows the number of rows
+     * @param layout the layout of the seats of each row
+     * @param concurrent true if the seating section will be booked from many threads at once; false otherwise.
+     */
+    public SeatingSection(int rows, SeatLayout layout, boolean concurrent) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("Invalid seating section size: " + rows + " x "
+                                               + layout.getNumOfColumns());
+        }
+        // a new long[] is zero-filled, so every seat starts out empty
+        seats = new long[rows];
+        this.layout = layout;
+        columns = layout.getNumOfColumns();
+        fullRow = seatRun(0, columns);
+        numOfColumnGroups = layout.getNumOfColumnGroups();
+        freeSeats = rows * columns;
+        freeSeatsInGroup = new byte[rows * numOfColumnGroups];
+        rowVersions = new long[rows];
 
-        // populate the array with empty seats
         for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < columns; ++j) {
-                seats[i][j] = ".";
+            for (int g = 0; g < numOfColumnGroups; ++g) {
+                freeSeatsInGroup[i * numOfColumnGroups + g] = (byte) Long.bitCount(layout.getColumnGroupSeats(g));
+            }
+        }
+
+        // every row of an empty section has all of the seat groups available
+        indexWords = (rows + Long.SIZE - 1) / Long.SIZE;
+        rowsWithGroup = new long[layout.numOfSlots() * indexWords];
+
+        for (int slot = 0; slot < layout.numOfSlots(); ++slot) {
+            for (int i = 0; i < rows; ++i) {
+                rowsWithGroup[slot * indexWords + i / Long.SIZE] |= 1L << i;
             }
         }
+
+        maxRunLength = layout.getMaxColumnGroupSize();
+        rowLocks = concurrent ? new Object[rows] : null;
     }
 
     /**
-     * Returns the array representation of the seating section.
+     * Returns the single-aisle layout of a seating section's number of columns.
      *
-     * @return the array representation of the seating section
+     * @param rows the number of rows, for the message of an invalid size
+     * @param columns the number of columns
+     * @return the layout
+     * @throws IllegalArgumentException if the size of the seating section is invalid
      */
-    public String[][] getSeating() {
-        return seats;
+    private static SeatLayout singleAisleLayout(int rows, int columns) {
+        if (rows < 0 || columns < 0 || columns > MAX_COLUMNS) {
+            throw new IllegalArgumentException("Invalid seating section size: " + rows + " x " + columns);
+        }
+        return SeatLayout.singleAisle(columns);
     }
 
     /**
-     * Returns the SeatingSection's row count.
+     * Returns the bitmask of `length` consecutive seats beginning at column `first`.
      *
-     * @return the SeatingSection's row count
+     * @param first the index of the first column of the run
+     * @param length the number of seats in the run
+     * @return the bitmask of the run of seats
      */
-    public int getRowCount() {
-        return rowCount;
+    static long seatRun(int first, int length) {
+        if (length <= 0) {
+            return 0L;
+        }
+        // shifting a long by 64 is a no-op, so the full-width run needs its own case
+        long run = length == Long.SIZE ? -1L : (1L << length) - 1;
+        return run << first;
     }
 
     /**
-     * Sets the rowCount for the SeatingSections.
+     * Returns whether an optimistic read saw the seats as they were at one instant: no change was in progress when
+     * the read began, and no change began since. The caller reads again if it did not.
      *
-     * @param newRowCount the new row count for the seating sections
+     * @param stamp the count of finished changes, read before anything else
+     * @return true if the read is consistent; false if it must be retried
      */
-    public void setRowCount(int newRowCount) {
-        rowCount = newRowCount;
+    private boolean validate(long stamp) {
+        // the reads of the seats must not move past the read of the version
+        VarHandle.acquireFence();
+        if (version == stamp) {
+            return true;
+        }
+        // a booking is still in progress; it takes well under a microsecond
+        Thread.onSpinWait();
+        return false;
     }
 
     /**
-     * Returns whether or not the seating section is completely full.
+     * Begins a try of an optimistic read. The try after MAX_OPTIMISTIC_READS failed ones holds up new changes
+     * until endRead(), while the changes in progress finish, so that it is bound to succeed soon.
      *
-     * @return true if the seating section is full; false otherwise.
+     * @param tries the number of tries of the read so far
+     * @return the stamp to validate the try with
      */
-    public boolean isFull() {
-        // scan the seating section; if even one seat is empty, immediately return false
-        for (String[] row : seats) {
-            for (String column : row) {
-                if (column.equals(".")) {
-                    return false;
-                }
-            }
+    private long startRead(int tries) {
+        if (tries == MAX_OPTIMISTIC_READS) {
+            STARVED_READERS.getAndAdd(this, 1);
         }
-        return true;
+        return writesFinished;
     }
 
     /**
-     * Returns whether or not the number of seats in a row on either side of the aisle matches the number of passengers.
+     * Ends an optimistic read, letting new changes begin again if it held them up.
      *
-     * @param numOfPassengers the number of passengers to be seated
-     * @return true if rows can be filled with the number of passengers; false otherwise.
+     * @param tries the number of tries of the read
      */
-    public boolean canFillRow(int numOfPassengers) {
-        return seats[0].length / 2 == numOfPassengers;
+    private void endRead(int tries) {
+        if (tries > MAX_OPTIMISTIC_READS) {
+            STARVED_READERS.getAndAdd(this, -1);
+        }
     }
 
     /**
-     * Returns true if the seating section has enough available seats; false otherwise.
+     * Returns a read-only view of the seating section as an array; changes to the array are not reflected
+     * in the seating section.
      *
-     * @param numOfPassengers the number of passengers to seat
-     * @return true if the seating section has enough available seats; false otherwise.
+     * @return the array representation of the seating section
      */
-    public boolean hasAvailableSeats(int numOfPassengers) {
-        int numOfEmptySeats = 0;
+    public String[][] getSeating() {
+        String[][] seating = new String[seats.length][columns];
+        long[] rowSeats = new long[seats.length];
+        long[] rowHeld = new long[seats.length];
+        int tries = 0;
+        long stamp;
 
-        // if the seat is marked as "." it is available; keep track of them
-        for (String[] row : seats) {
-            for (String column : row) {
-                if (column.equals(".")) {
-                    ++numOfEmptySeats;
-                }
-            }
-            // at the end of each row iteration: if there are enough available seats, we are done
-            if (numOfEmptySeats >= numOfPassengers) {
-                return true;
+        try {
+            do {
+                stamp = startRead(tries++);
+                System.arraycopy(seats, 0, rowSeats, 0, seats.length);
+                copyHeld(0, rowHeld);
+            } while (!validate(stamp));
+        } finally {
+            endRead(tries);
+        }
+
+        for (int i = 0; i < seats.length; ++i) {
+            for (int j = 0; j < columns; ++j) {
+                long seat = 1L << j;
+
+                seating[i][j] = (rowSeats[i] & seat) == 0 ? "." : (rowHeld[i] & seat) != 0 ? "*" : "X";
             }
         }
-        // if we've reached this point, there aren't enough available seats
-        return false;
+        return seating;
     }
 
     /**
-     * Returns the indexes of the available seats of the specified seating location.
+     * Returns the number of rows in the seating section.
      *
-     * @param numOfPassengers the number of passengers to seat
-     * @param seatingLocation the location of the seat relative to the row (aisle, center, or window)
-     * @return the array containing:
-     *              - the index of the row to add,
-     *              - the index of the column to begin adding,
-     *              - the index of the column to stop after adding
+     * @return the number of rows in the seating section
      */
-    public int[] availableSeatsOfLocationType(int numOfPassengers, String seatingLocation) {
-        // the array of indexes to return
-        int[] indexes = new int[3];
-        // keep track of how many passengers are left to be seated
-        int numOfPassengersToSeat = numOfPassengers;
-
-        // check the availability of the specified seats
-        switch (seatingLocation) {
-            case "window":
-                // for each row in the seating section ...
-                for (int i = 0, seatsLength = seats.length; i < seatsLength; ++i) {
-                    String[] row = seats[i];
-                    // check if there are there are enough available seats, beginning with the first seat
-                    for (int j = 0, rowLength = row.length; j < rowLength / 2 - 1; ++j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
-
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    public int getNumOfRows() {
+        return seats.length;
+    }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[2] = numOfPassengers - 1;
-                        return indexes;
-                    }
+    /**
+     * Returns the number of columns in each row of the seating section.
+     *
+     * @return the number of columns in each row of the seating section
+     */
+    public int getNumOfColumns() {
+        return columns;
+    }
 
-                    // the left row is not available; now reset and check the right row
-                    numOfPassengersToSeat = numOfPassengers;
+    /**
+     * Returns whether or not the seat at the given row and column is occupied.
+     *
+     * @param row the index of the row
+     * @param column the index of the column
+     * @return true if the seat is occupied; false otherwise.
+     */
+    public boolean isOccupied(int row, int column) {
+        return (seats[row] & (1L << column)) != 0;
+    }
 
-                    for (int j = row.length - 1; j > row.length / 2; --j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+    /**
+     * Returns whether or not the seat at the given row and column is held for a checkout. A held seat is also
+     * occupied.
+     *
+     * @param row the index of the row
+     * @param column the index of the column
+     * @return true if the seat is held; false otherwise.
+     */
+    public boolean isHeld(int row, int column) {
+        return (heldSeats(row) & (1L << column)) != 0;
+    }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    /**
+     * Returns the number of empty seats in the seating section.
+     *
+     * @return the number of empty seats in the seating section
+     */
+    public int getFreeSeats() {
+        return freeSeats;
+    }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length - numOfPassengers;
-                        indexes[2] = row.length - 1;
-                        return indexes;
-                    }
+    /**
+     * Returns the number of empty seats in the given row.
+     *
+     * @param row the index of the row
+     * @return the number of empty seats in the row
+     */
+    public int getFreeSeatsInRow(int row) {
+        int freeSeatsInRow;
+        int tries = 0;
+        long stamp;
 
-                    // reset the count for the next iteration
-                    numOfPassengersToSeat = numOfPassengers;
+        try {
+            do {
+                stamp = startRead(tries++);
+                freeSeatsInRow = 0;
+                for (int g = 0; g < numOfColumnGroups; ++g) {
+                    freeSeatsInRow += freeSeatsInGroup[row * numOfColumnGroups + g];
                 }
-                // if we've reached this point, there are no available window seats
-                return new int[0];
-
-            case "aisle":
-                // for each row in the seating section ...
-                for (int i = 0, seatsLength = seats.length; i < seatsLength; ++i) {
-                    String[] row = seats[i];
-                    // check if there are there are enough available seats, beginning with the left aisle seat
-                    for (int j = row.length / 2 - 1; j > 0; --j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+            } while (!validate(stamp));
+        } finally {
+            endRead(tries);
+        }
+        return freeSeatsInRow;
+    }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    /**
+     * Returns the number of empty seats on one side of the aisle in the given row. With more than one aisle, the
+     * sides are the first and last column groups.
+     *
+     * @param row the index of the row
+     * @param rightSide true for the right side of the aisle; false for the left side
+     * @return the number of empty seats on that side of the aisle
+     */
+    public int getFreeSeatsInRowHalf(int row, boolean rightSide) {
+        return getFreeSeatsInRowGroup(row, rightSide ? numOfColumnGroups - 1 : 0);
+    }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length / 2 - numOfPassengers;
-                        indexes[2] = row.length / 2 - 1;
-                        return indexes;
-                    }
+    /**
+     * Returns the number of empty seats in one group of columns between the aisles in the given row.
+     *
+     * @param row the index of the row
+     * @param group the index of the column group, from the left
+     * @return the number of empty seats in the column group
+     */
+    public int getFreeSeatsInRowGroup(int row, int group) {
+        return freeSeatsInGroup[row * numOfColumnGroups + group];
+    }
 
-                    // the left row is not available; now reset and check the right row
-                    numOfPassengersToSeat = numOfPassengers;
+    /**
+     * Returns whether or not the seating section can be booked from many threads at once.
+     *
+     * @return true if the seating section is concurrent; false otherwise.
+     */
+    boolean isConcurrent() {
+        return rowLocks != null;
+    }
 
-                    for (int j = row.length / 2, rowLength = row.length; j < rowLength - 1; ++j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+    /**
+     * Returns the layout of the seats of each row.
+     *
+     * @return the seat layout
+     */
+    public SeatLayout getLayout() {
+        return layout;
+    }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    /**
+     * Verifies the free-seat counters, the seat group index and the held seats against a full scan of the seating
+     * section.
+     * A concurrent seating section must not be booked while it is being verified.
+     *
+     * @throws IllegalStateException if a counter or the index does not match the seats
+     */
+    public void checkConsistency() {
+        int numOfEmptySeats = 0;
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length / 2;
-                        indexes[2] = row.length / 2 - 1 + numOfPassengers;
-                        return indexes;
-                    }
+        for (int i = 0; i < seats.length; ++i) {
+            for (int g = 0; g < numOfColumnGroups; ++g) {
+                int empty = Long.bitCount(~seats[i] & layout.getColumnGroupSeats(g));
 
-                    // reset the count for the next iteration
-                    numOfPassengersToSeat = numOfPassengers;
+                if (freeSeatsInGroup[i * numOfColumnGroups + g] != empty) {
+                    throw new IllegalStateException("Free seat counters of row " + i + " are out of date");
                 }
-                // if we've reached this point, there are no available aisle seats
-                return new int[0];
-
-            case "center":
-                // for each row in the seating section ...
-                for (int i = 0, seatsLength = seats.length; i < seatsLength; i++) {
-                    String[] row = seats[i];
-                    // check if there are there are enough available seats, beginning with the left center-left row
-                    for (int rowLength = row.length, j = rowLength / 2 - 2; j >= 0; --j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+                numOfEmptySeats += empty;
+            }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+            for (int slot = 0; slot < layout.numOfSlots(); ++slot) {
+                boolean indexed = (rowsWithGroup[slot * indexWords + i / Long.SIZE] & (1L << i)) != 0;
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length / 2 - 1 - numOfPassengers;
-                        indexes[2] = row.length / 2 - 2;
-                        return indexes;
-                    }
+                if (indexed != (firstEmptyGroup(i, slot) != 0)) {
+                    throw new IllegalStateException("Seat group index of row " + i + " is out of date");
+                }
+            }
 
-                    // the left center-left row is not available; reset and try left center-right row
-                    numOfPassengersToSeat = numOfPassengers;
+            if ((heldSeats(i) & ~seats[i]) != 0) {
+                throw new IllegalStateException("Row " + i + " holds seats that are empty");
+            }
+            if (rowsWithRun == null) {
+                continue;
+            }
+            if (rowRuns[i] != runLengths(seats[i])) {
+                throw new IllegalStateException("Run lengths of row " + i + " are out of date");
+            }
+            for (int length = 1; length <= maxRunLength; ++length) {
+                boolean indexed = (rowsWithRun[(length - 1) * indexWords + i / Long.SIZE] & (1L << i)) != 0;
 
-                    for (int rowLength = row.length, j = rowLength / 2 - 2; j < rowLength / 2; ++j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+                if (indexed != ((rowRuns[i] & (1L << (length - 1))) != 0)) {
+                    throw new IllegalStateException("Free-run-length index of row " + i + " is out of date");
+                }
+            }
+        }
+        if (freeSeats != numOfEmptySeats) {
+            throw new IllegalStateException("Free seat counter is " + freeSeats + " but "
+                    + numOfEmptySeats + " seats are empty");
+        }
+        for (int i = 0; i < seats.length; ++i) {
+            // a row that was released may be empty again, but a row that never changed must be
+            if (rowVersions[i] > version || (rowVersions[i] == 0 && seats[i] != 0)) {
+                throw new IllegalStateException("Version of row " + i + " is out of date");
+            }
+        }
+        if (writesFinished != version) {
+            throw new IllegalStateException("Only " + writesFinished + " of " + version + " changes finished");
+        }
+    }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    /**
+     * Returns which of the matching seats the bookings and seat searches take.
+     *
+     * @return the assignment strategy
+     */
+    public AssignmentStrategy getAssignmentStrategy() {
+        return assignmentStrategy;
+    }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length / 2 - numOfPassengers;
-                        indexes[2] = row.length / 2 - 1;
-                        return indexes;
-                    }
+    /**
+     * Sets which of the matching seats the bookings and seat searches take from now on; the seats already booked
+     * stay where they are.
+     *
+     * @param assignmentStrategy the assignment strategy
+     * @throws IllegalArgumentException if the strategy is null
+     */
+    public void setAssignmentStrategy(AssignmentStrategy assignmentStrategy) {
+        if (assignmentStrategy == null) {
+            throw new IllegalArgumentException("An assignment strategy is required");
+        }
+        if (assignmentStrategy != AssignmentStrategy.FIRST_FIT) {
+            buildRunIndex();
+        }
+        this.assignmentStrategy = assignmentStrategy;
+    }
 
-                    // the left center-right row is not available; reset and try right center-left row
-                    numOfPassengersToSeat = numOfPassengers;
+    /**
+     * Builds the free-run-length index, which only the strategies other than FIRST_FIT search, unless it was
+     * built before. The index starts out with no runs in any row, and each row is then brought up to date under
+     * its lock, as a change of the row would; a change that misses the new index is caught up with when its
+     * row's turn comes. A thread setting a strategy meanwhile waits here until the index is complete.
+     */
+    private synchronized void buildRunIndex() {
+        if (rowsWithRun != null) {
+            return;
+        }
+        rowRuns = new long[seats.length];
+        rowsWithRun = new long[maxRunLength * indexWords];
+        for (int i = 0; i < seats.length; ++i) {
+            if (rowLocks != null) {
+                synchronized (rowLock(i)) {
+                    updateRunIndex(i);
+                }
+            } else {
+                updateRunIndex(i);
+            }
+        }
+    }
 
-                    for (int rowLength = row.length, j = rowLength / 2 + 1; j >= rowLength / 2; --j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+    /**
+     * Returns the version of the seating section, which counts the changes made to its seats so far.
+     *
+     * @return the version of the seating section; 0 while no seat was ever taken
+     */
+    public long getVersion() {
+        return version;
+    }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    /**
+     * Returns the rows that changed since the given version, for a display client that already has the seat
+     * map of that version. A client that has nothing yet asks for the changes since version 0. Held seats are
+     * sent as occupied, so the row of a confirmed hold is sent again unchanged.
+     *
+     * @param sinceVersion the version that the client last saw
+     * @return the changed rows; the delta's toVersion is the version to ask for changes since next time
+     * @throws IllegalArgumentException if the version is newer than the seating section's version
+     */
+    public SeatMapDelta changesSince(long sinceVersion) {
+        return changesSince(sinceVersion, false);
+    }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length / 2 + 2 - numOfPassengers;
-                        indexes[2] = row.length - 2;
-                        return indexes;
-                    }
+    /**
+     * Returns the rows that changed since version 0 with only their booked seats, for a snapshot: a hold does not
+     * outlive the process that took it, so its seats are saved as empty.
+     *
+     * @return the changed rows without their held seats
+     */
+    SeatMapDelta bookedSeats() {
+        return changesSince(0L, true);
+    }
 
-                    // the right center-left row is not available; reset and try right center-right row
-                    numOfPassengersToSeat = numOfPassengers;
+    /**
+     * Returns the version of the latest change to any of a run of rows. The caller must make sure that nobody
+     * books the seating section meanwhile.
+     *
+     * @param firstRow the index of the first row of the run
+     * @param numOfRows the number of rows of the run
+     * @return the version of the latest change; 0 if none of the rows ever changed
+     */
+    long lastChangeOfRows(int firstRow, int numOfRows) {
+        long lastChange = 0L;
 
-                    for (int rowLength = row.length, j = rowLength / 2 + 1; j < rowLength; ++j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        } else {
-                            // the seat is occupied; try the next row
-                            break;
-                        }
+        for (int i = firstRow; i < firstRow + numOfRows; ++i) {
+            lastChange = Math.max(lastChange, rowVersions[i]);
+        }
+        return lastChange;
+    }
 
-                        // break out immediately if there are no more passengers to seat
-                        if (numOfPassengersToSeat == 0) {
-                            break;
-                        }
-                    }
+    /**
+     * Copies the occupied and the held seats of a run of rows, for a snapshot. The caller must make sure that
+     * nobody books the seating section meanwhile.
+     *
+     * @param firstRow the index of the first row of the run
+     * @param rowSeats receives the occupancy bitmask of each row of the run
+     * @param rowHeld receives the bitmask of the held seats of each row of the run
+     */
+    void copyRows(int firstRow, long[] rowSeats, long[] rowHeld) {
+        System.arraycopy(seats, firstRow, rowSeats, 0, rowSeats.length);
+        copyHeld(firstRow, rowHeld);
+    }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length - 1 - numOfPassengers;
-                        indexes[2] = row.length - 1;
-                        return indexes;
-                    }
+    /**
+     * Returns the rows that changed since the given version.
+     *
+     * @param sinceVersion the version that the client last saw
+     * @param withoutHeldSeats true to leave the held seats out of the rows; false to send them as occupied
+     * @return the changed rows
+     * @throws IllegalArgumentException if the version is newer than the seating section's version
+     */
+    private SeatMapDelta changesSince(long sinceVersion, boolean withoutHeldSeats) {
+        int numOfChangedRows;
+        int[] changedRows = new int[0];
+        long[] changedSeats = new long[0];
+        int tries = 0;
+        long toVersion;
 
-                    // reset the count for the next iteration
-                    numOfPassengersToSeat = numOfPassengers;
-                }
-                // if we've reached this point, there are no available center seats
-                return new int[0];
-
-            case "row":
-                // for each row in the seating section ...
-                for (int i = 0, seatsLength = seats.length; i < seatsLength; ++i) {
-                    String[] row = seats[i];
-                    // check the row on the left side of the aisle to see if it is fully available
-                    for (int j = 0; j < row.length / 2; ++j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
+        // the rows are read without their locks, as one optimistic read that sees every change up to toVersion
+        try {
+            do {
+                toVersion = startRead(tries++);
+                numOfChangedRows = 0;
+                for (int i = 0; i < seats.length; ++i) {
+                    if (rowVersions[i] > sinceVersion) {
+                        if (numOfChangedRows == changedRows.length) {
+                            changedRows = Arrays.copyOf(changedRows, Math.max(8, 2 * numOfChangedRows));
+                            changedSeats = Arrays.copyOf(changedSeats, changedRows.length);
                         }
+                        changedRows[numOfChangedRows] = i;
+                        changedSeats[numOfChangedRows] = withoutHeldSeats ? seats[i] & ~heldSeats(i) : seats[i];
+                        ++numOfChangedRows;
                     }
+                }
+            } while (!validate(toVersion));
+        } finally {
+            endRead(tries);
+        }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[2] = row.length / 2 - 1;
-                        return indexes;
-                    }
-
-                    // the left row is not available; now reset and check the right row
-                    numOfPassengersToSeat = numOfPassengers;
+        if (sinceVersion < 0 || sinceVersion > toVersion) {
+            throw new IllegalArgumentException("Version " + sinceVersion + " is not a version of this section, "
+                                               + "which is at version " + toVersion);
+        }
+        return new SeatMapDelta(sinceVersion, toVersion, columns, Arrays.copyOf(changedRows, numOfChangedRows),
+                                Arrays.copyOf(changedSeats, numOfChangedRows));
+    }
 
-                    for (int j = row.length / 2; j < row.length; ++j) {
-                        if (row[j].equals(".")) {
-                            --numOfPassengersToSeat;
-                        }
-                    }
+    /**
+     * Fills an empty seating section with seats read back from a snapshot, rebuilding the free-seat counters
+     * and the seat group index as if the seats had been booked.
+     *
+     * @param rowSeats the occupancy bitmask of each row
+     * @param restoredVersion the version of the seating section when the snapshot was taken
+     * @throws IllegalArgumentException if the seats do not fit the seating section
+     * @throws IllegalStateException if the seating section is not empty
+     */
+    void restoreSeats(long[] rowSeats, long restoredVersion) {
+        if (rowSeats.length != seats.length) {
+            throw new IllegalArgumentException("Expected " + seats.length + " rows but got " + rowSeats.length);
+        }
+        if (version != 0) {
+            throw new IllegalStateException("Only an empty seating section can be restored");
+        }
 
-                    // if there are no more passengers to seat, the row is available
-                    if (numOfPassengersToSeat == 0) {
-                        indexes[0] = i;
-                        indexes[1] = row.length / 2;
-                        indexes[2] = row.length - 1;
-                        return indexes;
-                    }
+        for (int i = 0; i < rowSeats.length; ++i) {
+            if ((rowSeats[i] & ~fullRow) != 0) {
+                throw new IllegalArgumentException("Row " + i + " has seats beyond column " + columns);
+            }
+            if (rowSeats[i] != 0) {
+                occupy(i, rowSeats[i]);
+            }
+        }
 
-                    // reset the count for the next iteration
-                    numOfPassengersToSeat = numOfPassengers;
-                }
-                // if we've reached this point, there are no available row seats
-                return new int[0];
+        // the rows keep no history, so every restored row counts as changed at the restored version
+        long newVersion = Math.max(restoredVersion, version);
 
-            default:
-                return new int[0];
+        for (int i = 0; i < rowSeats.length; ++i) {
+            if (rowSeats[i] != 0) {
+                rowVersions[i] = newVersion;
+            }
         }
+        version = newVersion;
+        writesFinished = newVersion;
     }
 
     /**
-     * Adds a passenger to the seating section. Fills from left to right.
+     * Books a reservation read back from a journal. Replaying the same reservation again does nothing, so a
+     * journal can be replayed on top of a snapshot that already holds some of its bookings.
      *
-     * @param numOfPassengers the number of passengers to seat
-     * @param seatingLocation the location of the seat relative to the row (aisle, center, or window)
+     * @param row the index of the row
+     * @param firstColumn the index of the first column of the reservation
+     * @param lastColumn the index of the last column of the reservation
+     * @return true if the seats were booked; false if the reservation was already booked
+     * @throws IllegalArgumentException if the seats are outside the seating section or only some of them are taken
      */
-    public void addPassengers(int numOfPassengers, String seatingLocation) {
-       /*
-           Get the array containing:
-               - the index of the row to add,
-               - the index of the column to begin adding,
-               - the index of the column to stop after adding
-        */
-        int[] indexes = availableSeatsOfLocationType(numOfPassengers, seatingLocation);
+    boolean restoreReservation(int row, int firstColumn, int lastColumn) {
+        if (row < 0 || row >= seats.length || firstColumn < 0 || firstColumn > lastColumn || lastColumn >= columns) {
+            throw new IllegalArgumentException("Seats " + row + ":" + firstColumn + "-" + lastColumn
+                                               + " are outside of the seating section");
+        }
 
-        // for (first index to start adding; first index <= last index to add; ++index)
-        for (int i = indexes[1]; i <= indexes[2]; ++i) {
-            // seats[row index][column index to add] = filled
-            seats[indexes[0]][i] = "X";
+        long group = seatRun(firstColumn, lastColumn - firstColumn + 1);
+
+        if (rowLocks != null) {
+            synchronized (rowLock(row)) {
+                return restoreGroup(row, group);
+            }
         }
+        return restoreGroup(row, group);
     }
 
     /**
-     * Returns a description of the SeatingSection as a string.
+     * Occupies a group of seats unless it is already occupied. In a concurrent seating section, the caller must
+     * hold the row's lock.
      *
-     * @return a description of the SeatingSection as a string
+     * @param row the index of the row
+     * @param group the bitmask of the seats
+     * @return true if the seats were booked; false if they were already occupied
+     * @throws IllegalArgumentException if only some of the seats are occupied
      */
-    public String toString() {
-        // use StringBuilder to avoid warning of string concatenation in loops
-        StringBuilder description = new StringBuilder();
-
-        // for each row in the section...
-        for (String[] row : seats) {
-            ++rowCount;
-            description.append(String.format("%3s", rowCount)).append(": ");
-
-            // for each column of the seating section's row...
-            for (int i = 0; i < row.length; ++i) {
-                if (i == 0) {
-                    description.append(row[i]);
-                } else {
-                    // formatting to make sure the seats are evenly displayed in text format
-                    if (row.length <= 4) {
-                        description.append("   ").append(row[i]);
-                        if (i == row.length / 2 - 1) {
-                            description.append(" ");
-                        }
-                    } else {
-                        description.append(" ").append(row[i]);
-                        if (i == row.length / 2 - 1) {
-                            description.append("   ");
-                        }
-                    }
-                }
-            }
-            description.append("\n");
+    private boolean restoreGroup(int row, long group) {
+        long taken = seats[row] & group;
+
+        if (taken == group) {
+            return false;
+        }
+        if (taken != 0) {
+            throw new IllegalArgumentException("Seats of row " + row + " overlap a different reservation");
         }
+        occupy(row, group);
+        return true;
+    }
 
-        return description.toString();
+    /**
+     * Returns whether or not the seating section is completely full.
+     *
+     * @return true if the seating section is full; false otherwise.
+     */
+    public boolean isFull() {
+        return freeSeats == 0;
+    }
+
+    /**
+     * Returns whether or not the number of seats in a row between two aisles, or between an aisle and the window,
+     * matches the number of passengers.
+     *
+     * @param numOfPassengers the number of passengers to be seated
+     * @return true if rows can be filled with the number of passengers; false otherwise.
+     */
+    public boolean canFillRow(int numOfPassengers) {
+        return groupSlot(numOfPassengers, SeatLocation.ROW) >= 0;
+    }
+
+    /**
+     * Returns true if the seating section has enough available seats; false otherwise. A party of no passengers
+     * always fits a seating section that has rows, even a full one.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @return true if the seating section has enough available seats; false otherwise.
+     */
+    public boolean hasAvailableSeats(int numOfPassengers) {
+        // the scan of the rows that this replaced stopped after the first row once it had enough empty seats
+        return numOfPassengers <= 0 ? seats.length > 0 : freeSeats >= numOfPassengers;
+    }
+
+    /**
+     * Returns the seat group slot for the seating location and number of passengers.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the seat group slot; -1 if no seat group can match
+     */
+    private int groupSlot(int numOfPassengers, SeatLocation seatingLocation) {
+        if (seatingLocation == null || numOfPassengers < 1 || numOfPassengers > columns) {
+            return -1;
+        }
+        return layout.slot(numOfPassengers, seatingLocation);
+    }
+
+    /**
+     * Returns the first row that still has an empty matching seat group.
+     *
+     * @param slot the seat group slot
+     * @return the index of the row; -1 if there is none
+     */
+    private int firstRowWithGroup(int slot) {
+        return firstRowWithGroup(slot, 0);
+    }
+
+    /**
+     * Returns the first row that still has an empty matching seat group, beginning the search at a word of the
+     * row index.
+     *
+     * @param slot the seat group slot
+     * @param firstWord the word of the row index to begin at; the rows before it are skipped
+     * @return the index of the row; -1 if there is none
+     */
+    private int firstRowWithGroup(int slot, int firstWord) {
+        for (int i = firstWord; i < indexWords; ++i) {
+            long rowBits = rowsWithGroup[slot * indexWords + i];
+
+            if (rowBits != 0) {
+                return i * Long.SIZE + Long.numberOfTrailingZeros(rowBits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first empty matching seat group of a row.
+     *
+     * @param row the index of the row
+     * @param slot the seat group slot
+     * @return the bitmask of the seat group; 0 if there is none
+     */
+    private long firstEmptyGroup(int row, int slot) {
+        for (long group : layout.groups(slot)) {
+            // the group is available if none of its seats are occupied
+            if ((seats[row] & group) == 0) {
+                return group;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the empty matching seat group that the assignment strategy picks as a reservation, without
+     * occupying it. With FIRST_FIT, that is the first one of the seating section.
+     *
+     * @param slot the seat group slot; -1 if no seat group can match
+     * @return the search result of the seats (see searchResult())
+     */
+    private long findSeats(int slot) {
+        AssignmentStrategy strategy = assignmentStrategy;
+
+        if (slot >= 0 && strategy != AssignmentStrategy.FIRST_FIT) {
+            return findBestFittingSeats(slot, strategy == AssignmentStrategy.LEAST_FRAGMENTATION);
+        }
+
+        // the row index points straight at the first row with a matching group, skipping the full ones, so
+        // only that row is read
+        int row = slot < 0 ? -1 : firstRowWithGroup(slot);
+
+        if (row < 0) {
+            return searchResult(NO_SEATS, 0);
+        }
+
+        return searchResult(reservation(row, firstEmptyGroup(row, slot)), 1);
+    }
+
+    /**
+     * Returns the result of a search: the reservation that it found along with the number of rows whose seats
+     * it read.
+     *
+     * @param reservation the reservation of the seats; NO_SEATS if there were none
+     * @param rowsRead the number of rows whose seats were read
+     * @return the search result
+     */
+    private static long searchResult(long reservation, int rowsRead) {
+        long count = (long) Math.min(rowsRead, MAX_ROWS_READ) << ROWS_READ_SHIFT;
+
+        return reservation == NO_SEATS ? NOT_FOUND | count : reservation | count;
+    }
+
+    /**
+     * Returns the reservation of a search result.
+     *
+     * @param result the search result
+     * @return the reservation of the seats; NO_SEATS if the search found none
+     */
+    private static long reservationOf(long result) {
+        return result < 0 ? NO_SEATS : result & ((1L << ROWS_READ_SHIFT) - 1);
+    }
+
+    /**
+     * Returns the number of rows whose seats a search read.
+     *
+     * @param result the search result
+     * @return the number of rows
+     */
+    private static int rowsReadOf(long result) {
+        return (int) (result >>> ROWS_READ_SHIFT) & MAX_ROWS_READ;
+    }
+
+    /**
+     * Returns the matching empty seat group in the shortest run of empty seats that holds it, as a reservation,
+     * without occupying it. The free-run-length index gives the rows with a run of each length, so only rows
+     * that have both a matching group and a run of the length being tried are read.
+     *
+     * @param slot the seat group slot
+     * @param leastFragmentation true to score the first fit of every run length by the runs it leaves behind;
+     *                           false to take the first fit of the shortest run length
+     * @return the search result of the seats (see searchResult()), counting the rows read for every run length
+     *              tried
+     */
+    private long findBestFittingSeats(int slot, boolean leastFragmentation) {
+        int numOfPassengers = Long.bitCount(layout.groups(slot)[0]);
+        long best = NO_SEATS;
+        int bestScore = Integer.MAX_VALUE;
+        int rowsRead = 0;
+
+        for (int length = numOfPassengers; length <= maxRunLength; ++length) {
+            long result = firstFitInRun(slot, length, leastFragmentation);
+            long reservation = reservationOf(result);
+
+            rowsRead += rowsReadOf(result);
+            if (reservation == NO_SEATS) {
+                continue;
+            }
+            if (!leastFragmentation) {
+                return searchResult(reservation, rowsRead);
+            }
+
+            int score = fragmentation(reservedRow(reservation), reservedGroup(reservation));
+
+            // an exact fit leaves nothing behind, and a longer run can only tie with it
+            if (score == 0) {
+                return searchResult(reservation, rowsRead);
+            }
+            if (score < bestScore) {
+                best = reservation;
+                bestScore = score;
+            }
+        }
+        return searchResult(best, rowsRead);
+    }
+
+    /**
+     * Returns the first row's matching empty seat group that lies in a run of exactly the given number of empty
+     * seats, as a reservation.
+     *
+     * @param slot the seat group slot
+     * @param length the length of the run
+     * @param leastFragmentation true to take the group of the row that scores best by fragmentation(); false to
+     *                           take the row's first matching group
+     * @return the search result of the seats (see searchResult()), which finds none if no row has a matching
+     *              group in such a run
+     */
+    private long firstFitInRun(int slot, int length, boolean leastFragmentation) {
+        long[] rowsWithRun = this.rowsWithRun;
+        int runWords = (length - 1) * indexWords;
+        int rowsRead = 0;
+
+        for (int i = 0; i < indexWords; ++i) {
+            long rowBits = rowsWithGroup[slot * indexWords + i] & rowsWithRun[runWords + i];
+
+            // a row may have its matching groups in runs of other lengths than this one
+            for (; rowBits != 0; rowBits &= rowBits - 1) {
+                int row = i * Long.SIZE + Long.numberOfTrailingZeros(rowBits);
+                long bestGroup = 0L;
+                int bestScore = Integer.MAX_VALUE;
+
+                ++rowsRead;
+                for (long group : layout.groups(slot)) {
+                    if ((seats[row] & group) != 0 || runLength(row, group) != length) {
+                        continue;
+                    }
+                    if (!leastFragmentation) {
+                        return searchResult(reservation(row, group), rowsRead);
+                    }
+
+                    int score = fragmentation(row, group);
+
+                    if (score < bestScore) {
+                        bestGroup = group;
+                        bestScore = score;
+                    }
+                }
+                if (bestGroup != 0) {
+                    return searchResult(reservation(row, bestGroup), rowsRead);
+                }
+            }
+        }
+        return searchResult(NO_SEATS, rowsRead);
+    }
+
+    /**
+     * Returns the number of empty seats in the run that holds an empty seat group.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the empty seat group
+     * @return the length of the run
+     */
+    private int runLength(int row, long group) {
+        return emptySeatsBefore(row, group) + Long.bitCount(group) + emptySeatsAfter(row, group);
+    }
+
+    /**
+     * Returns how badly occupying an empty seat group would split up its run: each run of one seat left on
+     * either side counts 3, as only a single passenger can take it, and each longer run left counts 1.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the empty seat group
+     * @return the score; 0 if the group fills its run
+     */
+    private int fragmentation(int row, long group) {
+        int before = emptySeatsBefore(row, group);
+        int after = emptySeatsAfter(row, group);
+
+        return (before == 1 ? 3 : before > 0 ? 1 : 0) + (after == 1 ? 3 : after > 0 ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of adjacent empty seats before a seat group, up to the next taken seat or aisle.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the seat group
+     * @return the number of empty seats
+     */
+    private int emptySeatsBefore(int row, long group) {
+        int first = Long.numberOfTrailingZeros(group);
+
+        if (first == 0) {
+            return 0;
+        }
+
+        long empty = ~seats[row] & layout.columnGroupSeatsOf(first);
+
+        // the seats below the group move to the top, and the zeros shifted in below them end the count
+        return Long.numberOfLeadingZeros(~(empty << (Long.SIZE - first)));
+    }
+
+    /**
+     * Returns the number of adjacent empty seats after a seat group, up to the next taken seat or aisle.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the seat group
+     * @return the number of empty seats
+     */
+    private int emptySeatsAfter(int row, long group) {
+        int last = Long.SIZE - 1 - Long.numberOfLeadingZeros(group);
+
+        if (last == Long.SIZE - 1) {
+            return 0;
+        }
+
+        long empty = ~seats[row] & layout.columnGroupSeatsOf(last);
+
+        return Long.numberOfTrailingZeros(~(empty >>> (last + 1)));
+    }
+
+    /**
+     * Returns the lengths of the runs of empty seats of a row, each run ending at a taken seat, an aisle or a
+     * wall.
+     *
+     * @param rowSeats the occupancy bitmask of the row
+     * @return the run lengths, with bit L - 1 set if there is a run of L seats
+     */
+    private long runLengths(long rowSeats) {
+        long runs = 0L;
+
+        for (int g = 0; g < numOfColumnGroups; ++g) {
+            long empty = ~rowSeats & layout.getColumnGroupSeats(g);
+
+            while (empty != 0) {
+                int first = Long.numberOfTrailingZeros(empty);
+                int length = Long.numberOfTrailingZeros(~(empty >>> first));
+
+                runs |= 1L << (length - 1);
+                empty &= ~seatRun(first, length);
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Packs a seat group of a row into a reservation.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the seat group
+     * @return the reservation of the seats
+     */
+    private static long reservation(int row, long group) {
+        return reservation(row, Long.numberOfTrailingZeros(group), Long.SIZE - 1 - Long.numberOfLeadingZeros(group));
+    }
+
+    /**
+     * Packs a row and a range of columns into a reservation.
+     *
+     * @param row the index of the row
+     * @param firstColumn the index of the first reserved column
+     * @param lastColumn the index of the last reserved column
+     * @return the reservation of the seats
+     */
+    private static long reservation(int row, int firstColumn, int lastColumn) {
+        return (long) row << 16 | firstColumn << 8 | lastColumn;
+    }
+
+    /**
+     * Returns the bitmask of the seats of a reservation.
+     *
+     * @param reservation the reservation of the seats
+     * @return the bitmask of the seats within their row
+     */
+    private static long reservedGroup(long reservation) {
+        int firstColumn = reservedFirstColumn(reservation);
+
+        return seatRun(firstColumn, reservedLastColumn(reservation) - firstColumn + 1);
+    }
+
+    /**
+     * Returns the index of the row of a reservation.
+     *
+     * @param reservation a reservation returned by tryReserve()
+     * @return the index of the reserved row
+     */
+    public static int reservedRow(long reservation) {
+        return (int) (reservation >>> 16);
+    }
+
+    /**
+     * Returns the index of the first column of a reservation.
+     *
+     * @param reservation a reservation returned by tryReserve()
+     * @return the index of the first reserved column
+     */
+    public static int reservedFirstColumn(long reservation) {
+        return (int) (reservation >>> 8) & 0xFF;
+    }
+
+    /**
+     * Returns the index of the last column of a reservation.
+     *
+     * @param reservation a reservation returned by tryReserve()
+     * @return the index of the last reserved column
+     */
+    public static int reservedLastColumn(long reservation) {
+        return (int) reservation & 0xFF;
+    }
+
+    /**
+     * Returns the indexes of the available seats of the specified seating location.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the array containing:
+     *              - the index of the row to add,
+     *              - the index of the column to begin adding,
+     *              - the index of the column to stop after adding
+     */
+    public int[] availableSeatsOfLocationType(int numOfPassengers, SeatLocation seatingLocation) {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        // a disabled event does nothing, and the JIT compiler removes it
+        SeatSearchEvent event = new SeatSearchEvent();
+
+        event.begin();
+        int slot = groupSlot(numOfPassengers, seatingLocation);
+        int rowsRead = 0;
+        long reservation;
+        int tries = 0;
+        long stamp;
+
+        // while a booking is in progress, the row index may still point at a row that it just filled
+        try {
+            do {
+                stamp = startRead(tries++);
+
+                long result = findSeats(slot);
+
+                reservation = reservationOf(result);
+                rowsRead += rowsReadOf(result);
+            } while (!validate(stamp));
+        } finally {
+            endRead(tries);
+        }
+
+        if (SeatingMetrics.ENABLED) {
+            SeatingMetrics.recordSearch(seatingLocation, reservation != NO_SEATS, rowsRead, startNanos);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sectionSize = seats.length + "x" + columns;
+            event.seatingLocation = seatingLocation == null ? null : seatingLocation.getName();
+            event.partySize = numOfPassengers;
+            event.assignmentStrategy = assignmentStrategy.name();
+            event.rowsScanned = rowsRead;
+            event.found = reservation != NO_SEATS;
+            event.commit();
+        }
+
+        if (reservation == NO_SEATS) {
+            // there are no available seats of the location type
+            return new int[0];
+        }
+        return new int[]{reservedRow(reservation), reservedFirstColumn(reservation), reservedLastColumn(reservation)};
+    }
+
+    /**
+     * Returns the indexes of the available seats of the specified seating location.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row (aisle, center, or window)
+     * @return the array containing:
+     *              - the index of the row to add,
+     *              - the index of the column to begin adding,
+     *              - the index of the column to stop after adding
+     */
+    public int[] availableSeatsOfLocationType(int numOfPassengers, String seatingLocation) {
+        return availableSeatsOfLocationType(numOfPassengers, SeatLocation.fromName(seatingLocation));
+    }
+
+    /**
+     * Returns how many more parties of the given size could still be seated at the specified seating location,
+     * taking the empty matching seat groups of each row in order without overlapping.
+     *
+     * @param numOfPassengers the number of passengers in each party
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the number of parties that could still be seated
+     */
+    public int countAvailableGroups(int numOfPassengers, SeatLocation seatingLocation) {
+        int slot = groupSlot(numOfPassengers, seatingLocation);
+        int numOfGroups;
+        int tries = 0;
+        long stamp;
+
+        if (slot < 0) {
+            return 0;
+        }
+        try {
+            do {
+                stamp = startRead(tries++);
+                numOfGroups = countAvailableGroups(slot);
+            } while (!validate(stamp));
+        } finally {
+            endRead(tries);
+        }
+        return numOfGroups;
+    }
+
+    /**
+     * Returns how many more parties of a seat group slot could still be seated, without checking that the seats
+     * stay the same while they are counted.
+     *
+     * @param slot the seat group slot
+     * @return the number of parties that could still be seated
+     */
+    private int countAvailableGroups(int slot) {
+        int numOfGroups = 0;
+
+        // only the rows in the index have any matching seat groups left
+        for (int i = 0; i < indexWords; ++i) {
+            for (long rowBits = rowsWithGroup[slot * indexWords + i]; rowBits != 0; rowBits &= rowBits - 1) {
+                long taken = seats[i * Long.SIZE + Long.numberOfTrailingZeros(rowBits)];
+
+                for (long group : layout.groups(slot)) {
+                    if ((taken & group) == 0) {
+                        ++numOfGroups;
+                        taken |= group;
+                    }
+                }
+            }
+        }
+        return numOfGroups;
+    }
+
+    /**
+     * Finds the available seats of the specified seating location that the assignment strategy picks and
+     * occupies them in a single search.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the reservation of the seats, to be read with reservedRow(), reservedFirstColumn() and
+     *              reservedLastColumn(); NO_SEATS if there are no matching seats
+     */
+    public long tryReserve(int numOfPassengers, SeatLocation seatingLocation) {
+        return reserve(numOfPassengers, seatingLocation, false);
+    }
+
+    /**
+     * Finds the available seats of the specified seating location that the assignment strategy picks and holds
+     * them, as tryReserve() would book them. The seats stay held until confirmHold() or releaseHold().
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @return the reservation of the held seats; NO_SEATS if there are no matching seats
+     */
+    public long tryHold(int numOfPassengers, SeatLocation seatingLocation) {
+        return reserve(numOfPassengers, seatingLocation, true);
+    }
+
+    /**
+     * Books the seats of a hold, which stay occupied but are no longer held.
+     *
+     * @param reservation the reservation returned by tryHold()
+     * @return true if the seats were booked; false if they are not all held
+     */
+    public boolean confirmHold(long reservation) {
+        int row = reservedRow(reservation);
+        boolean confirmed;
+
+        if (rowLocks != null) {
+            synchronized (rowLock(row)) {
+                confirmed = endHold(row, reservedGroup(reservation), true);
+            }
+        } else {
+            confirmed = endHold(row, reservedGroup(reservation), true);
+        }
+        if (SeatingMetrics.ENABLED && confirmed) {
+            SeatingMetrics.recordHoldEnd(numOfSeatsOf(reservation), true, false);
+        }
+        return confirmed;
+    }
+
+    /**
+     * Empties the seats of a hold, so that they can be booked again.
+     *
+     * @param reservation the reservation returned by tryHold()
+     * @return true if the seats were emptied; false if they are not all held
+     */
+    public boolean releaseHold(long reservation) {
+        return releaseHold(reservation, false);
+    }
+
+    /**
+     * Empties the seats of a hold, so that they can be booked again, telling the SeatingMetrics why.
+     *
+     * @param reservation the reservation returned by tryHold()
+     * @param expired true if the hold's time to live is up; false if it was given up
+     * @return true if the seats were emptied; false if they are not all held
+     */
+    boolean releaseHold(long reservation, boolean expired) {
+        int row = reservedRow(reservation);
+        boolean released;
+
+        if (rowLocks != null) {
+            synchronized (rowLock(row)) {
+                released = endHold(row, reservedGroup(reservation), false);
+            }
+        } else {
+            released = endHold(row, reservedGroup(reservation), false);
+        }
+        if (SeatingMetrics.ENABLED && released) {
+            SeatingMetrics.recordHoldEnd(numOfSeatsOf(reservation), false, expired);
+        }
+        return released;
+    }
+
+    /**
+     * Ends the hold of a group of seats by booking or emptying them. In a concurrent seating section, the caller
+     * must hold the row's lock.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the held seats
+     * @param confirm true to book the seats; false to empty them
+     * @return true if the hold ended; false if the seats are not all held
+     */
+    private boolean endHold(int row, long group, boolean confirm) {
+        if ((heldSeats(row) & group) != group) {
+            return false;
+        }
+        if (confirm) {
+            // the seats were occupied all along, so the indexes stay as they are; the version moves on all the
+            // same, as the seat map shows the seats as booked now
+            beginChange(row);
+            held[row] &= ~group;
+            finishChange(0);
+        } else {
+            vacate(row, group);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the available seats of the specified seating location that the assignment strategy picks and books or
+     * holds them.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     * @param hold true to hold the seats; false to book them
+     * @return the reservation of the seats; NO_SEATS if there are no matching seats
+     */
+    private long reserve(int numOfPassengers, SeatLocation seatingLocation, boolean hold) {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        int slot = groupSlot(numOfPassengers, seatingLocation);
+        long result = rowLocks != null ? tryReserveConcurrently(slot, hold) : findSeats(slot);
+        long reservation = reservationOf(result);
+
+        if (rowLocks == null && reservation != NO_SEATS) {
+            occupy(reservedRow(reservation), reservedGroup(reservation), hold);
+        }
+
+        if (SeatingMetrics.ENABLED && hold) {
+            SeatingMetrics.recordHold(seatingLocation, reservation != NO_SEATS, rowsReadOf(result), startNanos);
+        } else if (SeatingMetrics.ENABLED) {
+            recordBooking(seatingLocation, reservation, rowsReadOf(result), startNanos);
+        }
+        return reservation;
+    }
+
+    /**
+     * Records a booking in the SeatingMetrics.
+     *
+     * @param seatingLocation the location of the seat relative to the row
+     * @param reservation the reservation of the seats; NO_SEATS if there were no matching seats
+     * @param rowsRead the number of rows whose seats the search read
+     * @param startNanos the System.nanoTime() when the booking began
+     */
+    private static void recordBooking(SeatLocation seatingLocation, long reservation, int rowsRead,
+                                      long startNanos) {
+        SeatingMetrics.recordBooking(seatingLocation, reservation == NO_SEATS ? 0 : numOfSeatsOf(reservation), rowsRead,
+                                     startNanos);
+    }
+
+    /**
+     * Returns the number of seats of a reservation.
+     *
+     * @param reservation the reservation of the seats
+     * @return the number of seats
+     */
+    private static int numOfSeatsOf(long reservation) {
+        return reservedLastColumn(reservation) - reservedFirstColumn(reservation) + 1;
+    }
+
+    /**
+     * Seats the given parties one after another, in a single sweep over the rows for each seat group slot. Each
+     * party gets the same seats as its own tryReserve() call would; the sweep just never goes back to the rows
+     * that an earlier party of the same slot already found without matching seats, since seats only fill up.
+     * Strategies other than FIRST_FIT search for each party on its own.
+     *
+     * @param requests the parties to seat; the cabin class of each request is not checked
+     * @param positions the indexes of the requests for this seating section, in the order to seat them
+     * @param first the index in positions of the first request to seat
+     * @param numOfRequests the number of requests to seat
+     * @param reservations receives the reservation of each request at the request's index; NO_SEATS if there
+     *                     were no matching seats
+     */
+    void tryReserveBatch(List<BookingRequest> requests, int[] positions, int first, int numOfRequests,
+                         long[] reservations) {
+        // the word of the row index where each slot's sweep currently is
+        int[] cursors = new int[layout.numOfSlots()];
+
+        for (int k = first; k < first + numOfRequests; ++k) {
+            long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+            // each party of the batch is a booking of its own for the flight recorder, as with Airplane.tryReserve()
+            BookingCommitEvent event = new BookingCommitEvent();
+
+            event.begin();
+            BookingRequest request = requests.get(positions[k]);
+            int slot = groupSlot(request.getNumOfPassengers(), request.getSeatingLocation());
+            long reservation = NO_SEATS;
+            int rowsRead = 0;
+
+            if (rowLocks != null) {
+                // other threads may book this section at the same time, so every party needs its own search
+                long result = tryReserveConcurrently(slot, false);
+
+                reservation = reservationOf(result);
+                rowsRead = rowsReadOf(result);
+            } else if (slot >= 0 && assignmentStrategy != AssignmentStrategy.FIRST_FIT) {
+                // the best fit can be in any row, so there is no sweep to continue
+                long result = findSeats(slot);
+
+                reservation = reservationOf(result);
+                rowsRead = rowsReadOf(result);
+                if (reservation != NO_SEATS) {
+                    occupy(reservedRow(reservation), reservedGroup(reservation));
+                }
+            } else if (slot >= 0) {
+                int row = firstRowWithGroup(slot, cursors[slot]);
+
+                if (row >= 0) {
+                    long group = firstEmptyGroup(row, slot);
+
+                    cursors[slot] = row / Long.SIZE;
+                    occupy(row, group);
+                    reservation = reservation(row, group);
+                    rowsRead = 1;
+                }
+            }
+            reservations[positions[k]] = reservation;
+            if (SeatingMetrics.ENABLED) {
+                recordBooking(request.getSeatingLocation(), reservation, rowsRead, startNanos);
+            }
+            event.end();
+            if (reservation != NO_SEATS && event.shouldCommit()) {
+                event.cabinClass = request.getCabinClass().name();
+                event.seatingLocation = request.getSeatingLocation() == null ? null
+                                        : request.getSeatingLocation().getName();
+                event.partySize = request.getNumOfPassengers();
+                event.row = reservedRow(reservation);
+                event.firstColumn = reservedFirstColumn(reservation);
+                event.lastColumn = reservedLastColumn(reservation);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Finds the first available seats of a concurrent seating section and occupies them. The row is picked
+     * without locking, then checked again and booked under its lock; if another booking took the seats first,
+     * the search moves on to the next row.
+     *
+     * @param slot the seat group slot; -1 if no seat group can match
+     * @param hold true to hold the seats; false to book them
+     * @return the search result of the seats (see searchResult()), counting every row read under its lock
+     */
+    private long tryReserveConcurrently(int slot, boolean hold) {
+        if (slot < 0) {
+            return searchResult(NO_SEATS, 0);
+        }
+        if (assignmentStrategy != AssignmentStrategy.FIRST_FIT) {
+            return tryReserveBestFitConcurrently(slot, hold);
+        }
+
+        int rowsRead = 0;
+        int row;
+        while ((row = firstRowWithGroup(slot)) >= 0) {
+            ++rowsRead;
+            synchronized (rowLock(row)) {
+                long group = firstEmptyGroup(row, slot);
+
+                if (group != 0) {
+                    occupy(row, group, hold);
+                    return searchResult(reservation(row, group), rowsRead);
+                }
+            }
+            // the seats were taken first; the booking that took them has already cleared the row from the index
+            if (SeatingMetrics.ENABLED) {
+                SeatingMetrics.recordLostRow();
+            }
+        }
+        return searchResult(NO_SEATS, rowsRead);
+    }
+
+    /**
+     * Finds the available seats of a concurrent seating section that the assignment strategy picks and occupies
+     * them. The seats are picked without locking, then checked again and booked under the lock of their row; if
+     * another booking took any of them first, the seats are picked again.
+     *
+     * @param slot the seat group slot
+     * @param hold true to hold the seats; false to book them
+     * @return the search result of the seats (see searchResult()), counting the rows read by every search
+     */
+    private long tryReserveBestFitConcurrently(int slot, boolean hold) {
+        int rowsRead = 0;
+        long reservation;
+
+        while (true) {
+            long result = findSeats(slot);
+
+            reservation = reservationOf(result);
+            rowsRead += rowsReadOf(result);
+            if (reservation == NO_SEATS) {
+                return searchResult(NO_SEATS, rowsRead);
+            }
+
+            int row = reservedRow(reservation);
+            long group = reservedGroup(reservation);
+
+            synchronized (rowLock(row)) {
+                if ((seats[row] & group) == 0) {
+                    occupy(row, group, hold);
+                    return searchResult(reservation, rowsRead);
+                }
+            }
+            if (SeatingMetrics.ENABLED) {
+                SeatingMetrics.recordLostRow();
+            }
+        }
+    }
+
+    /**
+     * Finds the first available seats of the specified seating location and occupies them in a single search.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row (aisle, center, window, or row)
+     * @return the reservation of the seats; NO_SEATS if there are no matching seats
+     */
+    public long tryReserve(int numOfPassengers, String seatingLocation) {
+        return tryReserve(numOfPassengers, SeatLocation.fromName(seatingLocation));
+    }
+
+    /**
+     * Adds a passenger to the seating section. Fills from left to right; does nothing if there are no
+     * matching seats.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row
+     */
+    public void addPassengers(int numOfPassengers, SeatLocation seatingLocation) {
+        tryReserve(numOfPassengers, seatingLocation);
+    }
+
+    /**
+     * Adds a passenger to the seating section. Fills from left to right; does nothing if there are no
+     * matching seats.
+     *
+     * @param numOfPassengers the number of passengers to seat
+     * @param seatingLocation the location of the seat relative to the row (aisle, center, or window)
+     */
+    public void addPassengers(int numOfPassengers, String seatingLocation) {
+        tryReserve(numOfPassengers, SeatLocation.fromName(seatingLocation));
+    }
+
+    /**
+     * Marks a group of empty seats in a row as occupied and updates the free-seat counters. In a concurrent
+     * seating section, the caller must hold the row's lock.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the seats to occupy
+     */
+    private void occupy(int row, long group) {
+        occupy(row, group, false);
+    }
+
+    /**
+     * Marks a group of empty seats in a row as occupied, and optionally as held, and updates the free-seat
+     * counters. In a concurrent seating section, the caller must hold the row's lock.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the seats to occupy
+     * @param hold true to mark the seats as held as well; false otherwise
+     */
+    private void occupy(int row, long group, boolean hold) {
+        long newSeats = group & ~seats[row];
+
+        beginChange(row);
+        seats[row] |= newSeats;
+        if (hold) {
+            heldRows()[row] |= newSeats;
+        }
+        for (int g = 0; g < numOfColumnGroups; ++g) {
+            long groupSeats = newSeats & layout.getColumnGroupSeats(g);
+
+            freeSeatsInGroup[row * numOfColumnGroups + g] -= (byte) Long.bitCount(groupSeats);
+        }
+
+        // seats only ever fill up here, so the row can only drop out of the index
+        long rowBit = 1L << row;
+
+        for (int slot = 0; slot < layout.numOfSlots(); ++slot) {
+            int word = slot * indexWords + row / Long.SIZE;
+
+            if ((rowsWithGroup[word] & rowBit) != 0 && firstEmptyGroup(row, slot) == 0) {
+                if (rowLocks != null) {
+                    // the other rows sharing the index word may be booked at the same time
+                    INDEX_WORDS.getAndBitwiseAnd(rowsWithGroup, word, ~rowBit);
+                } else {
+                    rowsWithGroup[word] &= ~rowBit;
+                }
+            }
+        }
+
+        updateRunIndex(row);
+        finishChange(-Long.bitCount(newSeats));
+    }
+
+    /**
+     * Marks a group of held seats in a row as empty again and updates the free-seat counters. In a concurrent
+     * seating section, the caller must hold the row's lock.
+     *
+     * @param row the index of the row
+     * @param group the bitmask of the held seats to empty
+     */
+    private void vacate(int row, long group) {
+        long freedSeats = group & seats[row];
+
+        beginChange(row);
+        seats[row] &= ~freedSeats;
+        heldRows()[row] &= ~freedSeats;
+        for (int g = 0; g < numOfColumnGroups; ++g) {
+            long groupSeats = freedSeats & layout.getColumnGroupSeats(g);
+
+            freeSeatsInGroup[row * numOfColumnGroups + g] += (byte) Long.bitCount(groupSeats);
+        }
+
+        // seats only ever empty out here, so the row can only join the index
+        long rowBit = 1L << row;
+
+        for (int slot = 0; slot < layout.numOfSlots(); ++slot) {
+            int word = slot * indexWords + row / Long.SIZE;
+
+            if ((rowsWithGroup[word] & rowBit) == 0 && firstEmptyGroup(row, slot) != 0) {
+                if (rowLocks != null) {
+                    INDEX_WORDS.getAndBitwiseOr(rowsWithGroup, word, rowBit);
+                } else {
+                    rowsWithGroup[word] |= rowBit;
+                }
+            }
+        }
+
+        updateRunIndex(row);
+        finishChange(Long.bitCount(freedSeats));
+    }
+
+    /**
+     * Begins a change to the seats of a row by bumping the version and stamping the row with it. In a concurrent
+     * seating section, the caller must hold the row's lock.
+     *
+     * @param row the index of the row
+     */
+    private void beginChange(int row) {
+        // a reader that changes kept spoiling gets its read done first; it never waits for a row lock, so it
+        // cannot be waiting for the one held here
+        while (numOfStarvedReaders != 0) {
+            Thread.yield();
+        }
+        // the new version is taken under the row lock, so changesSince() sees the row once it sees the version
+        if (rowLocks != null) {
+            rowVersions[row] = (long) VERSION.getAndAdd(this, 1L) + 1;
+        } else {
+            rowVersions[row] = ++version;
+        }
+    }
+
+    /**
+     * Returns the lock of a row in a concurrent seating section, making it the first time the row is locked.
+     *
+     * @param row the index of the row
+     * @return the lock of the row
+     */
+    private Object rowLock(int row) {
+        Object lock = ROW_LOCKS.getAcquire(rowLocks, row);
+
+        if (lock == null) {
+            // of two threads locking the row for the first time, both take the lock that was made first
+            Object newLock = new Object();
+
+            lock = ROW_LOCKS.compareAndExchange(rowLocks, row, null, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Returns the held seats of each row, making them for the first hold of the seating section. In a
+     * concurrent seating section, the caller must hold the lock of the row it changes.
+     *
+     * @return the bitmask of the held seats of each row
+     */
+    private long[] heldRows() {
+        long[] rowHeld = held;
+
+        if (rowHeld == null) {
+            // the first holds of two rows may race, and both keep the seats of the one that won
+            long[] newHeld = new long[seats.length];
+
+            rowHeld = (long[]) HELD.compareAndExchange(this, null, newHeld);
+            if (rowHeld == null) {
+                rowHeld = newHeld;
+            }
+        }
+        return rowHeld;
+    }
+
+    /**
+     * Returns the held seats of a row.
+     *
+     * @param row the index of the row
+     * @return the bitmask of the held seats of the row; 0 if the seating section was never held
+     */
+    private long heldSeats(int row) {
+        long[] rowHeld = held;
+
+        return rowHeld != null ? rowHeld[row] : 0L;
+    }
+
+    /**
+     * Copies the held seats of a run of rows.
+     *
+     * @param firstRow the index of the first row of the run
+     * @param rowHeld receives the bitmask of the held seats of each row of the run
+     */
+    private void copyHeld(int firstRow, long[] rowHeld) {
+        long[] held = this.held;
+
+        if (held != null) {
+            System.arraycopy(held, firstRow, rowHeld, 0, rowHeld.length);
+        } else {
+            Arrays.fill(rowHeld, 0L);
+        }
+    }
+
+    /**
+     * Brings the free-run-length index up to date with the seats of a row, if the index was built. In a
+     * concurrent seating section, the caller must hold the row's lock.
+     *
+     * @param row the index of the row
+     */
+    private void updateRunIndex(int row) {
+        long[] rowsWithRun = this.rowsWithRun;
+
+        if (rowsWithRun == null) {
+            return;
+        }
+
+        // a run that loses seats gets shorter or splits, and one that gains seats grows or merges, so the row can
+        // both join and leave run lengths
+        long runs = runLengths(seats[row]);
+        long rowBit = 1L << row;
+
+        for (long changed = runs ^ rowRuns[row]; changed != 0; changed &= changed - 1) {
+            int bit = Long.numberOfTrailingZeros(changed);
+            int word = bit * indexWords + row / Long.SIZE;
+            boolean joined = (runs & (1L << bit)) != 0;
+
+            if (rowLocks != null) {
+                if (joined) {
+                    INDEX_WORDS.getAndBitwiseOr(rowsWithRun, word, rowBit);
+                } else {
+                    INDEX_WORDS.getAndBitwiseAnd(rowsWithRun, word, ~rowBit);
+                }
+            } else {
+                rowsWithRun[word] = joined ? rowsWithRun[word] | rowBit : rowsWithRun[word] & ~rowBit;
+            }
+        }
+        rowRuns[row] = runs;
+    }
+
+    /**
+     * Finishes a change begun by beginChange() by updating the free-seat counter and counting the change as done.
+     *
+     * @param freedSeats the number of seats that the change emptied; negative for the seats it occupied
+     */
+    private void finishChange(int freedSeats) {
+        if (rowLocks != null) {
+            FREE_SEATS.getAndAdd(this, freedSeats);
+            WRITES_FINISHED.getAndAdd(this, 1L);
+        } else {
+            freeSeats += freedSeats;
+            writesFinished = version;
+            // the counters can only be checked while nobody else is booking
+            if (SELF_CHECK) {
+                checkConsistency();
+            }
+        }
+    }
+
+    /**
+     * Returns a description of the SeatingSection as a string, numbering the rows from 1.
+     *
+     * @return a description of the SeatingSection as a string
+     */
+    public String toString() {
+        return toString(1);
+    }
+
+    /**
+     * Returns a description of the SeatingSection as a string, numbering the rows from the given row number so
+     * that the sections of an Airplane can be displayed one after another.
+     *
+     * @param firstRowNumber the number displayed for the first row of the section
+     * @return a description of the SeatingSection as a string
+     */
+    public String toString(int firstRowNumber) {
+        long startNanos = SeatingMetrics.ENABLED ? System.nanoTime() : 0L;
+        StringBuilder description = new StringBuilder(getRenderedLength(firstRowNumber));
+
+        renderTo(description, firstRowNumber);
+        if (SeatingMetrics.ENABLED) {
+            SeatingMetrics.recordRender(startNanos);
+        }
+        return description.toString();
+    }
+
+    /**
+     * Returns the number of characters that rendering the SeatingSection produces.
+     *
+     * @param firstRowNumber the number displayed for the first row of the section
+     * @return the number of characters of the description
+     */
+    public int getRenderedLength(int firstRowNumber) {
+        return renderedLength(layout, seats.length, firstRowNumber);
+    }
+
+    /**
+     * Returns the number of characters that rendering rows of a seat layout produces.
+     *
+     * @param layout the layout of the seats of each row
+     * @param numOfRows the number of rows
+     * @param firstRowNumber the number displayed for the first row
+     * @return the number of characters of the description
+     */
+    static int renderedLength(SeatLayout layout, int numOfRows, int firstRowNumber) {
+        int length = numOfRows * layout.rowTemplate().length;
+
+        // the row numbers are padded to at least 3 characters
+        for (int i = 0; i < numOfRows; ++i) {
+            length += Math.max(3, numOfDigits(firstRowNumber + i));
+        }
+        return length;
+    }
+
+    /**
+     * Appends the description of the SeatingSection to a StringBuilder, exactly as toString() returns it.
+     *
+     * @param out the StringBuilder to append to
+     * @param firstRowNumber the number displayed for the first row of the section
+     */
+    public void renderTo(StringBuilder out, int firstRowNumber) {
+        try {
+            renderTo((Appendable) out, firstRowNumber);
+        } catch (IOException e) {
+            // a StringBuilder never throws an IOException
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the description of the SeatingSection to an Appendable, exactly as toString() returns it. The rows
+     * are copied from a precomputed row template one character at a time, so nothing is allocated.
+     *
+     * @param out the Appendable to append to
+     * @param firstRowNumber the number displayed for the first row of the section
+     * @throws IOException if the Appendable throws
+     */
+    public void renderTo(Appendable out, int firstRowNumber) throws IOException {
+        for (int i = 0; i < seats.length; ++i) {
+            long rowSeats;
+            long rowHeld;
+            int tries = 0;
+            long stamp;
+
+            // each row is an optimistic read of its occupied and held seats, retried if a change was made
+            // meanwhile, so a row being booked or held shows either before or after the change
+            try {
+                do {
+                    stamp = startRead(tries++);
+                    rowSeats = seats[i];
+                    rowHeld = heldSeats(i);
+                } while (!validate(stamp));
+            } finally {
+                endRead(tries);
+            }
+            renderRow(out, layout, firstRowNumber + i, rowSeats, rowHeld);
+        }
+    }
+
+    /**
+     * Appends the description of one row to an Appendable, as renderTo() describes each row.
+     *
+     * @param out the Appendable to append to
+     * @param layout the layout of the seats of the row
+     * @param rowNumber the number displayed for the row
+     * @param rowSeats the occupancy bitmask of the row
+     * @param rowHeld the bitmask of the held seats of the row
+     * @throws IOException if the Appendable throws
+     */
+    static void renderRow(Appendable out, SeatLayout layout, int rowNumber, long rowSeats, long rowHeld)
+            throws IOException {
+        char[] template = layout.rowTemplate();
+        byte[] seatColumns = layout.seatColumns();
+
+        // right-align the row number to 3 characters, as "%3s" would
+        for (int padding = 3 - numOfDigits(rowNumber); padding > 0; --padding) {
+            out.append(' ');
+        }
+        for (int divisor = powerOfTen(numOfDigits(rowNumber) - 1); divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + rowNumber / divisor % 10));
+        }
+
+        for (int k = 0; k < template.length; ++k) {
+            int column = seatColumns[k];
+
+            out.append(column < 0 || (rowSeats & (1L << column)) == 0 ? template[k]
+                       : (rowHeld & (1L << column)) != 0 ? '*' : 'X');
+        }
+    }
+
+    /**
+     * Writes the description of the SeatingSection into a ByteBuffer as ASCII, exactly as toString() returns it.
+     *
+     * @param out the ByteBuffer to write to; it needs getRenderedLength() bytes remaining
+     * @param firstRowNumber the number displayed for the first row of the section
+     */
+    public void renderTo(ByteBuffer out, int firstRowNumber) {
+        for (int i = 0; i < seats.length; ++i) {
+            long rowSeats;
+            long rowHeld;
+            int tries = 0;
+            long stamp;
+
+            try {
+                do {
+                    stamp = startRead(tries++);
+                    rowSeats = seats[i];
+                    rowHeld = heldSeats(i);
+                } while (!validate(stamp));
+            } finally {
+                endRead(tries);
+            }
+            renderRow(out, layout, firstRowNumber + i, rowSeats, rowHeld);
+        }
+    }
+
+    /**
+     * Writes the description of one row into a ByteBuffer as ASCII, as renderTo() describes each row.
+     *
+     * @param out the ByteBuffer to write to
+     * @param layout the layout of the seats of the row
+     * @param rowNumber the number displayed for the row
+     * @param rowSeats the occupancy bitmask of the row
+     * @param rowHeld the bitmask of the held seats of the row
+     */
+    static void renderRow(ByteBuffer out, SeatLayout layout, int rowNumber, long rowSeats, long rowHeld) {
+        char[] template = layout.rowTemplate();
+        byte[] seatColumns = layout.seatColumns();
+
+        for (int padding = 3 - numOfDigits(rowNumber); padding > 0; --padding) {
+            out.put((byte) ' ');
+        }
+        for (int divisor = powerOfTen(numOfDigits(rowNumber) - 1); divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + rowNumber / divisor % 10));
+        }
+
+        for (int k = 0; k < template.length; ++k) {
+            int column = seatColumns[k];
+
+            out.put((byte) (column < 0 || (rowSeats & (1L << column)) == 0 ? template[k]
+                            : (rowHeld & (1L << column)) != 0 ? '*' : 'X'));
+        }
+    }
+
+    /**
+     * Returns the number of decimal digits of a row number.
+     *
+     * @param rowNumber the row number, at least 0
+     * @return the number of digits
+     */
+    private static int numOfDigits(int rowNumber) {
+        int digits = 1;
+
+        for (int rest = rowNumber / 10; rest > 0; rest /= 10) {
+            ++digits;
+        }
+        return digits;
+    }
+
+    /**
+     * Returns 10 to the given power.
+     *
+     * @param exponent the power, at least 0
+     * @return 10 to the power
+     */
+    private static int powerOfTen(int exponent) {
+        int power = 1;
+
+        for (int i = 0; i < exponent; ++i) {
+            power *= 10;
+        }
+        return power;
     }
 }
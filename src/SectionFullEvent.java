@@ -0,0 +1,29 @@
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for a booking through an Airplane that was turned away because its seating section
+ * has fewer empty seats than the party. Bookings turned away for lack of a matching seat group, while enough
+ * seats are still empty, are not reported.
+ */
+@Name("seating.SectionFull")
+@Label("Section Full Rejection")
+@Category("Seating")
+@Description("A booking rejected because its seating section does not have enough empty seats")
+@Threshold("0 ns")
+final class SectionFullEvent extends jdk.jfr.Event {
+
+    @Label("Cabin Class")
+    String cabinClass;
+
+    @Label("Party Size")
+    int partySize;
+
+    @Label("Free Seats")
+    @Description("The empty seats left in the seating section")
+    int freeSeats;
+}
@@ -0,0 +1,247 @@
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Purpose: To replay a booking session against an Airplane without a terminal or a network, so that two engines
+ *          can be compared under exactly the same load. The session is either generated from a seed or read from
+ *          a file recorded earlier, and every command runs through LineCommand, as it would from a BookingServer
+ *          client, against a plane built from seat layouts.
+ *
+ * Target Output: The throughput, the p50/p99/p999/max latency of a command, the bookings that succeeded and
+ *                  failed, and the load factor of each cabin class once the session is done. With --responses,
+ *                  every response is also written to a file, which is the same for every engine that seats the
+ *                  passengers the same way.
+ *
+ * Usage: java WorkloadReplay [--seed n] [--commands n] [--replay file] [--record file] [--rate commands/s]
+ *                            [--first rowsxlayout] [--economy rowsxlayout] [--concurrent] [--responses file]
+ *                            [--warmups n] [--strategy first-fit|best-fit|least-fragmentation]
+ *
+ *        At a target rate, the commands are sent on a fixed schedule and the latency of a command counts from
+ *        when it was due, so a stall delays the commands queued behind it instead of hiding them. Without a
+ *        rate, the commands run back to back. Before the measured replay, the session is replayed as fast as
+ *        possible against fresh planes (2 times by default), so that class loading and compilation are done.
+ */
+public class WorkloadReplay {
+
+    /**
+     * Generates or reads a session, optionally records it, and replays it.
+     *
+     * @param args the options, see Usage; the defaults are seed 1, 10000 commands, as fast as possible, against
+     *             MainTest's plane of 5 rows of 2-2 in first class and 15 rows of 3-3 in economy, after 2 warm-ups
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int numOfCommands = 10000;
+        Path replayFile = null;
+        Path recordFile = null;
+        Path responsesFile = null;
+        double rate = 0;
+        String first = "5x2-2";
+        String economy = "15x3-3";
+        boolean concurrent = false;
+        int warmups = 2;
+        AssignmentStrategy strategy = AssignmentStrategy.FIRST_FIT;
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--commands":
+                    numOfCommands = Integer.parseInt(args[++i]);
+                    break;
+                case "--replay":
+                    replayFile = Paths.get(args[++i]);
+                    break;
+                case "--record":
+                    recordFile = Paths.get(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--first":
+                    first = args[++i];
+                    break;
+                case "--economy":
+                    economy = args[++i];
+                    break;
+                case "--concurrent":
+                    concurrent = true;
+                    break;
+                case "--responses":
+                    responsesFile = Paths.get(args[++i]);
+                    break;
+                case "--warmups":
+                    warmups = Integer.parseInt(args[++i]);
+                    break;
+                case "--strategy":
+                    strategy = AssignmentStrategy.fromName(args[++i]);
+                    if (strategy == null) {
+                        throw new IllegalArgumentException("Unknown assignment strategy: " + args[i]);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        BookingWorkload workload = replayFile != null ? BookingWorkload.read(replayFile)
+                : BookingWorkload.generate(seed, numOfCommands, BookingWorkload.Mix.DEFAULT);
+
+        if (recordFile != null) {
+            workload.write(recordFile);
+        }
+
+        for (int i = 0; i < warmups; ++i) {
+            Airplane airplane = new Airplane(rowsOf(first), layoutOf(first), rowsOf(economy), layoutOf(economy),
+                                             concurrent);
+
+            airplane.setAssignmentStrategy(strategy);
+            run(workload, airplane, 0L, new LatencyHistogram(), null);
+        }
+
+        Airplane airplane = new Airplane(rowsOf(first), layoutOf(first), rowsOf(economy), layoutOf(economy),
+                                         concurrent);
+
+        airplane.setAssignmentStrategy(strategy);
+
+        try (OutputStream responses = responsesFile != null ? Files.newOutputStream(responsesFile) : null) {
+            replay(workload, airplane, rate, responses);
+        }
+    }
+
+    /**
+     * Runs every command of a workload against a plane and prints the results.
+     *
+     * @param workload the commands
+     * @param airplane the plane to book
+     * @param rate the commands per second to send; 0 to send them as fast as possible
+     * @param responses receives every response; null to drop them
+     * @throws IOException if the responses cannot be written
+     */
+    public static void replay(BookingWorkload workload, Airplane airplane, double rate, OutputStream responses)
+            throws IOException {
+        LatencyHistogram latency = new LatencyHistogram();
+        long interval = rate > 0 ? (long) (1e9 / rate) : 0L;
+        long startTime = System.nanoTime();
+        int[] counts = run(workload, airplane, interval, latency, responses);
+        long elapsed = System.nanoTime() - startTime;
+
+        System.out.printf("commands %d in %.1f ms, %.0f commands/s%s%n", workload.getNumOfCommands(), elapsed / 1e6,
+                          workload.getNumOfCommands() / (elapsed / 1e9),
+                          interval > 0 ? String.format(" (target %.0f)", rate) : "");
+        System.out.printf("booked %d, rejected %d, shown %d%n", counts[0], counts[1], counts[2]);
+        System.out.printf("latency us: p50 %.1f, p99 %.1f, p999 %.1f, max %.1f%n",
+                          latency.getPercentileNanos(0.50) / 1e3, latency.getPercentileNanos(0.99) / 1e3,
+                          latency.getPercentileNanos(0.999) / 1e3, latency.getMaxNanos() / 1e3);
+
+        int seats = 0;
+        int freeSeats = 0;
+
+        for (CabinClass cabinClass : CabinClass.values()) {
+            SeatingSection section = airplane.getSection(cabinClass);
+            int sectionSeats = section.getNumOfRows() * section.getNumOfColumns();
+
+            if (sectionSeats > 0) {
+                System.out.printf("load factor %s %.3f%n", cabinClass.getName(),
+                                  1.0 - (double) section.getFreeSeats() / sectionSeats);
+                seats += sectionSeats;
+                freeSeats += section.getFreeSeats();
+            }
+        }
+        System.out.printf("load factor %.3f%n", seats == 0 ? 0.0 : 1.0 - (double) freeSeats / seats);
+    }
+
+    /**
+     * Runs every command of a workload against a plane.
+     *
+     * @param workload the commands
+     * @param airplane the plane to book
+     * @param interval the nanoseconds between the commands' due times; 0 to run them back to back
+     * @param latency receives the latency of each command
+     * @param responses receives every response; null to drop them
+     * @return the number of commands that booked seats, were rejected, and showed the seat map
+     * @throws IOException if the responses cannot be written
+     */
+    private static int[] run(BookingWorkload workload, Airplane airplane, long interval, LatencyHistogram latency,
+                             OutputStream responses) throws IOException {
+        LineCommand command = new LineCommand();
+        ByteBuffer session = workload.getSession();
+        ByteBuffer out = ByteBuffer.allocate(4096);
+        int booked = 0;
+        int rejected = 0;
+        int shown = 0;
+        long startTime = System.nanoTime();
+
+        for (int i = 0; i < workload.getNumOfCommands(); ++i) {
+            long due = interval > 0 ? startTime + i * interval : System.nanoTime();
+
+            if (interval > 0) {
+                waitUntil(due);
+            }
+
+            out.clear();
+            command.parse(session, workload.getCommandStart(i), workload.getCommandEnd(i));
+            out = command.respond(airplane, out);
+            latency.record(System.nanoTime() - due);
+
+            // a response begins with OK, ERROR, MAP or BYE
+            if (out.get(0) == 'O') {
+                ++booked;
+            } else if (out.get(0) == 'E') {
+                ++rejected;
+            } else if (out.get(0) == 'M') {
+                ++shown;
+            }
+            if (responses != null) {
+                responses.write(out.array(), 0, out.position());
+            }
+        }
+        return new int[] {booked, rejected, shown};
+    }
+
+    /**
+     * Waits until a System.nanoTime(), parking while it is far off and spinning for the last stretch, which
+     * parking would overshoot.
+     *
+     * @param due the System.nanoTime() to wait for
+     */
+    private static void waitUntil(long due) {
+        long remaining;
+
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > 100_000L) {
+                LockSupport.parkNanos(remaining - 50_000L);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows of a cabin option (ex: 15 for "15x3-3").
+     *
+     * @param cabin the rows and the seat layout, separated by an "x"
+     * @return the number of rows
+     */
+    private static int rowsOf(String cabin) {
+        return Integer.parseInt(cabin.substring(0, cabin.indexOf('x')));
+    }
+
+    /**
+     * Returns the seat layout of a cabin option (ex: "3-3" for "15x3-3").
+     *
+     * @param cabin the rows and the seat layout, separated by an "x"
+     * @return the seat layout
+     */
+    private static SeatLayout layoutOf(String cabin) {
+        return SeatLayout.parse(cabin.substring(cabin.indexOf('x') + 1));
+    }
+}
@@ -0,0 +1,134 @@
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Purpose: To demonstrate that a booking workload is deterministic: the same seed gives the same commands on every
+ *          run and every JVM, a recorded workload reads back byte for byte, and replaying it books the same seats
+ *          whether the plane is concurrent or not.
+ *
+ * Target Output: A message that every replay matched; otherwise an IllegalStateException describing the first
+ *                  difference.
+ */
+public class WorkloadReplayTest {
+
+    private static final int NUM_OF_COMMANDS = 10000;
+    // the CRC-32 of the commands of seed 1 with the default mix, which java.util.Random fixes for every JVM
+    private static final long SEED_1_CRC = 0x5CE283D5L;
+
+    /**
+     * Tests BookingWorkload and replaying it through LineCommand.
+     *
+     * @param args command-line arguments for the application of type String array
+     * @throws IOException if the recorded workload cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        BookingWorkload workload = BookingWorkload.generate(1, NUM_OF_COMMANDS, BookingWorkload.Mix.DEFAULT);
+        byte[] session = bytesOf(workload.getSession());
+
+        check(workload.getNumOfCommands() == NUM_OF_COMMANDS, "the workload has every command");
+        check(crcOf(session) == SEED_1_CRC, "seed 1 gives the commands it always has");
+        check(Arrays.equals(session, bytesOf(BookingWorkload.generate(1, NUM_OF_COMMANDS,
+                                                                        BookingWorkload.Mix.DEFAULT).getSession())),
+              "the same seed gives the same commands");
+        check(!Arrays.equals(session, bytesOf(BookingWorkload.generate(2, NUM_OF_COMMANDS,
+                                                                         BookingWorkload.Mix.DEFAULT).getSession())),
+              "another seed gives other commands");
+
+        Path file = Files.createTempFile("workload", ".txt");
+
+        try {
+            workload.write(file);
+
+            BookingWorkload recorded = BookingWorkload.read(file);
+
+            check(Arrays.equals(session, bytesOf(recorded.getSession())), "a recorded workload reads back as it was");
+
+            byte[] responses = replay(workload, false);
+
+            check(Arrays.equals(responses, replay(workload, false)), "replaying twice gives the same responses");
+            check(Arrays.equals(responses, replay(recorded, false)), "a recorded workload replays the same");
+            check(Arrays.equals(responses, replay(workload, true)), "a concurrent plane books the same seats");
+
+            // a file written by hand may end without a newline and use "\r\n"
+            Files.write(file, "ADD economy 2 window\r\nSHOW\r\nADD first 1 aisle".getBytes(StandardCharsets.US_ASCII));
+
+            BookingWorkload handWritten = BookingWorkload.read(file);
+
+            check(handWritten.getNumOfCommands() == 3, "a hand-written file has its three commands");
+            check(handWritten.getCommandEnd(0) - handWritten.getCommandStart(0) == "ADD economy 2 window".length(),
+                  "a command ends before its carriage return");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("Every replay of " + NUM_OF_COMMANDS + " commands matched.");
+    }
+
+    /**
+     * Runs every command of a workload against MainTest's plane and returns the responses.
+     *
+     * @param workload the commands
+     * @param concurrent true to book a concurrent plane; false otherwise.
+     * @return the responses, one after another
+     */
+    private static byte[] replay(BookingWorkload workload, boolean concurrent) {
+        Airplane airplane = new Airplane(5, SeatLayout.parse("2-2"), 15, SeatLayout.parse("3-3"), concurrent);
+        LineCommand command = new LineCommand();
+        ByteBuffer session = workload.getSession();
+        ByteBuffer out = ByteBuffer.allocate(4096);
+        ByteArrayOutputStream responses = new ByteArrayOutputStream();
+
+        for (int i = 0; i < workload.getNumOfCommands(); ++i) {
+            out.clear();
+            command.parse(session, workload.getCommandStart(i), workload.getCommandEnd(i));
+            out = command.respond(airplane, out);
+            responses.write(out.array(), 0, out.position());
+        }
+        return responses.toByteArray();
+    }
+
+    /**
+     * Returns the remaining bytes of a buffer.
+     *
+     * @param buffer the buffer
+     * @return a copy of its remaining bytes
+     */
+    private static byte[] bytesOf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the CRC-32 of some bytes.
+     *
+     * @param bytes the bytes
+     * @return the CRC-32
+     */
+    private static long crcOf(byte[] bytes) {
+        CRC32 crc = new CRC32();
+
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Throws if a condition does not hold.
+     *
+     * @param condition the condition
+     * @param description what the condition checks
+     * @throws IllegalStateException if the condition does not hold
+     */
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException("Failed: " + description);
+        }
+    }
+}